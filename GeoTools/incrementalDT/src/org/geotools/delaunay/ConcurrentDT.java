@@ -0,0 +1,470 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.vividsolutions.jts.geom.Coordinate;
+
+/*****************************************************************************
+ * The class for inserting points into one triangulation from more threads.
+ * The new point is inserted by Bowyer-Watson algorithm: triangles whose
+ * circle contains the point (cavity) are replaced by triangles between the
+ * point and edges of cavity. Every thread locks the cavity, its neighbours
+ * and indexes of new triangles before changing them, locks are only tried,
+ * so the thread which doesn't get a lock releases all its locks and repeats
+ * the insertion (optimistic locking). New triangles reuse indexes of the
+ * cavity and indexes reserved by the thread, so the data store isn't locked.
+ * Points which change convex hull are inserted by IncrementalDT while the
+ * thread holds all locks. Triangles are saved into DelaunayDataStoreArrays,
+ * because its triangles can be read while other threads write them.
+ */
+
+public class ConcurrentDT {
+	// number of locks, triangle with index i is guarded by lock i & (LOCKS - 1)
+	private static final int LOCKS = 1 << 12;
+	// number of optimistic attempts, then the point is inserted exclusively
+	private static final int ATTEMPTS = 32;
+	// number of indexes of triangles reserved by thread at once
+	private static final int BLOCK = 1 << 10;
+	// results of one optimistic attempt
+	private static final int INSERTED = 0;
+	private static final int CONFLICT = 1;
+	private static final int EXCLUSIVE = 2;
+	private static final int DUPLICATE = 3;
+
+	public DelaunayDataStoreArrays triangles;
+	// triangulation for points, which change convex hull
+	private IncrementalDT sequential;
+	private ReentrantLock[] locks = new ReentrantLock[LOCKS];
+	// number of repeated attempts
+	private AtomicLong conflicts = new AtomicLong();
+	// cavity of inserted point, one for every thread
+	private ThreadLocal cavities = new ThreadLocal() {
+		protected Object initialValue() {
+			return new Cavity();
+		}
+	};
+
+	/***************************************************************************
+	 * Constructor
+	 *
+	 * @param dataStore - empty DelaunayDataStoreArrays for saving triangles
+	 */
+
+	public ConcurrentDT(DelaunayDataStoreArrays dataStore) {
+		triangles = dataStore;
+		sequential = new IncrementalDT(dataStore);
+		for (int i = 0; i < LOCKS; i++)
+			locks[i] = new ReentrantLock();
+	}
+
+	/***************************************************************************
+	 * The method for inserting new point into triangulation, it can be
+	 * called by more threads at once
+	 *
+	 * @param point - Coordinate of point
+	 */
+
+	public void insertPoint(Coordinate point) {
+		PointDT P = new PointDT(point.x, point.y, point.z);
+		Cavity cavity = (Cavity) cavities.get();
+		for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+			int result;
+			try {
+				result = cavity.insert(P);
+			} finally {
+				cavity.unlock();
+			}
+			if (result == INSERTED || result == DUPLICATE)
+				return;
+			if (result == EXCLUSIVE)
+				break;
+			conflicts.incrementAndGet();
+			Thread.yield();
+		}
+		insertExclusively(P);
+	}
+
+	/***************************************************************************
+	 * The method for getting number of repeated attempts, which were caused
+	 * by locks of other threads
+	 *
+	 * @return number of conflicts
+	 */
+
+	public long getConflicts() {
+		return conflicts.get();
+	}
+
+	/***************************************************************************
+	 * The private method for inserting point by IncrementalDT. All locks
+	 * are taken in the same order, so no other thread changes triangles and
+	 * two exclusive threads can't wait for each other. Optimistic threads
+	 * only try locks, so they don't wait for the exclusive thread.
+	 */
+
+	private void insertExclusively(PointDT P) {
+		for (int i = 0; i < LOCKS; i++)
+			locks[i].lock();
+		try {
+			VertexTable vertexes = triangles.getVertexTable();
+			int numberOfVertexes = vertexes.size();
+			vertexes.add(P);
+			// test of duplicity, the point is already in table of vertexes
+			if (vertexes.size() == numberOfVertexes)
+				return;
+			sequential.number_Triangles = triangles.getNumberOfTriangles();
+			sequential.insertVertex(P);
+		} finally {
+			for (int i = LOCKS - 1; i >= 0; i--)
+				locks[i].unlock();
+		}
+	}
+
+	/***************************************************************************
+	 * The private method for searching triangle with vertexes u and v
+	 *
+	 * @return index of edge (0 - AB, 1 - BC, 2 - AC) or -1
+	 */
+
+	private static int edge(TriangleDT T, int u, int v) {
+		for (int e = 0; e < 3; e++) {
+			int a = (e == 1) ? T.B.id : T.A.id;
+			int b = (e == 0) ? T.B.id : T.C.id;
+			if ((a == u && b == v) || (a == v && b == u))
+				return e;
+		}
+		return -1;
+	}
+
+	/***************************************************************************
+	 * The private method for searching triangle by index in list
+	 */
+
+	private static TriangleDT find(ArrayList list, int index) {
+		for (int i = 0; i < list.size(); i++) {
+			TriangleDT T = (TriangleDT) list.get(i);
+			if (T.index == index)
+				return T;
+		}
+		return null;
+	}
+
+	/***************************************************************************
+	 * The private method for testing, if the point is vertex of triangle
+	 */
+
+	private static boolean isVertex(TriangleDT T, PointDT P) {
+		return (T.A.x == P.x && T.A.y == P.y) || (T.B.x == P.x && T.B.y == P.y)
+				|| (T.C.x == P.x && T.C.y == P.y);
+	}
+
+	/***************************************************************************
+	 * The private class with cavity of inserted point, locks held by the
+	 * thread and indexes of triangles reserved by the thread
+	 */
+
+	private class Cavity {
+		private Random walkRandom = new Random(Thread.currentThread().getId());
+		// index of the last inserted triangle of this thread
+		private int lastTriangle = -1;
+		private ArrayList held = new ArrayList();
+		// triangles whose circle contains point
+		private ArrayList inside = new ArrayList();
+		// neighbours of cavity
+		private ArrayList outside = new ArrayList();
+		private ArrayList newTriangles = new ArrayList();
+		// indexes of new triangles, the first ones are indexes of cavity
+		private IntStack indexes = new IntStack();
+		// free indexes of this thread and rest of reserved block
+		private IntStack free = new IntStack();
+		private int next = 0;
+		private int end = 0;
+
+		/***********************************************************************
+		 * The method for one attempt of inserting point, all taken locks
+		 * must be released by method unlock
+		 *
+		 * @param P - new point
+		 * @return INSERTED, CONFLICT, EXCLUSIVE or DUPLICATE
+		 */
+
+		int insert(PointDT P) {
+			int result = search(P);
+			if (result == INSERTED)
+				result = lockIndexes();
+			if (result == INSERTED)
+				retriangulate(P);
+			return result;
+		}
+
+		/***********************************************************************
+		 * The method for releasing all locks held by thread
+		 */
+
+		void unlock() {
+			for (int i = held.size() - 1; i >= 0; i--)
+				((ReentrantLock) held.get(i)).unlock();
+			held.clear();
+		}
+
+		/***********************************************************************
+		 * The private method for trying lock of triangle
+		 *
+		 * @return false if the lock is held by another thread
+		 */
+
+		private boolean lock(int index) {
+			ReentrantLock lock = locks[index & (LOCKS - 1)];
+			if (lock.isHeldByCurrentThread())
+				return true;
+			if (!lock.tryLock())
+				return false;
+			held.add(lock);
+			return true;
+		}
+
+		/***********************************************************************
+		 * The private method for searching and locking of cavity. Every
+		 * triangle is read after its lock is taken, writers hold the same
+		 * locks, so locked triangles are consistent until the end of attempt.
+		 *
+		 * @return INSERTED if the cavity is locked, CONFLICT, EXCLUSIVE or
+		 *         DUPLICATE
+		 */
+
+		private int search(PointDT P) {
+			TriangleDT T = locate(P);
+			if (T == null)
+				return (triangles.getNumberOfTriangles() == 0) ? EXCLUSIVE
+						: CONFLICT;
+			if (!lock(T.index))
+				return CONFLICT;
+			T = triangles.readTriangle(T.index);
+			if (T == null)
+				return CONFLICT;
+			if (!T.contains(P)) {
+				// point is out of convex hull or the walk read changed triangles
+				for (int e = 0; e < 3; e++)
+					if (T.neighbour[e] == -1)
+						return EXCLUSIVE;
+				return CONFLICT;
+			}
+			if (isVertex(T, P))
+				return DUPLICATE;
+			inside.clear();
+			outside.clear();
+			inside.add(T);
+			for (int k = 0; k < inside.size(); k++) {
+				TriangleDT C = (TriangleDT) inside.get(k);
+				for (int e = 0; e < 3; e++) {
+					int n = C.neighbour[e];
+					// edge of convex hull, hull is changed exclusively
+					if (n == -1)
+						return EXCLUSIVE;
+					PointDT U = (e == 1) ? C.B : C.A;
+					PointDT V = (e == 0) ? C.B : C.C;
+					TriangleDT N = find(inside, n);
+					if (N == null)
+						N = find(outside, n);
+					if (N == null) {
+						if (!lock(n))
+							return CONFLICT;
+						N = triangles.readTriangle(n);
+						if (N == null)
+							return CONFLICT;
+						if (Predicates.inCircle(N.A, N.B, N.C, P))
+							inside.add(N);
+						else
+							outside.add(N);
+					}
+					int f = edge(N, U.id, V.id);
+					if (f == -1 || N.neighbour[f] != C.index)
+						return CONFLICT;
+					// point on the edge of cavity
+					if (Predicates.orient2d(U, V, P) == 0 && find(outside, n) != null)
+						return EXCLUSIVE;
+				}
+			}
+			return INSERTED;
+		}
+
+		/***********************************************************************
+		 * The private method for locking indexes of new triangles before
+		 * they are written. Indexes of cavity are reused, the others are
+		 * taken from indexes of this thread.
+		 *
+		 * @return INSERTED if all indexes are locked or CONFLICT
+		 */
+
+		private int lockIndexes() {
+			indexes.clear();
+			for (int i = 0; i < inside.size(); i++)
+				indexes.push(((TriangleDT) inside.get(i)).index);
+			int count = 0;
+			for (int i = 0; i < inside.size(); i++) {
+				TriangleDT C = (TriangleDT) inside.get(i);
+				for (int e = 0; e < 3; e++)
+					if (find(outside, C.neighbour[e]) != null)
+						count++;
+			}
+			// the cavity is disc, it has two edges more than triangles
+			if (count != inside.size() + 2)
+				return EXCLUSIVE;
+			while (indexes.size() < count) {
+				int index = allocate();
+				indexes.push(index);
+				if (!lock(index)) {
+					for (int i = indexes.size() - 1; i >= inside.size(); i--)
+						free.push(indexes.get(i));
+					return CONFLICT;
+				}
+			}
+			return INSERTED;
+		}
+
+		/***********************************************************************
+		 * The private method for getting free index of this thread, new
+		 * block of indexes is reserved when the old one is used
+		 */
+
+		private int allocate() {
+			if (!free.isEmpty())
+				return free.pop();
+			if (next == end) {
+				next = triangles.reserve(BLOCK);
+				end = next + BLOCK;
+			}
+			return next++;
+		}
+
+		/***********************************************************************
+		 * The private method for replacing locked cavity by triangles between
+		 * point P and edges of cavity
+		 */
+
+		private void retriangulate(PointDT P) {
+			triangles.getVertexTable().append(P);
+			newTriangles.clear();
+			for (int i = 0; i < inside.size(); i++) {
+				TriangleDT C = (TriangleDT) inside.get(i);
+				for (int e = 0; e < 3; e++) {
+					TriangleDT O = find(outside, C.neighbour[e]);
+					if (O == null)
+						continue;
+					PointDT U = (e == 1) ? C.B : C.A;
+					PointDT V = (e == 0) ? C.B : C.C;
+					TriangleDT N = new TriangleDT(U, V, P);
+					N.index = indexes.get(newTriangles.size());
+					N.saveNeighbour(O);
+					newTriangles.add(N);
+				}
+			}
+			// new triangles are neighbours along edges with point P
+			for (int i = 0; i < newTriangles.size(); i++) {
+				TriangleDT N = (TriangleDT) newTriangles.get(i);
+				for (int j = i + 1; j < newTriangles.size(); j++)
+					N.saveNeighbour((TriangleDT) newTriangles.get(j));
+			}
+			for (int i = 0; i < newTriangles.size(); i++)
+				triangles.write((TriangleDT) newTriangles.get(i));
+			for (int i = 0; i < outside.size(); i++)
+				triangles.update((TriangleDT) outside.get(i));
+			lastTriangle = ((TriangleDT) newTriangles.get(0)).index;
+		}
+
+		/***********************************************************************
+		 * The private method for walking without locks from the nearest of
+		 * the last triangle of thread and random triangles to the triangle
+		 * which contains P. Triangles can be changed during the walk, the
+		 * result is tested again after its lock is taken.
+		 *
+		 * @return triangle which contains P, triangle on convex hull or null
+		 */
+
+		private TriangleDT locate(PointDT P) {
+			int size = triangles.getNumberOfTriangles();
+			if (size == 0)
+				return null;
+			// the nearest of the last triangle and random samples
+			TriangleDT T = triangles.readTriangle(lastTriangle);
+			double minDistance = (T == null) ? Double.POSITIVE_INFINITY
+					: squareDistance(T, P);
+			int samples = Math.max(16, (int) Math.pow(size, 1.0 / 3.0));
+			for (int i = 0; i < samples; i++) {
+				TriangleDT S = triangles.readTriangle(walkRandom.nextInt(size));
+				if (S != null && squareDistance(S, P) < minDistance) {
+					minDistance = squareDistance(S, P);
+					T = S;
+				}
+			}
+			if (T == null)
+				return null;
+			for (int steps = 0; steps <= size; steps++) {
+				int edge = leavingEdge(T, P);
+				if (edge == -1)
+					return T;
+				TriangleDT N = triangles.readTriangle(T.neighbour[edge]);
+				if (N == null)
+					return T;
+				T = N;
+			}
+			return null;
+		}
+
+		/***********************************************************************
+		 * The private method for computing square of distance between first
+		 * vertex of triangle and point
+		 */
+
+		private double squareDistance(TriangleDT T, PointDT P) {
+			return (T.A.x - P.x) * (T.A.x - P.x) + (T.A.y - P.y) * (T.A.y - P.y);
+		}
+
+		/***********************************************************************
+		 * The private method for finding edge of triangle, which separates
+		 * the triangle from point P, edges are tested in random order
+		 *
+		 * @return index of the edge or -1 if the triangle contains P
+		 */
+
+		private int leavingEdge(TriangleDT T, PointDT P) {
+			int first = walkRandom.nextInt(3);
+			for (int k = 0; k < 3; k++) {
+				int e = (first + k) % 3;
+				PointDT U = (e == 1) ? T.B : T.A;
+				PointDT V = (e == 0) ? T.B : T.C;
+				PointDT W = (e == 0) ? T.C : (e == 1) ? T.A : T.B;
+				double sideP = Predicates.orient2d(U, V, P);
+				double sideW = Predicates.orient2d(U, V, W);
+				if ((sideP < 0 && sideW > 0) || (sideP > 0 && sideW < 0))
+					return e;
+			}
+			return -1;
+		}
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *    
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3 
+ */
+
+package org.geotools.delaunay;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import junit.framework.*;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+
+public class ConcurrentDTTest extends TestCase {
+	// number of pairs of points inserted at once by two threads
+	private static final int ROUNDS = 1000;
+	LinkedList points = new LinkedList();
+	DelaunayDataStoreArrays triangles = new DelaunayDataStoreArrays();
+	ConcurrentDT triangulace = new ConcurrentDT(triangles);
+	
+	public ConcurrentDTTest(String name){
+		super(name);
+	}
+
+	/****************************************************************
+	 * The data store, which lets other threads run during writing of
+	 * new triangles, so threads change neighbouring triangles at once
+	 * also on computer with one processor
+	 */
+	static class YieldingDataStore extends DelaunayDataStoreArrays {
+		void write(TriangleDT T){
+			Thread.yield();
+			super.write(T);
+		}
+	}
+	
+	protected void setUp() throws Exception{
+		Random random = new Random(1);
+		final Coordinate[] newPoints = new Coordinate[1000];
+		for (int i=0;i<newPoints.length;i++){
+			newPoints[i] = new Coordinate((random.nextDouble()*1000000),(random.nextDouble()*1000000),0);
+			points.add(newPoints[i]);
+		}
+		// every thread inserts every fourth point
+		Thread[] threads = new Thread[4];
+		for (int t=0;t<threads.length;t++){
+			final int first = t;
+			threads[t] = new Thread(){
+				public void run(){
+					for (int i=first;i<newPoints.length;i+=4)
+						triangulace.insertPoint(newPoints[i]);
+				}
+			};
+			threads[t].start();
+		}
+		for (int t=0;t<threads.length;t++)
+			threads[t].join();
+	}
+
+	/****************************************************************
+	 * The test which tests all circum circle of triangles, if they not contain
+	 * another point
+	 */
+	public void testDelaunayCircles(){
+		TINAssert.assertDelaunayCircles(triangles, points);
+	}
+
+	/**********************************************************************
+	 * The test which test, if all input points are in triangulation as vertex
+	 */
+	public void testAllPointsExistInTIN(){
+		TINAssert.assertAllPointsExistInTIN(triangles, points);
+	}
+
+	/********************************************************************
+	 * the test which tests, if neighbours of triangles have common edge
+	 */
+	public void testNeighbours(){
+		TINAssert.assertNeighbours(triangles, points.size());
+	}
+	
+	/********************************************************************
+	 * the test with two threads, which insert points near each other at
+	 * once, so their cavities are adjacent or they overlap
+	 */
+	public void testAdjacentCavities() throws Exception{
+		DelaunayDataStoreArrays grid = new YieldingDataStore();
+		final ConcurrentDT concurrent = new ConcurrentDT(grid);
+		LinkedList gridPoints = new LinkedList();
+		Random random = new Random(2);
+		for (int i = 0; i < 30; i++)
+			for (int j = 0; j < 30; j++){
+				Coordinate point = new Coordinate(i + random.nextDouble()*0.5, j + random.nextDouble()*0.5, 0);
+				concurrent.insertPoint(point);
+				gridPoints.add(point);
+			}
+		final Coordinate[][] pairs = new Coordinate[2][ROUNDS];
+		for (int r = 0; r < ROUNDS; r++){
+			double x = 2 + random.nextDouble()*25;
+			double y = 2 + random.nextDouble()*25;
+			pairs[0][r] = new Coordinate(x, y, 0);
+			pairs[1][r] = new Coordinate(x + 0.2 + random.nextDouble()*0.5, y + random.nextDouble()*0.5, 0);
+			gridPoints.add(pairs[0][r]);
+			gridPoints.add(pairs[1][r]);
+		}
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		final Throwable[] failures = new Throwable[2];
+		Thread[] threads = new Thread[2];
+		for (int t = 0; t < threads.length; t++){
+			final int thread = t;
+			threads[t] = new Thread(){
+				public void run(){
+					try {
+						for (int r = 0; r < ROUNDS; r++){
+							barrier.await();
+							concurrent.insertPoint(pairs[thread][r]);
+						}
+					}
+					catch (Throwable e){
+						failures[thread] = e;
+						barrier.reset();
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length; t++)
+			threads[t].join();
+		assertNull(failures[0]);
+		assertNull(failures[1]);
+		TINAssert.assertNeighbours(grid, gridPoints.size());
+		TINAssert.assertAllPointsExistInTIN(grid, gridPoints);
+		TINAssert.assertDelaunayCircles(grid, gridPoints);
+	}
+	
+	public static Test suite(){
+		return new TestSuite(ConcurrentDTTest.class);
+	}
+	
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+
+}
@@ -0,0 +1,265 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*****************************************************************************
+ * The class of convex hull of triangulation. The hull is doubly linked ring
+ * of vertex ids in counterclockwise order, points on the edge of hull are in
+ * the ring too. For every edge of hull (from vertex to the next vertex) the
+ * index of triangle with this edge is saved.
+ */
+
+public class ConvexHull {
+	// next vertex of hull in counterclockwise order, -1 if vertex isn't on hull
+	private int[] next = new int[0];
+	// previous vertex of hull
+	private int[] previous = new int[0];
+	// index of triangle with edge from vertex to next vertex
+	private int[] triangle = new int[0];
+	// one of vertexes on hull
+	private int vertex = -1;
+
+	/***************************************************************************
+	 * The method for creating hull of first triangle
+	 *
+	 * @param a - id of first vertex
+	 * @param b - id of second vertex
+	 * @param c - id of third vertex, a, b, c are counterclockwise
+	 * @param index - index of triangle in DelaunayDataStore
+	 */
+
+	public void init(int a, int b, int c, int index) {
+		link(a, b);
+		link(b, c);
+		link(c, a);
+		setTriangle(a, index);
+		setTriangle(b, index);
+		setTriangle(c, index);
+		vertex = a;
+	}
+
+	/***************************************************************************
+	 * The method for getting any vertex of hull
+	 *
+	 * @return id of vertex on hull
+	 */
+
+	public int getVertex() {
+		return vertex;
+	}
+
+	/***************************************************************************
+	 * The method for testing, if the vertex is on hull
+	 *
+	 * @param id - id of vertex
+	 * @return true - vertex is on hull
+	 */
+
+	public boolean contains(int id) {
+		return id < next.length && next[id] != -1;
+	}
+
+	/***************************************************************************
+	 * The method for getting next vertex of hull
+	 *
+	 * @param id - id of vertex on hull
+	 * @return id of next vertex in counterclockwise order
+	 */
+
+	public int next(int id) {
+		return next[id];
+	}
+
+	/***************************************************************************
+	 * The method for getting previous vertex of hull
+	 *
+	 * @param id - id of vertex on hull
+	 * @return id of previous vertex in counterclockwise order
+	 */
+
+	public int previous(int id) {
+		return previous[id];
+	}
+
+	/***************************************************************************
+	 * The method for getting triangle with edge of hull
+	 *
+	 * @param id - id of first vertex of edge
+	 * @return index of triangle in DelaunayDataStore
+	 */
+
+	public int getTriangle(int id) {
+		return triangle[id];
+	}
+
+	/***************************************************************************
+	 * The method for saving triangle with edge of hull
+	 *
+	 * @param id - id of first vertex of edge
+	 * @param index - index of triangle in DelaunayDataStore
+	 */
+
+	public void setTriangle(int id, int index) {
+		triangle[id] = index;
+	}
+
+	/***************************************************************************
+	 * The method for replacing part of hull between vertexes a and b by the
+	 * new vertex P. Vertexes between a and b are removed from hull.
+	 *
+	 * @param a - id of vertex before P
+	 * @param p - id of new vertex
+	 * @param b - id of vertex after P
+	 */
+
+	public void insert(int a, int p, int b) {
+		int id = next[a];
+		while (id != b) {
+			int n = next[id];
+			next[id] = -1;
+			previous[id] = -1;
+			triangle[id] = -1;
+			id = n;
+		}
+		link(a, p);
+		link(p, b);
+		vertex = p;
+	}
+
+	/***************************************************************************
+	 * The method for replacing part of hull between vertexes a and b by the
+	 * chain of vertexes. Vertexes between a and b are removed from hull.
+	 *
+	 * @param a - id of vertex before chain
+	 * @param ids - ids of vertexes in counterclockwise order, can be empty
+	 * @param b - id of vertex after chain
+	 */
+
+	public void replace(int a, int[] ids, int b) {
+		int id = next[a];
+		while (id != b) {
+			int n = next[id];
+			next[id] = -1;
+			previous[id] = -1;
+			triangle[id] = -1;
+			id = n;
+		}
+		int last = a;
+		for (int i = 0; i < ids.length; i++) {
+			link(last, ids[i]);
+			last = ids[i];
+		}
+		link(last, b);
+		vertex = a;
+	}
+
+	/***************************************************************************
+	 * The method for writing hull into checkpoint of triangulation. Vertexes
+	 * are written in counterclockwise order with triangles of their edges.
+	 *
+	 * @param out - output stream
+	 * @throws IOException
+	 */
+
+	void write(DataOutputStream out) throws IOException {
+		int count = 0;
+		if (vertex != -1) {
+			int id = vertex;
+			do {
+				count++;
+				id = next[id];
+			} while (id != vertex);
+		}
+		out.writeInt(count);
+		int id = vertex;
+		for (int i = 0; i < count; i++) {
+			out.writeInt(id);
+			out.writeInt(triangle[id]);
+			id = next[id];
+		}
+	}
+
+	/***************************************************************************
+	 * The method for reading hull written by method write, the old hull is
+	 * replaced
+	 *
+	 * @param in - input stream
+	 * @throws IOException
+	 */
+
+	void read(DataInputStream in) throws IOException {
+		next = new int[0];
+		previous = new int[0];
+		triangle = new int[0];
+		vertex = -1;
+		int count = in.readInt();
+		if (count == 0)
+			return;
+		int[] ids = new int[count];
+		int[] indexes = new int[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = in.readInt();
+			indexes[i] = in.readInt();
+		}
+		for (int i = 0; i < count; i++)
+			link(ids[i], ids[(i + 1) % count]);
+		for (int i = 0; i < count; i++)
+			setTriangle(ids[i], indexes[i]);
+		vertex = ids[0];
+	}
+
+	/***************************************************************************
+	 * The private method for linking two vertexes of hull
+	 */
+
+	private void link(int a, int b) {
+		ensureCapacity(Math.max(a, b) + 1);
+		next[a] = b;
+		previous[b] = a;
+	}
+
+	/***************************************************************************
+	 * The private method for growing of arrays, new items are -1
+	 */
+
+	private void ensureCapacity(int size) {
+		if (size <= next.length)
+			return;
+		int length = Math.max(size, 2 * next.length);
+		next = grow(next, length);
+		previous = grow(previous, length);
+		triangle = grow(triangle, length);
+	}
+
+	private static int[] grow(int[] array, int length) {
+		int[] newArray = new int[length];
+		System.arraycopy(array, 0, newArray, 0, array.length);
+		Arrays.fill(newArray, array.length, length, -1);
+		return newArray;
+	}
+
+}
@@ -27,7 +27,8 @@ import com.vividsolutions.jts.geom.Envelope;
 public interface DelaunayDataStore {
 
 	/*****************************************************************
-	 * The predefinied method for inserting into data structure
+	 * The predefinied method for inserting into data structure. The index
+	 * of triangle in data structure is saved to T.index
 	 * @param T - input triangle
 	 * @param key - key of triangle
 	 */	
@@ -39,6 +40,27 @@ public interface DelaunayDataStore {
 	 */	
 	public void delete(double[] key);
 
+	/*****************************************************************
+	 * The predefinied method for deleting triangle in data structure
+	 * without searching of key
+	 * @param index - index of triangle
+	 */	
+	public void delete(int index);
+
+	/*****************************************************************
+	 * The predefinied method for saving changed neighbours of triangle
+	 * on its index in data structure. Vertexes of triangle can't be changed.
+	 * @param T - changed triangle
+	 */	
+	public void update(TriangleDT T);
+
+	/*****************************************************************
+	 * The predefinied method for getting table of vertexes. Vertexes of
+	 * inserted triangles are saved into this table.
+	 * @return table of vertexes
+	 */	
+	public VertexTable getVertexTable();
+
 	/*****************************************************************
 	 * The predefinied method for setting searched envelope
 	 * @param key - key of triangle
@@ -0,0 +1,479 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import java.io.IOException;
+
+import org.geotools.index.Data;
+import org.geotools.index.DataDefinition;
+import org.geotools.index.rtree.RTree;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.LinkedList;
+import java.util.Iterator;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/*****************************************************************************
+ * The data store which saves triangles into arrays of primitive types. Each
+ * vertex is saved only once into VertexTable, triangle is saved as
+ * three indexes of vertexes and three indexes of neighbours. Arrays grow in
+ * chunks, so they are never copied. Methods getTriangle return new TriangleDT
+ * which is only view of the arrays, changed neighbours must be saved by method
+ * update. Chunks are published through volatile references before the
+ * number of triangles grows, so ConcurrentDT can read triangles while other
+ * threads write them. Its threads write triangles into reserved indexes
+ * without locking of data store.
+ */
+
+public class DelaunayDataStoreArrays implements DelaunayDataStore {
+	// number of items in one chunk of arrays is 2^CHUNK_BITS
+	private static final int CHUNK_BITS = 16;
+	private static final int CHUNK = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK - 1;
+	private VertexTable vertexTable = new VertexTable();
+	// indexes of vertexes A, B, C of triangles, -1 for deleted triangle
+	private volatile int[][] vertexes = new int[0][];
+	// indexes of neighbours of triangles (0 - AB, 1 - BC, 2 - AC)
+	private volatile int[][] neighbours = new int[0][];
+	private volatile boolean[][] breakLines = new boolean[0][];
+	// stack with deleted indexes in arrays of triangles
+	private int[] deletedIdx = new int[16];
+	private int numberOfDeleted = 0;
+	public volatile int numberOfTriangles = 0;
+	public boolean statusInserting = true;
+	// packed rtree (Sort-Tile-Recursive) with envelopes of triangles, it is
+	// loaded by closing of inserting and rebuilt after inserting of triangle
+	private STRtree envelopes = null;
+	// rtree is created only when it is needed (searching by key or envelope)
+	private RTree rt = null;
+	private DataDefinition dd = new DataDefinition("US-ASCII");
+	// false if rtree doesn't contain actual triangles
+	private boolean indexIsValid = false;
+
+	/***********************************************************************
+	 * Constructor
+	 */
+
+	public DelaunayDataStoreArrays() {
+		dd.addField(Integer.class);
+	}
+
+	/*****************************************************************
+	 * The private method for adding new chunk of triangles
+	 */
+	private void growTriangles() {
+		int chunks = vertexes.length;
+		int[][] newVertexes = new int[chunks + 1][];
+		int[][] newNeighbours = new int[chunks + 1][];
+		boolean[][] newBreakLines = new boolean[chunks + 1][];
+		System.arraycopy(vertexes, 0, newVertexes, 0, chunks);
+		System.arraycopy(neighbours, 0, newNeighbours, 0, chunks);
+		System.arraycopy(breakLines, 0, newBreakLines, 0, chunks);
+		newVertexes[chunks] = new int[3 * CHUNK];
+		newNeighbours[chunks] = new int[3 * CHUNK];
+		newBreakLines[chunks] = new boolean[CHUNK];
+		vertexes = newVertexes;
+		neighbours = newNeighbours;
+		breakLines = newBreakLines;
+	}
+
+	/*****************************************************************
+	 * The predefinied method for getting table of vertexes
+	 * @return table of vertexes
+	 */
+	public VertexTable getVertexTable() {
+		return vertexTable;
+	}
+
+	/*****************************************************************
+	 * The predefinied method for inserting into data structure
+	 * @param T - input triangle
+	 * @param key - key of triangle
+	 */
+	public synchronized void insertToTree(TriangleDT T, double[] key) {
+		if (numberOfDeleted > 0)
+			T.index = deletedIdx[--numberOfDeleted];
+		else {
+			if (numberOfTriangles == vertexes.length * CHUNK)
+				growTriangles();
+			T.index = numberOfTriangles++;
+		}
+		int[] v = vertexes[T.index >> CHUNK_BITS];
+		int i = 3 * (T.index & CHUNK_MASK);
+		v[i] = vertexTable.add(T.A);
+		v[i + 1] = vertexTable.add(T.B);
+		v[i + 2] = vertexTable.add(T.C);
+		update(T);
+		vertexTable.setTriangle(v[i], T.index);
+		vertexTable.setTriangle(v[i + 1], T.index);
+		vertexTable.setTriangle(v[i + 2], T.index);
+		if (!statusInserting)
+			envelopes = null;
+		if (indexIsValid){
+			try {
+				Data data = new Data(dd);
+				data.addValue(T.index);
+				rt.insert(new Envelope(new Coordinate(key[0], key[1])), data);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/*****************************************************************
+	 * The method for reserving indexes of triangles for one thread of
+	 * ConcurrentDT. Reserved triangles are deleted until they are written
+	 * by method write.
+	 * @param count - number of indexes
+	 * @return first reserved index
+	 */
+	synchronized int reserve(int count) {
+		int first = numberOfTriangles;
+		while (first + count > vertexes.length * CHUNK)
+			growTriangles();
+		for (int i = first; i < first + count; i++)
+			vertexes[i >> CHUNK_BITS][3 * (i & CHUNK_MASK)] = -1;
+		numberOfTriangles = first + count;
+		return first;
+	}
+
+	/*****************************************************************
+	 * The method for writing triangle into reserved or reused index
+	 * without locking, vertexes of triangle have to be in table of
+	 * vertexes. The caller (ConcurrentDT) holds the lock of index.
+	 * @param T - triangle with index
+	 */
+	void write(TriangleDT T) {
+		int[] v = vertexes[T.index >> CHUNK_BITS];
+		int i = 3 * (T.index & CHUNK_MASK);
+		v[i] = T.A.id;
+		v[i + 1] = T.B.id;
+		v[i + 2] = T.C.id;
+		update(T);
+		vertexTable.setTriangle(T);
+		indexIsValid = false;
+		if (!statusInserting)
+			envelopes = null;
+	}
+
+	/*****************************************************************
+	 * The predefinied method for deleting triangle in data structure
+	 * @param key - key of triangle
+	 */
+	public void delete(double[] key) {
+		TriangleDT T = getTriangle(key);
+		if (T != null)
+			delete(T.index);
+	}
+
+	/*****************************************************************
+	 * The predefinied method for deleting triangle in data structure
+	 * without searching of key, rtree will be rebuilt when it is needed
+	 * @param index - index of triangle
+	 */
+	public synchronized void delete(int index) {
+		if (index < 0 || index >= numberOfTriangles
+				|| vertexes[index >> CHUNK_BITS][3 * (index & CHUNK_MASK)] == -1)
+			return;
+		vertexes[index >> CHUNK_BITS][3 * (index & CHUNK_MASK)] = -1;
+		if (numberOfDeleted == deletedIdx.length){
+			int[] newDeletedIdx = new int[2 * deletedIdx.length];
+			System.arraycopy(deletedIdx, 0, newDeletedIdx, 0, numberOfDeleted);
+			deletedIdx = newDeletedIdx;
+		}
+		deletedIdx[numberOfDeleted++] = index;
+		indexIsValid = false;
+	}
+
+	/*****************************************************************
+	 * The predefinied method for saving changed neighbours of triangle
+	 * @param T - changed triangle
+	 */
+	public void update(TriangleDT T) {
+		int[] n = neighbours[T.index >> CHUNK_BITS];
+		int i = 3 * (T.index & CHUNK_MASK);
+		n[i] = T.neighbour[0];
+		n[i + 1] = T.neighbour[1];
+		n[i + 2] = T.neighbour[2];
+		breakLines[T.index >> CHUNK_BITS][T.index & CHUNK_MASK] = T.haveBreakLine;
+	}
+
+	/*****************************************************************
+	 * The method rebuilds rtree, if it doesn't contain actual triangles.
+	 * Rtree contains keys of triangles, envelopes of triangles are saved
+	 * in packed rtree after closing of inserting
+	 */
+	private void validateIndex() {
+		if (indexIsValid)
+			return;
+		try {
+			rt = EnvelopeIndex.keys(this, dd);
+			indexIsValid = true;
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/*****************************************************************
+	 * The predefinied method for searching nearest triangles
+	 * @param key - key of triangle
+	 * @return nearest triangle from key. Key is as coordinate (key[0] is x, key[1] is y
+	 */
+	public TriangleDT searchNearest(double[] key) {
+		if (numberOfTriangles == numberOfDeleted)
+			return null;
+		validateIndex();
+		TriangleDT nearest = null;
+		try {
+			Envelope bounds = rt.getBounds();
+			double size = Math.max(bounds.getWidth(), bounds.getHeight())
+					/ Math.sqrt(numberOfTriangles - numberOfDeleted);
+			if (size == 0)
+				size = Double.POSITIVE_INFINITY;
+			for (int i = 1; nearest == null; i++) {
+				double envHeight = size * i * i;
+				List res = rt.search(new Envelope(key[0] - envHeight, key[0]
+						+ envHeight, key[1] - envHeight, key[1] + envHeight));
+				double minDistance = Double.POSITIVE_INFINITY;
+				Iterator iter = res.iterator();
+				while (iter.hasNext()) {
+					TriangleDT T = getTriangle(((Integer) ((Data) iter.next())
+							.getValue(0)).intValue());
+					double distance = (T.key[0] - key[0]) * (T.key[0] - key[0])
+							+ (T.key[1] - key[1]) * (T.key[1] - key[1]);
+					if (distance < minDistance) {
+						minDistance = distance;
+						nearest = T;
+					}
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return nearest;
+	}
+
+	/*****************************************************************
+	 * The predefinied method for getting triangle with definied key
+	 * @param key - key of triangle. Key is as coordinate (key[0] is x, key[1] is y)
+	 * @return triangle with key
+	 */
+	public TriangleDT getTriangle(double []key){
+		validateIndex();
+		try{
+			List list = rt.search(new Envelope(new Coordinate(key[0], key[1])));
+			Iterator iter = list.iterator();
+			while (iter.hasNext()){
+				TriangleDT T = getTriangle(((Integer) ((Data) iter.next())
+						.getValue(0)).intValue());
+				if (T != null && T.key[0] == key[0] && T.key[1] == key[1])
+					return T;
+			}
+		}
+		catch (Exception e){
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/*****************************************************************
+	 * The predefinied method for getting triangle with definied key
+	 * @param index - index in data structure
+	 * @return triangle with index, it is only view of arrays
+	 */
+	public TriangleDT getTriangle(int index){
+		if (index < 0 || index >= numberOfTriangles)
+			return null;
+		int[] v = vertexes[index >> CHUNK_BITS];
+		int i = 3 * (index & CHUNK_MASK);
+		if (v[i] == -1)
+			return null;
+		return view(index, v[i], v[i + 1], v[i + 2]);
+	}
+
+	/*****************************************************************
+	 * The method for reading triangle, which can be written by other
+	 * thread at the same time. Only published chunks are read, so the
+	 * triangle can be inconsistent, but the reading doesn't fail. The
+	 * triangle read with its lock held (ConcurrentDT) is consistent.
+	 * @param index - index in data structure
+	 * @return triangle or null if it is deleted or its vertexes aren't
+	 *         visible yet
+	 */
+	TriangleDT readTriangle(int index){
+		if (index < 0 || index >= numberOfTriangles)
+			return null;
+		int[] v = vertexes[index >> CHUNK_BITS];
+		int i = 3 * (index & CHUNK_MASK);
+		int a = v[i], b = v[i + 1], c = v[i + 2];
+		if (!vertexTable.isVisible(a) || !vertexTable.isVisible(b)
+				|| !vertexTable.isVisible(c))
+			return null;
+		return view(index, a, b, c);
+	}
+
+	/*****************************************************************
+	 * The private method for creating view of triangle with vertexes a,
+	 * b, c
+	 */
+	private TriangleDT view(int index, int a, int b, int c){
+		TriangleDT T = new TriangleDT(vertexTable.getVertex(a),
+				vertexTable.getVertex(b), vertexTable.getVertex(c));
+		T.index = index;
+		int i = 3 * (index & CHUNK_MASK);
+		int[] n = neighbours[index >> CHUNK_BITS];
+		T.neighbour[0] = n[i];
+		T.neighbour[1] = n[i + 1];
+		T.neighbour[2] = n[i + 2];
+		T.haveBreakLine = breakLines[index >> CHUNK_BITS][index & CHUNK_MASK];
+		return T;
+	}
+
+	/*****************************************************************
+	 * The method which get all intersect envelope
+	 * @param env - envelope
+	 * @return Collection which contain all envelope intersected by env
+	 */
+	public Collection getIntersectEnvelope(Envelope env) {
+		LinkedList list = new LinkedList();
+		if (!statusInserting){
+			if (envelopes == null)
+				envelopes = EnvelopeIndex.envelopes(this);
+			Iterator iter = envelopes.query(env).iterator();
+			while (iter.hasNext()){
+				TriangleDT T = getTriangle(((Integer)iter.next()).intValue());
+				if (T != null)
+					list.add(T);
+			}
+			return list;
+		}
+		validateIndex();
+		try{
+			List listOfTriangles = rt.search(env);
+			Iterator iter = listOfTriangles.iterator();
+			while (iter.hasNext()){
+				Data data = (Data)iter.next();
+				list.add(getTriangle(((Integer)data.getValue(0)).intValue()));
+			}
+		}
+		catch (Exception e){
+			e.printStackTrace();
+		}
+		return list;
+	}
+
+	/******************************************************************
+	 * The predefinied method for preorder testing
+	 * @param P - new point
+	 * @return - triangles which contain new P
+	 */
+	public TriangleDT preorderTest(Coordinate P) {
+		for (int i = 0; i<numberOfTriangles;i++){
+			TriangleDT T = getTriangle(i);
+			if (T!=null && T.contains(new PointDT(P)))
+				return T;
+		}
+		return null;
+	}
+
+	/******************************************************************
+	 * The predefinied method for preorder testing
+	 * @param A - vertex
+	 * @param B - vertex
+	 * @return - triangles which contain point A and point B
+	 */
+	public TriangleDT preorderTestContainTwoPoint(PointDT A, PointDT B){
+		for (int i = 0; i<numberOfTriangles;i++){
+			TriangleDT T = getTriangle(i);
+			if (T!=null && T.containsTwoPoints(A, B))
+				return T;
+		}
+		return null;
+	}
+
+	/******************************************************************
+	 * The predefinied method for creating shapefile
+	 * @param path - vertex
+	 * @param File - vertex
+	 * @param EPSG - EPSG code (EPSG:2165)
+	 */
+	public void createShapefile(String path, String File, String EPSG){
+		try {
+			ShapefileExport.createShapefile(this, path, File, EPSG);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/***********************************************************
+	 * The method get collection of all triangles
+	 * @return collection of all triangles
+	 */
+	public Collection getCollection(){
+		LinkedList res = new LinkedList();
+		for (int i=0; i<numberOfTriangles; i++){
+			TriangleDT T = getTriangle(i);
+			if (T!=null)
+				res.add(T);
+		}
+		return res;
+	}
+
+	/*****************************************************************
+	 * The method get number of triangles
+	 * @return number of triangles
+	 */
+	public int getNumberOfTriangles(){
+		return numberOfTriangles;
+	}
+
+	/******************************************************************
+	 * The method set number of triangles
+ 	 * @param number - new number of triangles
+	 */
+	public void setNumberOfTrinagles(int number){
+		numberOfTriangles = number;
+	}
+
+	/*****************************************************************
+	 * The predefined method for getting status of close inserting
+	 * @return true if the triangles are close inserting
+	 */
+
+	public boolean getStatusInserting(){
+		return statusInserting;
+	}
+
+	/*****************************************************************
+	 * method for close inserting, envelopes of all triangles are loaded
+	 * into packed rtree at once
+	 */
+	public void closeInserting(){
+		statusInserting = false;
+		envelopes = EnvelopeIndex.envelopes(this);
+	}
+
+}
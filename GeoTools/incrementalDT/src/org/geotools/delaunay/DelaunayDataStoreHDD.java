@@ -22,24 +22,14 @@ package org.geotools.delaunay;
 
 import java.io.File;
 
-import org.geotools.data.FeatureStore;
-import org.geotools.data.FeatureWriter;
-import org.geotools.data.shapefile.ShapefileDataStore;
-import org.geotools.feature.AttributeType;
-import org.geotools.feature.AttributeTypeFactory;
-import org.geotools.feature.Feature;
-import org.geotools.feature.FeatureType;
-import org.geotools.feature.FeatureTypeFactory;
 import org.geotools.index.Data;
 import org.geotools.index.DataDefinition;
 import org.geotools.index.rtree.PageStore;
 import org.geotools.index.rtree.RTree;
 import org.geotools.index.rtree.fs.FileSystemPageStore;
 import org.geotools.index.rtree.memory.MemoryPageStore;
-import org.geotools.referencing.CRS;
 
 import java.io.*;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -52,20 +42,47 @@ import java.util.Vector;
 
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Envelope;
-import com.vividsolutions.jts.geom.LinearRing;
-import com.vividsolutions.jts.io.WKTReader;
+import com.vividsolutions.jts.index.strtree.STRtree;
 
 public class DelaunayDataStoreHDD implements DelaunayDataStore {
 	// data structure which contain index into data structure with triangles
 	private RTree rt = null;
 	private Data data;
 	private DataDefinition dd = new DataDefinition("US-ASCII"); 
-	private ObjectToFile triangles = null;
+	// default size of cache of triangles in MB
+	public static final int CACHE_SIZE = 16;
+	private PageCache triangles = null;
+	private VertexTable vertexes = new VertexTable();
 	// list with deleted indexes in data structure with triangles
-	private LinkedList deletedIdx = new LinkedList();													// org.geotools.index.Data
+	private IntStack deletedIdx = new IntStack();													// org.geotools.index.Data
 	private Envelope env;
 	public int numberOfTriangles = 0;
 	public boolean statusInserting = true;
+	// packed rtree (Sort-Tile-Recursive) with envelopes of triangles, it is
+	// loaded by closing of inserting and rebuilt after inserting of triangle
+	private STRtree envelopes = null;
+	// false if the triangles were deleted by index and rtree doesn't contain actual keys
+	private boolean indexIsValid = true;
+	// magic number of checkpoint file - "TCKP"
+	private static final int CHECKPOINT_MAGIC = 0x54434B50;
+	private static final int CHECKPOINT_VERSION = 2;
+	// path plus name of file with triangles
+	private String fileName;
+	private ObjectToFile objectFile;
+	// number of the last checkpoint
+	private long generation = 0;
+	// stream of checkpoint file, which is written now
+	private FileOutputStream checkpointStream = null;
+	// rest of checkpoint file with state of triangulation after resuming
+	private DataInputStream resumeState = null;
+	// file of vertexes, records of new vertexes are appended by checkpoints
+	private RandomAccessFile vertexFile = null;
+	// number of vertexes in vertex file by the last checkpoint
+	private int savedVertexes = 0;
+	// number of vertexes and changed vertexes of checkpoint, which is
+	// written now
+	private int checkpointVertexes = 0;
+	private IntStack changedVertexes = null;
 	
 	/***********************************************************************
 	 * Constructor - set path and file to saving
@@ -73,9 +90,45 @@ public class DelaunayDataStoreHDD implements DelaunayDataStore {
 	 * @param file - name of file
 	 */
 	public DelaunayDataStoreHDD(String path, String file) {
+		this(path, file, CACHE_SIZE);
+	}
+
+	/***********************************************************************
+	 * Constructor - set path and file to saving and size of cache
+	 * @param path - path 
+	 * @param file - name of file
+	 * @param cacheSize - size of cache of triangles in MB
+	 */
+	public DelaunayDataStoreHDD(String path, String file, int cacheSize) {
+		this(path, file, cacheSize, false);
+	}
+
+	/***********************************************************************
+	 * Private constructor - the old file is deleted or opened for resuming
+	 * @param path - path 
+	 * @param file - name of file
+	 * @param cacheSize - size of cache of triangles in MB
+	 * @param resume - true if the file is opened from checkpoint
+	 */
+	private DelaunayDataStoreHDD(String path, String file, int cacheSize, boolean resume) {
 		dd.addField(Integer.class);
-		triangles = new ObjectToFile(path+file);		
+		fileName = path+file;
+		if (!resume){
+			File checkpoint = new File(fileName + ".checkpoint");
+			if (checkpoint.exists())
+				checkpoint.delete();
+			File vertexesFile = new File(fileName + ".vertexes");
+			if (vertexesFile.exists())
+				vertexesFile.delete();
+		}
+		// checkpoint which wasn't finished before crash
+		File unfinished = new File(fileName + ".checkpoint.tmp");
+		if (unfinished.exists())
+			unfinished.delete();
+		objectFile = new ObjectToFile(fileName, resume);
+		triangles = new PageCache(objectFile, vertexes, cacheSize);
 		try {
+			vertexFile = new RandomAccessFile(fileName + ".vertexes", "rw");
 			PageStore ps = new MemoryPageStore(dd);
 			rt = new RTree(ps); 
 			
@@ -85,6 +138,196 @@ public class DelaunayDataStoreHDD implements DelaunayDataStore {
 	
 	}
 	
+	/***********************************************************************
+	 * The method for opening data store from the last checkpoint. The file
+	 * of triangles is returned to the state of checkpoint, the rest of
+	 * checkpoint is read by getCheckpointState.
+	 * @param path - path 
+	 * @param file - name of file
+	 * @param cacheSize - size of cache of triangles in MB
+	 * @return data store with triangles of checkpoint
+	 * @throws IOException if the checkpoint doesn't exist or can't be read
+	 */
+	public static DelaunayDataStoreHDD resume(String path, String file, int cacheSize) throws IOException {
+		if (!new File(path + file).exists() || !new File(path + file + ".checkpoint").exists())
+			throw new IOException("Checkpoint of " + path + file + " doesn't exist");
+		DelaunayDataStoreHDD store = new DelaunayDataStoreHDD(path, file, cacheSize, true);
+		store.readCheckpoint();
+		return store;
+	}
+
+	/***********************************************************************
+	 * The method for starting of checkpoint. Changed triangles are written
+	 * into file, vertexes added since the last checkpoint are appended to
+	 * vertex file and the state of data store is written into new
+	 * checkpoint file with changed older vertexes. The returned stream is
+	 * used for the state of triangulation. Triangles can't be changed
+	 * before endCheckpoint.
+	 * @return stream of checkpoint file
+	 * @throws IOException
+	 */
+	public DataOutputStream beginCheckpoint() throws IOException {
+		triangles.flush();
+		objectFile.force();
+		generation++;
+		checkpointStream = new FileOutputStream(fileName + ".checkpoint.tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checkpointStream, 1 << 16));
+		out.writeInt(CHECKPOINT_MAGIC);
+		out.writeInt(CHECKPOINT_VERSION);
+		out.writeLong(generation);
+		out.writeInt(numberOfTriangles);
+		out.writeInt(deletedIdx.size());
+		for (int i = 0; i < deletedIdx.size(); i++)
+			out.writeInt(deletedIdx.get(i));
+		checkpointVertexes = vertexes.size();
+		appendVertexes(checkpointVertexes);
+		out.writeInt(checkpointVertexes);
+		// vertex file is changed after this checkpoint is finished
+		changedVertexes = vertexes.takeChanges(checkpointVertexes);
+		out.writeInt(changedVertexes.size());
+		for (int i = 0; i < changedVertexes.size(); i++){
+			out.writeInt(changedVertexes.get(i));
+			vertexes.writeRecord(out, changedVertexes.get(i));
+		}
+		return out;
+	}
+
+	/***********************************************************************
+	 * The method for finishing of checkpoint. The checkpoint file is written
+	 * on disk and it replaces the old checkpoint, changed vertexes are
+	 * rewritten in vertex file and new undo log of triangle file is started.
+	 * @param out - stream returned by beginCheckpoint
+	 * @throws IOException
+	 */
+	public void endCheckpoint(DataOutputStream out) throws IOException {
+		out.flush();
+		checkpointStream.getFD().sync();
+		out.close();
+		checkpointStream = null;
+		File tmp = new File(fileName + ".checkpoint.tmp");
+		File checkpoint = new File(fileName + ".checkpoint");
+		if (!tmp.renameTo(checkpoint)){
+			// rename doesn't replace existing file on some systems
+			checkpoint.delete();
+			if (!tmp.renameTo(checkpoint))
+				throw new IOException("Checkpoint " + checkpoint + " can't be written");
+		}
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		DataOutputStream record = new DataOutputStream(records);
+		for (int i = 0; i < changedVertexes.size(); i++){
+			records.reset();
+			vertexes.writeRecord(record, changedVertexes.get(i));
+			writeVertex(changedVertexes.get(i), records.toByteArray());
+		}
+		vertexFile.getChannel().force(false);
+		changedVertexes = null;
+		savedVertexes = checkpointVertexes;
+		objectFile.startUndo(generation);
+	}
+
+	/***********************************************************************
+	 * The private method for appending of vertexes added since the last
+	 * checkpoint to vertex file, records of unfinished checkpoint are
+	 * overwritten
+	 * @param numberOfVertexes - number of vertexes of checkpoint
+	 */
+	private void appendVertexes(int numberOfVertexes) throws IOException {
+		vertexFile.setLength((long) savedVertexes * VertexTable.RECORD);
+		vertexFile.seek((long) savedVertexes * VertexTable.RECORD);
+		// the stream shares position of vertex file, so it isn't closed
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(vertexFile.getFD()), 1 << 16));
+		vertexes.write(out, savedVertexes, numberOfVertexes);
+		out.flush();
+		vertexFile.getChannel().force(false);
+	}
+
+	/***********************************************************************
+	 * The private method for rewriting of record of vertex in vertex file
+	 * @param id - id of vertex
+	 * @param record - record written by VertexTable.writeRecord
+	 */
+	private void writeVertex(int id, byte[] record) throws IOException {
+		vertexFile.seek((long) id * VertexTable.RECORD);
+		vertexFile.write(record);
+	}
+
+	/***********************************************************************
+	 * The method for getting state of triangulation saved in checkpoint,
+	 * the caller closes the stream
+	 * @return rest of checkpoint file or null if the data store wasn't
+	 * resumed or the state was already read
+	 */
+	public DataInputStream getCheckpointState() {
+		DataInputStream in = resumeState;
+		resumeState = null;
+		return in;
+	}
+
+	/***********************************************************************
+	 * The private method for reading state of data store from checkpoint
+	 */
+	private void readCheckpoint() throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(fileName + ".checkpoint"), 1 << 16));
+		try {
+			if (in.readInt() != CHECKPOINT_MAGIC)
+				throw new IOException(fileName + ".checkpoint isn't checkpoint file");
+			int version = in.readInt();
+			if (version != CHECKPOINT_VERSION)
+				throw new IOException("Unsupported version of checkpoint " + version);
+			generation = in.readLong();
+			numberOfTriangles = in.readInt();
+			int deleted = in.readInt();
+			for (int i = 0; i < deleted; i++)
+				deletedIdx.push(in.readInt());
+			readVertexes(in);
+			objectFile.rollback(generation, numberOfTriangles);
+			objectFile.startUndo(generation);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		triangles.setSize(numberOfTriangles);
+		// triangles of vertexes aren't saved in vertex file
+		for (int i = 0; i < numberOfTriangles; i++){
+			TriangleDT T = triangles.read(i);
+			if (T != null)
+				vertexes.setTriangle(T);
+		}
+		// rtree is rebuilt from file by first searching
+		indexIsValid = false;
+		resumeState = in;
+	}
+
+	/***********************************************************************
+	 * The private method for reading vertexes of checkpoint. Changed
+	 * vertexes are rewritten in vertex file again (the checkpoint could
+	 * be finished before they were rewritten) and records of unfinished
+	 * checkpoint are cut off.
+	 * @param in - checkpoint file behind free indexes
+	 */
+	private void readVertexes(DataInputStream in) throws IOException {
+		savedVertexes = in.readInt();
+		int changed = in.readInt();
+		byte[] record = new byte[VertexTable.RECORD];
+		for (int i = 0; i < changed; i++){
+			int id = in.readInt();
+			in.readFully(record);
+			writeVertex(id, record);
+		}
+		vertexFile.setLength((long) savedVertexes * VertexTable.RECORD);
+		vertexFile.getChannel().force(false);
+		DataInputStream records = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(fileName + ".vertexes"), 1 << 16));
+		try {
+			vertexes.read(records, savedVertexes);
+		} finally {
+			records.close();
+		}
+		vertexes.takeChanges(savedVertexes);
+	}
+
 	/*********************************************************************
 	 * private class for sorting triangles
 	 * @author pepitoX
@@ -112,21 +355,28 @@ public class DelaunayDataStoreHDD implements DelaunayDataStore {
 	 * @param key - key of triangle
 	 */	
 	public void insertToTree(TriangleDT T, double[] key) {
-		env = new Envelope(new Coordinate(key[0], key[1])); 
-		data = new Data(dd);
+		T.A = vertexes.adopt(T.A);
+		T.B = vertexes.adopt(T.B);
+		T.C = vertexes.adopt(T.C);
 		try {
-			if (deletedIdx.size()>0){
-				data.addValue((Integer)deletedIdx.getFirst());
-				rt.insert(env, data);
-				triangles.writeT(T.triangleToBasicType(),(Integer)deletedIdx.getFirst());
-				deletedIdx.removeFirst();
+			if (!deletedIdx.isEmpty()){
+				T.index = deletedIdx.pop();
+				triangles.writeT(T, T.index);
 			}
 			else{
-				data.addValue(numberOfTriangles);
-				rt.insert(env, data);
-				triangles.writeT(T.triangleToBasicType());
+				T.index = numberOfTriangles;
+				triangles.writeT(T);
 				numberOfTriangles++;
 			}
+			vertexes.setTriangle(T);
+			if (!statusInserting)
+				envelopes = null;
+			if (indexIsValid){
+				env = new Envelope(new Coordinate(key[0], key[1]));
+				data = new Data(dd);
+				data.addValue(T.index);
+				rt.insert(env, data);
+			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -137,17 +387,65 @@ public class DelaunayDataStoreHDD implements DelaunayDataStore {
 	 * @param key - key of triangle
 	 */	
 	public void delete(double[] key) {
+		validateIndex();
 		env = new Envelope(new Coordinate(key[0], key[1]));
 		try {
 			Iterator res = rt.search(env).iterator();
 			Data data = (Data) res.next(); 
-			deletedIdx.add(data.getValue(0));
+			int index = ((Integer)data.getValue(0)).intValue();
+			triangles.delete(index);
+			deletedIdx.push(index);
 			rt.delete(env);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 	}
 
+	/*****************************************************************
+	 * The predefinied method for deleting triangle in data structure
+	 * without searching of key, rtree will be rebuilt when it is needed
+	 * @param index - index of triangle
+	 */	
+	public void delete(int index) {
+		if (index < 0 || index >= numberOfTriangles || triangles.isDeleted(index))
+			return;
+		triangles.delete(index);
+		deletedIdx.push(index);
+		indexIsValid = false;
+	}
+
+	/*****************************************************************
+	 * The predefinied method for saving changed neighbours of triangle
+	 * @param T - changed triangle
+	 */	
+	public void update(TriangleDT T) {
+		triangles.update(T);
+	}
+
+	/*****************************************************************
+	 * The predefinied method for getting table of vertexes
+	 * @return table of vertexes
+	 */	
+	public VertexTable getVertexTable() {
+		return vertexes;
+	}
+
+	/*****************************************************************
+	 * The method rebuilds rtree, if some triangles were deleted by index.
+	 * Rtree contains keys of triangles, envelopes of triangles are saved
+	 * in packed rtree after closing of inserting
+	 */	
+	private void validateIndex() {
+		if (indexIsValid)
+			return;
+		try {
+			rt = EnvelopeIndex.keys(this, dd);
+			indexIsValid = true;
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
 	/*****************************************************************
 	 * The predefinied method for setting searched envelope
 	 * @param key - key of triangle
@@ -183,6 +481,7 @@ public class DelaunayDataStoreHDD implements DelaunayDataStore {
 	 */	
 	public Collection nearest(double[] key, int numberSearchedPoints) {
 		Collection res = null;
+		validateIndex();
 		
 		try {
 			for (int i = 1;; i++) {
@@ -207,6 +506,7 @@ public class DelaunayDataStoreHDD implements DelaunayDataStore {
 	 */
 	public TriangleDT getTriangle(double []key){
 		Data data = null;
+		validateIndex();
 		try{
 			List list = rt.search(new Envelope(new Coordinate(key[0], key[1])));
 			Iterator iter = list.iterator();
@@ -230,9 +530,9 @@ public class DelaunayDataStoreHDD implements DelaunayDataStore {
 	 * @return triangle with index
 	 */
 	public TriangleDT getTriangle(int index){
-		if (deletedIdx.contains(index)){
+		if (index < 0 || index >= numberOfTriangles)
 			return null;
-		}
+		// deleted triangle is null
 		return triangles.read(index);
 	}
 	
@@ -274,7 +574,7 @@ public class DelaunayDataStoreHDD implements DelaunayDataStore {
 	public TriangleDT searchNearest(double[] key) {
 		TriangleDT[] sortedArray = countN_Nearest(new Coordinate(key[0], key[1]),
 				nearest(key, 1), 1);
-		return (TriangleDT)sortedArray[0];
+		return sortedArray[0];
 	}
 
 	/*****************************************************************
@@ -297,7 +597,7 @@ public class DelaunayDataStoreHDD implements DelaunayDataStore {
 	public TriangleDT preorderTest(Coordinate P) {
 		for (int i = 0; i<numberOfTriangles;i++){
 			TriangleDT T = triangles.read(i);
-			if (T.contains(new PointDT(P))||T.containsPointAsVertex(new PointDT(P)))
+			if (T!=null && (T.contains(new PointDT(P))||T.containsPointAsVertex(new PointDT(P))))
 				return T;
 		}
 		return null;
@@ -313,7 +613,7 @@ public class DelaunayDataStoreHDD implements DelaunayDataStore {
 	public TriangleDT preorderTestContainTwoPoint(PointDT A, PointDT B){
 		for (int i = 0; i<numberOfTriangles;i++){
 			TriangleDT T = triangles.read(i);
-			if (T.containsTwoPoints(A, B))
+			if (T!=null && T.containsTwoPoints(A, B))
 				return T;
 		}
 		return null;
@@ -327,51 +627,36 @@ public class DelaunayDataStoreHDD implements DelaunayDataStore {
 	 * @param EPSG - EPSG code (EPSG:2165)
 	 */
 	public void createShapefile(String path, String File, String EPSG){
-		   try{	
-			    AttributeType geom = null;
-		    	if  (EPSG == ""){
-		    		geom = AttributeTypeFactory.newAttributeType("the_geom",
-			    			LinearRing.class);
-		    	}
-		    	else{
-		    		geom = AttributeTypeFactory.newAttributeType("the_geom",
-		    			LinearRing.class, true, 0, null, CRS.decode(EPSG));    
-		    	}
-		    	AttributeType idx = AttributeTypeFactory.newAttributeType(
-		    			"index", Integer.class);
-		    	FeatureType ftRoad = FeatureTypeFactory.newFeatureType(
-		    			new AttributeType[] { geom, idx }, "Triangle");
-		    	WKTReader wktReader = new WKTReader();
-		    	URL anURL = (new File(path + File)).toURL();
-		    	ShapefileDataStore datastore = new ShapefileDataStore(anURL);
-		    	datastore.createSchema(ftRoad);
-		    	FeatureStore featureStore = (FeatureStore)(datastore.getFeatureSource("Triangle"));
-		    	Feature aNewFeature = null;
-		    	FeatureWriter aWriter = datastore.getFeatureWriter("Triangle",
-		    			((FeatureStore) datastore.getFeatureSource("Triangle"))
-		    					.getTransaction());
-		    	for (int i =0; i<numberOfTriangles ; i++){
-		    		TriangleDT T = (TriangleDT)triangles.read(i);
-		    		LinearRing geometry = (LinearRing) wktReader
-	    			.read("LINEARRING ("+(T.A.x)+" "+(T.A.y)+","+(T.B.x)+" "+(T.B.y)+"," +
-	    					+(T.C.x)+" "+(T.C.y)+","+(T.A.x)+" "+(T.A.y)+")");
-		    		aNewFeature = aWriter.next();
-		    		aNewFeature.setAttribute(0, (Object)geometry);
-		    		aNewFeature.setAttribute(1, (Object)i);
-		    		
-		    	}
-		    	aWriter.write();
-		    	aWriter.close();
-		   		}
-		    	catch(Exception e){
-		    		e.printStackTrace();
-		    } 
-			   
-			   
+		try {
+			ShapefileExport.createShapefile(this, path, File, EPSG);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
 	}
 	
 	public void closeStrem(){
-		
+		triangles.closeStrem();
+		try {
+			vertexFile.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/******************************************************************
+	 * The method for getting number of pages read from cache
+	 * @return - number of hits of cache
+	 */
+	public long getCacheHits(){
+		return triangles.getHits();
+	}
+
+	/******************************************************************
+	 * The method for getting number of pages read from file
+	 * @return - number of misses of cache
+	 */
+	public long getCacheMisses(){
+		return triangles.getMisses();
 	}
 	
 	/******************************************************************
@@ -407,6 +692,18 @@ public class DelaunayDataStoreHDD implements DelaunayDataStore {
 	 */		
 	public Collection getIntersectEnvelope(Envelope env) {
 		LinkedList list = new LinkedList();
+		if (!statusInserting){
+			if (envelopes == null)
+				envelopes = EnvelopeIndex.envelopes(this);
+			Iterator iter = envelopes.query(env).iterator();
+			while (iter.hasNext()){
+				TriangleDT T = getTriangle(((Integer)iter.next()).intValue());
+				if (T != null)
+					list.add(T);
+			}
+			return list;
+		}
+		validateIndex();
 		try{
 			List listOfTriangles = rt.search(env);
 			Iterator iter = listOfTriangles.iterator();
@@ -422,26 +719,12 @@ public class DelaunayDataStoreHDD implements DelaunayDataStore {
 	}
 
 	/*****************************************************************
-	 * method for close inserting 
+	 * method for close inserting, envelopes of all triangles are loaded
+	 * into packed rtree at once
 	 */
 	public void closeInserting(){
 		statusInserting = false;
-		try{
-			PageStore ps = new MemoryPageStore(dd);
-			for (int i = 0; i<numberOfTriangles; i++){
-				rt = new RTree(ps);
-				TriangleDT T = getTriangle(i);
-				if (T!=null){
-					data = new Data(dd);
-					data.addValue(numberOfTriangles);
-					rt.insert(T.setEnvelope(), data);
-				}
-			}	
-		}
-		catch (Exception e){
-			e.printStackTrace();
-		}
-		
+		envelopes = EnvelopeIndex.envelopes(this);
 	}
 
 
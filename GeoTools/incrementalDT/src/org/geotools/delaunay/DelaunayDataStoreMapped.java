@@ -0,0 +1,627 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/*****************************************************************************
+ * The read only data store of TIN saved in file by TINFile. Sections of file
+ * are mapped into memory, so opening of file doesn't read triangles and more
+ * processes share one copy of file in memory. Methods getTriangle return new
+ * TriangleDT which is only view of mapped file. Triangles are searched in
+ * mapped grid of file, only files of version 1 (without grid) create packed
+ * rtree of envelopes. Table of vertexes is created when it is needed first
+ * time. Methods for changing of triangles throw
+ * UnsupportedOperationException.
+ */
+
+public class DelaunayDataStoreMapped implements DelaunayDataStore {
+	// number of records in one mapped segment is 2^SEGMENT_BITS
+	private static final int SEGMENT_BITS = 20;
+	private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+	private RandomAccessFile file;
+	private int version;
+	private int numberOfVertexes;
+	private int numberOfTriangles;
+	private String crs;
+	private Envelope envelope;
+	private double minZ;
+	private double maxZ;
+	// x, y, z of vertexes
+	private MappedByteBuffer[] vertexes;
+	// ids of vertexes A, B, C of triangles
+	private MappedByteBuffer[] triangles;
+	// indexes of neighbours of triangles (0 - AB, 1 - BC, 2 - AC)
+	private MappedByteBuffer[] neighbours;
+	// bits of triangles with break line, null if there is no break line
+	private MappedByteBuffer breakLines = null;
+	// grid of file, null for file of version 1
+	private TINFile.Grid grid = null;
+	// index of first triangle of every cell in list of triangles of cells
+	private MappedByteBuffer[] cells;
+	private MappedByteBuffer[] cellTriangles;
+	private VertexTable vertexTable = null;
+	private STRtree envelopes = null;
+
+	/***********************************************************************
+	 * Constructor, the file is opened and its sections are mapped
+	 * @param fileName - name of file written by TINFile
+	 * @throws IOException - the file isn't TIN file or it has newer version
+	 */
+
+	public DelaunayDataStoreMapped(String fileName) throws IOException {
+		file = new RandomAccessFile(fileName, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			if (channel.size() < TINFile.HEADER_1)
+				throw new IOException("File isn't TIN file");
+			MappedByteBuffer header = channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(),
+							TINFile.HEADER));
+			if (header.getInt(0) != TINFile.MAGIC)
+				throw new IOException("File isn't TIN file");
+			version = header.getInt(4);
+			if (version > TINFile.VERSION)
+				throw new IOException("Unsupported version of TIN file "
+						+ version);
+			numberOfVertexes = header.getInt(TINFile.VERTEXES);
+			numberOfTriangles = header.getInt(TINFile.TRIANGLES);
+			int b = TINFile.BOUNDS;
+			envelope = new Envelope();
+			if (numberOfVertexes > 0)
+				envelope.init(header.getDouble(b), header.getDouble(b + 8),
+						header.getDouble(b + 16), header.getDouble(b + 24));
+			minZ = header.getDouble(b + 32);
+			maxZ = header.getDouble(b + 40);
+			byte[] name = new byte[header.getInt(TINFile.CRS_LENGTH)];
+			file.seek((version >= 2) ? TINFile.HEADER : TINFile.HEADER_1);
+			file.readFully(name);
+			crs = new String(name, "UTF-8");
+			vertexes = map(channel, header.getLong(TINFile.VERTEX_SECTION),
+					numberOfVertexes, 24);
+			triangles = map(channel, header.getLong(TINFile.TRIANGLE_SECTION),
+					numberOfTriangles, 12);
+			neighbours = map(channel, header
+					.getLong(TINFile.NEIGHBOUR_SECTION), numberOfTriangles, 12);
+			if ((header.getInt(TINFile.FLAGS) & TINFile.BREAK_LINES) != 0)
+				breakLines = channel.map(FileChannel.MapMode.READ_ONLY, header
+						.getLong(TINFile.BREAK_LINE_SECTION),
+						(numberOfTriangles + 7) / 8);
+			if (version >= 2) {
+				grid = new TINFile.Grid(envelope.getMinX(), envelope.getMaxX(),
+						envelope.getMinY(), envelope.getMaxY(), header
+								.getInt(TINFile.GRID_COLUMNS), header
+								.getInt(TINFile.GRID_ROWS));
+				long offset = header.getLong(TINFile.GRID_SECTION);
+				int numberOfCells = grid.columns * grid.rows + 1;
+				cells = map(channel, offset, numberOfCells, 4);
+				cellTriangles = map(channel, offset + 4L * numberOfCells,
+						getInt(cells, numberOfCells - 1), 4);
+			}
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/*****************************************************************
+	 * The private method for mapping of section by segments
+	 * @param offset - offset of section in file
+	 * @param count - number of records in section
+	 * @param record - size of record in bytes
+	 * @return mapped segments
+	 */
+	private static MappedByteBuffer[] map(FileChannel channel, long offset,
+			int count, int record) throws IOException {
+		if (offset + (long) count * record > channel.size())
+			throw new IOException("TIN file is shorter than header says");
+		MappedByteBuffer[] segments = new MappedByteBuffer[(count
+				+ SEGMENT_MASK) >> SEGMENT_BITS];
+		for (int s = 0; s < segments.length; s++) {
+			long first = (long) s << SEGMENT_BITS;
+			long size = Math.min(count - first, 1 << SEGMENT_BITS) * record;
+			segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, offset
+					+ first * record, size);
+		}
+		return segments;
+	}
+
+	/*****************************************************************
+	 * The method for closing of file, the data store can't be used after
+	 * closing
+	 */
+	public void close() {
+		try {
+			file.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/*****************************************************************
+	 * The method for getting version of file
+	 * @return version of TIN file
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/*****************************************************************
+	 * The method for getting coordinate reference system of TIN
+	 * @return CRS saved in file, empty if it wasn't saved
+	 */
+	public String getCRS() {
+		return crs;
+	}
+
+	/*****************************************************************
+	 * The method for getting bounds of vertexes
+	 * @return envelope of vertexes
+	 */
+	public Envelope getEnvelope() {
+		return envelope;
+	}
+
+	/*****************************************************************
+	 * The method for getting minimal elevation of vertexes
+	 * @return minimal z
+	 */
+	public double getMinZ() {
+		return minZ;
+	}
+
+	/*****************************************************************
+	 * The method for getting maximal elevation of vertexes
+	 * @return maximal z
+	 */
+	public double getMaxZ() {
+		return maxZ;
+	}
+
+	/*****************************************************************
+	 * The method for getting number of vertexes
+	 * @return number of vertexes in file
+	 */
+	public int getNumberOfVertexes() {
+		return numberOfVertexes;
+	}
+
+	/*****************************************************************
+	 * The predefinied method for getting table of vertexes. The table is
+	 * created from section of vertexes when it is needed first time, ids
+	 * of vertexes in table are same as in file.
+	 * @return table of vertexes
+	 */
+	public synchronized VertexTable getVertexTable() {
+		if (vertexTable == null) {
+			VertexTable table = new VertexTable();
+			for (int id = 0; id < numberOfVertexes; id++)
+				table.add(getVertex(id));
+			vertexTable = table;
+		}
+		return vertexTable;
+	}
+
+	/*****************************************************************
+	 * The private method for reading vertex from file
+	 */
+	private PointDT getVertex(int id) {
+		MappedByteBuffer buf = vertexes[id >> SEGMENT_BITS];
+		int pos = 24 * (id & SEGMENT_MASK);
+		return new PointDT(buf.getDouble(pos), buf.getDouble(pos + 8), buf
+				.getDouble(pos + 16));
+	}
+
+	/*****************************************************************
+	 * The private method for reading int of section with records of
+	 * one int
+	 */
+	private static int getInt(MappedByteBuffer[] section, int i) {
+		return section[i >> SEGMENT_BITS].getInt(4 * (i & SEGMENT_MASK));
+	}
+
+	/*****************************************************************
+	 * The private method for reading id of vertex of triangle
+	 * @param index - index of triangle
+	 * @param k - 0 for A, 1 for B, 2 for C
+	 */
+	private int vertexId(int index, int k) {
+		return triangles[index >> SEGMENT_BITS].getInt(12 * (index & SEGMENT_MASK) + 4 * k);
+	}
+
+	private double getX(int id) {
+		return vertexes[id >> SEGMENT_BITS].getDouble(24 * (id & SEGMENT_MASK));
+	}
+
+	private double getY(int id) {
+		return vertexes[id >> SEGMENT_BITS].getDouble(24 * (id & SEGMENT_MASK) + 8);
+	}
+
+	/*****************************************************************
+	 * The private method for getting index of first triangle of cell
+	 * in list of triangles of cells, the cell ends at first triangle of
+	 * next cell
+	 */
+	private int cellStart(int column, int row) {
+		return getInt(cells, row * grid.columns + column);
+	}
+
+	private int cellEnd(int column, int row) {
+		return getInt(cells, row * grid.columns + column + 1);
+	}
+
+	/*****************************************************************
+	 * The private method for testing, if triangle contains point, points
+	 * on edges are contained, degenerated triangle doesn't contain points
+	 */
+	private boolean contains(int index, double x, double y) {
+		int a = vertexId(index, 0);
+		int b = vertexId(index, 1);
+		int c = vertexId(index, 2);
+		double ax = getX(a), ay = getY(a);
+		double bx = getX(b), by = getY(b);
+		double cx = getX(c), cy = getY(c);
+		double orientation = Predicates.orient2d(ax, ay, bx, by, cx, cy);
+		if (orientation == 0)
+			return false;
+		double o1 = Predicates.orient2d(ax, ay, bx, by, x, y);
+		double o2 = Predicates.orient2d(bx, by, cx, cy, x, y);
+		double o3 = Predicates.orient2d(cx, cy, ax, ay, x, y);
+		if (orientation > 0)
+			return o1 >= 0 && o2 >= 0 && o3 >= 0;
+		return o1 <= 0 && o2 <= 0 && o3 <= 0;
+	}
+
+	/*****************************************************************
+	 * The private method for getting index of triangle in cell of grid,
+	 * which contains point x, y
+	 * @return index of triangle or -1
+	 */
+	private int locate(double x, double y) {
+		if (numberOfTriangles == 0 || !envelope.contains(x, y))
+			return -1;
+		int column = grid.column(x);
+		int row = grid.row(y);
+		for (int i = cellStart(column, row); i < cellEnd(column, row); i++) {
+			int t = getInt(cellTriangles, i);
+			if (contains(t, x, y))
+				return t;
+		}
+		return -1;
+	}
+
+	/*****************************************************************
+	 * The private method for getting vertex, the point of table of
+	 * vertexes is used if the table exists
+	 */
+	private PointDT vertex(int id) {
+		if (vertexTable != null)
+			return vertexTable.getVertex(id);
+		return getVertex(id);
+	}
+
+	/*****************************************************************
+	 * The predefinied method for getting triangle with definied key
+	 * @param index - index in file
+	 * @return triangle with index, it is only view of file
+	 */
+	public TriangleDT getTriangle(int index) {
+		if (index < 0 || index >= numberOfTriangles)
+			return null;
+		MappedByteBuffer v = triangles[index >> SEGMENT_BITS];
+		MappedByteBuffer n = neighbours[index >> SEGMENT_BITS];
+		int pos = 12 * (index & SEGMENT_MASK);
+		TriangleDT T = new TriangleDT(vertex(v.getInt(pos)), vertex(v
+				.getInt(pos + 4)), vertex(v.getInt(pos + 8)));
+		T.index = index;
+		T.neighbour[0] = n.getInt(pos);
+		T.neighbour[1] = n.getInt(pos + 4);
+		T.neighbour[2] = n.getInt(pos + 8);
+		if (breakLines != null)
+			T.haveBreakLine = (breakLines.get(index >> 3) & (1 << (index & 7))) != 0;
+		return T;
+	}
+
+	/*****************************************************************
+	 * The predefinied method for getting triangle with definied key
+	 * @param key - key of triangle. Key is as coordinate (key[0] is x, key[1] is y)
+	 * @return triangle with key
+	 */
+	public TriangleDT getTriangle(double[] key) {
+		if (grid != null) {
+			if (numberOfTriangles == 0 || !envelope.contains(key[0], key[1]))
+				return null;
+			int column = grid.column(key[0]);
+			int row = grid.row(key[1]);
+			for (int i = cellStart(column, row); i < cellEnd(column, row); i++) {
+				TriangleDT T = getTriangle(getInt(cellTriangles, i));
+				if (T.key[0] == key[0] && T.key[1] == key[1])
+					return T;
+			}
+			return null;
+		}
+		Iterator iter = getIntersectEnvelope(
+				new Envelope(new Coordinate(key[0], key[1]))).iterator();
+		while (iter.hasNext()) {
+			TriangleDT T = (TriangleDT) iter.next();
+			if (T.key[0] == key[0] && T.key[1] == key[1])
+				return T;
+		}
+		return null;
+	}
+
+	/*****************************************************************
+	 * The predefinied method for searching nearest triangles
+	 * @param key - key of triangle
+	 * @return nearest triangle from key. Key is as coordinate (key[0] is x, key[1] is y
+	 */
+	public TriangleDT searchNearest(double[] key) {
+		if (numberOfTriangles == 0)
+			return null;
+		if (grid != null)
+			return getTriangle(nearest(key[0], key[1]));
+		double size = Math.max(envelope.getWidth(), envelope.getHeight())
+				/ Math.sqrt(numberOfTriangles);
+		if (size == 0)
+			size = Double.POSITIVE_INFINITY;
+		TriangleDT nearest = null;
+		for (int i = 1; nearest == null; i++) {
+			double envHeight = size * i * i;
+			Iterator iter = getIntersectEnvelope(
+					new Envelope(key[0] - envHeight, key[0] + envHeight,
+							key[1] - envHeight, key[1] + envHeight)).iterator();
+			double minDistance = Double.POSITIVE_INFINITY;
+			while (iter.hasNext()) {
+				TriangleDT T = (TriangleDT) iter.next();
+				double distance = (T.key[0] - key[0]) * (T.key[0] - key[0])
+						+ (T.key[1] - key[1]) * (T.key[1] - key[1]);
+				if (distance < minDistance) {
+					minDistance = distance;
+					nearest = T;
+				}
+			}
+		}
+		return nearest;
+	}
+
+	/*****************************************************************
+	 * The private method for searching triangle with nearest key in grid.
+	 * Cells are searched by rings around cell of point, the search ends
+	 * when keys in next rings can't be nearer.
+	 * @return index of triangle
+	 */
+	private int nearest(double x, double y) {
+		int column = grid.column(x);
+		int row = grid.row(y);
+		int nearest = -1;
+		double minDistance = Double.POSITIVE_INFINITY;
+		double cell = Math.min(grid.cellWidth, grid.cellHeight);
+		int rings = Math.max(grid.columns, grid.rows);
+		for (int ring = 0; ring < rings; ring++) {
+			for (int r = row - ring; r <= row + ring; r++) {
+				if (r < 0 || r >= grid.rows)
+					continue;
+				int step = (r == row - ring || r == row + ring) ? 1 : 2 * ring;
+				for (int c = column - ring; c <= column + ring; c += Math.max(step, 1)) {
+					if (c < 0 || c >= grid.columns)
+						continue;
+					for (int i = cellStart(c, r); i < cellEnd(c, r); i++) {
+						int t = getInt(cellTriangles, i);
+						int a = vertexId(t, 0);
+						int b = vertexId(t, 1);
+						int d = vertexId(t, 2);
+						double kx = (getX(a) + getX(b) + getX(d)) / 3 - x;
+						double ky = (getY(a) + getY(b) + getY(d)) / 3 - y;
+						if (kx * kx + ky * ky < minDistance) {
+							minDistance = kx * kx + ky * ky;
+							nearest = t;
+						}
+					}
+				}
+			}
+			if (nearest != -1 && Math.sqrt(minDistance) <= ring * cell)
+				break;
+		}
+		return nearest;
+	}
+
+	/*****************************************************************
+	 * The method which get all intersect envelope
+	 * @param env - envelope
+	 * @return Collection which contain all envelope intersected by env
+	 */
+	public Collection getIntersectEnvelope(Envelope env) {
+		LinkedList list = new LinkedList();
+		if (grid != null) {
+			if (numberOfTriangles == 0 || !envelope.intersects(env))
+				return list;
+			for (int r = grid.row(env.getMinY()); r <= grid.row(env.getMaxY()); r++)
+				for (int c = grid.column(env.getMinX()); c <= grid.column(env.getMaxX()); c++)
+					for (int i = cellStart(c, r); i < cellEnd(c, r); i++) {
+						int t = getInt(cellTriangles, i);
+						double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+						double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+						for (int k = 0; k < 3; k++) {
+							int id = vertexId(t, k);
+							minX = Math.min(minX, getX(id));
+							maxX = Math.max(maxX, getX(id));
+							minY = Math.min(minY, getY(id));
+							maxY = Math.max(maxY, getY(id));
+						}
+						if (minX > env.getMaxX() || maxX < env.getMinX()
+								|| minY > env.getMaxY() || maxY < env.getMinY())
+							continue;
+						// the triangle is in more cells, it is added only in
+						// the cell with corner of intersection of envelopes
+						if (grid.column(Math.max(minX, env.getMinX())) == c
+								&& grid.row(Math.max(minY, env.getMinY())) == r)
+							list.add(getTriangle(t));
+					}
+			return list;
+		}
+		if (envelopes == null)
+			buildEnvelopeIndex();
+		Iterator iter = envelopes.query(env).iterator();
+		while (iter.hasNext())
+			list.add(getTriangle(((Integer) iter.next()).intValue()));
+		return list;
+	}
+
+	/*****************************************************************
+	 * The private method for bulk loading of envelopes of triangles
+	 * into packed rtree
+	 */
+	private synchronized void buildEnvelopeIndex() {
+		if (envelopes == null)
+			envelopes = EnvelopeIndex.envelopes(this);
+	}
+
+	/******************************************************************
+	 * The predefinied method for preorder testing
+	 * @param P - new point
+	 * @return - triangles which contain new P
+	 */
+	public TriangleDT preorderTest(Coordinate P) {
+		if (grid != null)
+			return getTriangle(locate(P.x, P.y));
+		PointDT point = new PointDT(P);
+		Iterator iter = getIntersectEnvelope(new Envelope(P)).iterator();
+		while (iter.hasNext()) {
+			TriangleDT T = (TriangleDT) iter.next();
+			if (T.contains(point))
+				return T;
+		}
+		return null;
+	}
+
+	/******************************************************************
+	 * The predefinied method for preorder testing
+	 * @param A - vertex
+	 * @param B - vertex
+	 * @return - triangles which contain point A and point B
+	 */
+	public TriangleDT preorderTestContainTwoPoint(PointDT A, PointDT B) {
+		if (grid != null) {
+			if (numberOfTriangles == 0 || !envelope.contains(A))
+				return null;
+			int column = grid.column(A.x);
+			int row = grid.row(A.y);
+			for (int i = cellStart(column, row); i < cellEnd(column, row); i++) {
+				TriangleDT T = getTriangle(getInt(cellTriangles, i));
+				if (T.containsTwoPoints(A, B))
+					return T;
+			}
+			return null;
+		}
+		Iterator iter = getIntersectEnvelope(new Envelope(A, B)).iterator();
+		while (iter.hasNext()) {
+			TriangleDT T = (TriangleDT) iter.next();
+			if (T.containsTwoPoints(A, B))
+				return T;
+		}
+		return null;
+	}
+
+	/******************************************************************
+	 * The predefinied method for creating shapefile
+	 * @param path - vertex
+	 * @param File - vertex
+	 * @param EPSG - EPSG code (EPSG:2165)
+	 */
+	public void createShapefile(String path, String File, String EPSG){
+		try {
+			ShapefileExport.createShapefile(this, path, File, EPSG);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/*****************************************************************
+	 * The method get number of triangles
+	 * @return number of triangles
+	 */
+	public int getNumberOfTriangles() {
+		return numberOfTriangles;
+	}
+
+	/*****************************************************************
+	 * The predefined method for getting status of close inserting
+	 * @return false, triangles can't be inserted
+	 */
+	public boolean getStatusInserting() {
+		return false;
+	}
+
+	/*****************************************************************
+	 * The method for close inserting, the file is closed for inserting
+	 * always
+	 */
+	public void closeInserting() {
+	}
+
+	/*****************************************************************
+	 * The data store is read only
+	 */
+	public void insertToTree(TriangleDT T, double[] key) {
+		throw new UnsupportedOperationException("TIN file is read only");
+	}
+
+	/*****************************************************************
+	 * The data store is read only
+	 */
+	public void delete(double[] key) {
+		throw new UnsupportedOperationException("TIN file is read only");
+	}
+
+	/*****************************************************************
+	 * The data store is read only
+	 */
+	public void delete(int index) {
+		throw new UnsupportedOperationException("TIN file is read only");
+	}
+
+	/*****************************************************************
+	 * The data store is read only
+	 */
+	public void update(TriangleDT T) {
+		throw new UnsupportedOperationException("TIN file is read only");
+	}
+
+	/*****************************************************************
+	 * The data store is read only
+	 */
+	public void setNumberOfTrinagles(int number) {
+		throw new UnsupportedOperationException("TIN file is read only");
+	}
+
+}
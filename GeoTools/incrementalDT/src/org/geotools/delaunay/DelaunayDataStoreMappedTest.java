@@ -0,0 +1,139 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import junit.framework.*;
+import java.io.File;
+import java.util.Random;
+
+public class DelaunayDataStoreMappedTest extends TestCase {
+	DelaunayDataStoreArrays triangles = new DelaunayDataStoreArrays();
+	IncrementalDT triangulace = new IncrementalDT(triangles);
+	File file;
+	DelaunayDataStoreMapped mapped;
+	
+	public DelaunayDataStoreMappedTest(String name){
+		super(name);
+	}
+	
+	protected void setUp() throws Exception{
+		Random random = new Random(1);
+		Coordinate[] newPoints = new Coordinate[1000];
+		for (int i=0;i<newPoints.length;i++)
+			newPoints[i] = new Coordinate((random.nextDouble()*1000000),(random.nextDouble()*1000000),(random.nextDouble()*100));
+		triangulace.insertPoints(newPoints);
+		// deleted triangles aren't saved into file
+		triangulace.removePoint(newPoints[0]);
+		TriangleDT T = null;
+		for (int i = 0; T == null; i++)
+			T = triangles.getTriangle(i);
+		T.haveBreakLine = true;
+		triangles.update(T);
+		file = File.createTempFile("tin", ".tin");
+		TINFile.write(triangles, file.getPath(), "EPSG:2065");
+		mapped = new DelaunayDataStoreMapped(file.getPath());
+	}
+	
+	protected void tearDown(){
+		mapped.close();
+		file.delete();
+	}
+
+	/****************************************************************
+	 * The test which tests, if the file contains same triangles as
+	 * data store
+	 */
+	public void testSameTriangles(){
+		int breakLines = 0;
+		for (int i = 0; i < mapped.getNumberOfTriangles(); i++){
+			TriangleDT T = mapped.getTriangle(i);
+			TriangleDT S = triangles.getTriangle(T.key);
+			assertNotNull(S);
+			assertEquals(S.containsPointAsVertex(T.A) && S.containsPointAsVertex(T.B)
+					&& S.containsPointAsVertex(T.C), true);
+			if (T.haveBreakLine)
+				breakLines++;
+		}
+		assertEquals(breakLines, 1);
+		assertEquals(mapped.getNumberOfVertexes(), 999);
+		assertEquals(mapped.getCRS(), "EPSG:2065");
+	}
+
+	/********************************************************************
+	 * the test which tests, if neighbours of triangles have common edge
+	 */
+	public void testNeighbours(){
+		int number = mapped.getNumberOfTriangles();
+		int hullEdges = 0;
+		for (int i = 0; i < number; i++){
+			TriangleDT T = mapped.getTriangle(i);
+			for (int e = 0; e < 3; e++){
+				if (T.neighbour[e] == -1){
+					hullEdges++;
+					continue;
+				}
+				TriangleDT N = mapped.getTriangle(T.neighbour[e]);
+				assertEquals(N.containsTwoPoints((e == 1) ? T.B : T.A, (e == 0) ? T.B : T.C), true);
+				assertEquals(N.neighbour[0] == i || N.neighbour[1] == i || N.neighbour[2] == i, true);
+			}
+		}
+		assertEquals(number, 2*mapped.getNumberOfVertexes() - 2 - hullEdges);
+	}
+
+	/********************************************************************
+	 * the test which tests searching of triangles by envelope
+	 */
+	public void testIntersectEnvelope(){
+		Envelope env = new Envelope(200000, 400000, 300000, 600000);
+		triangles.closeInserting();
+		assertEquals(mapped.getIntersectEnvelope(env).size(), triangles.getIntersectEnvelope(env).size());
+	}
+	
+	/********************************************************************
+	 * the test which tests searching of triangles by point in grid of file
+	 */
+	public void testPointLocation(){
+		Random random = new Random(2);
+		for (int i = 0; i < 100; i++){
+			PointDT P = new PointDT(random.nextDouble()*1000000, random.nextDouble()*1000000, 0);
+			TriangleDT T = mapped.preorderTest(P);
+			TriangleDT S = triangles.preorderTest(P);
+			assertEquals(T == null, S == null);
+			if (T != null)
+				assertEquals(T.contains(P), true);
+		}
+		TriangleDT T = mapped.getTriangle(mapped.getNumberOfTriangles() / 2);
+		assertEquals(mapped.getTriangle(T.key).index, T.index);
+		assertEquals(mapped.searchNearest(T.key).index, T.index);
+	}
+	
+	public static Test suite(){
+		return new TestSuite(DelaunayDataStoreMappedTest.class);
+	}
+	
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+
+}
@@ -21,27 +21,16 @@
 
 package org.geotools.delaunay;
 
-import java.io.File;
 import java.io.IOException;
-import java.net.URL;
 
 //import org.geotools.delaunay.DataStoreHDD.Element;
 //import org.geotools.delaunay.DelaunayDataStoreHDD.Element;
-import org.geotools.data.FeatureStore;
-import org.geotools.data.FeatureWriter;
-import org.geotools.data.shapefile.ShapefileDataStore; 
-import org.geotools.feature.AttributeType;
-import org.geotools.feature.AttributeTypeFactory;
-import org.geotools.feature.Feature;
-import org.geotools.feature.FeatureType;
-import org.geotools.feature.FeatureTypeFactory;
 import org.geotools.index.Data;
 import org.geotools.index.DataDefinition;
 import org.geotools.index.rtree.PageStore;
 import org.geotools.index.rtree.RTree;
 import org.geotools.index.rtree.fs.FileSystemPageStore;
 import org.geotools.index.rtree.memory.MemoryPageStore;
-import org.geotools.referencing.CRS;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -55,8 +44,7 @@ import java.util.Vector;
 
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Envelope;
-import com.vividsolutions.jts.geom.LinearRing;
-import com.vividsolutions.jts.io.WKTReader;
+import com.vividsolutions.jts.index.strtree.STRtree;
 
 public class DelaunayDataStoreRAM implements DelaunayDataStore {
 	// data structure which contain index into data structure with triangles 
@@ -64,11 +52,17 @@ public class DelaunayDataStoreRAM implements DelaunayDataStore {
 	private Data data;
 	private DataDefinition dd = new DataDefinition("US-ASCII"); 
 	// list with deleted indexes in data structure with triangles
-	private LinkedList deletedIdx = new LinkedList();										
+	private IntStack deletedIdx = new IntStack();										
 	public int numberOfTriangles = 0;													
 	private Envelope env;
 	private ArrayList triangles;
+	private VertexTable vertexes = new VertexTable();
 	public boolean statusInserting = true;
+	// packed rtree (Sort-Tile-Recursive) with envelopes of triangles, it is
+	// loaded by closing of inserting and rebuilt after inserting of triangle
+	private STRtree envelopes = null;
+	// false if the triangles were deleted by index and rtree doesn't contain actual keys
+	private boolean indexIsValid = true;
 	
 	/***********************************************************************
 	 * Constructor 
@@ -118,21 +112,28 @@ public class DelaunayDataStoreRAM implements DelaunayDataStore {
 	 * @param key - key of triangle
 	 */	
 	public void insertToTree(TriangleDT T, double[] key) {
-		env = new Envelope(new Coordinate(key[0], key[1])); 
-		data = new Data(dd);
+		T.A = vertexes.adopt(T.A);
+		T.B = vertexes.adopt(T.B);
+		T.C = vertexes.adopt(T.C);
 		try {
-			if (deletedIdx.size()>0){
-				data.addValue((Integer)deletedIdx.getFirst());
-				rt.insert(env, data);
-				triangles.set((Integer)deletedIdx.getFirst(),T);
-				deletedIdx.removeFirst();
+			if (!deletedIdx.isEmpty()){
+				T.index = deletedIdx.pop();
+				triangles.set(T.index,T);
 			}
 			else{
-				data.addValue(numberOfTriangles);
-				rt.insert(env, data);
+				T.index = numberOfTriangles;
 				triangles.add(numberOfTriangles, T);
 				numberOfTriangles++;
 			}
+			vertexes.setTriangle(T);
+			if (!statusInserting)
+				envelopes = null;
+			if (indexIsValid){
+				env = new Envelope(new Coordinate(key[0], key[1])); 
+				data = new Data(dd);
+				data.addValue(T.index);
+				rt.insert(env, data);
+			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -144,17 +145,65 @@ public class DelaunayDataStoreRAM implements DelaunayDataStore {
 	 */	
 
 	public void delete(double[] key) {
+		validateIndex();
 		env = new Envelope(new Coordinate(key[0], key[1])); // oblaka pro bod
 		try {
 			Iterator res = rt.search(env).iterator();
 			Data data = (Data) res.next(); 
-			deletedIdx.add(data.getValue(0));
+			int index = ((Integer)data.getValue(0)).intValue();
+			triangles.set(index, null);
+			deletedIdx.push(index);
 			rt.delete(env);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 	}
 
+	/*****************************************************************
+	 * The predefinied method for deleting triangle in data structure
+	 * without searching of key, rtree will be rebuilt when it is needed
+	 * @param index - index of triangle
+	 */	
+	public void delete(int index) {
+		if (getTriangle(index) == null)
+			return;
+		triangles.set(index, null);
+		deletedIdx.push(index);
+		indexIsValid = false;
+	}
+
+	/*****************************************************************
+	 * The predefinied method for saving changed neighbours of triangle
+	 * @param T - changed triangle
+	 */	
+	public void update(TriangleDT T) {
+		triangles.set(T.index, T);
+	}
+
+	/*****************************************************************
+	 * The predefinied method for getting table of vertexes
+	 * @return table of vertexes
+	 */	
+	public VertexTable getVertexTable() {
+		return vertexes;
+	}
+
+	/*****************************************************************
+	 * The method rebuilds rtree, if some triangles were deleted by index.
+	 * Rtree contains keys of triangles, envelopes of triangles are saved
+	 * in packed rtree after closing of inserting
+	 */	
+	private void validateIndex() {
+		if (indexIsValid)
+			return;
+		try {
+			rt = EnvelopeIndex.keys(this, dd);
+			indexIsValid = true;
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
 	/*****************************************************************
 	 * The predefinied method for setting searched envelope
 	 * @param key - key of triangle
@@ -191,6 +240,7 @@ public class DelaunayDataStoreRAM implements DelaunayDataStore {
 	 */	
 	public Collection nearest(double[] key, int numberSearchedPoints) {
 		Collection res = null;
+		validateIndex();
 
 		try {
 			for (int i = 1;; i++) {
@@ -215,6 +265,7 @@ public class DelaunayDataStoreRAM implements DelaunayDataStore {
 	 */
 	public TriangleDT getTriangle(double []key){
 		Data data = null;
+		validateIndex();
 		try{
 			List list = rt.search(new Envelope(new Coordinate(key[0], key[1])));
 			Iterator iter = list.iterator();
@@ -238,10 +289,9 @@ public class DelaunayDataStoreRAM implements DelaunayDataStore {
 	 * @return triangle with index
 	 */
 	public TriangleDT getTriangle(int index){
-		if (deletedIdx.contains(index)){
-			//System.out.println("VRACI NULL");
+		if (index < 0 || index >= numberOfTriangles)
 			return null;
-		}
+		// deleted triangle is null
 		return (TriangleDT)triangles.get(index);
 	}
 
@@ -282,7 +332,7 @@ public class DelaunayDataStoreRAM implements DelaunayDataStore {
 	public TriangleDT searchNearest(double[] key) {
 		TriangleDT[] sortedArray = countN_Nearest(new Coordinate(key[0], key[1]),
 				nearest(key, 1), 1);
-		return (TriangleDT)sortedArray[0];
+		return sortedArray[0];
 	}
 
 	/*****************************************************************
@@ -292,6 +342,18 @@ public class DelaunayDataStoreRAM implements DelaunayDataStore {
 	 */		
 	public Collection getIntersectEnvelope(Envelope env) {
 		LinkedList list = new LinkedList();
+		if (!statusInserting){
+			if (envelopes == null)
+				envelopes = EnvelopeIndex.envelopes(this);
+			Iterator iter = envelopes.query(env).iterator();
+			while (iter.hasNext()){
+				TriangleDT T = getTriangle(((Integer)iter.next()).intValue());
+				if (T != null)
+					list.add(T);
+			}
+			return list;
+		}
+		validateIndex();
 		try{
 			List listOfTriangles = rt.search(env);
 			Iterator iter = listOfTriangles.iterator();
@@ -315,7 +377,7 @@ public class DelaunayDataStoreRAM implements DelaunayDataStore {
 		//System.out.println("Preorfer");
 		for (int i = 0; i<numberOfTriangles;i++){
 			TriangleDT T = (TriangleDT)triangles.get(i);
-			if (T.contains(new PointDT(P)))
+			if (T!=null && T.contains(new PointDT(P)))
 				return T;
 		}
 		return null;
@@ -331,7 +393,7 @@ public class DelaunayDataStoreRAM implements DelaunayDataStore {
 		//System.out.println("Preorferdd");
 		for (int i = 0; i<numberOfTriangles;i++){
 			TriangleDT T = (TriangleDT)triangles.get(i);
-			if (T.containsTwoPoints(A, B))
+			if (T!=null && T.containsTwoPoints(A, B))
 				return T;
 		}
 		return null;
@@ -344,49 +406,11 @@ public class DelaunayDataStoreRAM implements DelaunayDataStore {
 	 * @param EPSG - EPSG code (EPSG:2165)
 	 */
 	public void createShapefile(String path, String File, String EPSG){
-		   try{	
-			    AttributeType geom = null;
-		    	if  (EPSG == ""){
-		    		geom = AttributeTypeFactory.newAttributeType("the_geom",
-			    			LinearRing.class);
-		    	}
-		    	else{
-		    		geom = AttributeTypeFactory.newAttributeType("the_geom",
-		    			LinearRing.class, true, 0, null, CRS.decode(EPSG));    
-		    	}
-		    	AttributeType idx = AttributeTypeFactory.newAttributeType(
-		    			"index", Integer.class);
-		    	FeatureType ftRoad = FeatureTypeFactory.newFeatureType(
-		    			new AttributeType[] { geom, idx }, "Triangle");
-		    	WKTReader wktReader = new WKTReader();
-		    	URL anURL = (new File(path + File)).toURL();
-		    	ShapefileDataStore datastore = new ShapefileDataStore(anURL);
-		    	datastore.createSchema(ftRoad);
-		    	FeatureStore featureStore = (FeatureStore)(datastore.getFeatureSource("Triangle"));
-		    	Feature aNewFeature = null;
-		    	FeatureWriter aWriter = datastore.getFeatureWriter("Triangle",
-		    			((FeatureStore) datastore.getFeatureSource("Triangle"))
-		    					.getTransaction());
- 		    	for (int i =0; i<numberOfTriangles ; i++){
-		    		TriangleDT T = (TriangleDT)triangles.get(i);
-		    		if (T!=null){
-		    			LinearRing geometry = (LinearRing) wktReader
-		    		   			.read("LINEARRING ("+(T.A.x)+" "+(T.A.y)+","+(T.B.x)+" "+(T.B.y)+"," +
-		    		   					+(T.C.x)+" "+(T.C.y)+","+(T.A.x)+" "+(T.A.y)+")");
-		    			aNewFeature = aWriter.next();
-		    			aNewFeature.setAttribute(0, (Object)geometry);
-		    			aNewFeature.setAttribute(1, (Object)i);
-		    		}	
-		    		
-		    	}
-		    	aWriter.write();
-		    	aWriter.close();
-		   		}
-		    	catch(Exception e){
-		    		e.printStackTrace();
-		    } 
-			    
-			   
+		try {
+			ShapefileExport.createShapefile(this, path, File, EPSG);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
 	}
 	
 	/***********************************************************
@@ -396,7 +420,8 @@ public class DelaunayDataStoreRAM implements DelaunayDataStore {
 	public Collection getCollection(){
 		LinkedList res = new LinkedList();
 		for (int i=0; i<numberOfTriangles; i++){
-			res.add(triangles.get(i));
+			if (triangles.get(i)!=null)
+				res.add(triangles.get(i));
 		}
 		return res;
 	}
@@ -427,26 +452,12 @@ public class DelaunayDataStoreRAM implements DelaunayDataStore {
 	}
 
 	/*****************************************************************
-	 * method for close inserting 
+	 * method for close inserting, envelopes of all triangles are loaded
+	 * into packed rtree at once
 	 */
 	public void closeInserting(){
 		statusInserting = false;
-		try{
-			PageStore ps = new MemoryPageStore(dd);
-			for (int i = 0; i<numberOfTriangles; i++){
-				rt = new RTree(ps);
-				TriangleDT T = getTriangle(i);
-				if (T!=null){
-					data = new Data(dd);
-					data.addValue(i);
-					rt.insert(T.setEnvelope(), data);
-				}
-			}	
-		}
-		catch (Exception e){
-			e.printStackTrace();
-		}
-		
+		envelopes = EnvelopeIndex.envelopes(this);
 	}
 	
 }
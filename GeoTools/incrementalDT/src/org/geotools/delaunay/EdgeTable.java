@@ -0,0 +1,173 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import java.util.Arrays;
+
+/*****************************************************************************
+ * The hash table of edges with open addressing. The key of edge is made of
+ * ids of its vertexes, the value is long (index of triangle and number of
+ * its edge). Keys and values are saved in arrays of primitive types.
+ */
+
+class EdgeTable {
+	// empty item, keys of edges aren't negative
+	private static final long EMPTY = -1;
+	private long[] keys;
+	private long[] values;
+	private int size = 0;
+
+	/***************************************************************************
+	 * Constructor
+	 */
+
+	EdgeTable() {
+		keys = new long[1024];
+		values = new long[1024];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/***************************************************************************
+	 * The method for getting key of edge between vertexes u and v, the key
+	 * doesn't depend on the order of vertexes
+	 *
+	 * @param u - id of first vertex
+	 * @param v - id of second vertex
+	 * @return key of edge
+	 */
+
+	static long key(int u, int v) {
+		return ((long) Math.min(u, v) << 32) | Math.max(u, v);
+	}
+
+	/***************************************************************************
+	 * The method for saving value of edge, the old value is replaced
+	 *
+	 * @param key - key of edge
+	 * @param value - value of edge
+	 */
+
+	void put(long key, long value) {
+		if (2 * (size + 1) > keys.length)
+			rehash();
+		int i = slot(key);
+		if (keys[i] == EMPTY) {
+			keys[i] = key;
+			size++;
+		}
+		values[i] = value;
+	}
+
+	/***************************************************************************
+	 * The method for testing, if the edge is in table
+	 *
+	 * @param key - key of edge
+	 * @return true if the edge is in table
+	 */
+
+	boolean contains(long key) {
+		return keys[slot(key)] != EMPTY;
+	}
+
+	/***************************************************************************
+	 * The method for removing edge from table
+	 *
+	 * @param key - key of edge
+	 * @return value of removed edge or -1 if the edge isn't in table
+	 */
+
+	long remove(long key) {
+		int i = slot(key);
+		if (keys[i] == EMPTY)
+			return -1;
+		long value = values[i];
+		keys[i] = EMPTY;
+		size--;
+		// following items are moved to the empty item, if they wouldn't be
+		// found behind it
+		int mask = keys.length - 1;
+		for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+			int home = home(keys[j]);
+			boolean between = (i <= j) ? (i < home && home <= j)
+					: (i < home || home <= j);
+			if (!between) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				keys[j] = EMPTY;
+				i = j;
+			}
+		}
+		return value;
+	}
+
+	/***************************************************************************
+	 * The method for getting number of edges in table
+	 *
+	 * @return number of edges
+	 */
+
+	int size() {
+		return size;
+	}
+
+	/***************************************************************************
+	 * The private method for searching item, which contains key or which is
+	 * empty
+	 */
+
+	private int slot(long key) {
+		int mask = keys.length - 1;
+		int i = home(key);
+		while (keys[i] != EMPTY && keys[i] != key)
+			i = (i + 1) & mask;
+		return i;
+	}
+
+	/***************************************************************************
+	 * The private method for computing first item, where key is searched
+	 */
+
+	private int home(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & (keys.length - 1);
+	}
+
+	/***************************************************************************
+	 * The private method for doubling of table
+	 */
+
+	private void rehash() {
+		long[] oldKeys = keys;
+		long[] oldValues = values;
+		keys = new long[2 * oldKeys.length];
+		values = new long[2 * oldKeys.length];
+		Arrays.fill(keys, EMPTY);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int j = slot(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import org.geotools.index.Data;
+import org.geotools.index.DataDefinition;
+import org.geotools.index.rtree.RTree;
+import org.geotools.index.rtree.memory.MemoryPageStore;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/*****************************************************************************
+ * The indexes of triangles, which are common for data stores. Rtree of keys
+ * is used while triangles are inserted, envelopes of triangles are loaded
+ * into packed rtree (Sort-Tile-Recursive) after closing of inserting. Both
+ * are built from triangles of data store, deleted triangles (null) are
+ * skipped.
+ */
+
+class EnvelopeIndex {
+
+	/***************************************************************************
+	 * The method for building rtree of keys of triangles, data of item is
+	 * index of triangle
+	 *
+	 * @param store - data store with triangles
+	 * @param dd - definition of data with one Integer field
+	 * @return rtree with keys of all triangles
+	 * @throws Exception if rtree can't be built
+	 */
+
+	static RTree keys(DelaunayDataStore store, DataDefinition dd)
+			throws Exception {
+		RTree rt = new RTree(new MemoryPageStore(dd));
+		int number = store.getNumberOfTriangles();
+		for (int i = 0; i < number; i++) {
+			TriangleDT T = store.getTriangle(i);
+			if (T != null) {
+				Data data = new Data(dd);
+				data.addValue(i);
+				rt.insert(new Envelope(new Coordinate(T.key[0], T.key[1])), data);
+			}
+		}
+		return rt;
+	}
+
+	/***************************************************************************
+	 * The method for bulk loading of envelopes of triangles into packed
+	 * rtree, item is index of triangle
+	 *
+	 * @param store - data store with triangles
+	 * @return packed rtree with envelopes of all triangles
+	 */
+
+	static STRtree envelopes(DelaunayDataStore store) {
+		STRtree envelopes = new STRtree();
+		int number = store.getNumberOfTriangles();
+		for (int i = 0; i < number; i++) {
+			TriangleDT T = store.getTriangle(i);
+			if (T != null)
+				envelopes.insert(T.setEnvelope(), Integer.valueOf(i));
+		}
+		envelopes.build();
+		return envelopes;
+	}
+
+}
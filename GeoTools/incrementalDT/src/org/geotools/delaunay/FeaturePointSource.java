@@ -0,0 +1,100 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import org.geotools.feature.Feature;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+
+/*****************************************************************************
+ * The source of points from features (for example from shapefile). Features
+ * are read by iterator of collection, so only actual feature is in memory.
+ * All vertexes of geometry of feature are returned, the elevation is taken
+ * from attribute or from geometry.
+ */
+
+public class FeaturePointSource implements PointSource {
+	private FeatureCollection collection;
+	private FeatureIterator features;
+	// index of attribute with elevation, -1 for z of geometry
+	private int zAttribute;
+	// vertexes of actual feature
+	private Coordinate[] coordinates = new Coordinate[0];
+	private int index = 0;
+	private double elevation;
+
+	/*****************************************************************
+	 * Constructor of source with elevations in geometry
+	 * @param collection - collection of features
+	 */
+	public FeaturePointSource(FeatureCollection collection) {
+		this(collection, -1);
+	}
+
+	/*****************************************************************
+	 * Constructor of source with elevations in attribute
+	 * @param collection - collection of features
+	 * @param zAttribute - index of attribute with elevation, -1 if z
+	 *            of geometry is used
+	 */
+	public FeaturePointSource(FeatureCollection collection, int zAttribute) {
+		this.collection = collection;
+		this.zAttribute = zAttribute;
+		features = collection.features();
+	}
+
+	/*****************************************************************
+	 * The method for reading next vertex of features
+	 * @return next point or null if all features were read
+	 */
+	public Coordinate next() {
+		while (index == coordinates.length) {
+			if (features == null || !features.hasNext())
+				return null;
+			Feature feature = features.next();
+			Geometry geometry = feature.getDefaultGeometry();
+			if (geometry == null)
+				continue;
+			coordinates = geometry.getCoordinates();
+			index = 0;
+			if (zAttribute != -1)
+				elevation = ((Number) feature.getAttribute(zAttribute))
+						.doubleValue();
+		}
+		Coordinate coordinate = coordinates[index++];
+		if (zAttribute == -1)
+			return coordinate;
+		return new Coordinate(coordinate.x, coordinate.y, elevation);
+	}
+
+	/*****************************************************************
+	 * The method for closing of iterator of collection
+	 */
+	public void close() {
+		if (features != null)
+			collection.close(features);
+		features = null;
+	}
+
+}
@@ -20,21 +20,30 @@
 
 package org.geotools.delaunay;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Collection;
 import com.vividsolutions.jts.geom.Coordinate;
-import com.vividsolutions.jts.geom.LinearRing;
-import com.vividsolutions.jts.geom.LineString;
-import com.vividsolutions.jts.geom.impl.CoordinateArraySequence;
-import com.vividsolutions.jts.geom.GeometryFactory;
-import com.vividsolutions.jts.geom.Point;
 import com.vividsolutions.jts.geom.Envelope;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Random;
 
 import org.geotools.index.Data;
 
 public class IncrementalDT {
+	// new point divides its triangle and the triangles are flipped
+	public static final int FLIPPING = 0;
+	// triangles whose circle contains new point are replaced at once
+	public static final int CAVITY = 1;
+	// number of points which are read from PointSource and sorted at once
+	private static final int BATCH_SIZE = 1 << 16;
 	
 	/***************************************************************************
 	 * Constructor
@@ -48,27 +57,10 @@ public class IncrementalDT {
 		triangles = dataStore;
 	}
 
-	/***************************************************************************
-	 * Private class for sorting triangles
-	 */
-	
-	private class TestingTriangles {
-		TriangleDT trian;
-		TestingTriangles next;
-
-		TestingTriangles() {
-		}
-
-		TestingTriangles(TriangleDT A) {
-			this.trian = A;
-		}
-	}
-	// points which generate Convex geometry
-	private LinearRing newConvexGeometry;
+	// convex hull of triangulation
+	ConvexHull hull = new ConvexHull();
 	// if new points is already used in triangulation 
 	private boolean duplicitePoint; 
-	// coordinate of convex points
-	private Coordinate[] convex; 
 	// path for creating data file for saving triangles
 	private String path;
 	// 
@@ -79,6 +71,49 @@ public class IncrementalDT {
 	// list of first trhee points which waint on first triangles
 	private LinkedList firstPointsXY = new LinkedList();
 	private boolean firstTriangle = false;
+	// index of the last inserted triangle, searching of new point starts here
+	private int lastTriangle = -1;
+	// random order of tested edges during walking
+	private Random walkRandom = new Random(0);
+	// true if the points are sorted, the walk starts from the last triangle
+	private boolean sortedPoints = false;
+	// stack of indexes of new triangles, which are tested by delaunay test
+	private IntStack flipStack = new IntStack();
+	// new triangles of divided triangle
+	private TriangleDT[] newTriangles = new TriangleDT[3];
+	// neighbours of two flipped triangles
+	private int[] outer = new int[4];
+	// way of inserting points inside convex hull, FLIPPING or CAVITY
+	private int insertion = FLIPPING;
+	// triangles whose circle contains new point
+	private ArrayList cavity = new ArrayList();
+	// new triangles between new point and edges of cavity
+	private ArrayList fan = new ArrayList();
+	// indexes of triangles whose vertex got new elevation
+	private HashSet dirtyTriangles = new HashSet();
+	// ids of first vertexes of edges of hole made by removing point
+	private IntStack holeStarts = new IntStack();
+	// second vertexes of edges of hole, in the same order as holeStarts
+	private ArrayList holeEnds = new ArrayList();
+	// marks of ids of second vertexes of edges of hole
+	private TriangleMarks endMarks = new TriangleMarks();
+	// number of points read from PointSource, which are in the last checkpoint
+	private long inputPosition = 0;
+
+	/***************************************************************************
+	 * The method for choosing the way of inserting points inside convex hull.
+	 * FLIPPING divides the triangle with new point and flips its neighbours,
+	 * CAVITY removes all triangles whose circle contains new point and joins
+	 * the edges of this cavity with the point, so less triangles are saved
+	 * into DelaunayDataStore.
+	 * 
+	 * @param insertion - FLIPPING or CAVITY
+	 * 
+	 */
+
+	public void setInsertion(int insertion) {
+		this.insertion = insertion;
+	}
 
 	/***************************************************************************
 	 * The method for imputing a new points to triangulation
@@ -88,39 +123,509 @@ public class IncrementalDT {
 	 */
 
 	public void insertPoint(Coordinate point) {
-		PointDT P = new PointDT(point);
+		PointDT P = new PointDT(point.x, point.y, point.z);
+		VertexTable vertexes = triangles.getVertexTable();
+		int numberOfVertexes = vertexes.size();
+		vertexes.add(P);
+		// test of duplicity, the point is already in table of vertexes
+		if (vertexes.size() == numberOfVertexes)
+			return;
+		insertVertex(P);
+	}
+
+	/***************************************************************************
+	 * The method for imputing of many points to triangulation. Points are
+	 * sorted by BRIO and Hilbert curve before inserting, so the searching
+	 * of triangles is short
+	 * 
+	 * @param points - array of points, order of array is changed
+	 * 
+	 */
+
+	public void insertPoints(Coordinate[] points) {
+		SpatialSort.brio(points, new Random(points.length));
+		sortedPoints = true;
+		for (int i = 0; i < points.length; i++)
+			insertPoint(points[i]);
+		sortedPoints = false;
+	}
+
+	/***************************************************************************
+	 * The method for imputing of many points to triangulation
+	 * 
+	 * @param points - collection of Coordinates
+	 * 
+	 */
+
+	public void insertPoints(Iterable points) {
+		Coordinate[] batch = new Coordinate[BATCH_SIZE];
+		Iterator it = points.iterator();
+		int count;
+		do {
+			count = 0;
+			while (count < batch.length && it.hasNext())
+				batch[count++] = (Coordinate) it.next();
+			insertBatch(batch, count);
+		} while (count == batch.length);
+	}
+
+	/***************************************************************************
+	 * The method for imputing of points from source, which can be bigger than
+	 * memory. Points are read in batches, every batch is sorted and inserted
+	 * before next batch is read, so only one batch of points is in memory.
+	 * The source isn't closed.
+	 * 
+	 * @param source - source of points
+	 * @throws IOException
+	 * 
+	 */
+
+	public void insertPoints(PointSource source) throws IOException {
+		Coordinate[] batch = new Coordinate[BATCH_SIZE];
+		int count;
+		do {
+			count = 0;
+			Coordinate point;
+			while (count < batch.length && (point = source.next()) != null)
+				batch[count++] = point;
+			insertBatch(batch, count);
+		} while (count == batch.length);
+	}
+
+	/***************************************************************************
+	 * The method for imputing of points from source with checkpoints. The
+	 * checkpoint is made after the batch, when at least checkpointInterval
+	 * points were inserted since the last checkpoint, and at the end. After
+	 * resume the points of the last checkpoint are skipped, so the source
+	 * has to return the same points from the beginning. The data store has
+	 * to support checkpoints. The source isn't closed.
+	 * 
+	 * @param source - source of points
+	 * @param checkpointInterval - number of points between checkpoints
+	 * @throws IOException
+	 * @throws UnsupportedOperationException if the data store doesn't
+	 *             support checkpoints, no point is read then
+	 * 
+	 */
+
+	public void insertPoints(PointSource source, int checkpointInterval)
+			throws IOException {
+		checkpointStore();
+		for (long i = 0; i < inputPosition; i++)
+			if (source.next() == null)
+				break;
+		long lastCheckpoint = inputPosition;
+		Coordinate[] batch = new Coordinate[BATCH_SIZE];
+		int count;
+		do {
+			count = 0;
+			Coordinate point;
+			while (count < batch.length && (point = source.next()) != null)
+				batch[count++] = point;
+			insertBatch(batch, count);
+			inputPosition += count;
+			if (inputPosition - lastCheckpoint >= checkpointInterval) {
+				checkpoint(inputPosition);
+				lastCheckpoint = inputPosition;
+			}
+		} while (count == batch.length);
+		if (lastCheckpoint != inputPosition)
+			checkpoint(inputPosition);
+		inputPosition = 0;
+	}
+
+	/***************************************************************************
+	 * The method for saving checkpoint of triangulation. Triangles, free
+	 * indexes and vertexes of data store are saved with convex hull and
+	 * counters of triangulation, so the triangulation can be resumed after
+	 * crash. The data store has to support checkpoints.
+	 * 
+	 * @param inputPosition - number of points read from input, it is
+	 *            returned by resume
+	 * @throws IOException
+	 * @throws UnsupportedOperationException if the data store doesn't
+	 *             support checkpoints
+	 * 
+	 */
+
+	public void checkpoint(long inputPosition) throws IOException {
+		DelaunayDataStoreHDD store = checkpointStore();
+		DataOutputStream out = store.beginCheckpoint();
+		out.writeLong(inputPosition);
+		out.writeInt(number_Points);
+		out.writeInt(number_Triangles);
+		out.writeBoolean(firstTriangle);
+		out.writeInt(lastTriangle);
+		out.writeInt(insertion);
+		out.writeInt(firstPointsXY.size());
+		Iterator it = firstPointsXY.iterator();
+		while (it.hasNext())
+			out.writeInt(((PointDT) it.next()).id);
+		hull.write(out);
+		store.endCheckpoint(out);
+	}
+
+	/***************************************************************************
+	 * The method for resuming of triangulation from the last checkpoint. The
+	 * data store has to be opened by DelaunayDataStoreHDD.resume and no
+	 * point can be inserted before.
+	 * 
+	 * @return number of points read from input by checkpoint
+	 * @throws IOException
+	 * 
+	 */
+
+	public long resume() throws IOException {
+		DataInputStream in = checkpointStore().getCheckpointState();
+		if (in == null)
+			throw new IOException("The data store wasn't opened from checkpoint");
+		try {
+			inputPosition = in.readLong();
+			number_Points = in.readInt();
+			number_Triangles = in.readInt();
+			firstTriangle = in.readBoolean();
+			lastTriangle = in.readInt();
+			insertion = in.readInt();
+			int count = in.readInt();
+			VertexTable vertexes = triangles.getVertexTable();
+			firstPointsXY.clear();
+			for (int i = 0; i < count; i++)
+				firstPointsXY.add(vertexes.getVertex(in.readInt()));
+			hull.read(in);
+		} finally {
+			in.close();
+		}
+		return inputPosition;
+	}
+
+	/***************************************************************************
+	 * The method for testing, if the data store supports checkpoints, only
+	 * DelaunayDataStoreHDD does
+	 * 
+	 * @return true if checkpoint and insertPoints with checkpoints can be
+	 *         used
+	 * 
+	 */
+
+	public boolean supportsCheckpoint() {
+		return triangles instanceof DelaunayDataStoreHDD;
+	}
+
+	/***************************************************************************
+	 * The private method for getting data store, which supports checkpoints
+	 */
+
+	private DelaunayDataStoreHDD checkpointStore() {
+		if (!supportsCheckpoint())
+			throw new UnsupportedOperationException(
+					"Checkpoints are supported by DelaunayDataStoreHDD only");
+		return (DelaunayDataStoreHDD) triangles;
+	}
+
+	/***************************************************************************
+	 * The private method for inserting first count points of batch
+	 */
+
+	private void insertBatch(Coordinate[] batch, int count) {
+		if (count < batch.length) {
+			Coordinate[] points = new Coordinate[count];
+			System.arraycopy(batch, 0, points, 0, count);
+			batch = points;
+		}
+		insertPoints(batch);
+	}
+
+	/***************************************************************************
+	 * The method for removing point from triangulation. Triangles around the
+	 * point are deleted and the hole is filled by Delaunay triangles of its
+	 * edge, other triangles aren't changed.
+	 * 
+	 * @param point - Coordinate of vertex
+	 * @return true if the point was removed, false if it isn't vertex of
+	 *         triangulation or no triangle would remain
+	 * 
+	 */
+
+	public boolean removePoint(Coordinate point) {
+		VertexTable vertexes = triangles.getVertexTable();
+		int id = vertexes.find(point.x, point.y);
+		if (id == -1)
+			return false;
+		PointDT P = vertexes.getVertex(id);
+		LinkedList star = VertexStar.getTriangles(triangles, P);
+		if (star.isEmpty())
+			return false;
+		// edges of hole in counterclockwise order around P
+		holeStarts.clear();
+		holeEnds.clear();
+		endMarks.clear();
+		ArrayList outer = new ArrayList();
+		Iterator it = star.iterator();
+		while (it.hasNext()) {
+			TriangleDT T = (TriangleDT) it.next();
+			int e = T.edgeOpposite(P);
+			PointDT U = (e == 1) ? T.B : T.A;
+			PointDT V = (e == 0) ? T.B : T.C;
+			if (Predicates.orient2d(U, V, P) < 0) {
+				PointDT W = U;
+				U = V;
+				V = W;
+			}
+			holeStarts.push(U.id);
+			holeEnds.add(V);
+			endMarks.mark(V.id);
+			TriangleDT O = triangles.getTriangle(T.neighbour[e]);
+			if (O != null && indexOf(outer, O.index) == -1)
+				outer.add(O);
+		}
+		// vertex on convex hull has open chain of edges
+		PointDT first = null;
+		it = star.iterator();
+		while (it.hasNext() && first == null) {
+			TriangleDT T = (TriangleDT) it.next();
+			int e = T.edgeOpposite(P);
+			PointDT U = (e == 1) ? T.B : T.A;
+			if (Predicates.orient2d(U, (e == 0) ? T.B : T.C, P) < 0)
+				U = (e == 0) ? T.B : T.C;
+			if (!endMarks.isMarked(U.id))
+				first = U;
+		}
+		boolean closed = (first == null);
+		ArrayList ring = new ArrayList();
+		if (closed)
+			first = (PointDT) holeEnds.get(0);
+		for (PointDT U = first; U != null && ring.size() <= holeEnds.size(); U = nextOfHole(U)) {
+			if (closed && !ring.isEmpty() && U.id == first.id)
+				break;
+			ring.add(U);
+		}
+		ArrayList fill = new ArrayList();
+		fillHole(ring, closed, fill);
+		if ((closed && ring.size() > 2) || (fill.isEmpty() && outer.isEmpty()))
+			return false;
+
+		// fill triangles get edges of convex hull from deleted triangles
+		boolean hullEdges = !closed;
+		try {
+			it = star.iterator();
+			while (it.hasNext()) {
+				TriangleDT T = (TriangleDT) it.next();
+				if (T.neighbour[0] == -1 || T.neighbour[1] == -1
+						|| T.neighbour[2] == -1)
+					hullEdges = true;
+				triangles.delete(T.index);
+				number_Triangles--;
+				for (int k = 0; k < outer.size(); k++) {
+					TriangleDT O = (TriangleDT) outer.get(k);
+					for (int i = 0; i < 3; i++)
+						if (O.neighbour[i] == T.index)
+							O.neighbour[i] = -1;
+				}
+			}
+			for (int k = 0; k < fill.size(); k++) {
+				TriangleDT N = (TriangleDT) fill.get(k);
+				triangles.insertToTree(N, N.key);
+				number_Triangles++;
+			}
+			for (int k = 0; k < fill.size(); k++) {
+				TriangleDT N = (TriangleDT) fill.get(k);
+				for (int l = k + 1; l < fill.size(); l++)
+					N.saveNeighbour((TriangleDT) fill.get(l));
+				for (int l = 0; l < outer.size(); l++)
+					N.saveNeighbour((TriangleDT) outer.get(l));
+				triangles.update(N);
+			}
+			for (int k = 0; k < outer.size(); k++) {
+				TriangleDT O = (TriangleDT) outer.get(k);
+				triangles.update(O);
+				vertexes.setTriangle(O);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		vertexes.remove(id);
+		number_Points--;
+		if (!closed && hull.contains(id)) {
+			// rest of chain is new part of convex hull
+			if (((PointDT) ring.get(0)).id == hull.next(id))
+				Collections.reverse(ring);
+			int[] chain = new int[ring.size() - 2];
+			for (int k = 0; k < chain.length; k++)
+				chain[k] = ((PointDT) ring.get(k + 1)).id;
+			hull.replace(hull.previous(id), chain, hull.next(id));
+			for (int k = 0; k < outer.size(); k++)
+				saveHullEdges((TriangleDT) outer.get(k));
+		}
+		if (hullEdges)
+			for (int k = 0; k < fill.size(); k++)
+				saveHullEdges((TriangleDT) fill.get(k));
+		if (!fill.isEmpty())
+			lastTriangle = ((TriangleDT) fill.get(0)).index;
+		else
+			lastTriangle = ((TriangleDT) outer.get(0)).index;
+		return true;
+	}
+
+	/***************************************************************************
+	 * The private method for getting the next vertex of hole after vertex U
+	 * 
+	 * @return PointDT - second vertex of edge of hole, which starts in U, or
+	 *         null
+	 */
+
+	private PointDT nextOfHole(PointDT U) {
+		for (int k = 0; k < holeStarts.size(); k++)
+			if (holeStarts.get(k) == U.id)
+				return (PointDT) holeEnds.get(k);
+		return null;
+	}
+
+	/***************************************************************************
+	 * The method for moving vertex of triangulation, the point is removed
+	 * and inserted on new position
+	 * 
+	 * @param from - Coordinate of vertex
+	 * @param to - new Coordinate of vertex
+	 * @return true if the point was moved, false if it isn't vertex of
+	 *         triangulation or another vertex is on new position
+	 * 
+	 */
+
+	public boolean movePoint(Coordinate from, Coordinate to) {
+		VertexTable vertexes = triangles.getVertexTable();
+		if ((from.x != to.x || from.y != to.y)
+				&& vertexes.find(to.x, to.y) != -1)
+			return false;
+		if (!removePoint(from))
+			return false;
+		insertPoint(to);
+		return true;
+	}
+
+	/***************************************************************************
+	 * The method for changing elevation of vertex. Topology of triangulation
+	 * isn't changed, only the triangles around vertex are marked as dirty,
+	 * so the surface and contour lines can be counted again only for them.
+	 * 
+	 * @param vertexId - id of vertex in table of vertexes
+	 * @param z - new elevation
+	 * 
+	 */
+
+	public void updateElevation(int vertexId, double z) {
+		VertexTable vertexes = triangles.getVertexTable();
+		vertexes.setZ(vertexId, z);
+		Iterator it = VertexStar.getTriangles(triangles,
+				vertexes.getVertex(vertexId)).iterator();
+		while (it.hasNext()) {
+			TriangleDT T = (TriangleDT) it.next();
+			// stores which save points in triangles
+			if (T.A.id == vertexId)
+				T.A.z = z;
+			else if (T.B.id == vertexId)
+				T.B.z = z;
+			else if (T.C.id == vertexId)
+				T.C.z = z;
+			triangles.update(T);
+			dirtyTriangles.add(Integer.valueOf(T.index));
+		}
+	}
+
+	/***************************************************************************
+	 * The method for getting triangles marked by updateElevation
+	 * 
+	 * @return indexes of dirty triangles
+	 * 
+	 */
+
+	public int[] getDirtyTriangles() {
+		int[] indexes = new int[dirtyTriangles.size()];
+		Iterator it = dirtyTriangles.iterator();
+		for (int i = 0; it.hasNext(); i++)
+			indexes[i] = ((Integer) it.next()).intValue();
+		Arrays.sort(indexes);
+		return indexes;
+	}
+
+	/***************************************************************************
+	 * The method for clearing dirty triangles after the surface and contour
+	 * lines were updated
+	 * 
+	 */
+
+	public void clearDirtyTriangles() {
+		dirtyTriangles.clear();
+	}
+
+	/***************************************************************************
+	 * The private method for filling hole after removed vertex. The ear of
+	 * polygon (three following vertexes) is cut off, if it is convex and
+	 * its circle contains no other vertex of polygon. Open chain of vertexes
+	 * on convex hull is filled while there is such ear.
+	 * 
+	 * @param ring - vertexes of hole in counterclockwise order, only the
+	 *            vertexes which weren't cut off remain
+	 * @param closed - true if the first vertex follows the last one
+	 * @param fill - list for new triangles
+	 */
+
+	private void fillHole(ArrayList ring, boolean closed, ArrayList fill) {
+		while (ring.size() >= 3) {
+			int n = ring.size();
+			int ear = -1;
+			for (int i = closed ? 0 : 1; i < (closed ? n : n - 1) && ear == -1; i++) {
+				PointDT U = (PointDT) ring.get((i + n - 1) % n);
+				PointDT V = (PointDT) ring.get(i);
+				PointDT W = (PointDT) ring.get((i + 1) % n);
+				if (Predicates.orient2d(U, V, W) <= 0)
+					continue;
+				ear = i;
+				for (int j = 0; j < n && ear != -1; j++) {
+					PointDT X = (PointDT) ring.get(j);
+					if (X != U && X != V && X != W
+							&& Predicates.inCircle(U, V, W, X))
+						ear = -1;
+				}
+			}
+			if (ear == -1)
+				return;
+			fill.add(new TriangleDT((PointDT) ring.get((ear + n - 1) % n),
+					(PointDT) ring.get(ear), (PointDT) ring.get((ear + 1) % n)));
+			ring.remove(ear);
+		}
+	}
+
+	/***************************************************************************
+	 * The private method for inserting a new vertex to triangulation
+	 * 
+	 * @param P - new vertex, which is saved in table of vertexes
+	 * @throws IllegalStateException if no triangle for the vertex was found
+	 * 
+	 */
+
+	void insertVertex(PointDT P) {
 		duplicitePoint = false;
 		number_Points++;
 		// test for existing first triangle
 		if (!firstTriangle) { 
-			Iterator it = firstPointsXY.iterator();
-			while (it.hasNext())
-				// test of duplicity
-				if (P.compare((PointDT) it.next()))
-					duplicitePoint = true;
-			if (!duplicitePoint)
-				firstPointsXY.addFirst(P);
-			else
-				number_Points--;
+			firstPointsXY.addFirst(P);
 
 			if (number_Points >= 3) {
 				// creating first triangle
 				createFirstTriangle(); 
 			}
 		} else { // first triangles exist
-			Coordinate[] newPoint = { P };
-			CoordinateArraySequence newPoints = new CoordinateArraySequence(
-					newPoint);
-			Point newP = new Point(newPoints, new GeometryFactory());
-			// inside point
-			if (newP.coveredBy(newConvexGeometry.convexHull())) { 																
-				divideTriangle(P, newConvexGeometry.contains(newP));
-				 // point is on the edge of convex
-				if (newConvexGeometry.contains(newP) && !duplicitePoint) 
-					convex = addPointToConvexGeometry(newP, convex);
-			} else
+			TriangleDT T = ringSearch(P);
+			if (T == null)
+				T = locate(P);
+			if (T.contains(P)) {
+				// inside point or point on the edge
+				if (insertion != CAVITY || !replaceCavity(P, T))
+					divideTriangle(P, T);
+			}
+			else
 				// point is out of convex
-				createConvexPolygon(P); 
+				createConvexPolygon(P, T);
 		}
 	}
 
@@ -143,17 +648,13 @@ public class IncrementalDT {
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
+			lastTriangle = T.index;
 			number_Triangles++;
-			convex = new Coordinate[4];
-			convex[0] = T.A;
-			convex[1] = T.B;
-			convex[2] = T.C;
-			convex[3] = T.A;
-			//creating geometry of convex
-			CoordinateArraySequence pointsWhichGenerateConvex = new CoordinateArraySequence(
-					convex);
-			newConvexGeometry = new LinearRing(pointsWhichGenerateConvex,
-					new GeometryFactory());
+			// creating convex hull, vertexes are counterclockwise
+			if (Predicates.orient2d(T.A, T.B, T.C) > 0)
+				hull.init(T.A.id, T.B.id, T.C.id, T.index);
+			else
+				hull.init(T.A.id, T.C.id, T.B.id, T.index);
 			firstTriangle = true;
 
 			// completion of first points which were in line
@@ -164,7 +665,7 @@ public class IncrementalDT {
 				it.next();
 
 				while (it.hasNext()) {
-					insertPoint((PointDT) it.next());
+					insertVertex((PointDT) it.next());
 				}
 			}
 		}
@@ -172,7 +673,8 @@ public class IncrementalDT {
 
 	/***************************************************************************
 	 * The method for searching a tringle which contains new point P, inside
-	 * convex hull
+	 * convex hull. The search walks from the nearest of the last inserted
+	 * triangle and several randomly chosen triangles (jump and walk).
 	 * 
 	 * @param PointDT -
 	 *            coordinate of new point
@@ -182,523 +684,397 @@ public class IncrementalDT {
 	 */
 
 	private TriangleDT ringSearch(PointDT P) {
-
-		LinkedList tested = new LinkedList();
+		TriangleDT T = jump(P);
+		if (T != null) {
+			T = walk(T, P);
+			if (T != null)
+				return T;
+		}
+		// no starting triangle or walk didn't finish
 		double[] A = { P.x, P.y };
-		TriangleDT T = null;
 		try {
-			T = (TriangleDT) triangles.searchNearest(A);
+			T = triangles.searchNearest(A);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
-		TriangleDT TT;
-		int i;
+		if (T == null)
+			return null;
+		return walk(T, P);
+	}
 
-		if (T.contains(P)) {
-			return T;
-		}
-		// Rtree returns bad triangle
-		tested.add(T);
-		for (i = 0; i < 3; i++) {
-			// testing neigbour
-			TriangleDT Ti = triangles.getTriangle(T.neighbour_idx[i]);
-			if (Ti != null) {
-				if (Ti.contains(P))
-					return Ti;
-				tested.add(Ti);
-				TriangleDT left = null;
-				TriangleDT right = null;
-
-				for (int j = 0; j < 3; j++) {
-					// testing neighbour's neighbour
-					TriangleDT Tij = triangles.getTriangle(Ti.neighbour_idx[j]);
-					if (Tij != null
-							&& !Tij.compare(T)) {
-						if (left == null) {
-							left = Tij;
-							if (left.contains(P))
-								return left;
-							tested.add(left);
-						} else {
-							right = Tij;
-							if (right.contains(P))
-								return right;
-							tested.add(right);
-						}
-					}
-				}
-				if (left != null) {
-					TT = inSideSearch(T, i, left, P, tested);
-					if (TT != null)
-						return TT;
-				}
-				if (right != null) {
-					TT = inSideSearch(T, i, right, P, tested);
-					if (TT != null)
-						return TT;
-				}
-			}
+	/***************************************************************************
+	 * The private method for searching a triangle which contains point P by
+	 * testing of all triangles, it's used only when the walk didn't finish.
+	 * The triangle of convex hull is returned for point out of convex hull,
+	 * createConvexPolygon tests all edges of convex hull then.
+	 * 
+	 * @param PointDT -
+	 *            coordinate of new point
+	 * 
+	 * @return TriangleDT - triangle which contains P or triangle of convex
+	 *         hull
+	 * @throws IllegalStateException if triangulation has no such triangle
+	 */
 
+	private TriangleDT locate(PointDT P) {
+		int size = triangles.getNumberOfTriangles();
+		for (int i = 0; i < size; i++) {
+			TriangleDT T = triangles.getTriangle(i);
+			if (T != null && T.contains(P))
+				return T;
 		}
-		// if triangle isn't founded,program continues with preoder test
-		return triangles.preorderTest(P);
-
+		int u = hull.getVertex();
+		TriangleDT T = hullTriangle(u, hull.next(u));
+		if (T == null) {
+			number_Points--;
+			throw new IllegalStateException("Point " + P.x + ", " + P.y
+					+ " can't be located in triangulation");
+		}
+		return T;
 	}
-	
-
 
 	/***************************************************************************
-	 * The private method for searching around founded triangle
+	 * The private method for choosing the starting triangle of walk. The
+	 * last inserted triangle and cube root of number of triangles random
+	 * samples are tested, the nearest one is returned. Sorted points start
+	 * only from the last inserted triangle.
 	 * 
-	 * @param TriangleDT
-	 *            T - founded triangle
-	 * @param int
-	 *            i - index in array of neighbour
-	 * @param TriangleDT
-	 *            left - neighbour of triangle T
 	 * @param PointDT
-	 *            P - new point
-	 * @param LinkedList
-	 *            tested - list of tested triangle
-	 * 
-	 * @return TriangleDT - founded triangle which contains new point P
+	 *            P - searched point
 	 * 
+	 * @return TriangleDT - starting triangle or null if no triangle was found
 	 */
 
-	private TriangleDT inSideSearch(TriangleDT T, int i, TriangleDT left,
-			PointDT P, LinkedList tested) {
-
-		TriangleDT helpTriangle = new TriangleDT();
-		helpTriangle = triangles.getTriangle(T.neighbour_idx[i]);
-		boolean change = true;
-		while (change) {
-			change = false;
-			for (int j = 0; j < 3; j++) {
-				TriangleDT Lj = triangles.getTriangle(left.neighbour_idx[j]);
-				if ((Lj != null)
-						&& Lj.contains(P))
-					return Lj;
-
-				if (Lj != null
-						&& !wasTested(Lj, tested)
-						&& Lj != helpTriangle
-						&& Lj.containsOneSamePointWith(T)) {
-
-					tested.add(Lj);
-					helpTriangle = left;
-					left = Lj;
-					change = true;
+	private TriangleDT jump(PointDT P) {
+		TriangleDT start = null;
+		double minDistance = Double.POSITIVE_INFINITY;
+		start = triangles.getTriangle(lastTriangle);
+		if (start != null)
+			minDistance = squareDistance(start.key, P);
+		// the last triangle is near to next sorted point
+		if (sortedPoints && start != null)
+			return start;
+		int size = triangles.getNumberOfTriangles();
+		int samples = (int) Math.pow(size, 1.0 / 3.0);
+		for (int i = 0; i < samples; i++) {
+			TriangleDT T = triangles.getTriangle(walkRandom.nextInt(size));
+			if (T != null) {
+				double distance = squareDistance(T.key, P);
+				if (distance < minDistance) {
+					minDistance = distance;
+					start = T;
 				}
 			}
 		}
-		return null;
+		return start;
 	}
 
 	/***************************************************************************
-	 * The private method for control, if the triangle was tested
-	 * 
-	 * @param TriangleDT
-	 *            T - triangle for testing
-	 * @param LinkedList
-	 *            tested - list of tested triangle
-	 * 
-	 * @return boolean true - the triangle was tested false - the triangle
-	 *         wasn't tested
+	 * The private method for computing square of distance between key of
+	 * triangle and point
 	 */
 
-	private boolean wasTested(TriangleDT T, LinkedList tested) {
-		Iterator iter = tested.iterator();
-		while (iter.hasNext()) {
-			if (((TriangleDT) iter.next()).compare(T))
-				return true;
-		}
-		return false;
+	private static double squareDistance(double[] key, PointDT P) {
+		return (key[0] - P.x) * (key[0] - P.x) + (key[1] - P.y) * (key[1] - P.y);
 	}
 
 	/***************************************************************************
-	 * The method for searching a trinagle contains new point, which isn't
-	 * inside convex hull
+	 * The private method for walking through the triangulation. The walk
+	 * starts in triangle T and crosses the edge, which separates triangle from
+	 * point P, until the triangle contains P. The order of tested edges is
+	 * random, so the walk can't cycle.
 	 * 
+	 * @param TriangleDT
+	 *            T - starting triangle
 	 * @param PointDT
-	 *            A - first point on edge of convex hull PointDT B - second
-	 *            point on edge of convex hull
+	 *            P - searched point
 	 * 
-	 * @return TriangleDT - which contains PointDT A and PointDT B
+	 * @return TriangleDT - triangle which contains P (P can be on the edge),
+	 *         last triangle before the edge of convex hull or null if the walk
+	 *         didn't finish
 	 */
 
-	private TriangleDT ringSearchConvexTriangle(PointDT A, PointDT B) {
-		PointDT P = new PointDT((A.x + B.x) / 2, (A.y + B.y) / 2, 0);
-		double[] X = { P.x, P.y };
-		LinkedList tested = new LinkedList();
-
-		TriangleDT T = null;
-		try {
-			T = triangles.searchNearest(X);
-		} catch (Exception e) {
-			e.printStackTrace();
+	private TriangleDT walk(TriangleDT T, PointDT P) {
+		for (int steps = 0; steps <= number_Triangles; steps++) {
+			int edge = leavingEdge(T, P);
+			if (edge == -1)
+				return T;
+			TriangleDT N = triangles.getTriangle(T.neighbour[edge]);
+			// point is behind the edge of convex hull
+			if (N == null)
+				return T;
+			T = N;
 		}
-		TriangleDT TT;
-		int i;
-		if (T.containsTwoPoints(A, B))
-			return T;
-		tested.add(T);
-		for (i = 0; i < 3; i++) {
-			TriangleDT Ti = triangles.getTriangle(T.neighbour_idx[i]);
-			if (Ti != null) {
-				if (Ti.containsTwoPoints(A, B))
-					return Ti;
-				tested.add(Ti);
-				TriangleDT left = null;
-				TriangleDT right = null;
-
-				for (int j = 0; j < 3; j++) {
-					TriangleDT Tij = triangles.getTriangle(Ti.neighbour_idx[j]);
-					if (Tij != null
-							&& !Tij.compare(T)) {
-						if (left == null) {
-							left = Tij;
-							if (left.containsTwoPoints(A, B))
-								return left;
-							tested.add(left);
-						} else {
-							right = Tij;
-							if (right.containsTwoPoints(A, B))
-								return right;
-							tested.add(right);
-						}
-					}
-				}
-				if (left != null) {
-					TT = inSideConvexSearch(T, i, left, A, B, tested);
-					if (TT != null)
-						return TT;
-				}
-				if (right != null) {
-					TT = inSideConvexSearch(T, i, right, A, B, tested);
-					if (TT != null)
-						return TT;
-				}
-			}
-
-		}
-		return triangles.preorderTestContainTwoPoint(A,B);
-
+		return null;
 	}
 
 	/***************************************************************************
-	 * The private method for searching around founded triangle
+	 * The private method for finding edge of triangle, which separates the
+	 * triangle from point P. Edges are indexed same as neighbours (0 - AB,
+	 * 1 - BC, 2 - AC).
 	 * 
 	 * @param TriangleDT
-	 *            T - founded triangle
-	 * @param int
-	 *            i - index in array of neighbour
-	 * @param TriangleDT
-	 *            left - neighbour of triangle T
+	 *            T - tested triangle
 	 * @param PointDT
-	 *            A - the point, which must be vertex
-	 * @param PointDT
-	 *            B - the point, which must be vertex
-	 * @param LinkedList
-	 *            tested - list of tested triangle
-	 * 
-	 * @return TriangleDT - founded triangle which contains new point P
+	 *            P - searched point
 	 * 
+	 * @return int - index of the edge or -1 if the triangle contains P
 	 */
 
-	private TriangleDT inSideConvexSearch(TriangleDT T, int i, TriangleDT left,
-			PointDT A, PointDT B, LinkedList tested) {
-		TriangleDT helpTriangle = new TriangleDT();
-		helpTriangle = triangles.getTriangle(T.neighbour_idx[i]);
-		boolean change = true;
-		while (change) {
-			change = false;
-			for (int j = 0; j < 3; j++) {
-				TriangleDT Lj = triangles.getTriangle(left.neighbour_idx[j]);
-				if ((Lj != null)
-						&& Lj.containsTwoPoints(A, B))
-					return Lj;
-				if (Lj != null
-						&& !wasTested(Lj, tested)
-						&& !Lj.compare(helpTriangle)
-						&& Lj.containsOneSamePointWith(T)) {
-
-					tested.add(Lj);
-					helpTriangle = left;
-					left = Lj;
-					change = true;
-				}
+	private int leavingEdge(TriangleDT T, PointDT P) {
+		int first = walkRandom.nextInt(3);
+		for (int k = 0; k < 3; k++) {
+			int edge = (first + k) % 3;
+			PointDT U, V, W;
+			if (edge == 0) {
+				U = T.A; V = T.B; W = T.C;
+			} else if (edge == 1) {
+				U = T.B; V = T.C; W = T.A;
+			} else {
+				U = T.A; V = T.C; W = T.B;
 			}
+			double sideP = Predicates.orient2d(U, V, P);
+			double sideW = Predicates.orient2d(U, V, W);
+			if ((sideP < 0 && sideW > 0) || (sideP > 0 && sideW < 0))
+				return edge;
 		}
-		return null;
+		return -1;
 	}
 
 	/***************************************************************************
 	 * The method for dividing a trinagle which contains new point
 	 * 
 	 * @param PointDT
-	 *            A - new point boolean pointIsInConvex - true - if point is on
-	 *            edge of the TriangleDT - false - if point is inside the
-	 *            TriangleDT
+	 *            A - new point
+	 * @param TriangleDT
+	 *            T - triangle which contains new point inside or on the edge
 	 */
 
-	private void divideTriangle(PointDT A, boolean pointIsInConvex) {
-		TriangleDT T = ringSearch(A);
-		if ((T==null) || (T.containsPointAsVertex(A)))// testing of duplicity
+	private void divideTriangle(PointDT A, TriangleDT T) {
+		if (T.containsPointAsVertex(A))// testing of duplicity
 			duplicitePoint = true;
 		if ((!duplicitePoint)) { 
-			TestingTriangles newTriangles = new TestingTriangles();
+			int edge = -1;
+			if (Predicates.orient2d(T.A, T.B, A) == 0)
+				edge = 0;
+			else if (Predicates.orient2d(T.B, T.C, A) == 0)
+				edge = 1;
+			else if (Predicates.orient2d(T.A, A, T.C) == 0)
+				edge = 2;
+			// new point is on the edge of convex hull, line triangle isn't used
+			boolean pointIsInConvex = (edge != -1) && (T.neighbour[edge] == -1);
 			//creating new three triangles
-			newTriangles.trian = new TriangleDT(T.A, T.B, A); 
-																
-			newTriangles.next = new TestingTriangles();
-			newTriangles.next.trian = new TriangleDT(T.B, T.C, A);
-			newTriangles.next.next = new TestingTriangles();
-			newTriangles.next.next.trian = new TriangleDT(T.A, A, T.C);
-			// new point is inside of triangle
-			if (!pointIsInConvex) {
-				saveTriangleNeighbour(newTriangles.trian,
-						newTriangles.next.trian);
-				saveTriangleNeighbour(newTriangles.next.trian,
-						newTriangles.next.next.trian); 
-				saveTriangleNeighbour(newTriangles.trian,
-						newTriangles.next.next.trian);
-			
-				TriangleDT T0 = triangles.getTriangle(T.neighbour_idx[0]);
-				
-				// saving neighbours of deleted triangle
-				if (T0 != null){
-					saveTriangleNeighbour(T0, newTriangles.trian);
-					triangles.delete(T0.key);
-					triangles.insertToTree(T0, T0.key);
+			int count = 0;
+			if (!pointIsInConvex || edge != 0)
+				newTriangles[count++] = new TriangleDT(T.A, T.B, A);
+			if (!pointIsInConvex || edge != 1)
+				newTriangles[count++] = new TriangleDT(T.B, T.C, A);
+			if (!pointIsInConvex || edge != 2)
+				newTriangles[count++] = new TriangleDT(T.A, A, T.C);
+			try {
+				triangles.delete(T.index);
+				for (int k = 0; k < count; k++) {
+					triangles.insertToTree(newTriangles[k], newTriangles[k].key);
+					number_Triangles++;
 				}
-				TriangleDT T1 = triangles.getTriangle(T.neighbour_idx[1]);
-				if (T1 != null){
-					saveTriangleNeighbour(T1,
-							newTriangles.next.trian);
-					triangles.delete(T1.key);
-					triangles.insertToTree(T1, T1.key);
-				}
-				TriangleDT T2 = triangles.getTriangle(T.neighbour_idx[2]);
-				if (T2 != null){
-					saveTriangleNeighbour(T2,
-							newTriangles.next.next.trian);
-					triangles.delete(T2.key);
-					triangles.insertToTree(T2, T2.key);
-				}
-				if (!newTriangles.next.trian.isTriangle()){
-					TriangleDT Thelp = newTriangles.next.trian;
-					newTriangles.next.trian = newTriangles.trian;
-					newTriangles.trian = Thelp;
-				}if (!newTriangles.next.next.trian.isTriangle()){
-					TriangleDT Thelp = newTriangles.next.next.trian;
-					newTriangles.next.next.trian = newTriangles.trian;
-					newTriangles.trian = Thelp;
-				}
-				try {
-					triangles.delete(T.key);
-					triangles.insertToTree(newTriangles.trian,
-							newTriangles.trian.key);
-					triangles.insertToTree(newTriangles.next.trian,
-							newTriangles.next.trian.key);
-					triangles.insertToTree(newTriangles.next.next.trian,
-							newTriangles.next.next.trian.key);
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
-
-				number_Triangles += 2;
-			testNewTriangles(newTriangles, newTriangles.next.next);
-			} else { 
-				if (!newTriangles.trian.isTriangle())
-					newTriangles = newTriangles.next;
-				if (!newTriangles.next.trian.isTriangle())
-					newTriangles.next = newTriangles.next.next;
-				saveTriangleNeighbour(newTriangles.trian,
-						newTriangles.next.trian);
-				for (int i = 0; i < 3; i++){
-					TriangleDT Ti = triangles.getTriangle(T.neighbour_idx[i]);
+				number_Triangles--;
+				// saving neighbours between new triangles
+				for (int k = 0; k < count; k++)
+					for (int l = k + 1; l < count; l++)
+						newTriangles[k].saveNeighbour(newTriangles[l]);
+				// saving neighbours of deleted triangle
+				for (int i = 0; i < 3; i++) {
+					TriangleDT Ti = triangles.getTriangle(T.neighbour[i]);
 					if (Ti != null) {
-						saveTriangleNeighbour(Ti,
-								newTriangles.next.trian);
-						saveTriangleNeighbour(Ti,
-								newTriangles.trian);
-						triangles.delete(Ti.key);
-						triangles.insertToTree(Ti, Ti.key);
+						for (int k = 0; k < count; k++)
+							Ti.saveNeighbour(newTriangles[k]);
+						triangles.update(Ti);
 					}
-				}	
-				try {
-					triangles.delete(T.key);
-					triangles.insertToTree(newTriangles.trian,
-							newTriangles.trian.key);
-					triangles.insertToTree(newTriangles.next.trian,
-							newTriangles.next.trian.key);
-				} catch (Exception e) {
-					e.printStackTrace();
 				}
-				number_Triangles++;
-				testNewTriangles(newTriangles, newTriangles.next);
+				for (int k = 0; k < count; k++)
+					triangles.update(newTriangles[k]);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			if (pointIsInConvex) {
+				PointDT U = (edge == 1) ? T.B : T.A;
+				PointDT V = (edge == 0) ? T.B : T.C;
+				if (hull.next(U.id) == V.id)
+					hull.insert(U.id, A.id, V.id);
+				else
+					hull.insert(V.id, A.id, U.id);
 			}
+			flipStack.clear();
+			for (int k = 0; k < count; k++) {
+				saveHullEdges(newTriangles[k]);
+				flipStack.push(newTriangles[k].index);
+				newTriangles[k] = null;
+			}
+			testNewTriangles(A);
 		}
 	}
 
 	/***************************************************************************
-	 * The method for saving triangle's neighbours between two triangles
+	 * The method for inserting point by Bowyer-Watson algorithm. Triangles
+	 * whose circle contains new point are found by neighbours from the
+	 * triangle T, they are deleted and every edge of this cavity is joined
+	 * with the point. The triangulation isn't changed, if the point lies on
+	 * the edge of cavity.
 	 * 
+	 * @param PointDT
+	 *            P - new point
 	 * @param TriangleDT
-	 *            T - first triangle
-	 * @param TriangleDT
-	 *            TT - second triangle
+	 *            T - triangle which contains new point inside or on the edge
+	 * 
+	 * @return boolean - false if the point must be inserted by dividing of
+	 *         triangle
 	 */
 
-	private void saveTriangleNeighbour(TriangleDT T, TriangleDT TT) {
-		if ((T.A.compare(TT.A) && T.B.compare(TT.B))
-				|| (T.A.compare(TT.B) && T.B.compare(TT.A))) {
-			T.neighbour_idx[0] = TT.key;
-			TT.neighbour_idx[0] = T.key;
-		} else if ((T.A.compare(TT.A) && T.B.compare(TT.C))
-				|| (T.A.compare(TT.C) && T.B.compare(TT.A))) {
-			T.neighbour_idx[0] = TT.key;
-			TT.neighbour_idx[2] = T.key;
-		} else if ((T.A.compare(TT.B) && T.B.compare(TT.C))
-				|| (T.A.compare(TT.C) && T.B.compare(TT.B))) {
-			T.neighbour_idx[0] = TT.key;
-			TT.neighbour_idx[1] = T.key;
-		} else if ((T.A.compare(TT.A) && T.C.compare(TT.B))
-				|| (T.A.compare(TT.B) && T.C.compare(TT.A))) {
-			T.neighbour_idx[2] = TT.key;
-			TT.neighbour_idx[0] = T.key;
-		} else if ((T.A.compare(TT.A) && T.C.compare(TT.C))
-				|| (T.A.compare(TT.C) && T.C.compare(TT.A))) {
-			T.neighbour_idx[2] = TT.key;
-			TT.neighbour_idx[2] = T.key;
-		} else if ((T.A.compare(TT.B) && T.C.compare(TT.C))
-				|| (T.A.compare(TT.C) && T.C.compare(TT.B))) {
-			T.neighbour_idx[2] = TT.key;
-			TT.neighbour_idx[1] = T.key;
-		} else if ((T.B.compare(TT.A) && T.C.compare(TT.B))
-				|| (T.B.compare(TT.B) && T.C.compare(TT.A))) {
-			T.neighbour_idx[1] = TT.key;
-			TT.neighbour_idx[0] = T.key;
-		} else if ((T.B.compare(TT.A) && T.C.compare(TT.C))
-				|| (T.B.compare(TT.C) && T.C.compare(TT.A))) {
-			T.neighbour_idx[1] = TT.key;
-			TT.neighbour_idx[2] = T.key;
-		} else if ((T.B.compare(TT.B) && T.C.compare(TT.C))
-				|| (T.B.compare(TT.C) && T.C.compare(TT.B))) {
-			T.neighbour_idx[1] = TT.key;
-			TT.neighbour_idx[1] = T.key;
+	private boolean replaceCavity(PointDT P, TriangleDT T) {
+		if (T.containsPointAsVertex(P)) {
+			duplicitePoint = true;
+			return true;
+		}
+		cavity.clear();
+		fan.clear();
+		cavity.add(T);
+		for (int k = 0; k < cavity.size(); k++) {
+			TriangleDT C = (TriangleDT) cavity.get(k);
+			for (int i = 0; i < 3; i++) {
+				if (indexOf(cavity, C.neighbour[i]) != -1)
+					continue;
+				TriangleDT N = triangles.getTriangle(C.neighbour[i]);
+				if (N != null && delaunay(N, P))
+					cavity.add(N);
+				else {
+					PointDT U = (i == 1) ? C.B : C.A;
+					PointDT V = (i == 0) ? C.B : C.C;
+					// point on the edge, triangle would be line
+					if (Predicates.orient2d(U, V, P) == 0)
+						return false;
+				}
+			}
+		}
+		TriangleDT first = null;
+		try {
+			for (int k = 0; k < cavity.size(); k++)
+				triangles.delete(((TriangleDT) cavity.get(k)).index);
+			for (int k = 0; k < cavity.size(); k++) {
+				TriangleDT C = (TriangleDT) cavity.get(k);
+				for (int i = 0; i < 3; i++) {
+					if (indexOf(cavity, C.neighbour[i]) != -1)
+						continue;
+					PointDT U = (i == 1) ? C.B : C.A;
+					PointDT V = (i == 0) ? C.B : C.C;
+					TriangleDT N = new TriangleDT(U, V, P);
+					triangles.insertToTree(N, N.key);
+					number_Triangles++;
+					TriangleDT O = triangles.getTriangle(C.neighbour[i]);
+					if (O != null) {
+						N.saveNeighbour(O);
+						triangles.update(O);
+					}
+					fan.add(N);
+				}
+			}
+			number_Triangles -= cavity.size();
+			// new triangles are neighbours along edges with new point
+			for (int k = 0; k < fan.size(); k++) {
+				TriangleDT N = (TriangleDT) fan.get(k);
+				for (int l = k + 1; l < fan.size(); l++)
+					N.saveNeighbour((TriangleDT) fan.get(l));
+				triangles.update(N);
+			}
+			first = (TriangleDT) fan.get(0);
+		} catch (Exception e) {
+			e.printStackTrace();
 		}
+		for (int k = 0; k < fan.size(); k++)
+			saveHullEdges((TriangleDT) fan.get(k));
+		if (first != null)
+			lastTriangle = first.index;
+		cavity.clear();
+		fan.clear();
+		return true;
+	}
 
+	/***************************************************************************
+	 * The private method for searching triangle in list by index
+	 * 
+	 * @return int - position in list or -1
+	 */
+
+	private static int indexOf(ArrayList list, int index) {
+		for (int k = 0; k < list.size(); k++)
+			if (((TriangleDT) list.get(k)).index == index)
+				return k;
+		return -1;
 	}
 
 	/***************************************************************************
-	 * The method for testing new inserting triangles into triangulation
+	 * The method for testing new inserting triangles into triangulation. Every
+	 * triangle in the stack contains new point P, only the edge opposite to P
+	 * is tested and flipped, if the neighbour isn't delaunay. Two new
+	 * triangles of the flip are pushed into the stack.
 	 * 
-	 * @param TestingTriangles -
-	 *            private class of the incrementalDT, is it AbstractDateType
-	 *            "spojovy seznam TriangleDT" newTriangles - is pointer which
-	 *            pointed on start of ADT endOfListNewTriangles - is pointer
-	 *            which pointed on end of ADT
+	 * @param PointDT
+	 *            P - new point
 	 */
 
-	private void testNewTriangles(TestingTriangles newTriangles,
-			TestingTriangles endOfListNewTriangles) {
-		PointDT freePointA, freePointB;
-		while (newTriangles != null) { 
-			for (int i = 0; i < 3; i++) {
-										
-				TriangleDT Tni = triangles.getTriangle(newTriangles.trian.neighbour_idx[i]);
-				if (Tni != null) {
-					freePointB = searchFreePointOfTwoTriangles(
-							newTriangles.trian, Tni);
-					freePointA = searchFreePointOfTwoTriangles(
-							Tni, newTriangles.trian);
-					if (delaunay(Tni, freePointB)) { 
-						endOfListNewTriangles.next = new TestingTriangles();
-						endOfListNewTriangles = endOfListNewTriangles.next;
-						endOfListNewTriangles.next = new TestingTriangles();
-						if (i == 0) { 
-							endOfListNewTriangles.trian = new TriangleDT(
-									newTriangles.trian.A, newTriangles.trian.C,
-									freePointA);
-							endOfListNewTriangles.next.trian = new TriangleDT(
-									newTriangles.trian.B, newTriangles.trian.C,
-									freePointA);
-						} else {
-							if (i == 1) {
-								endOfListNewTriangles.trian = new TriangleDT(
-										newTriangles.trian.A,
-										newTriangles.trian.B, freePointA);
-								endOfListNewTriangles.next.trian = new TriangleDT(
-										newTriangles.trian.A,
-										newTriangles.trian.C, freePointA);
-						} else {
-								endOfListNewTriangles.trian = new TriangleDT(
-										newTriangles.trian.B,
-										newTriangles.trian.A, freePointA);
-								endOfListNewTriangles.next.trian = new TriangleDT(
-										newTriangles.trian.B,
-										newTriangles.trian.C, freePointA);
-							}
-						}
-						for (int j = 0; j < 3; j++) { // ulozeni sousedu nove
-														// vyniklych
-														// trojuhelniku
-							newTriangles.trian = triangles.getTriangle(newTriangles.trian.key);
-							TriangleDT Tnj = triangles.getTriangle(newTriangles.trian.neighbour_idx[j]);
-							if ((Tnj != null)
-									&& (!Tnj.compare(Tni))) {
-							
-								saveTriangleNeighbour(
-										endOfListNewTriangles.next.trian,
-										Tnj);
-							saveTriangleNeighbour(
-										endOfListNewTriangles.trian,
-										Tnj);
-								triangles.delete(Tnj.key);
-								triangles.insertToTree(Tnj, Tnj.key);
-								Tnj = triangles.getTriangle(newTriangles.trian.neighbour_idx[j]);
-						
-							}
-						}
-						for (int j = 0; j < 3; j++) {
-							TriangleDT Tnij = triangles.getTriangle(Tni.neighbour_idx[j]);
-							newTriangles.trian = triangles.getTriangle(newTriangles.trian.key);
-							if ((Tnij != null)
-									&& (!Tnij.compare(newTriangles.trian))) {
-
-								saveTriangleNeighbour(
-										endOfListNewTriangles.next.trian,
-										Tnij);
-								saveTriangleNeighbour(
-										endOfListNewTriangles.trian,
-										Tnij);
-							triangles.delete(Tnij.key);
-								triangles.insertToTree(Tnij, Tnij.key);
-							
+	private void testNewTriangles(PointDT P) {
+		while (!flipStack.isEmpty()) { 
+			TriangleDT T = triangles.getTriangle(flipStack.pop());
+			if (T == null)
+				continue;
+			lastTriangle = T.index;
+			int i = T.edgeOpposite(P);
+			TriangleDT Tni = (i == -1) ? null : triangles
+					.getTriangle(T.neighbour[i]);
+			if (Tni != null) {
+				PointDT freePointA = searchFreePointOfTwoTriangles(Tni, T);
+				// line triangle is always flipped
+				if ((Predicates.orient2d(T.A, T.B, T.C) == 0) || delaunay(Tni, P)) {
+					PointDT U, V;
+					if (i == 0) {
+						U = T.A; V = T.B;
+					} else if (i == 1) {
+						U = T.B; V = T.C;
+					} else {
+						U = T.A; V = T.C;
+					}
+					int j = Tni.edgeOpposite(freePointA);
+					// neighbours which aren't changed by the flip
+					outer[0] = T.neighbour[(i + 1) % 3];
+					outer[1] = T.neighbour[(i + 2) % 3];
+					outer[2] = Tni.neighbour[(j + 1) % 3];
+					outer[3] = Tni.neighbour[(j + 2) % 3];
+					TriangleDT first = new TriangleDT(U, P, freePointA);
+					TriangleDT second = new TriangleDT(V, P, freePointA);
+					try { // vstup do datove struktury
+						triangles.delete(T.index);
+						triangles.delete(Tni.index);
+						triangles.insertToTree(first, first.key);
+						triangles.insertToTree(second, second.key);
+						first.saveNeighbour(second);
+						for (int k = 0; k < 4; k++) {
+							TriangleDT Tk = triangles.getTriangle(outer[k]);
+							if (Tk != null) {
+								Tk.saveNeighbour(first);
+								Tk.saveNeighbour(second);
+								triangles.update(Tk);
 							}
 						}
-						saveTriangleNeighbour(endOfListNewTriangles.trian,
-								endOfListNewTriangles.next.trian);
-
-						try { // vstup do datove struktury
-							triangles.delete(newTriangles.trian.key);
-							triangles.delete(Tni.key);
-							triangles.insertToTree(endOfListNewTriangles.trian,
-									endOfListNewTriangles.trian.key);
-							triangles.insertToTree(
-									endOfListNewTriangles.next.trian,
-									endOfListNewTriangles.next.trian.key);
-						} catch (Exception e) {
-							e.printStackTrace();
-						}
-						endOfListNewTriangles = endOfListNewTriangles.next;
-						i = 3;
-
+						triangles.update(first);
+						triangles.update(second);
+					} catch (Exception e) {
+						e.printStackTrace();
 					}
+					saveHullEdges(first);
+					saveHullEdges(second);
+					flipStack.push(first.index);
+					flipStack.push(second.index);
 				}
 			}
-			newTriangles = newTriangles.next;
 		}
 	}
 
@@ -735,347 +1111,179 @@ public class IncrementalDT {
 	 */
 
 	private boolean delaunay(TriangleDT T, PointDT A) {
-		double N = ((Math.pow(T.C.x, 2) - Math.pow(T.A.x, 2)
-				+ Math.pow(T.C.y, 2) - Math.pow(T.A.y, 2))
-				* (T.B.x - T.A.x) - (Math.pow(T.B.x, 2) - Math.pow(T.A.x, 2)
-				+ Math.pow(T.B.y, 2) - Math.pow(T.A.y, 2))
-				* (T.C.x - T.A.x))
-				/ (-2 * ((T.A.y - T.C.y) * (T.B.x - T.A.x) - (T.A.y - T.B.y)
-						* (T.C.x - T.A.x)));
-		double M = (Math.pow(T.B.x, 2) - Math.pow(T.A.x, 2)
-				- Math.pow((T.A.y - N), 2) + Math.pow((T.B.y - N), 2))
-				/ (2 * (T.B.x - T.A.x));
-		double R = Math.sqrt(Math.pow((T.A.x - M), 2)
-				+ Math.pow((T.A.y - N), 2)); 
-		// tolerance for delaunay circle
-		if ((R - 0.0001) > (Math.sqrt(Math.pow(( A.x - M), 2)
-				+ Math.pow((A.y - N), 2)))) 
-			return true;
-		else {
-			if (R > 0) {
-				return false;
-			} else {
-				return delaunay(new TriangleDT(T.B, T.C, T.A), A);
-			}
-		}
+		// line triangle hasn't circle, point on the circle isn't inside
+		return Predicates.inCircle(T.A, T.B, T.C, A);
 	}
 
 	/***************************************************************************
 	 * The method for imputing new point into triangulation. The point isn't
-	 * inside convex hull
-	 * 
+	 * inside convex hull. New triangles are created between the point and
+	 * every edge of convex hull, which is visible from the point.
+	 *
 	 * @param PointDT
 	 *            P - new point
+	 * @param TriangleDT
+	 *            T - triangle on convex hull, where the walk ended
 	 */
 
-	private void createConvexPolygon(PointDT P) {
-		// distance between two point of convex hull
-		double nextPointDistance = 0; 
-		// points of convex
-		Coordinate[] newConvex; 
-		// vertexes of newly formed triangles 
-		Coordinate[] vertexsNewTriangles; 
-		int i, j;
-		PointDT X;
-		// direction for solving convex
-		boolean directArrayPoints = true; 
-		// inserting new point into convex
-		newConvex = new Coordinate[convex.length + 1]; 
-														
-		for (i = 0; i < convex.length - 1; i++)
-			newConvex[i] = convex[i];
-		newConvex[newConvex.length - 1] = convex[0];
-		newConvex[newConvex.length - 2] = P;
-		// computing new convex
-		CoordinateArraySequence pointsWhichGenerateConvex = new CoordinateArraySequence(
-				newConvex);
-		newConvexGeometry = new LinearRing(pointsWhichGenerateConvex,
-				new GeometryFactory());
-		newConvex = newConvexGeometry.convexHull().getCoordinates();
-		// creating new convex geometry
-		pointsWhichGenerateConvex = new CoordinateArraySequence(newConvex);
-		newConvexGeometry = new LinearRing(pointsWhichGenerateConvex,
-				new GeometryFactory());
-
-		if (P.compare(newConvex[0])) {
-			i = 1;
-			j = newConvex.length - 2;
-		} else {
-			for (i = 1; i < newConvex.length; i++)
-				if (P.compare(newConvex[i]))
-					break;
-
-			j = i + 1;
-			i--;
-		}
-
-		boolean foundedI = false;
-		boolean foundedJ = false;
-		for (int w = 0; w < convex.length - 1; w++) {
-
-			X = new PointDT(convex[w]);
-			if (!foundedI && X.compare(newConvex[i])) {
-				i = w;
-				foundedI = true;
-			}
-			if (!foundedJ && X.compare(newConvex[j])) {
-				j = w;
-				foundedJ = true;
-			}
-			if (X.compare(P)) {
-				duplicitePoint = true;
-				break;
-			}
-		} 
-		// indexes i,j detect breaking of convex hull
-
-		if (!duplicitePoint) { 
-			double k = (convex[i].y - convex[j].y)
-					/ (convex[i].x - convex[j].x);
-			// finding direction of breaking out 
-			double q1 = convex[i].y - k * convex[i].x; 
-			double minDistance = Math.abs((-k * P.x + P.y - q1)
-					/ Math.sqrt(Math.pow(k, 2) + 1));
-			if (convex[i].x == convex[j].x) {
-				if (convex[i].x == 0) {
-					if ((convex[i + 1].x - P.x) < (convex[j + 1].x - P.x))
-						directArrayPoints = false;
-
-				} else {
-					minDistance = Math.abs(convex[j].x - P.x);
-					if (new PointDT(convex[i + 1]).compare(convex[j])) {
-						nextPointDistance = Math.abs(convex[j + 1].x - P.x);
-						if (new TriangleDT(convex[i], convex[j], convex[j + 1])
-								.isTriangle()) {
-							if (minDistance > nextPointDistance)
-								directArrayPoints = false;
-						} else {
-							nextPointDistance = Math.abs(convex[i + 1].x - P.x);
-							if (minDistance <= nextPointDistance)// tyafa
-																	// obracene
-								directArrayPoints = false;
-
-						}
-					} else {
-						nextPointDistance = Math.abs(convex[i + 1].x - P.x);
-						if (new TriangleDT(convex[i], convex[j], convex[i + 1])
-								.isTriangle()) {
-							if (minDistance <= nextPointDistance)// tyafa
-																	// obracene
-								directArrayPoints = false;
-						} else {
-							nextPointDistance = Math.abs(convex[j + 1].x - P.x);
-							if (minDistance > nextPointDistance)
-								directArrayPoints = false;
-						}
-					}
-				}
-			} else {
-				double q2;
-				if (new PointDT(convex[i + 1]).compare(convex[j])) {
-
-					q2 = convex[j + 1].y - k * convex[j + 1].x;
-					nextPointDistance = Math.abs((-k * P.x + P.y - q2)
-							/ Math.sqrt(Math.pow(k, 2) + 1));
-					if (new TriangleDT(convex[i], convex[j], convex[j + 1])
-							.isTriangle()) {
-						if (minDistance > nextPointDistance)
-							directArrayPoints = false;
-					} else {
-						q2 = convex[i + 1].y - k * convex[i + 1].x;
-						nextPointDistance = Math.abs((-k * P.x + P.y - q2)
-								/ Math.sqrt(Math.pow(k, 2) + 1));
-						if (minDistance < nextPointDistance)
-							directArrayPoints = false;
-					}
-				} else {
-					q2 = convex[i + 1].y - k * convex[i + 1].x;
-					nextPointDistance = Math.abs((-k * P.x + P.y - q2)
-							/ Math.sqrt(Math.pow(k, 2) + 1));
-					if (new TriangleDT(convex[i], convex[j], convex[i + 1])
-							.isTriangle()) {
-						if (minDistance < nextPointDistance)
-							directArrayPoints = false;
-					} else {
-						q2 = convex[j + 1].y - k * convex[j + 1].x;
-						nextPointDistance = Math.abs((-k * P.x + P.y - q2)
-								/ Math.sqrt(Math.pow(k, 2) + 1));
-						if (minDistance > nextPointDistance)
-							directArrayPoints = false;
-					}
-
+	private void createConvexPolygon(PointDT P, TriangleDT T) {
+		// edge of convex hull, which was crossed by the walk
+		int a = -1;
+		int b = -1;
+		for (int i = 0; i < 3 && a == -1; i++) {
+			if (T.neighbour[i] == -1) {
+				int u = (i == 1) ? T.B.id : T.A.id;
+				int v = (i == 0) ? T.B.id : T.C.id;
+				if (hull.contains(u) && hull.next(u) == v && orientation(u, v, P) < 0) {
+					a = u;
+					b = v;
+				} else if (hull.contains(v) && hull.next(v) == u
+						&& orientation(v, u, P) < 0) {
+					a = v;
+					b = u;
 				}
 			}
-			int index;
-
-			if (!directArrayPoints) {
-				index = i;
-				i = j; 
-				j = index;
-			}
-			index = 0;
-
-			if (i < j) {
-				vertexsNewTriangles = new Coordinate[j - i + 1];
-				for (int w = i; w <= j; w++) {
-					vertexsNewTriangles[index] = convex[w];
-					index++;
-				}
-			} else {
-				vertexsNewTriangles = new Coordinate[convex.length - i + j];
-				for (int w = i; w < convex.length - 1; w++) {
-					vertexsNewTriangles[index] = convex[w];
-					index++;
+		}
+		if (a == -1) {
+			// the walk didn't end on convex hull, all edges are tested
+			int first = hull.getVertex();
+			int u = first;
+			do {
+				if (orientation(u, hull.next(u), P) < 0) {
+					a = u;
+					b = hull.next(u);
+					break;
 				}
-				for (int w = 0; w <= j; w++) {
-					vertexsNewTriangles[index] = convex[w];
-					index++;
+				u = hull.next(u);
+			} while (u != first);
+			if (a == -1) {
+				divideTriangle(P, T);
+				return;
+			}
+		}
+		// extension to all visible edges
+		while (hull.next(b) != a && orientation(b, hull.next(b), P) < 0)
+			b = hull.next(b);
+		while (hull.previous(a) != b && orientation(hull.previous(a), a, P) < 0)
+			a = hull.previous(a);
+
+		flipStack.clear();
+		TriangleDT first = null;
+		TriangleDT previous = null;
+		try {// ulozeni do dat.struktury
+			for (int x = a; x != b; x = hull.next(x)) {
+				int y = hull.next(x);
+				TriangleDT S = hullTriangle(x, y);
+				TriangleDT N = new TriangleDT(vertex(S, y), vertex(S, x), P);
+				triangles.insertToTree(N, N.key);
+				number_Triangles++;
+				if (S != null) {
+					N.saveNeighbour(S);
+					triangles.update(S);
 				}
+				// neighbours of previous triangle are complete
+				if (previous != null) {
+					previous.saveNeighbour(N);
+					triangles.update(previous);
+				} else
+					first = N;
+				previous = N;
+				flipStack.push(N.index);
 			}
-
-			rebuildConvex(newConvex);
-			createConvexTriangles(vertexsNewTriangles, P);
-			convex = newConvex;
+			if (previous != null)
+				triangles.update(previous);
+		} catch (Exception e) {
+			e.printStackTrace();
 		}
+		hull.insert(a, P.id, b);
+		// only the first and the last triangle have edge of convex hull
+		if (first != null) {
+			saveHullEdges(first);
+			saveHullEdges(previous);
+		}
+
+		testNewTriangles(P);
 	}
 
 	/***************************************************************************
-	 * The method for creating new convex triangles
-	 * 
-	 * @param Coordinate[] -
-	 *            array of convex points, which generate new convex triangles
-	 * @param PointDT
-	 *            P - new point
+	 * The private method for saving edges of triangle, which have no
+	 * neighbour, as edges of convex hull
+	 *
+	 * @param TriangleDT
+	 *            T - triangle saved in DelaunayDataStore
 	 */
 
-	private void createConvexTriangles(Coordinate[] vertexsNewTriangles,
-			PointDT P) {
-		int i = 0;
-		int j = vertexsNewTriangles.length - 1;
-		TestingTriangles newTriangles = new TestingTriangles();
-		TestingTriangles topOfNewTriangles = new TestingTriangles();
-
-		while (!new TriangleDT(P, new PointDT(vertexsNewTriangles[i]),
-				new PointDT(vertexsNewTriangles[i + 1])).isTriangle())
-			i++;
-
-		newTriangles.trian = new TriangleDT(P, new PointDT(
-				vertexsNewTriangles[i]),
-				new PointDT(vertexsNewTriangles[i + 1]));
-
-		topOfNewTriangles = newTriangles;
-
-		TriangleDT pomocnyS = ringSearchConvexTriangle(new PointDT(
-				vertexsNewTriangles[i]),
-				new PointDT(vertexsNewTriangles[i + 1]));
-
-		saveTriangleNeighbour(newTriangles.trian, pomocnyS);
-		triangles.delete(pomocnyS.key);
-		triangles.insertToTree(pomocnyS, pomocnyS.key);
-		i++;
-		while (i != j) {
-			pomocnyS = new TriangleDT(P, new PointDT(vertexsNewTriangles[i]),
-					new PointDT(vertexsNewTriangles[i + 1]));
-			if (pomocnyS.isTriangle()) {
-
-				newTriangles.next = new TestingTriangles();
-				newTriangles.next.trian = pomocnyS;
-				pomocnyS = ringSearchConvexTriangle(new PointDT(
-						vertexsNewTriangles[i]), new PointDT(
-						vertexsNewTriangles[i + 1]));
-				saveTriangleNeighbour(newTriangles.next.trian, pomocnyS);
-				triangles.delete(pomocnyS.key);
-				triangles.insertToTree(pomocnyS, pomocnyS.key);
-				saveTriangleNeighbour(newTriangles.trian,
-						newTriangles.next.trian);
-				// newTriangles.next.trian.printTriangle();
-				newTriangles = newTriangles.next;
+	private void saveHullEdges(TriangleDT T) {
+		for (int i = 0; i < 3; i++) {
+			if (T.neighbour[i] == -1) {
+				int u = (i == 1) ? T.B.id : T.A.id;
+				int v = (i == 0) ? T.B.id : T.C.id;
+				if (hull.contains(u) && hull.next(u) == v)
+					hull.setTriangle(u, T.index);
+				else if (hull.contains(v) && hull.next(v) == u)
+					hull.setTriangle(v, T.index);
 			}
-			i++;
 		}
+	}
 
-		newTriangles = topOfNewTriangles;
-		try {// ulozeni do dat.struktury
-			while (true) {
-				triangles.insertToTree(newTriangles.trian,
-						newTriangles.trian.key);
-				number_Triangles++;
-				if (newTriangles.next == null) {
-					break;
-				}
-				newTriangles = newTriangles.next;
+	/***************************************************************************
+	 * The private method for getting triangle with edge of convex hull
+	 *
+	 * @param int
+	 *            x - id of first vertex of edge
+	 * @param int
+	 *            y - id of next vertex of convex hull
+	 *
+	 * @return TriangleDT - triangle with vertexes x and y
+	 */
 
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+	private TriangleDT hullTriangle(int x, int y) {
+		TriangleDT S = triangles.getTriangle(hull.getTriangle(x));
+		if (S != null && hasVertex(S, x) && hasVertex(S, y))
+			return S;
+		// triangles were changed out of IncrementalDT
+		VertexTable vertexes = triangles.getVertexTable();
+		return triangles.preorderTestContainTwoPoint(vertexes.getVertex(x),
+				vertexes.getVertex(y));
+	}
+
+	/***************************************************************************
+	 * The private method for testing, if the vertex with id is in triangle
+	 */
 
-		testNewTriangles(topOfNewTriangles, newTriangles);
+	private static boolean hasVertex(TriangleDT T, int id) {
+		return T.A.id == id || T.B.id == id || T.C.id == id;
 	}
 
 	/***************************************************************************
-	 * The method for creating new convex triangles
-	 * 
-	 * @param Coordinate[] -
-	 *            array of new convex points, which must be getting full
-	 * 
+	 * The private method for getting vertex of triangle by id, new point is
+	 * created from table of vertexes if the triangle doesn't exist
 	 */
 
-	private void rebuildConvex(Coordinate[] newConvex) {
-		boolean isSame; // body newConvex,jsou body nejmensiho convexniho obalu,
-		for (int w = 0; w < convex.length - 1; w++) {// zde se doplni body
-														// ktere lezi na hrane
-														// convexu
-			isSame = false;
-			for (int v = 0; v < newConvex.length - 1; v++)
-				if (new PointDT(convex[w]).compare(newConvex[v]))
-					isSame = true;
-			if (!isSame) {
-				Coordinate[] oldPoint = { convex[w] };
-				CoordinateArraySequence oldPoints = new CoordinateArraySequence(
-						oldPoint);
-				Point oldP = new Point(oldPoints, new GeometryFactory());
-				if (newConvexGeometry.contains(oldP))
-					newConvex = addPointToConvexGeometry(oldP, newConvex);
-			}
+	private PointDT vertex(TriangleDT T, int id) {
+		if (T != null) {
+			if (T.A.id == id)
+				return T.A;
+			if (T.B.id == id)
+				return T.B;
+			if (T.C.id == id)
+				return T.C;
 		}
+		return triangles.getVertexTable().getVertex(id);
 	}
 
 	/***************************************************************************
-	 * The method for adding point, which is on edge of convex hull, but isn't
-	 * in points which generate convex hull
-	 * 
-	 * @param PointDT
-	 *            P - new point Coordinate[] - coordinate of convex hull's
-	 *            points
-	 * 
-	 * @return Coordinate[] - coordinate of convex hull's points
+	 * The private method for computing orientation of two vertexes of convex
+	 * hull and point P
+	 *
+	 * @return double - positive if u, v, P are counterclockwise, negative if
+	 *         clockwise and zero if they are on one line
 	 */
 
-	private Coordinate[] addPointToConvexGeometry(Point P,
-			Coordinate[] pointsOfConvex) {
-		Coordinate[] edgeOfConvex = new Coordinate[2];
-
-		for (int i = 0; i < pointsOfConvex.length - 1; i++) {
-			edgeOfConvex[0] = pointsOfConvex[i];
-			edgeOfConvex[1] = pointsOfConvex[i + 1];
-			CoordinateArraySequence q = new CoordinateArraySequence(
-					edgeOfConvex);
-			LineString L = new LineString(q, new GeometryFactory());
-
-			if (L.contains(P)) {
-				int j;
-				Coordinate[] tempArray = new Coordinate[pointsOfConvex.length + 1];
-				for (j = 0; j <= i; j++)
-					tempArray[j] = pointsOfConvex[j];
-				tempArray[j++] = P.getCoordinate();
-				for (; j < tempArray.length; j++)
-					tempArray[j] = pointsOfConvex[j - 1];
-
-				return tempArray;
-			}
-		}
-		return null;
+	private double orientation(int u, int v, PointDT P) {
+		VertexTable vertexes = triangles.getVertexTable();
+		return Predicates.orient2d(vertexes.getX(u), vertexes.getY(u),
+				vertexes.getX(v), vertexes.getY(v), P.x, P.y);
 	}
 
 }
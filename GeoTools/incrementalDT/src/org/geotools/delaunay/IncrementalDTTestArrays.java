@@ -0,0 +1,299 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *    
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3 
+ */
+
+package org.geotools.delaunay;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import junit.framework.*;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.Iterator;
+
+public class IncrementalDTTestArrays extends TestCase {
+	LinkedList points = new LinkedList();
+	DelaunayDataStoreArrays triangles = new DelaunayDataStoreArrays();
+	IncrementalDT triangulace=new IncrementalDT(triangles);
+	
+	public IncrementalDTTestArrays(String name){
+		super(name);
+	}
+	
+	protected void setUp(){
+		countTIN(1000);
+	}
+	
+	protected void tearDown(){
+		
+	}
+
+	/*****************************************************************
+	 * protected function for counting circum circle of Triangle T
+	 * @param T - testing triangle
+	 * @param A	- testing point, is inside circle?
+	 * @return
+	 */
+	protected boolean delaunay(TriangleDT T, PointDT A){
+		double N=((Math.pow(T.C.x,2)-Math.pow(T.A.x,2)+Math.pow(T.C.y,2)-Math.pow(T.A.y,2))*(T.B.x-T.A.x)-(Math.pow(T.B.x,2)-Math.pow(T.A.x,2)+Math.pow(T.B.y,2)-Math.pow(T.A.y,2))*(T.C.x-T.A.x))/
+		 (-2*((T.A.y-T.C.y)*(T.B.x-T.A.x)-(T.A.y-T.B.y)*(T.C.x-T.A.x)));
+		double M=(Math.pow(T.B.x,2)-Math.pow(T.A.x,2)-Math.pow((T.A.y-N),2)+Math.pow((T.B.y-N),2))/(2*(T.B.x-T.A.x));
+		double R=Math.sqrt(Math.pow((T.A.x-M),2)+Math.pow((T.A.y-N),2)); 			
+		if ((R-0.0001)>(Math.sqrt(Math.pow((A.x-M),2)+Math.pow((A.y-N),2))))		
+			return true;
+		else{
+			if (R>0){
+				return false;
+			}
+			else{
+				return delaunay(new TriangleDT(T.B,T.C,T.A), A);
+			}	
+		}
+	}
+
+	/****************************************************************
+	 * The method for computing TIN
+	 * @param numberOfPoints - number of random points
+	 */	
+	protected void countTIN(int numberOfPoints){
+		for (int i=0;i<numberOfPoints;i++){
+			Coordinate x=new Coordinate((Math.random()*1000000),(Math.random()*1000000),0);
+			points.add(x);
+			triangulace.insertPoint(x);
+		}
+	}
+
+	/****************************************************************
+	 * The test which tests all circum circle of triangles, if they not contain
+	 * another point
+	 */
+	public void testDelaunayCircles(){
+		int number = triangles.numberOfTriangles;
+		assertEquals(number > 0, true);
+		
+		for (int i = 0; i < number; i++){
+			TriangleDT T = triangles.getTriangle(i);
+			Iterator itPoints = points.iterator();
+			while (itPoints.hasNext()){
+				PointDT P = new PointDT((Coordinate)itPoints.next());
+				if (!T.containsPointAsVertex(P)){
+					assertEquals(delaunay(T,P),false);
+				}
+			}	
+
+		}
+	}
+	
+	/****************************************************************
+	 * The test which removes and moves points of triangulation and tests
+	 * circles of triangles and vertexes
+	 */
+	public void testRemoveAndMovePoints(){
+		for (int i = 0; i < 200; i++)
+			assertEquals(triangulace.removePoint((Coordinate)points.removeFirst()), true);
+		for (int i = 0; i < 100; i++){
+			Coordinate from = (Coordinate)points.removeFirst();
+			Coordinate to = new Coordinate((Math.random()*1000000),(Math.random()*1000000),0);
+			assertEquals(triangulace.movePoint(from, to), true);
+			points.addLast(to);
+		}
+		int number = triangles.numberOfTriangles;
+		int count = 0;
+		for (int i = 0; i < number; i++){
+			TriangleDT T = triangles.getTriangle(i);
+			if (T == null)
+				continue;
+			count++;
+			Iterator itPoints = points.iterator();
+			while (itPoints.hasNext())
+				assertEquals(Predicates.inCircle(T.A, T.B, T.C, (Coordinate)itPoints.next()), false);
+		}
+		assertEquals(count, triangulace.number_Triangles);
+	}
+	
+	/****************************************************************
+	 * The test which removes points, which are opposite to edges of
+	 * convex hull, and tests triangles saved for edges of convex hull
+	 */
+	public void testRemovePointsNearHull(){
+		ConvexHull hull = triangulace.hull;
+		for (int i = 0; i < triangles.numberOfTriangles; i++){
+			TriangleDT T = triangles.getTriangle(i);
+			if (T == null)
+				continue;
+			for (int e = 0; e < 3; e++){
+				PointDT P = (e == 0) ? T.C : (e == 1) ? T.A : T.B;
+				if (T.neighbour[e] == -1 && !hull.contains(P.id)){
+					assertEquals(triangulace.removePoint(P), true);
+					break;
+				}
+			}
+		}
+		int first = hull.getVertex();
+		int u = first;
+		do {
+			TriangleDT T = triangles.getTriangle(hull.getTriangle(u));
+			assertNotNull(T);
+			assertEquals(T.containsTwoPoints(triangles.getVertexTable().getVertex(u),
+					triangles.getVertexTable().getVertex(hull.next(u))), true);
+			u = hull.next(u);
+		} while (u != first);
+	}
+
+	/****************************************************************
+	 * The test which tests rightness counting all circum circle
+	 */
+	public void testRightCountCircle(){
+		int number = triangles.numberOfTriangles;	
+		assertEquals(number > 0, true);
+		
+		for (int i = 0; i < number; i++){
+			TriangleDT T = triangles.getTriangle(i);
+			double N=((Math.pow(T.C.x,2)-Math.pow(T.A.x,2)+Math.pow(T.C.y,2)-Math.pow(T.A.y,2))*(T.B.x-T.A.x)-(Math.pow(T.B.x,2)-Math.pow(T.A.x,2)+Math.pow(T.B.y,2)-Math.pow(T.A.y,2))*(T.C.x-T.A.x))/
+			 (-2*((T.A.y-T.C.y)*(T.B.x-T.A.x)-(T.A.y-T.B.y)*(T.C.x-T.A.x)));
+			double M=(Math.pow(T.B.x,2)-Math.pow(T.A.x,2)-Math.pow((T.A.y-N),2)+Math.pow((T.B.y-N),2))/(2*(T.B.x-T.A.x));
+			double R=Math.sqrt(Math.pow((T.A.x-M),2)+Math.pow((T.A.y-N),2)); 			//vypocet polomeru
+
+			assertEquals(R>0,true);
+		}
+		
+	}
+
+	/*******************************************************************
+	 * The test which tests all triangles, if they are triangles, not line
+	 */
+	public void testAllIsTriangle(){
+		int number = triangles.numberOfTriangles;	
+		assertEquals(number > 0, true);
+		
+		for (int i = 0; i < number; i++){
+			TriangleDT T = triangles.getTriangle(i);
+			assertEquals(T.isTriangle(),true);
+		}
+
+	}
+
+	/**********************************************************************
+	 * The test which test, if all input points are in triangulation as vertex
+	 */
+	public void testAllPointsExistInTIN(){
+		int number = triangles.numberOfTriangles;	
+		Iterator itPoints = points.iterator();
+		boolean contain;
+		assertEquals(points.size(), 1000);
+		
+		while (itPoints.hasNext()){
+			contain = false;
+			PointDT P = new PointDT((Coordinate)itPoints.next());
+			for (int i = 0; i < number; i++){
+				TriangleDT T = triangles.getTriangle(i);
+				if (T.containsPointAsVertex(P)){
+					contain = true;
+					break;
+				}
+			}
+			assertEquals(contain, true);
+		}
+		
+	}
+
+	/********************************************************************
+	 * the test which tests all triangles, if not exist duplicity triangle
+	 */
+	public void testDupliciteTriangles(){
+		int number = triangles.numberOfTriangles;	
+		assertEquals(number > 0, true);
+		for (int i = 0; i < number; i++){
+			TriangleDT T = triangles.getTriangle(i);
+			for (int j = i + 1; j < number; j++){
+				TriangleDT TT = triangles.getTriangle(j);
+				assertEquals(T.compare(TT), false);
+			}
+		}
+	}
+
+	/****************************************************************
+	 * The data store, which hides all triangles from the walk until the
+	 * nearest triangle is searched, so the walk doesn't find the triangle
+	 */
+	static class LostWalkDataStore extends DelaunayDataStoreArrays {
+		boolean blind = false;
+
+		public TriangleDT getTriangle(int index){
+			return blind ? null : super.getTriangle(index);
+		}
+
+		public TriangleDT searchNearest(double[] key){
+			blind = false;
+			return null;
+		}
+	}
+
+	/****************************************************************
+	 * The test which inserts points, whose walk doesn't find a triangle,
+	 * points inside and out of convex hull mustn't be lost
+	 */
+	public void testLostWalk(){
+		LostWalkDataStore lost = new LostWalkDataStore();
+		IncrementalDT lostTriangulace = new IncrementalDT(lost);
+		LinkedList lostPoints = new LinkedList();
+		for (int i = 0; i < 300; i++){
+			// the area grows, so some points are out of convex hull
+			double size = 1000 * (i + 1);
+			Coordinate x = new Coordinate(Math.random()*size, Math.random()*size, 0);
+			lostPoints.add(x);
+			lost.blind = true;
+			lostTriangulace.insertPoint(x);
+		}
+		lost.blind = false;
+		assertEquals(lost.getVertexTable().size(), lostPoints.size());
+		TINAssert.assertAllPointsExistInTIN(lost, lostPoints);
+		TINAssert.assertDelaunayCircles(lost, lostPoints);
+		TINAssert.assertNeighbours(lost, lostPoints.size());
+	}
+
+	/****************************************************************
+	 * The test which inserts all points at once by insertPoints, the
+	 * triangulation must meet the same conditions as by insertPoint
+	 */
+	public void testBulkInsertion(){
+		DelaunayDataStoreArrays bulk = new DelaunayDataStoreArrays();
+		IncrementalDT bulkTriangulace = new IncrementalDT(bulk);
+		LinkedList bulkPoints = new LinkedList();
+		Random random = new Random(1);
+		Coordinate[] newPoints = new Coordinate[1000];
+		for (int i = 0; i < newPoints.length; i++){
+			newPoints[i] = new Coordinate(random.nextDouble()*1000000, random.nextDouble()*1000000, 0);
+			bulkPoints.add(newPoints[i]);
+		}
+		bulkTriangulace.insertPoints(newPoints);
+		assertEquals(bulk.getVertexTable().size(), bulkPoints.size());
+		TINAssert.assertDelaunayCircles(bulk, bulkPoints);
+		TINAssert.assertAllPointsExistInTIN(bulk, bulkPoints);
+		TINAssert.assertNeighbours(bulk, bulkPoints.size());
+	}
+
+	public static Test suite(){
+		return new TestSuite(IncrementalDTTestArrays.class);
+	}
+	
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+
+}
@@ -24,6 +24,7 @@ import com.vividsolutions.jts.geom.Coordinate;
 import java.util.Date;
 import junit.framework.*;
 import java.util.LinkedList;
+import java.util.Random;
 import java.util.Collection;
 import java.util.Iterator;
 
@@ -185,6 +186,167 @@ public class IncrementalDTTestHDD extends TestCase {
 	
 	
 	
+	/********************************************************************
+	 * the test which resumes triangulation from checkpoint, triangles
+	 * inserted after checkpoint are rolled back and inserted again
+	 */
+	public void testResume() throws Exception{
+		String path = System.getProperty("java.io.tmpdir") + java.io.File.separator;
+		final Coordinate[] newPoints = new Coordinate[2000];
+		for (int i = 0; i < newPoints.length; i++)
+			newPoints[i] = new Coordinate(Math.random()*1000000, Math.random()*1000000, 0);
+		PointSource source = new PointSource(){
+			int i = 0;
+			public Coordinate next(){
+				return i < newPoints.length ? newPoints[i++] : null;
+			}
+			public void close(){
+			}
+		};
+		DelaunayDataStoreHDD store = new DelaunayDataStoreHDD(path, "resumetest", 1);
+		IncrementalDT dt = new IncrementalDT(store);
+		for (int i = 0; i < 1000; i++)
+			dt.insertPoint(newPoints[i]);
+		dt.checkpoint(1000);
+		int triangles = dt.number_Triangles;
+		for (int i = 1000; i < 1500; i++)
+			dt.insertPoint(newPoints[i]);
+		store.closeStrem();
+
+		store = DelaunayDataStoreHDD.resume(path, "resumetest", 1);
+		dt = new IncrementalDT(store);
+		assertEquals(dt.resume(), 1000);
+		assertEquals(dt.number_Triangles, triangles);
+		assertEquals(store.getVertexTable().size(), 1000);
+		dt.insertPoints(source, 500);
+		int hullEdges = 0;
+		int number = 0;
+		for (int i = 0; i < store.numberOfTriangles; i++){
+			TriangleDT T = store.getTriangle(i);
+			if (T == null)
+				continue;
+			number++;
+			for (int j = 0; j < 3; j++){
+				if (T.neighbour[j] == -1)
+					hullEdges++;
+				else
+					assertNotNull(store.getTriangle(T.neighbour[j]));
+			}
+		}
+		assertEquals(number, 2 * newPoints.length - 2 - hullEdges);
+		assertEquals(number, dt.number_Triangles);
+		store.closeStrem();
+		new java.io.File(path + "resumetest").delete();
+		new java.io.File(path + "resumetest.undo").delete();
+		new java.io.File(path + "resumetest.checkpoint").delete();
+		new java.io.File(path + "resumetest.vertexes").delete();
+	}
+
+	/********************************************************************
+	 * the test which resumes triangulation, whose vertexes were changed
+	 * after the first checkpoint, checkpoints append only new vertexes
+	 */
+	public void testResumeChangedVertexes() throws Exception{
+		String path = System.getProperty("java.io.tmpdir") + java.io.File.separator;
+		java.io.File vertexFile = new java.io.File(path + "vertextest.vertexes");
+		Coordinate[] newPoints = new Coordinate[1200];
+		for (int i = 0; i < newPoints.length; i++)
+			newPoints[i] = new Coordinate(Math.random()*1000000, Math.random()*1000000, 0);
+		DelaunayDataStoreHDD store = new DelaunayDataStoreHDD(path, "vertextest", 1);
+		IncrementalDT dt = new IncrementalDT(store);
+		assertTrue(dt.supportsCheckpoint());
+		for (int i = 0; i < 500; i++)
+			dt.insertPoint(newPoints[i]);
+		dt.checkpoint(500);
+		assertEquals(vertexFile.length(), 500 * VertexTable.RECORD);
+		VertexTable vertexes = store.getVertexTable();
+		int elevated = vertexes.find(newPoints[1].x, newPoints[1].y);
+		int removed = vertexes.find(newPoints[2].x, newPoints[2].y);
+		dt.updateElevation(elevated, 123);
+		assertTrue(dt.removePoint(newPoints[2]));
+		for (int i = 500; i < 1000; i++)
+			dt.insertPoint(newPoints[i]);
+		dt.checkpoint(1000);
+		assertEquals(vertexFile.length(), 1000 * VertexTable.RECORD);
+		// changes after the last checkpoint are lost
+		dt.updateElevation(vertexes.find(newPoints[3].x, newPoints[3].y), 456);
+		for (int i = 1000; i < 1200; i++)
+			dt.insertPoint(newPoints[i]);
+		store.closeStrem();
+
+		store = DelaunayDataStoreHDD.resume(path, "vertextest", 1);
+		dt = new IncrementalDT(store);
+		assertEquals(dt.resume(), 1000);
+		assertEquals(vertexFile.length(), 1000 * VertexTable.RECORD);
+		vertexes = store.getVertexTable();
+		assertEquals(vertexes.size(), 1000);
+		assertEquals(vertexes.getZ(elevated), 123, 0);
+		assertEquals(vertexes.getZ(vertexes.find(newPoints[3].x, newPoints[3].y)), 0, 0);
+		assertEquals(vertexes.find(newPoints[2].x, newPoints[2].y), -1);
+		// triangles of vertexes are found again
+		for (int id = 0; id < vertexes.size(); id++){
+			if (id == removed)
+				continue;
+			TriangleDT T = store.getTriangle(vertexes.getTriangle(id));
+			assertNotNull(T);
+			assertTrue(T.A.id == id || T.B.id == id || T.C.id == id);
+		}
+		assertTrue(dt.removePoint(newPoints[4]));
+		store.closeStrem();
+		new java.io.File(path + "vertextest").delete();
+		new java.io.File(path + "vertextest.undo").delete();
+		new java.io.File(path + "vertextest.checkpoint").delete();
+		vertexFile.delete();
+
+		// other data stores don't support checkpoints, no point is read
+		dt = new IncrementalDT(new DelaunayDataStoreArrays());
+		assertFalse(dt.supportsCheckpoint());
+		PointSourceTest.RandomPointSource source = new PointSourceTest.RandomPointSource(1);
+		try {
+			dt.insertPoints(source, 100);
+			fail();
+		} catch (UnsupportedOperationException e){
+		}
+		assertEquals(source.count, 0);
+	}
+	
+	/********************************************************************
+	 * the test which updates deleted triangle, it mustn't be revived
+	 */
+	public void testUpdateDeleted(){
+		countTIN(100);
+		TriangleDT T = triangles.getTriangle(0);
+		triangles.delete(T.index);
+		T.haveBreakLine = true;
+		triangles.update(T);
+		assertNull(triangles.getTriangle(T.index));
+		// the deleted record is reused by new triangle
+		TriangleDT N = new TriangleDT(T.A, T.B, T.C);
+		triangles.insertToTree(N, N.key);
+		assertEquals(N.index, T.index);
+		assertNotNull(triangles.getTriangle(T.index));
+		triangles.closeStrem();
+	}
+	
+	/****************************************************************
+	 * The test which inserts all points at once by insertPoints, the
+	 * triangulation must meet the same conditions as by insertPoint
+	 */
+	public void testBulkInsertion(){
+		Random random = new Random(1);
+		Coordinate[] newPoints = new Coordinate[1000];
+		for (int i = 0; i < newPoints.length; i++){
+			newPoints[i] = new Coordinate(random.nextDouble()*1000000, random.nextDouble()*1000000, 0);
+			points.add(newPoints[i]);
+		}
+		triangulace.insertPoints(newPoints);
+		assertEquals(triangles.getVertexTable().size(), points.size());
+		TINAssert.assertDelaunayCircles(triangles, points);
+		TINAssert.assertAllPointsExistInTIN(triangles, points);
+		TINAssert.assertNeighbours(triangles, points.size());
+		triangles.closeStrem();
+	}
+
 	public static Test suite(){
 		return new TestSuite(IncrementalDTTestHDD.class);
 	}
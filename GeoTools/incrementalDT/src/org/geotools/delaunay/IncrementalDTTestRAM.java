@@ -24,6 +24,7 @@ import com.vividsolutions.jts.geom.Coordinate;
 import java.util.Date;
 import junit.framework.*;
 import java.util.LinkedList;
+import java.util.Random;
 import java.util.Collection;
 import java.util.Iterator;
 
@@ -115,6 +116,42 @@ public class IncrementalDTTestRAM extends TestCase {
 		}
 	}
 	
+	/****************************************************************
+	 * The test which tests triangles created by inserting into cavity,
+	 * the same points are inserted by flipping, both triangulations
+	 * must have the same number of triangles
+	 */
+	public void testCavityInsertion(){
+		DelaunayDataStoreRAM flipped = new DelaunayDataStoreRAM();
+		IncrementalDT flipping = new IncrementalDT(flipped);
+		triangulace.setInsertion(IncrementalDT.CAVITY);
+		Random random = new Random(1);
+		for (int i = 0; i < 1000; i++){
+			Coordinate x = new Coordinate(random.nextDouble()*1000000, random.nextDouble()*1000000, 0);
+			points.add(x);
+			triangulace.insertPoint(x);
+			flipping.insertPoint(x);
+		}
+		int number = 0;
+		for (int i = 0; i < triangles.numberOfTriangles; i++){
+			TriangleDT T = triangles.getTriangle(i);
+			if (T == null)
+				continue;
+			number++;
+			Iterator itPoints = points.iterator();
+			while (itPoints.hasNext())
+				assertEquals(Predicates.inCircle(T.A, T.B, T.C, (Coordinate)itPoints.next()), false);
+		}
+		TINAssert.assertAllPointsExistInTIN(triangles, points);
+		TINAssert.assertNeighbours(triangles, points.size());
+		int flippedNumber = 0;
+		for (int i = 0; i < flipped.numberOfTriangles; i++)
+			if (flipped.getTriangle(i) != null)
+				flippedNumber++;
+		assertEquals(number, flippedNumber);
+		assertEquals(triangulace.number_Triangles, flipping.number_Triangles);
+	}
+	
 	/****************************************************************
 	 * The test which tests rightness counting all circum circle
 	 */
@@ -185,6 +222,24 @@ public class IncrementalDTTestRAM extends TestCase {
 	
 	
 	
+	/****************************************************************
+	 * The test which inserts all points at once by insertPoints, the
+	 * triangulation must meet the same conditions as by insertPoint
+	 */
+	public void testBulkInsertion(){
+		Random random = new Random(1);
+		Coordinate[] newPoints = new Coordinate[1000];
+		for (int i = 0; i < newPoints.length; i++){
+			newPoints[i] = new Coordinate(random.nextDouble()*1000000, random.nextDouble()*1000000, 0);
+			points.add(newPoints[i]);
+		}
+		triangulace.insertPoints(newPoints);
+		assertEquals(triangles.getVertexTable().size(), points.size());
+		TINAssert.assertDelaunayCircles(triangles, points);
+		TINAssert.assertAllPointsExistInTIN(triangles, points);
+		TINAssert.assertNeighbours(triangles, points.size());
+	}
+
 	public static Test suite(){
 		return new TestSuite(IncrementalDTTestRAM.class);
 	}
@@ -0,0 +1,105 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+/*****************************************************************************
+ * The stack of int values (indexes of triangles). The array of stack grows
+ * only, so the stack can be reused without new allocations.
+ */
+
+public class IntStack {
+	private int[] items;
+	private int size = 0;
+
+	/***************************************************************************
+	 * Constructor
+	 */
+
+	public IntStack() {
+		items = new int[16];
+	}
+
+	/***************************************************************************
+	 * The method for inserting value on the top of stack
+	 *
+	 * @param value - inserted value
+	 */
+
+	public void push(int value) {
+		if (size == items.length) {
+			int[] newItems = new int[2 * items.length];
+			System.arraycopy(items, 0, newItems, 0, size);
+			items = newItems;
+		}
+		items[size++] = value;
+	}
+
+	/***************************************************************************
+	 * The method for removing value from the top of stack
+	 *
+	 * @return value from the top of stack
+	 */
+
+	public int pop() {
+		return items[--size];
+	}
+
+	/***************************************************************************
+	 * The method for getting value from stack
+	 *
+	 * @param i - position in stack, 0 is the bottom
+	 * @return value
+	 */
+
+	public int get(int i) {
+		return items[i];
+	}
+
+	/***************************************************************************
+	 * The method for getting number of values in stack
+	 *
+	 * @return number of values
+	 */
+
+	public int size() {
+		return size;
+	}
+
+	/***************************************************************************
+	 * The method for testing empty stack
+	 *
+	 * @return true - stack is empty
+	 */
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/***************************************************************************
+	 * The method for removing all values
+	 */
+
+	public void clear() {
+		size = 0;
+	}
+
+}
@@ -0,0 +1,205 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+
+/*****************************************************************************
+ * The source of points from binary LAS file (versions 1.0 - 1.4, formats of
+ * point records 0 - 10). Only the public header is read, variable length
+ * records are skipped. Point records are mapped to memory by windows and
+ * coordinates are computed from integer values, scale and offset of header.
+ * Compressed files (LAZ) aren't supported.
+ */
+
+public class LASPointSource implements PointSource {
+	// size of mapped part of file
+	private static final int WINDOW_SIZE = 1 << 26;
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private int versionMajor;
+	private int versionMinor;
+	private int pointFormat;
+	private int recordLength;
+	private long pointOffset;
+	private long numberOfPoints;
+	private double xScale, yScale, zScale;
+	private double xOffset, yOffset, zOffset;
+	private Envelope envelope;
+	// mapped point records
+	private MappedByteBuffer window;
+	// index of first record in window and number of records in window
+	private long windowFirst = 0;
+	private int windowCount = 0;
+	// index of next record in window
+	private int record = 0;
+	// class of returned points, -1 for all points
+	private int classification = -1;
+
+	/*****************************************************************
+	 * Constructor, the header of file is read
+	 * @param fileName - name of LAS file
+	 * @throws IOException - the file isn't LAS file or it is compressed
+	 */
+	public LASPointSource(String fileName) throws IOException {
+		file = new RandomAccessFile(fileName, "r");
+		channel = file.getChannel();
+		try {
+			readHeader();
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/*****************************************************************
+	 * The private method for reading of public header block
+	 */
+	private void readHeader() throws IOException {
+		long fileSize = channel.size();
+		if (fileSize < 227)
+			throw new IOException("File isn't LAS file");
+		MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY,
+				0, Math.min(fileSize, 375));
+		header.order(ByteOrder.LITTLE_ENDIAN);
+		if (header.get(0) != 'L' || header.get(1) != 'A' || header.get(2) != 'S'
+				|| header.get(3) != 'F')
+			throw new IOException("File isn't LAS file");
+		versionMajor = header.get(24);
+		versionMinor = header.get(25);
+		int headerSize = header.getShort(94) & 0xFFFF;
+		pointOffset = header.getInt(96) & 0xFFFFFFFFL;
+		pointFormat = header.get(104) & 0xFF;
+		if ((pointFormat & 0xC0) != 0)
+			throw new IOException("Compressed LAS file isn't supported");
+		recordLength = header.getShort(105) & 0xFFFF;
+		numberOfPoints = header.getInt(107) & 0xFFFFFFFFL;
+		if (versionMinor >= 4 && headerSize >= 255 && header.limit() >= 255)
+			numberOfPoints = Math.max(numberOfPoints, header.getLong(247));
+		xScale = header.getDouble(131);
+		yScale = header.getDouble(139);
+		zScale = header.getDouble(147);
+		xOffset = header.getDouble(155);
+		yOffset = header.getDouble(163);
+		zOffset = header.getDouble(171);
+		envelope = new Envelope(header.getDouble(187), header.getDouble(179),
+				header.getDouble(203), header.getDouble(195));
+		if (pointFormat > 10 || recordLength < ((pointFormat < 6) ? 20 : 30))
+			throw new IOException("Unknown format of point records "
+					+ pointFormat);
+		if (pointOffset + numberOfPoints * recordLength > fileSize)
+			throw new IOException("LAS file is shorter than header says");
+	}
+
+	/*****************************************************************
+	 * The method for selecting class of points, for example 2 for
+	 * ground points, other points are skipped
+	 * @param classification - class of points, -1 for all points
+	 */
+	public void setClassification(int classification) {
+		this.classification = classification;
+	}
+
+	/*****************************************************************
+	 * The method for getting number of point records in file
+	 * @return number of points
+	 */
+	public long getNumberOfPoints() {
+		return numberOfPoints;
+	}
+
+	/*****************************************************************
+	 * The method for getting bounds of points saved in header
+	 * @return envelope of points
+	 */
+	public Envelope getEnvelope() {
+		return envelope;
+	}
+
+	/*****************************************************************
+	 * The method for getting version of file
+	 * @return version, for example "1.2"
+	 */
+	public String getVersion() {
+		return versionMajor + "." + versionMinor;
+	}
+
+	/*****************************************************************
+	 * The method for reading next point of file
+	 * @return next point or null at the end of file
+	 * @throws IOException
+	 */
+	public Coordinate next() throws IOException {
+		while (true) {
+			if (record == windowCount) {
+				if (windowFirst + windowCount == numberOfPoints)
+					return null;
+				map(windowFirst + windowCount);
+			}
+			int base = record++ * recordLength;
+			if (classification != -1 && getClassification(base) != classification)
+				continue;
+			return new Coordinate(window.getInt(base) * xScale + xOffset,
+					window.getInt(base + 4) * yScale + yOffset,
+					window.getInt(base + 8) * zScale + zOffset);
+		}
+	}
+
+	/*****************************************************************
+	 * The method for closing of file
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		window = null;
+		file.close();
+	}
+
+	/*****************************************************************
+	 * The private method for getting class of point record
+	 */
+	private int getClassification(int base) {
+		if (pointFormat < 6)
+			return window.get(base + 15) & 0x1F;
+		return window.get(base + 16) & 0xFF;
+	}
+
+	/*****************************************************************
+	 * The private method for mapping of window of records, which starts
+	 * with record first
+	 */
+	private void map(long first) throws IOException {
+		windowFirst = first;
+		windowCount = (int) Math.min(WINDOW_SIZE / recordLength, numberOfPoints
+				- first);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, pointOffset + first
+				* recordLength, (long) windowCount * recordLength);
+		window.order(ByteOrder.LITTLE_ENDIAN);
+		record = 0;
+	}
+
+}
@@ -0,0 +1,180 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import junit.framework.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class LASPointSourceTest extends TestCase {
+	// minimal length of point records of formats 0 - 10
+	private static final int[] RECORD_LENGTHS = { 20, 28, 26, 34, 57, 63, 30, 36, 38, 59, 67 };
+	private static final int NUMBER_OF_POINTS = 40;
+	// size of variable length records between header and points
+	private static final int VLR_SIZE = 54 + 16;
+	File file;
+	
+	public LASPointSourceTest(String name){
+		super(name);
+	}
+	
+	protected void setUp() throws Exception{
+		file = File.createTempFile("points", ".las");
+	}
+	
+	protected void tearDown(){
+		file.delete();
+	}
+
+	/****************************************************************
+	 * The method for writing of LAS file, coordinates of point i are
+	 * (i, 2*i, 3*i) and class is i % 4
+	 * @param versionMinor - 2 for LAS 1.2, 4 for LAS 1.4
+	 * @param pointFormat - format of point records
+	 */
+	protected void writeFile(int versionMinor, int pointFormat) throws Exception{
+		int headerSize = (versionMinor >= 4) ? 375 : 227;
+		int recordLength = RECORD_LENGTHS[pointFormat];
+		int pointOffset = headerSize + VLR_SIZE;
+		ByteBuffer buffer = ByteBuffer.allocate(pointOffset + NUMBER_OF_POINTS*recordLength);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(0, (byte) 'L');
+		buffer.put(1, (byte) 'A');
+		buffer.put(2, (byte) 'S');
+		buffer.put(3, (byte) 'F');
+		buffer.put(24, (byte) 1);
+		buffer.put(25, (byte) versionMinor);
+		buffer.putShort(94, (short) headerSize);
+		buffer.putInt(96, pointOffset);
+		buffer.putInt(100, 1);
+		buffer.put(104, (byte) pointFormat);
+		buffer.putShort(105, (short) recordLength);
+		// LAS 1.4 files with new formats have only 64 bit number of points
+		buffer.putInt(107, (versionMinor >= 4) ? 0 : NUMBER_OF_POINTS);
+		buffer.putDouble(131, 0.01);
+		buffer.putDouble(139, 0.02);
+		buffer.putDouble(147, 0.001);
+		buffer.putDouble(155, 500000);
+		buffer.putDouble(163, 1000000);
+		buffer.putDouble(171, 100);
+		buffer.putDouble(179, 500000 + NUMBER_OF_POINTS - 1);
+		buffer.putDouble(187, 500000);
+		buffer.putDouble(195, 1000000 + 2*(NUMBER_OF_POINTS - 1));
+		buffer.putDouble(203, 1000000);
+		if (versionMinor >= 4)
+			buffer.putLong(247, NUMBER_OF_POINTS);
+		for (int i = 0; i < NUMBER_OF_POINTS; i++){
+			int base = pointOffset + i*recordLength;
+			buffer.putInt(base, 100*i);
+			buffer.putInt(base + 4, 100*i);
+			buffer.putInt(base + 8, 3000*i);
+			if (pointFormat < 6)
+				// flags in upper bits of classification byte
+				buffer.put(base + 15, (byte) (0xA0 | (i % 4)));
+			else{
+				// classification flags are before classification byte
+				buffer.put(base + 15, (byte) 0x2F);
+				buffer.put(base + 16, (byte) (i % 4));
+			}
+		}
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(buffer.array());
+		out.close();
+	}
+
+	/****************************************************************
+	 * The method for testing of points read from file
+	 */
+	protected void checkFile(int versionMinor, int pointFormat) throws Exception{
+		writeFile(versionMinor, pointFormat);
+		LASPointSource source = new LASPointSource(file.getPath());
+		assertEquals(source.getVersion(), "1." + versionMinor);
+		assertEquals(source.getNumberOfPoints(), NUMBER_OF_POINTS);
+		Envelope envelope = source.getEnvelope();
+		assertEquals(envelope.getMinX(), 500000, 0);
+		assertEquals(envelope.getMaxX(), 500000 + NUMBER_OF_POINTS - 1, 0);
+		assertEquals(envelope.getMinY(), 1000000, 0);
+		assertEquals(envelope.getMaxY(), 1000000 + 2*(NUMBER_OF_POINTS - 1), 0);
+		for (int i = 0; i < NUMBER_OF_POINTS; i++){
+			Coordinate point = source.next();
+			assertEquals(point.x, 500000 + i, 1e-6);
+			assertEquals(point.y, 1000000 + 2*i, 1e-6);
+			assertEquals(point.z, 100 + 3*i, 1e-6);
+		}
+		assertNull(source.next());
+		source.close();
+		source = new LASPointSource(file.getPath());
+		source.setClassification(2);
+		for (int i = 2; i < NUMBER_OF_POINTS; i += 4)
+			assertEquals(source.next().x, 500000 + i, 1e-6);
+		assertNull(source.next());
+		source.close();
+	}
+
+	/****************************************************************
+	 * The test of LAS 1.2 files with formats 0 - 5
+	 */
+	public void testVersion12() throws Exception{
+		for (int format = 0; format < 6; format++)
+			checkFile(2, format);
+	}
+
+	/****************************************************************
+	 * The test of LAS 1.4 files with all formats
+	 */
+	public void testVersion14() throws Exception{
+		for (int format = 0; format <= 10; format++)
+			checkFile(4, format);
+	}
+
+	/****************************************************************
+	 * The test which tests, if file, which isn't LAS file, isn't
+	 * accepted
+	 */
+	public void testWrongFile() throws Exception{
+		writeFile(2, 1);
+		RandomAccessFile wrong = new RandomAccessFile(file, "rw");
+		wrong.write('X');
+		wrong.close();
+		try {
+			new LASPointSource(file.getPath());
+			fail();
+		}
+		catch (IOException e){
+		}
+	}
+
+	public static Test suite(){
+		return new TestSuite(LASPointSourceTest.class);
+	}
+	
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+
+}
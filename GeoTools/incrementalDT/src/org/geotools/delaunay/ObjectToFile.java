@@ -21,110 +21,276 @@
 
 package org.geotools.delaunay;
 
-import java.nio.ByteBuffer;
-import java.nio.DoubleBuffer;
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FileInputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.*;
-import org.geotools.delaunay.TriangleDT;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.BitSet;
+
+/*****************************************************************************
+ * The class for saving triangles into file. The file is mapped into memory
+ * by segments of fixed size, new segment is mapped when the first page
+ * is written into it. Pages of PageCache are read and written directly in
+ * mapped segments, the operating system writes changed pages into file
+ * later.
+ * After the first checkpoint the original content of every page, which is
+ * overwritten, is saved into undo log (file with suffix .undo) before it is
+ * changed, so the file can be rolled back to the last checkpoint.
+ */
 
 public class ObjectToFile {
 	private File aFile = null;
-	private FileInputStream inFile = null;
-	private FileOutputStream outFile = null;
-	private FileChannel inChannel = null;
-	private FileChannel outChannel = null;
-	private ByteBuffer buf = ByteBuffer.allocate(136);  
-	private DoubleBuffer dBuf = null;
+	private RandomAccessFile file = null;
+	private FileChannel channel = null;
+	// size of one triangle in file - 7 ints (ids of vertexes A, B, C,
+	// indexes of neighbours 0 - AB, 1 - BC, 2 - AC, flags - 1 break line,
+	// 2 deleted triangle)
+	private static final int RECORD = 28;
+	// number of triangles in one segment is 2^SEGMENT_BITS
+	private static final int SEGMENT_BITS = 20;
+	private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+	private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+	// number of triangles in file
+	private int size = 0;
+	// undo log with original records changed after the last checkpoint,
+	// null before the first checkpoint
+	private RandomAccessFile undo = null;
+	private FileChannel undoChannel = null;
+	// number of triangles in file by the last checkpoint, records behind
+	// it aren't saved into undo log
+	private int checkpointSize = 0;
+	// pages which were saved into undo log since the last checkpoint
+	private BitSet loggedPages = new BitSet();
 	
 	/*********************************************************************
 	 * Constructor for creating file for saving data of triangles
 	 * @param pathFile - completly path plus name of file
 	 */
 	ObjectToFile(String pathFile){
+		this(pathFile, false);
+	}
+
+	/*********************************************************************
+	 * Constructor for opening file for saving data of triangles
+	 * @param pathFile - completly path plus name of file
+	 * @param resume - true if the existing file is used, false if the old
+	 * file and its undo log are deleted
+	 */
+	ObjectToFile(String pathFile, boolean resume){
 		try{
 			aFile = new File(pathFile);
-			if (aFile.exists())
-				aFile.delete();
-			aFile.createNewFile();
-				aFile.createNewFile();
-			inFile = new FileInputStream(aFile); 
-			outFile = new FileOutputStream(aFile, true); 
-
+			if (!resume){
+				if (aFile.exists())
+					aFile.delete();
+				File undoFile = new File(pathFile + ".undo");
+				if (undoFile.exists())
+					undoFile.delete();
+			}
+			file = new RandomAccessFile(aFile, "rw");
+			channel = file.getChannel();
 		}
 		catch (Exception e){
 			e.printStackTrace();
 		}
-	    inChannel = inFile.getChannel();
-	    outChannel = outFile.getChannel();
-	    
 	}
-	
+
 	/*******************************************************************
-	 * Protected method for reading triangles with definied index
+	 * Private method for getting segment of file with triangle, the segment
+	 * is mapped if it doesn't exist
 	 * @param idx - index in file
-	 * @return triangle
+	 * @return mapped segment
 	 */
-	protected TriangleDT read(int idx){
-		double src[] = new double[17];
+	private MappedByteBuffer segment(int idx) throws java.io.IOException {
+		int s = idx >> SEGMENT_BITS;
+		if (s >= segments.length){
+			MappedByteBuffer[] newSegments = new MappedByteBuffer[s + 1];
+			System.arraycopy(segments, 0, newSegments, 0, segments.length);
+			segments = newSegments;
+		}
+		if (segments[s] == null)
+			segments[s] = channel.map(FileChannel.MapMode.READ_WRITE,
+					(long) s * RECORD << SEGMENT_BITS, (long) RECORD << SEGMENT_BITS);
+		return segments[s];
+	}
 	
+	/******************************************************************
+	 * Protected method for reading page of triangles, page is part of
+	 * segment
+	 * @param page - index of page, data contains 7 ints of every triangle of page
+	 * @param data - array for reading of records
+	 */
+	protected void readPage(int page, int[] data){
 		try{
-			buf.clear();
-			inChannel.read(buf, idx*136);  
-			buf.flip();
-			
-			buf.asDoubleBuffer().get(src);
-			return new TriangleDT(src);
+			int records = data.length * 4 / RECORD;
+			int idx = page * records;
+			MappedByteBuffer buf = segment(idx);
+			int pos = (idx & SEGMENT_MASK) * RECORD;
+			for (int i = 0; i < data.length; i++)
+				data[i] = buf.getInt(pos + 4 * i);
 		}
 		catch (Exception e){
-			//System.out.println("READ " +e);
 			e.printStackTrace();
 		}
-		return null;
 	}
-	
+
 	/******************************************************************
-	 * Protected method for writing tringlas on the end of file
-	 * @param data - triangle convert to basic data type
+	 * Protected method for writing page of triangles
+	 * @param page - index of page, data contains 7 ints of every triangle of page
+	 * @param data - records of triangles
 	 */
-	protected  void writeT(double [] data){
+	protected void writePage(int page, int[] data){
 		try{
-			buf.clear();
-			for (int i = 0; i<17;i++)
-				buf.putDouble(data[i]);
-			buf.flip();
-			outChannel.write(buf);
+			int records = data.length * 4 / RECORD;
+			int idx = page * records;
+			if (undo != null && idx < checkpointSize && !loggedPages.get(page)){
+				logRecords(idx, Math.min(records, checkpointSize - idx));
+				loggedPages.set(page);
+			}
+			MappedByteBuffer buf = segment(idx);
+			int pos = (idx & SEGMENT_MASK) * RECORD;
+			for (int i = 0; i < data.length; i++)
+				buf.putInt(pos + 4 * i, data[i]);
+			if (idx + records > size)
+				size = idx + records;
 		}
 		catch (Exception e){
-			System.out.println("WRITE" + e);
 			e.printStackTrace();
 		}
 	}
 
 	/******************************************************************
-	 * Protected method for writing triangles on the index to file
-	 * @param data - triangle convert to basic data type
+	 * Private method for saving original records into undo log, the
+	 * records are appended as index of first record, number of records
+	 * and their bytes. The log is forced, so changed records never reach
+	 * the disk before their original
+	 * @param first - index of first record
+	 * @param count - number of records
 	 */
-	protected  void writeT(double [] data, int idx){
+	private void logRecords(int first, int count) throws IOException {
+		ByteBuffer entry = ByteBuffer.allocate(8 + count * RECORD);
+		entry.putInt(first);
+		entry.putInt(count);
+		for (int i = 0; i < count; i++){
+			int pos = ((first + i) & SEGMENT_MASK) * RECORD;
+			ByteBuffer record = segment(first + i).duplicate();
+			record.limit(pos + RECORD);
+			record.position(pos);
+			entry.put(record);
+		}
+		entry.flip();
+		while (entry.hasRemaining())
+			undoChannel.write(entry);
+		// the entry has to be on disk before the records are changed
+		undoChannel.force(false);
+	}
+
+	/******************************************************************
+	 * Protected method for writing of changed segments into file
+	 * @throws IOException
+	 */
+	protected void force() throws IOException {
+		for (int i = 0; i < segments.length; i++)
+			if (segments[i] != null)
+				segments[i].force();
+	}
+
+	/******************************************************************
+	 * Protected method for starting of new undo log after checkpoint,
+	 * the file has to be forced before. Records which are in file now are
+	 * saved into log before their first change.
+	 * @param generation - number of checkpoint
+	 * @throws IOException
+	 */
+	protected void startUndo(long generation) throws IOException {
+		if (undo == null){
+			undo = new RandomAccessFile(aFile.getPath() + ".undo", "rw");
+			undoChannel = undo.getChannel();
+		}
+		undo.setLength(0);
+		undo.seek(0);
+		undo.writeLong(generation);
+		undoChannel.force(true);
+		checkpointSize = size;
+		loggedPages.clear();
+	}
+
+	/******************************************************************
+	 * Protected method for returning of file to the state of checkpoint.
+	 * Original records from undo log are written back in reverse order,
+	 * the log is used only if it belongs to the same checkpoint. The
+	 * incomplete last entry of log is skipped, its records weren't
+	 * changed.
+	 * @param generation - number of checkpoint
+	 * @param size - number of triangles in file by checkpoint
+	 * @throws IOException
+	 */
+	protected void rollback(long generation, int size) throws IOException {
+		File undoFile = new File(aFile.getPath() + ".undo");
+		if (undoFile.exists()){
+			RandomAccessFile log = new RandomAccessFile(undoFile, "r");
+			try{
+				long length = log.length();
+				if (length >= 8 && log.readLong() == generation){
+					long[] entries = new long[16];
+					int numberOfEntries = 0;
+					long pos = 8;
+					while (pos + 8 <= length){
+						log.seek(pos + 4);
+						long end = pos + 8 + (long) log.readInt() * RECORD;
+						if (end > length)
+							break;
+						if (numberOfEntries == entries.length){
+							long[] newEntries = new long[2 * entries.length];
+							System.arraycopy(entries, 0, newEntries, 0, numberOfEntries);
+							entries = newEntries;
+						}
+						entries[numberOfEntries++] = pos;
+						pos = end;
+					}
+					byte[] data = new byte[0];
+					for (int i = numberOfEntries - 1; i >= 0; i--){
+						log.seek(entries[i]);
+						int first = log.readInt();
+						int count = log.readInt();
+						if (data.length < count * RECORD)
+							data = new byte[count * RECORD];
+						log.readFully(data, 0, count * RECORD);
+						for (int j = 0; j < count; j++){
+							ByteBuffer record = segment(first + j).duplicate();
+							record.position(((first + j) & SEGMENT_MASK) * RECORD);
+							record.put(data, j * RECORD, RECORD);
+						}
+					}
+					force();
+				}
+			}
+			finally{
+				log.close();
+			}
+		}
+		this.size = size;
+	}
+
+	/******************************************************************
+	 * Protected method for writing of changed segments into file and
+	 * closing of file, the file is cut behind the last triangle, because
+	 * segments grow it to multiple of segment size
+	 */
+	protected void closeStrem(){
 		try{
-			buf.clear();
-			for (int i = 0; i<17;i++)
-				buf.putDouble(data[i]);
-			buf.flip();
-			outChannel.write(buf,idx*136);
+			force();
+			segments = new MappedByteBuffer[0];
+			file.setLength((long) size * RECORD);
+			if (undo != null)
+				undo.close();
+			channel.close();
+			file.close();
 		}
 		catch (Exception e){
 			e.printStackTrace();
 		}
 	}
-	
-	protected void closeStrem(){
-		
-	}
 
 }
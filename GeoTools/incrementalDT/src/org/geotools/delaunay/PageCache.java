@@ -0,0 +1,281 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+/*****************************************************************************
+ * The cache of pages of triangle file. One page contains records of
+ * 2^PAGE_BITS triangles. Pages are saved in frames, the frame for new page
+ * is chosen by CLOCK algorithm (approximation of LRU). Changed pages are
+ * written into file when they are removed from cache or when the cache is
+ * closed.
+ */
+
+public class PageCache {
+	// number of triangles in one page is 2^PAGE_BITS
+	private static final int PAGE_BITS = 8;
+	private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+	// number of ints of one triangle
+	private static final int RECORD_INTS = 7;
+	private static final int PAGE_INTS = RECORD_INTS << PAGE_BITS;
+	// flags of triangle in the last int of record
+	private static final int BREAK_LINE = 1;
+	private static final int DELETED = 2;
+	private ObjectToFile file;
+	private VertexTable vertexes;
+	// pages in frames of cache
+	private int[][] frames;
+	// index of page in frame, -1 for empty frame
+	private int[] framePage;
+	private boolean[] dirty;
+	private boolean[] referenced;
+	// index of frame with page, -1 if page isn't in cache
+	private int[] pageFrame = new int[0];
+	// position of hand of clock
+	private int hand = 0;
+	// number of triangles in file
+	private int size = 0;
+	private long hits = 0;
+	private long misses = 0;
+
+	/***************************************************************************
+	 * Constructor
+	 *
+	 * @param file - file with triangles
+	 * @param vertexes - table of vertexes of triangles
+	 * @param cacheSize - size of cache in MB
+	 */
+
+	public PageCache(ObjectToFile file, VertexTable vertexes, int cacheSize) {
+		this.file = file;
+		this.vertexes = vertexes;
+		int numberOfFrames = Math.max(1, (int) ((long) cacheSize * 1024 * 1024
+				/ (4 * PAGE_INTS)));
+		frames = new int[numberOfFrames][];
+		framePage = new int[numberOfFrames];
+		dirty = new boolean[numberOfFrames];
+		referenced = new boolean[numberOfFrames];
+		for (int i = 0; i < numberOfFrames; i++)
+			framePage[i] = -1;
+	}
+
+	/***************************************************************************
+	 * The method for reading triangle
+	 *
+	 * @param idx - index of triangle
+	 * @return triangle or null if triangle was deleted
+	 */
+
+	public TriangleDT read(int idx) {
+		int f = frame(idx >> PAGE_BITS);
+		int[] page = frames[f];
+		int pos = (idx & PAGE_MASK) * RECORD_INTS;
+		if ((page[pos + 6] & DELETED) != 0)
+			return null;
+		TriangleDT T = new TriangleDT(vertexes.getVertex(page[pos]), vertexes
+				.getVertex(page[pos + 1]), vertexes.getVertex(page[pos + 2]));
+		T.neighbour[0] = page[pos + 3];
+		T.neighbour[1] = page[pos + 4];
+		T.neighbour[2] = page[pos + 5];
+		T.haveBreakLine = (page[pos + 6] & BREAK_LINE) != 0;
+		T.index = idx;
+		return T;
+	}
+
+	/***************************************************************************
+	 * The method for writing triangle on the end of file
+	 *
+	 * @param T - triangle
+	 */
+
+	public void writeT(TriangleDT T) {
+		writeT(T, size);
+	}
+
+	/***************************************************************************
+	 * The method for writing new triangle on the index, the deleted record
+	 * is reused
+	 *
+	 * @param T - triangle
+	 * @param idx - index of triangle
+	 */
+
+	public void writeT(TriangleDT T, int idx) {
+		int f = frame(idx >> PAGE_BITS);
+		record(frames[f], (idx & PAGE_MASK) * RECORD_INTS, T, 0);
+		dirty[f] = true;
+		if (idx >= size)
+			size = idx + 1;
+	}
+
+	/***************************************************************************
+	 * The method for saving changed triangle on its index, the deleted
+	 * triangle stays deleted
+	 *
+	 * @param T - triangle
+	 */
+
+	public void update(TriangleDT T) {
+		int f = frame(T.index >> PAGE_BITS);
+		int[] page = frames[f];
+		int pos = (T.index & PAGE_MASK) * RECORD_INTS;
+		record(page, pos, T, page[pos + 6] & DELETED);
+		dirty[f] = true;
+	}
+
+	/***************************************************************************
+	 * The private method for saving triangle into record of page
+	 *
+	 * @param flags - flags of record except of break line
+	 */
+
+	private void record(int[] page, int pos, TriangleDT T, int flags) {
+		page[pos] = vertexes.add(T.A);
+		page[pos + 1] = vertexes.add(T.B);
+		page[pos + 2] = vertexes.add(T.C);
+		page[pos + 3] = T.neighbour[0];
+		page[pos + 4] = T.neighbour[1];
+		page[pos + 5] = T.neighbour[2];
+		page[pos + 6] = T.haveBreakLine ? (flags | BREAK_LINE) : flags;
+	}
+
+	/***************************************************************************
+	 * The method for testing, if the triangle was deleted
+	 *
+	 * @param idx - index of triangle
+	 * @return true - triangle was deleted
+	 */
+
+	public boolean isDeleted(int idx) {
+		int f = frame(idx >> PAGE_BITS);
+		return (frames[f][(idx & PAGE_MASK) * RECORD_INTS + 6] & DELETED) != 0;
+	}
+
+	/***************************************************************************
+	 * The method for marking triangle as deleted, the record is reused by
+	 * next writing on this index
+	 *
+	 * @param idx - index of triangle
+	 */
+
+	public void delete(int idx) {
+		int f = frame(idx >> PAGE_BITS);
+		frames[f][(idx & PAGE_MASK) * RECORD_INTS + 6] |= DELETED;
+		dirty[f] = true;
+	}
+
+	/***************************************************************************
+	 * The method for writing all changed pages into file
+	 */
+
+	public void flush() {
+		for (int f = 0; f < frames.length; f++)
+			if (dirty[f]) {
+				file.writePage(framePage[f], frames[f]);
+				dirty[f] = false;
+			}
+	}
+
+	/***************************************************************************
+	 * The method for setting number of triangles in file, when the file is
+	 * opened again from checkpoint
+	 *
+	 * @param size - number of triangles
+	 */
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	/***************************************************************************
+	 * The method for writing of changed pages and closing of file
+	 */
+
+	public void closeStrem() {
+		flush();
+		file.closeStrem();
+	}
+
+	/***************************************************************************
+	 * The method for getting number of reading of pages from cache
+	 *
+	 * @return number of hits
+	 */
+
+	public long getHits() {
+		return hits;
+	}
+
+	/***************************************************************************
+	 * The method for getting number of reading of pages from file
+	 *
+	 * @return number of misses
+	 */
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/***************************************************************************
+	 * The private method for getting frame with page, the page is read from
+	 * file if it isn't in cache
+	 *
+	 * @param p - index of page
+	 * @return index of frame
+	 */
+
+	private int frame(int p) {
+		if (p < pageFrame.length && pageFrame[p] != -1) {
+			hits++;
+			referenced[pageFrame[p]] = true;
+			return pageFrame[p];
+		}
+		misses++;
+		if (p >= pageFrame.length) {
+			int[] newPageFrame = new int[Math.max(p + 1, 2 * pageFrame.length)];
+			System.arraycopy(pageFrame, 0, newPageFrame, 0, pageFrame.length);
+			for (int i = pageFrame.length; i < newPageFrame.length; i++)
+				newPageFrame[i] = -1;
+			pageFrame = newPageFrame;
+		}
+		// clock - frames referenced since last visit get second chance
+		while (referenced[hand]) {
+			referenced[hand] = false;
+			hand = (hand + 1) % frames.length;
+		}
+		int f = hand;
+		hand = (hand + 1) % frames.length;
+		if (framePage[f] != -1) {
+			if (dirty[f])
+				file.writePage(framePage[f], frames[f]);
+			pageFrame[framePage[f]] = -1;
+		}
+		if (frames[f] == null)
+			frames[f] = new int[PAGE_INTS];
+		file.readPage(p, frames[f]);
+		framePage[f] = p;
+		pageFrame[p] = f;
+		dirty[f] = false;
+		referenced[f] = true;
+		return f;
+	}
+
+}
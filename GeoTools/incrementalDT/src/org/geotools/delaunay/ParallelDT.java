@@ -0,0 +1,475 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.vividsolutions.jts.geom.Coordinate;
+
+/*****************************************************************************
+ * The class for creating Delaunay triangulation by more threads. Points are
+ * divided by kd tree into cells and the cells are triangulated concurrently
+ * by IncrementalDT. A triangle of cell, whose circle lies strictly inside
+ * the cell and contains no other point on the circle, is a triangle of
+ * Delaunay triangulation of all points (safe triangle). The other points
+ * (vertexes of unsafe triangles and points on the hull of cell) are
+ * triangulated together and triangles of this triangulation, which lie
+ * out of safe triangles, merge the cells along the separators. All
+ * triangles are saved into one DelaunayDataStore.
+ */
+
+public class ParallelDT {
+	// default maximal number of points in one cell
+	public static final int LEAF_SIZE = 50000;
+	// unit roundoff of double
+	private static final double EPSILON = Math.ulp(1.0) / 2;
+	public DelaunayDataStore triangles;
+	private ForkJoinPool pool;
+	private int leafSize = LEAF_SIZE;
+
+	/***************************************************************************
+	 * Constructor, the common pool of threads is used
+	 *
+	 * @param dataStore - empty DelaunayDataStore for saving triangles
+	 */
+
+	public ParallelDT(DelaunayDataStore dataStore) {
+		this(dataStore, ForkJoinPool.commonPool());
+	}
+
+	/***************************************************************************
+	 * Constructor
+	 *
+	 * @param dataStore - empty DelaunayDataStore for saving triangles
+	 * @param pool - pool of threads for triangulation of cells
+	 */
+
+	public ParallelDT(DelaunayDataStore dataStore, ForkJoinPool pool) {
+		triangles = dataStore;
+		this.pool = pool;
+	}
+
+	/***************************************************************************
+	 * The method for setting maximal number of points in one cell
+	 *
+	 * @param leafSize - number of points
+	 */
+
+	public void setLeafSize(int leafSize) {
+		this.leafSize = Math.max(3, leafSize);
+	}
+
+	/***************************************************************************
+	 * The method for creating triangulation of all points
+	 *
+	 * @param points - collection of Coordinates
+	 */
+
+	public void insertPoints(Iterable points) {
+		LinkedList list = new LinkedList();
+		Iterator it = points.iterator();
+		while (it.hasNext())
+			list.add(it.next());
+		insertPoints((Coordinate[]) list.toArray(new Coordinate[list.size()]));
+	}
+
+	/***************************************************************************
+	 * The method for creating triangulation of all points
+	 *
+	 * @param points - array of points, order of array is changed
+	 */
+
+	public void insertPoints(Coordinate[] points) {
+		if (points.length <= leafSize) {
+			new IncrementalDT(triangles).insertPoints(points);
+			return;
+		}
+		Partition root = new Partition(points, 0, points.length,
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+		pool.invoke(root);
+		LinkedList cells = new LinkedList();
+		root.collect(cells);
+
+		// triangulation of points along the separators
+		LinkedList boundaryPoints = new LinkedList();
+		Iterator iter = cells.iterator();
+		while (iter.hasNext())
+			boundaryPoints.addAll(((Cell) iter.next()).boundaryPoints);
+		DelaunayDataStoreArrays seams = new DelaunayDataStoreArrays();
+		new IncrementalDT(seams).insertPoints((Coordinate[]) boundaryPoints
+				.toArray(new Coordinate[boundaryPoints.size()]));
+		boolean[] kept = keptSeams(seams, cells);
+
+		// saving of triangles and their neighbours
+		EdgeTable openEdges = new EdgeTable();
+		iter = cells.iterator();
+		while (iter.hasNext()) {
+			Cell cell = (Cell) iter.next();
+			int[] index = save(cell.store, cell.safe);
+			link(cell.store, cell.safe, index, openEdges);
+		}
+		link(seams, kept, save(seams, kept), openEdges);
+	}
+
+	/***************************************************************************
+	 * The private method for marking triangles of triangulation along the
+	 * separators, which lie out of safe triangles. The marking starts on the
+	 * edges of safe triangles and it can't cross them.
+	 *
+	 * @return array of marks by indexes of triangles
+	 */
+
+	private boolean[] keptSeams(DelaunayDataStore seams, LinkedList cells) {
+		VertexTable vertexes = seams.getVertexTable();
+		boolean[] kept = new boolean[seams.getNumberOfTriangles()];
+		EdgeTable edgesOfSafe = new EdgeTable();
+		IntStack stack = new IntStack();
+		boolean anySafe = false;
+		Iterator iter = cells.iterator();
+		while (iter.hasNext()) {
+			Cell cell = (Cell) iter.next();
+			for (int i = 0; i < cell.safe.length; i++) {
+				if (!cell.safe[i])
+					continue;
+				anySafe = true;
+				TriangleDT T = cell.store.getTriangle(i);
+				for (int e = 0; e < 3; e++) {
+					int n = T.neighbour[e];
+					if (n != -1 && cell.safe[n])
+						continue;
+					PointDT U = (e == 1) ? T.B : T.A;
+					PointDT V = (e == 0) ? T.B : T.C;
+					PointDT W = (e == 0) ? T.C : ((e == 1) ? T.A : T.B);
+					int u = vertexes.find(U.x, U.y);
+					int v = vertexes.find(V.x, V.y);
+					if (u == -1 || v == -1)
+						continue;
+					edgesOfSafe.put(EdgeTable.key(u, v), i);
+					// triangle on the other side of the edge
+					double side = Predicates.orient2d(U, V, W);
+					Iterator star = VertexStar.getTriangles(seams,
+							vertexes.getVertex(u)).iterator();
+					while (star.hasNext()) {
+						TriangleDT S = (TriangleDT) star.next();
+						PointDT X = thirdVertex(S, u, v);
+						if (X != null && Predicates.orient2d(U, V, X) * side < 0)
+							stack.push(S.index);
+					}
+				}
+			}
+		}
+		if (!anySafe)
+			stack.clear();
+		for (int i = 0; i < kept.length && !anySafe; i++)
+			kept[i] = seams.getTriangle(i) != null;
+
+		while (!stack.isEmpty()) {
+			int i = stack.pop();
+			if (kept[i])
+				continue;
+			kept[i] = true;
+			TriangleDT T = seams.getTriangle(i);
+			for (int e = 0; e < 3; e++) {
+				int n = T.neighbour[e];
+				int u = (e == 1) ? T.B.id : T.A.id;
+				int v = (e == 0) ? T.B.id : T.C.id;
+				if (n != -1 && !kept[n]
+						&& !edgesOfSafe.contains(EdgeTable.key(u, v)))
+					stack.push(n);
+			}
+		}
+		return kept;
+	}
+
+	/***************************************************************************
+	 * The private method for getting vertex of triangle, which isn't u or v
+	 *
+	 * @return vertex or null if the triangle hasn't vertexes u and v
+	 */
+
+	private static PointDT thirdVertex(TriangleDT T, int u, int v) {
+		int a = T.A.id, b = T.B.id, c = T.C.id;
+		if ((a == u && b == v) || (a == v && b == u))
+			return T.C;
+		if ((b == u && c == v) || (b == v && c == u))
+			return T.A;
+		if ((a == u && c == v) || (a == v && c == u))
+			return T.B;
+		return null;
+	}
+
+	/***************************************************************************
+	 * The private method for saving marked triangles of store into
+	 * DelaunayDataStore of this triangulation
+	 *
+	 * @return indexes of triangles in DelaunayDataStore of this triangulation
+	 */
+
+	private int[] save(DelaunayDataStore store, boolean[] marked) {
+		int[] index = new int[marked.length];
+		for (int i = 0; i < marked.length; i++) {
+			if (!marked[i])
+				continue;
+			TriangleDT T = store.getTriangle(i);
+			TriangleDT N = new TriangleDT(new PointDT(T.A.x, T.A.y, T.A.z),
+					new PointDT(T.B.x, T.B.y, T.B.z), new PointDT(T.C.x,
+							T.C.y, T.C.z));
+			try {
+				triangles.insertToTree(N, N.key);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			index[i] = N.index;
+		}
+		return index;
+	}
+
+	/***************************************************************************
+	 * The private method for saving neighbours of saved triangles. Edges,
+	 * whose neighbour wasn't saved from the same store, are linked by
+	 * vertexes with the edges of triangles from other stores.
+	 */
+
+	private void link(DelaunayDataStore store, boolean[] marked, int[] index,
+			EdgeTable openEdges) {
+		for (int i = 0; i < marked.length; i++) {
+			if (!marked[i])
+				continue;
+			TriangleDT T = store.getTriangle(i);
+			TriangleDT N = triangles.getTriangle(index[i]);
+			for (int e = 0; e < 3; e++) {
+				int n = T.neighbour[e];
+				if (n != -1 && marked[n]) {
+					N.neighbour[e] = index[n];
+					continue;
+				}
+				int u = (e == 1) ? N.B.id : N.A.id;
+				int v = (e == 0) ? N.B.id : N.C.id;
+				long key = EdgeTable.key(u, v);
+				long other = openEdges.remove(key);
+				if (other == -1) {
+					openEdges.put(key, ((long) N.index << 2) | e);
+					continue;
+				}
+				TriangleDT M = triangles.getTriangle((int) (other >> 2));
+				M.neighbour[(int) (other & 3)] = N.index;
+				triangles.update(M);
+				N.neighbour[e] = M.index;
+			}
+			triangles.update(N);
+		}
+	}
+
+	/***************************************************************************
+	 * The private class of cell of kd tree. The cell is divided by median of
+	 * x or y coordinate (longer side of envelope of points) into two cells,
+	 * which are processed concurrently.
+	 */
+
+	private class Partition extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private Coordinate[] points;
+		private int lo, hi;
+		private double minX, maxX, minY, maxY;
+		private Partition left, right;
+		private Cell cell;
+
+		Partition(Coordinate[] points, int lo, int hi, double minX,
+				double maxX, double minY, double maxY) {
+			this.points = points;
+			this.lo = lo;
+			this.hi = hi;
+			this.minX = minX;
+			this.maxX = maxX;
+			this.minY = minY;
+			this.maxY = maxY;
+		}
+
+		protected void compute() {
+			if (hi - lo <= leafSize) {
+				cell = new Cell(Arrays.copyOfRange(points, lo, hi), minX,
+						maxX, minY, maxY);
+				cell.triangulate();
+				return;
+			}
+			double x0 = Double.POSITIVE_INFINITY, x1 = Double.NEGATIVE_INFINITY;
+			double y0 = Double.POSITIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+			for (int i = lo; i < hi; i++) {
+				x0 = Math.min(x0, points[i].x);
+				x1 = Math.max(x1, points[i].x);
+				y0 = Math.min(y0, points[i].y);
+				y1 = Math.max(y1, points[i].y);
+			}
+			int mid = (lo + hi) >>> 1;
+			if (x1 - x0 >= y1 - y0) {
+				Arrays.sort(points, lo, hi, X_ORDER);
+				double m = points[mid].x;
+				left = new Partition(points, lo, mid, minX, m, minY, maxY);
+				right = new Partition(points, mid, hi, m, maxX, minY, maxY);
+			} else {
+				Arrays.sort(points, lo, hi, Y_ORDER);
+				double m = points[mid].y;
+				left = new Partition(points, lo, mid, minX, maxX, minY, m);
+				right = new Partition(points, mid, hi, minX, maxX, m, maxY);
+			}
+			invokeAll(left, right);
+		}
+
+		/***********************************************************************
+		 * The method for adding triangulated cells into list, the order is
+		 * same for all runs
+		 */
+
+		void collect(LinkedList cells) {
+			if (cell != null)
+				cells.add(cell);
+			else {
+				left.collect(cells);
+				right.collect(cells);
+			}
+		}
+	}
+
+	private static final Comparator X_ORDER = new Comparator() {
+		public int compare(Object a, Object b) {
+			return Double.compare(((Coordinate) a).x, ((Coordinate) b).x);
+		}
+	};
+
+	private static final Comparator Y_ORDER = new Comparator() {
+		public int compare(Object a, Object b) {
+			return Double.compare(((Coordinate) a).y, ((Coordinate) b).y);
+		}
+	};
+
+	/***************************************************************************
+	 * The private class of triangulated cell
+	 */
+
+	private static class Cell {
+		private Coordinate[] points;
+		// envelope of cell, points of other cells are out of it or on it
+		private double minX, maxX, minY, maxY;
+		DelaunayDataStoreArrays store = new DelaunayDataStoreArrays();
+		// safe triangles by index in store
+		boolean[] safe;
+		// vertexes of unsafe triangles and points on the hull of cell
+		LinkedList boundaryPoints = new LinkedList();
+
+		Cell(Coordinate[] points, double minX, double maxX, double minY,
+				double maxY) {
+			this.points = points;
+			this.minX = minX;
+			this.maxX = maxX;
+			this.minY = minY;
+			this.maxY = maxY;
+		}
+
+		/***********************************************************************
+		 * The method for triangulation of cell and searching of safe
+		 * triangles and boundary points
+		 */
+
+		void triangulate() {
+			new IncrementalDT(store).insertPoints(points);
+			points = null;
+			VertexTable vertexes = store.getVertexTable();
+			int n = store.getNumberOfTriangles();
+			safe = new boolean[n];
+			boolean[] used = new boolean[vertexes.size()];
+			boolean[] boundary = new boolean[vertexes.size()];
+			for (int i = 0; i < n; i++) {
+				TriangleDT T = store.getTriangle(i);
+				if (T == null)
+					continue;
+				safe[i] = insideCell(T) && strictlyDelaunay(T);
+				boolean onBoundary = !safe[i] || T.neighbour[0] == -1
+						|| T.neighbour[1] == -1 || T.neighbour[2] == -1;
+				used[T.A.id] = used[T.B.id] = used[T.C.id] = true;
+				if (onBoundary)
+					boundary[T.A.id] = boundary[T.B.id] = boundary[T.C.id] = true;
+			}
+			for (int id = 0; id < used.length; id++)
+				if (boundary[id] || !used[id])
+					boundaryPoints.add(vertexes.getVertex(id));
+		}
+
+		/***********************************************************************
+		 * The private method for testing, if the circle of triangle lies
+		 * strictly inside the cell. The test is conservative, the circle is
+		 * enlarged by bound of rounding error of its centre. The error of
+		 * centre is (|b|^2|c| + |c|^2|b|) / |d| times error of the vectors
+		 * b, c and it grows with |b||c| / |d| for nearly flat triangles.
+		 */
+
+		private boolean insideCell(TriangleDT T) {
+			double bx = T.B.x - T.A.x, by = T.B.y - T.A.y;
+			double cx = T.C.x - T.A.x, cy = T.C.y - T.A.y;
+			double d = 2 * (bx * cy - by * cx);
+			if (d == 0)
+				return false;
+			double b2 = bx * bx + by * by, c2 = cx * cx + cy * cy;
+			double ux = (cy * b2 - by * c2) / d;
+			double uy = (bx * c2 - cx * b2) / d;
+			double r = Math.sqrt(ux * ux + uy * uy);
+			double lb = Math.sqrt(b2), lc = Math.sqrt(c2), ad = Math.abs(d);
+			double error = 16 * EPSILON * (b2 * lc + c2 * lb) / ad
+					* (1 + 2 * lb * lc / ad);
+			ux += T.A.x;
+			uy += T.A.y;
+			r += 2 * error + 4 * EPSILON * (r + Math.abs(ux) + Math.abs(uy));
+			return ux - r > minX && ux + r < maxX && uy - r > minY
+					&& uy + r < maxY;
+		}
+
+		/***********************************************************************
+		 * The private method for testing, if no opposite vertex of neighbours
+		 * lies inside or on the circle of triangle. Then no point of cell lies
+		 * on the circle and the triangle is same in all Delaunay
+		 * triangulations.
+		 */
+
+		private boolean strictlyDelaunay(TriangleDT T) {
+			double orientation = Predicates.orient2d(T.A, T.B, T.C);
+			if (orientation == 0)
+				return false;
+			for (int e = 0; e < 3; e++) {
+				if (T.neighbour[e] == -1)
+					continue;
+				TriangleDT N = store.getTriangle(T.neighbour[e]);
+				PointDT D = thirdVertex(N, (e == 1) ? T.B.id : T.A.id,
+						(e == 0) ? T.B.id : T.C.id);
+				if (D == null
+						|| Predicates.incircle(T.A, T.B, T.C, D) * orientation >= 0)
+					return false;
+			}
+			return true;
+		}
+	}
+
+}
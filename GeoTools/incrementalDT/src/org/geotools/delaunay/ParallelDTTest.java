@@ -0,0 +1,108 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *    
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3 
+ */
+
+package org.geotools.delaunay;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import junit.framework.*;
+import java.util.LinkedList;
+import java.util.Random;
+
+public class ParallelDTTest extends TestCase {
+	LinkedList points = new LinkedList();
+	DelaunayDataStoreArrays triangles = new DelaunayDataStoreArrays();
+	ParallelDT triangulace = new ParallelDT(triangles);
+	
+	public ParallelDTTest(String name){
+		super(name);
+	}
+	
+	protected void setUp(){
+		Random random = new Random(1);
+		Coordinate[] newPoints = new Coordinate[1000];
+		for (int i=0;i<newPoints.length;i++){
+			newPoints[i] = new Coordinate((random.nextDouble()*1000000),(random.nextDouble()*1000000),0);
+			points.add(newPoints[i]);
+		}
+		// small cells, so there are many separators
+		triangulace.setLeafSize(100);
+		triangulace.insertPoints(newPoints);
+	}
+
+	/****************************************************************
+	 * The test which tests all circum circle of triangles, if they not contain
+	 * another point
+	 */
+	public void testDelaunayCircles(){
+		TINAssert.assertDelaunayCircles(triangles, points);
+	}
+
+	/**********************************************************************
+	 * The test which test, if all input points are in triangulation as vertex
+	 */
+	public void testAllPointsExistInTIN(){
+		TINAssert.assertAllPointsExistInTIN(triangles, points);
+	}
+
+	/********************************************************************
+	 * the test which tests, if neighbours of triangles have common edge
+	 */
+	public void testNeighbours(){
+		TINAssert.assertNeighbours(triangles, points.size());
+	}
+
+	/********************************************************************
+	 * the test with points of grid, so many points lie on the median
+	 * lines of cells and on common circles, and with duplicate points
+	 * of grid
+	 */
+	public void testDegeneratePoints(){
+		DelaunayDataStoreArrays grid = new DelaunayDataStoreArrays();
+		ParallelDT parallel = new ParallelDT(grid);
+		parallel.setLeafSize(50);
+		Random random = new Random(2);
+		LinkedList gridPoints = new LinkedList();
+		Coordinate[] newPoints = new Coordinate[40*40 + 1000 + 200];
+		for (int i = 0; i < 40*40; i++){
+			newPoints[i] = new Coordinate(i % 40, i / 40, 0);
+			gridPoints.add(newPoints[i]);
+		}
+		// random points between points of grid, so cells have safe triangles
+		for (int i = 40*40; i < 40*40 + 1000; i++){
+			newPoints[i] = new Coordinate(random.nextDouble()*39, random.nextDouble()*39, 0);
+			gridPoints.add(newPoints[i]);
+		}
+		for (int i = 40*40 + 1000; i < newPoints.length; i++)
+			newPoints[i] = new Coordinate(newPoints[random.nextInt(40*40)]);
+		parallel.insertPoints(newPoints);
+		TINAssert.assertDelaunayCircles(grid, gridPoints);
+		TINAssert.assertAllPointsExistInTIN(grid, gridPoints);
+		TINAssert.assertNeighbours(grid, gridPoints.size());
+	}
+	
+	public static Test suite(){
+		return new TestSuite(ParallelDTTest.class);
+	}
+	
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+
+}
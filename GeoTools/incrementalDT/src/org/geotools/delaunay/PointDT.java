@@ -23,6 +23,10 @@ package org.geotools.delaunay;
 import com.vividsolutions.jts.geom.Coordinate;
 
 public class PointDT extends Coordinate {
+	// index of point in vertex table, -1 if point isn't saved
+	public int id = -1;
+	// vertex table of point, points from the same table are compared by id
+	public transient VertexTable table = null;
 
 	/***************************************************************************
 	 * Constructor
@@ -45,6 +49,10 @@ public class PointDT extends Coordinate {
 
 	public PointDT(Coordinate P) {
 		super(P.x, P.y, P.z);
+		if (P instanceof PointDT) {
+			id = ((PointDT) P).id;
+			table = ((PointDT) P).table;
+		}
 	}
 
 	/***************************************************************************
@@ -67,6 +75,8 @@ public class PointDT extends Coordinate {
 	 */
 
 	public boolean compare(Coordinate P) {
+		if (P instanceof PointDT)
+			return compare((PointDT) P);
 		if (x == P.x && y == P.y)
 			return true;
 		return false;
@@ -81,6 +91,8 @@ public class PointDT extends Coordinate {
 	 */
 
 	public boolean compare(PointDT P) {
+		if (table != null && table == P.table)
+			return id == P.id;
 		if (x == P.x && y == P.y)
 			return true;
 		return false;
@@ -0,0 +1,48 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import java.io.IOException;
+import com.vividsolutions.jts.geom.Coordinate;
+
+/*****************************************************************************
+ * The interface of source of points for triangulation. Points are read one
+ * by one, so the whole input doesn't have to be in memory. The reader
+ * (IncrementalDT) takes next point only when it has place for it.
+ */
+
+public interface PointSource {
+
+	/*****************************************************************
+	 * The predefinied method for reading next point of source
+	 * @return next point or null if there is no other point
+	 * @throws IOException
+	 */
+	public Coordinate next() throws IOException;
+
+	/*****************************************************************
+	 * The predefinied method for closing of source and its files
+	 * @throws IOException
+	 */
+	public void close() throws IOException;
+
+}
@@ -0,0 +1,167 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import org.geotools.feature.AttributeType;
+import org.geotools.feature.AttributeTypeFactory;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureCollections;
+import org.geotools.feature.FeatureType;
+import org.geotools.feature.FeatureTypeFactory;
+import junit.framework.*;
+import java.util.Random;
+
+public class PointSourceTest extends TestCase {
+	// more points than one batch of IncrementalDT
+	private static final int NUMBER_OF_POINTS = 150000;
+	DelaunayDataStoreArrays triangles = new DelaunayDataStoreArrays();
+	IncrementalDT triangulace = new IncrementalDT(triangles);
+	
+	public PointSourceTest(String name){
+		super(name);
+	}
+
+	/****************************************************************
+	 * The source of random points, same seed gives same points
+	 */
+	static class RandomPointSource implements PointSource {
+		Random random;
+		int count = 0;
+		
+		RandomPointSource(long seed){
+			random = new Random(seed);
+		}
+		
+		public Coordinate next(){
+			if (count == NUMBER_OF_POINTS)
+				return null;
+			count++;
+			return new Coordinate(random.nextDouble()*1000000, random.nextDouble()*1000000, random.nextDouble()*100);
+		}
+		
+		public void close(){
+		}
+	}
+
+	/****************************************************************
+	 * The method for counting edges of convex hull
+	 * @return number of edges without neighbour
+	 */
+	protected int countHullEdges(){
+		int hullEdges = 0;
+		for (int i = 0; i < triangles.getNumberOfTriangles(); i++){
+			TriangleDT T = triangles.getTriangle(i);
+			if (T == null)
+				continue;
+			for (int e = 0; e < 3; e++)
+				if (T.neighbour[e] == -1)
+					hullEdges++;
+		}
+		return hullEdges;
+	}
+
+	/****************************************************************
+	 * The method for counting triangles of data store
+	 * @return number of triangles
+	 */
+	protected int countTriangles(){
+		int number = 0;
+		for (int i = 0; i < triangles.getNumberOfTriangles(); i++)
+			if (triangles.getTriangle(i) != null)
+				number++;
+		return number;
+	}
+
+	/****************************************************************
+	 * The test which tests, if all points of source are inserted, when
+	 * they are read in more batches
+	 */
+	public void testBatches() throws Exception{
+		RandomPointSource source = new RandomPointSource(5);
+		triangulace.insertPoints(source);
+		assertEquals(source.count, NUMBER_OF_POINTS);
+		VertexTable vertexes = triangles.getVertexTable();
+		assertEquals(vertexes.size(), NUMBER_OF_POINTS);
+		source = new RandomPointSource(5);
+		Coordinate point;
+		while ((point = source.next()) != null){
+			int id = vertexes.find(point.x, point.y);
+			assertEquals(id != -1, true);
+			assertEquals(vertexes.getZ(id), point.z, 0);
+		}
+		assertEquals(countTriangles(), 2*NUMBER_OF_POINTS - 2 - countHullEdges());
+	}
+
+	/****************************************************************
+	 * The test which tests, if vertexes of features are inserted with
+	 * elevation from attribute
+	 */
+	public void testFeatures() throws Exception{
+		GeometryFactory factory = new GeometryFactory();
+		AttributeType[] types = { AttributeTypeFactory.newAttributeType("the_geom", Geometry.class),
+				AttributeTypeFactory.newAttributeType("Z", Double.class) };
+		FeatureType type = FeatureTypeFactory.newFeatureType(types, "contours");
+		FeatureCollection collection = FeatureCollections.newCollection();
+		Random random = new Random(3);
+		int number = 0;
+		for (int i = 0; i < 100; i++){
+			Coordinate[] coordinates = new Coordinate[1 + random.nextInt(5)];
+			for (int j = 0; j < coordinates.length; j++)
+				// elevation of geometry isn't used
+				coordinates[j] = new Coordinate(random.nextDouble()*1000, random.nextDouble()*1000, -1);
+			number += coordinates.length;
+			Geometry geometry = (coordinates.length == 1) ? (Geometry) factory.createPoint(coordinates[0])
+					: factory.createLineString(coordinates);
+			collection.add(type.create(new Object[] { geometry, Double.valueOf(i) }, "contours." + i));
+		}
+		// feature without geometry is skipped
+		collection.add(type.create(new Object[] { null, Double.valueOf(-1) }, "contours.100"));
+		FeaturePointSource source = new FeaturePointSource(collection, 1);
+		triangulace.insertPoints(source);
+		source.close();
+		assertNull(source.next());
+		VertexTable vertexes = triangles.getVertexTable();
+		assertEquals(vertexes.size(), number);
+		random = new Random(3);
+		for (int i = 0; i < 100; i++){
+			int length = 1 + random.nextInt(5);
+			for (int j = 0; j < length; j++){
+				int id = vertexes.find(random.nextDouble()*1000, random.nextDouble()*1000);
+				assertEquals(id != -1, true);
+				assertEquals(vertexes.getZ(id), i, 0);
+			}
+		}
+		assertEquals(countTriangles(), 2*number - 2 - countHullEdges());
+	}
+
+	public static Test suite(){
+		return new TestSuite(PointSourceTest.class);
+	}
+	
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+
+}
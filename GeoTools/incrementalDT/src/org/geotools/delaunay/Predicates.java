@@ -0,0 +1,792 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import com.vividsolutions.jts.geom.Coordinate;
+
+/*****************************************************************************
+ * The class of geometric predicates orientation and incircle (by J. R.
+ * Shewchuk). The determinant is computed in double first, the exact
+ * computation is used only if the error of double can change its sign.
+ * The sign of returned value is always correct. The expansions of exact
+ * stages are computed in buffers of the calling thread.
+ */
+
+public strictfp class Predicates {
+	private static final double EPSILON = Math.ulp(1.0) / 2;
+	private static final double SPLITTER = 134217729.0; // 2^27 + 1
+	private static final double RESULT_ERRBOUND = (3.0 + 8.0 * EPSILON) * EPSILON;
+	private static final double CCW_ERRBOUND_A = (3.0 + 16.0 * EPSILON) * EPSILON;
+	private static final double CCW_ERRBOUND_B = (2.0 + 12.0 * EPSILON) * EPSILON;
+	private static final double CCW_ERRBOUND_C = (9.0 + 64.0 * EPSILON) * EPSILON * EPSILON;
+	private static final double ICC_ERRBOUND_A = (10.0 + 96.0 * EPSILON) * EPSILON;
+	private static final double ICC_ERRBOUND_B = (4.0 + 48.0 * EPSILON) * EPSILON;
+	private static final double ICC_ERRBOUND_C = (44.0 + 576.0 * EPSILON) * EPSILON * EPSILON;
+
+	private static final ThreadLocal BUFFERS = new ThreadLocal() {
+		protected Object initialValue() {
+			return new Buffers();
+		}
+	};
+
+	/***************************************************************************
+	 * The expansions used by adaptive stages, they are allocated once per
+	 * thread, the sizes are upper bounds of lengths of expansions
+	 */
+
+	private static final class Buffers {
+		// orient2d
+		final double[] b = new double[4];
+		final double[] c1 = new double[8];
+		final double[] c2 = new double[12];
+		final double[] d = new double[16];
+		// incircle
+		final double[] bc = new double[4];
+		final double[] ca = new double[4];
+		final double[] ab = new double[4];
+		final double[] aa = new double[4];
+		final double[] bb = new double[4];
+		final double[] cc = new double[4];
+		final double[] u = new double[4];
+		final double[] v = new double[4];
+		final double[] xBc = new double[8];
+		final double[] xxBc = new double[16];
+		final double[] yBc = new double[8];
+		final double[] yyBc = new double[16];
+		final double[] aDet = new double[32];
+		final double[] bDet = new double[32];
+		final double[] cDet = new double[32];
+		final double[] abDet = new double[64];
+		final double[] axtBc = new double[8];
+		final double[] aytBc = new double[8];
+		final double[] bxtCa = new double[8];
+		final double[] bytCa = new double[8];
+		final double[] cxtAb = new double[8];
+		final double[] cytAb = new double[8];
+		final double[] temp8 = new double[8];
+		final double[] temp16a = new double[16];
+		final double[] temp16b = new double[16];
+		final double[] temp16c = new double[16];
+		final double[] temp32a = new double[32];
+		final double[] temp32b = new double[32];
+		final double[] temp48 = new double[48];
+		final double[] temp64 = new double[64];
+		final double[] t = new double[8];
+		final double[] tt = new double[4];
+		final double[] xtT = new double[16];
+		final double[] xtTt = new double[8];
+		int ttLength;
+		int xtTLength;
+		double[] fin = new double[1152];
+		double[] finOther = new double[1152];
+
+		/***********************************************************************
+		 * The method adds expansion e to the result fin
+		 *
+		 * @return int - new number of components of fin
+		 */
+
+		int accumulate(int finLength, int eLength, double[] e) {
+			int length = expansionSum(finLength, fin, eLength, e, finOther);
+			double[] swap = fin;
+			fin = finOther;
+			finOther = swap;
+			return length;
+		}
+
+		/***********************************************************************
+		 * The method adds expansion (a + b) + c to the result fin
+		 *
+		 * @return int - new number of components of fin
+		 */
+
+		int accumulate(int finLength, int aLength, double[] a, int bLength,
+				double[] b, int cLength, double[] c) {
+			int length = expansionSum(aLength, a, bLength, b, temp32a);
+			length = expansionSum(cLength, c, length, temp32a, temp48);
+			return accumulate(finLength, length, temp48);
+		}
+	}
+
+	/***************************************************************************
+	 * The method for computing orientation of three points
+	 *
+	 * @param A - first point
+	 * @param B - second point
+	 * @param C - third point
+	 *
+	 * @return double - positive if A, B, C are counterclockwise, negative if
+	 *         clockwise and zero if they are on one line
+	 */
+
+	public static double orient2d(Coordinate A, Coordinate B, Coordinate C) {
+		return orient2d(A.x, A.y, B.x, B.y, C.x, C.y);
+	}
+
+	/***************************************************************************
+	 * The method for computing orientation of three points given by
+	 * coordinates
+	 *
+	 * @return double - positive if A, B, C are counterclockwise, negative if
+	 *         clockwise and zero if they are on one line
+	 */
+
+	public static double orient2d(double ax, double ay, double bx, double by,
+			double cx, double cy) {
+		double detLeft = (ax - cx) * (by - cy);
+		double detRight = (ay - cy) * (bx - cx);
+		double det = detLeft - detRight;
+		double detSum;
+		if (detLeft > 0) {
+			if (detRight <= 0)
+				return det;
+			detSum = detLeft + detRight;
+		} else if (detLeft < 0) {
+			if (detRight >= 0)
+				return det;
+			detSum = -detLeft - detRight;
+		} else
+			return det;
+		double errBound = CCW_ERRBOUND_A * detSum;
+		if (det >= errBound || -det >= errBound)
+			return det;
+		return orient2dAdapt(ax, ay, bx, by, cx, cy, detSum);
+	}
+
+	/***************************************************************************
+	 * The method for testing, if the point D is inside circle of triangle
+	 * A, B, C
+	 *
+	 * @param A - first vertex of triangle
+	 * @param B - second vertex of triangle
+	 * @param C - third vertex of triangle
+	 * @param D - tested point
+	 *
+	 * @return double - positive if D is inside circle and A, B, C are
+	 *         counterclockwise, zero if D is on the circle. The sign is
+	 *         reversed for clockwise triangle.
+	 */
+
+	public static double incircle(Coordinate A, Coordinate B, Coordinate C,
+			Coordinate D) {
+		double adx = A.x - D.x;
+		double bdx = B.x - D.x;
+		double cdx = C.x - D.x;
+		double ady = A.y - D.y;
+		double bdy = B.y - D.y;
+		double cdy = C.y - D.y;
+
+		double bdxcdy = bdx * cdy;
+		double cdxbdy = cdx * bdy;
+		double aLift = adx * adx + ady * ady;
+		double cdxady = cdx * ady;
+		double adxcdy = adx * cdy;
+		double bLift = bdx * bdx + bdy * bdy;
+		double adxbdy = adx * bdy;
+		double bdxady = bdx * ady;
+		double cLift = cdx * cdx + cdy * cdy;
+
+		double det = aLift * (bdxcdy - cdxbdy) + bLift * (cdxady - adxcdy)
+				+ cLift * (adxbdy - bdxady);
+		double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * aLift
+				+ (Math.abs(cdxady) + Math.abs(adxcdy)) * bLift
+				+ (Math.abs(adxbdy) + Math.abs(bdxady)) * cLift;
+		double errBound = ICC_ERRBOUND_A * permanent;
+		if (det > errBound || -det > errBound)
+			return det;
+		return incircleAdapt(A.x, A.y, B.x, B.y, C.x, C.y, D.x, D.y, permanent);
+	}
+
+	/***************************************************************************
+	 * The method for testing, if the point D is strictly inside circle of
+	 * triangle A, B, C (for both orientations of triangle)
+	 *
+	 * @return boolean - true if D is inside circle, false if D is on the
+	 *         circle or outside or if A, B, C are on one line
+	 */
+
+	public static boolean inCircle(Coordinate A, Coordinate B, Coordinate C,
+			Coordinate D) {
+		double orientation = orient2d(A, B, C);
+		if (orientation == 0)
+			return false;
+		double det = incircle(A, B, C, D);
+		return (orientation > 0) ? det > 0 : det < 0;
+	}
+
+	/***************************************************************************
+	 * The private method for more precise computing of orientation, it's
+	 * used only when the double result is near to zero
+	 */
+
+	private static double orient2dAdapt(double ax, double ay, double bx,
+			double by, double cx, double cy, double detSum) {
+		double acx = ax - cx;
+		double bcx = bx - cx;
+		double acy = ay - cy;
+		double bcy = by - cy;
+
+		double detLeft = acx * bcy;
+		double detLeftTail = twoProductTail(acx, bcy, detLeft);
+		double detRight = acy * bcx;
+		double detRightTail = twoProductTail(acy, bcx, detRight);
+		Buffers buffers = (Buffers) BUFFERS.get();
+		double[] b = buffers.b;
+		twoTwoDiff(detLeft, detLeftTail, detRight, detRightTail, b);
+
+		double det = b[0] + b[1] + b[2] + b[3];
+		double errBound = CCW_ERRBOUND_B * detSum;
+		if (det >= errBound || -det >= errBound)
+			return det;
+
+		double acxTail = twoDiffTail(ax, cx, acx);
+		double bcxTail = twoDiffTail(bx, cx, bcx);
+		double acyTail = twoDiffTail(ay, cy, acy);
+		double bcyTail = twoDiffTail(by, cy, bcy);
+		if (acxTail == 0 && acyTail == 0 && bcxTail == 0 && bcyTail == 0)
+			return det;
+
+		errBound = CCW_ERRBOUND_C * detSum + RESULT_ERRBOUND * Math.abs(det);
+		det += (acx * bcyTail + bcy * acxTail) - (acy * bcxTail + bcx * acyTail);
+		if (det >= errBound || -det >= errBound)
+			return det;
+
+		double[] u = buffers.u;
+		double[] c1 = buffers.c1;
+		double[] c2 = buffers.c2;
+		double[] d = buffers.d;
+		double s = acxTail * bcy;
+		double t = acyTail * bcx;
+		twoTwoDiff(s, twoProductTail(acxTail, bcy, s), t,
+				twoProductTail(acyTail, bcx, t), u);
+		int c1Length = expansionSum(4, b, 4, u, c1);
+
+		s = acx * bcyTail;
+		t = acy * bcxTail;
+		twoTwoDiff(s, twoProductTail(acx, bcyTail, s), t,
+				twoProductTail(acy, bcxTail, t), u);
+		int c2Length = expansionSum(c1Length, c1, 4, u, c2);
+
+		s = acxTail * bcyTail;
+		t = acyTail * bcxTail;
+		twoTwoDiff(s, twoProductTail(acxTail, bcyTail, s), t,
+				twoProductTail(acyTail, bcxTail, t), u);
+		int dLength = expansionSum(c2Length, c2, 4, u, d);
+
+		return d[dLength - 1];
+	}
+
+	/***************************************************************************
+	 * The private method for more precise computing of incircle determinant,
+	 * it's used only when the double result is near to zero. The stages are
+	 * incircleadapt of J. R. Shewchuk, the last one is exact.
+	 *
+	 * @param permanent - sum of absolute values of terms of determinant
+	 */
+
+	private static double incircleAdapt(double ax, double ay, double bx,
+			double by, double cx, double cy, double dx, double dy,
+			double permanent) {
+		Buffers w = (Buffers) BUFFERS.get();
+		double adx = ax - dx;
+		double bdx = bx - dx;
+		double cdx = cx - dx;
+		double ady = ay - dy;
+		double bdy = by - dy;
+		double cdy = cy - dy;
+
+		twoTwoProductDiff(bdx, cdy, cdx, bdy, w.bc);
+		int aLength = lift(w.bc, adx, ady, w, w.aDet);
+		twoTwoProductDiff(cdx, ady, adx, cdy, w.ca);
+		int bLength = lift(w.ca, bdx, bdy, w, w.bDet);
+		twoTwoProductDiff(adx, bdy, bdx, ady, w.ab);
+		int cLength = lift(w.ab, cdx, cdy, w, w.cDet);
+		int abLength = expansionSum(aLength, w.aDet, bLength, w.bDet, w.abDet);
+		int finLength = expansionSum(abLength, w.abDet, cLength, w.cDet, w.fin);
+
+		double det = estimate(finLength, w.fin);
+		double errBound = ICC_ERRBOUND_B * permanent;
+		if (det >= errBound || -det >= errBound)
+			return det;
+
+		double adxTail = twoDiffTail(ax, dx, adx);
+		double adyTail = twoDiffTail(ay, dy, ady);
+		double bdxTail = twoDiffTail(bx, dx, bdx);
+		double bdyTail = twoDiffTail(by, dy, bdy);
+		double cdxTail = twoDiffTail(cx, dx, cdx);
+		double cdyTail = twoDiffTail(cy, dy, cdy);
+		if (adxTail == 0 && bdxTail == 0 && cdxTail == 0 && adyTail == 0
+				&& bdyTail == 0 && cdyTail == 0)
+			return det;
+
+		errBound = ICC_ERRBOUND_C * permanent + RESULT_ERRBOUND * Math.abs(det);
+		det += ((adx * adx + ady * ady)
+				* ((bdx * cdyTail + cdy * bdxTail) - (bdy * cdxTail + cdx * bdyTail))
+				+ 2.0 * (adx * adxTail + ady * adyTail) * (bdx * cdy - bdy * cdx))
+				+ ((bdx * bdx + bdy * bdy)
+				* ((cdx * adyTail + ady * cdxTail) - (cdy * adxTail + adx * cdyTail))
+				+ 2.0 * (bdx * bdxTail + bdy * bdyTail) * (cdx * ady - cdy * adx))
+				+ ((cdx * cdx + cdy * cdy)
+				* ((adx * bdyTail + bdy * adxTail) - (ady * bdxTail + bdx * adyTail))
+				+ 2.0 * (cdx * cdxTail + cdy * cdyTail) * (adx * bdy - ady * bdx));
+		if (det >= errBound || -det >= errBound)
+			return det;
+
+		boolean aTail = adxTail != 0 || adyTail != 0;
+		boolean bTail = bdxTail != 0 || bdyTail != 0;
+		boolean cTail = cdxTail != 0 || cdyTail != 0;
+		if (bTail || cTail)
+			twoSquareSum(adx, ady, w.aa);
+		if (cTail || aTail)
+			twoSquareSum(bdx, bdy, w.bb);
+		if (aTail || bTail)
+			twoSquareSum(cdx, cdy, w.cc);
+
+		// products of tails with lifted minors
+		int axtBcLength = 0, aytBcLength = 0, bxtCaLength = 0;
+		int bytCaLength = 0, cxtAbLength = 0, cytAbLength = 0;
+		if (adxTail != 0) {
+			axtBcLength = scaleExpansion(4, w.bc, adxTail, w.axtBc);
+			finLength = tailTerm(finLength, w, w.axtBc, axtBcLength, 2.0 * adx,
+					w.cc, adxTail, bdy, w.bb, adxTail, -cdy);
+		}
+		if (adyTail != 0) {
+			aytBcLength = scaleExpansion(4, w.bc, adyTail, w.aytBc);
+			finLength = tailTerm(finLength, w, w.aytBc, aytBcLength, 2.0 * ady,
+					w.bb, adyTail, cdx, w.cc, adyTail, -bdx);
+		}
+		if (bdxTail != 0) {
+			bxtCaLength = scaleExpansion(4, w.ca, bdxTail, w.bxtCa);
+			finLength = tailTerm(finLength, w, w.bxtCa, bxtCaLength, 2.0 * bdx,
+					w.aa, bdxTail, cdy, w.cc, bdxTail, -ady);
+		}
+		if (bdyTail != 0) {
+			bytCaLength = scaleExpansion(4, w.ca, bdyTail, w.bytCa);
+			finLength = tailTerm(finLength, w, w.bytCa, bytCaLength, 2.0 * bdy,
+					w.cc, bdyTail, adx, w.aa, bdyTail, -cdx);
+		}
+		if (cdxTail != 0) {
+			cxtAbLength = scaleExpansion(4, w.ab, cdxTail, w.cxtAb);
+			finLength = tailTerm(finLength, w, w.cxtAb, cxtAbLength, 2.0 * cdx,
+					w.bb, cdxTail, ady, w.aa, cdxTail, -bdy);
+		}
+		if (cdyTail != 0) {
+			cytAbLength = scaleExpansion(4, w.ab, cdyTail, w.cytAb);
+			finLength = tailTerm(finLength, w, w.cytAb, cytAbLength, 2.0 * cdy,
+					w.aa, cdyTail, bdx, w.bb, cdyTail, -adx);
+		}
+
+		// products of tails with tails of minors
+		if (aTail) {
+			int tLength = minorTails(bdx, bdxTail, bdy, bdyTail, cdx, cdxTail,
+					cdy, cdyTail, bTail || cTail, w);
+			if (adxTail != 0) {
+				finLength = tailTailTerm(finLength, w, w.axtBc, axtBcLength,
+						tLength, adx, adxTail);
+				if (bdyTail != 0)
+					finLength = tailProductTerm(finLength, w, w.cc, adxTail, bdyTail);
+				if (cdyTail != 0)
+					finLength = tailProductTerm(finLength, w, w.bb, -adxTail, cdyTail);
+				finLength = tailTailRest(finLength, w, adx, adxTail);
+			}
+			if (adyTail != 0) {
+				finLength = tailTailTerm(finLength, w, w.aytBc, aytBcLength,
+						tLength, ady, adyTail);
+				finLength = tailTailRest(finLength, w, ady, adyTail);
+			}
+		}
+		if (bTail) {
+			int tLength = minorTails(cdx, cdxTail, cdy, cdyTail, adx, adxTail,
+					ady, adyTail, cTail || aTail, w);
+			if (bdxTail != 0) {
+				finLength = tailTailTerm(finLength, w, w.bxtCa, bxtCaLength,
+						tLength, bdx, bdxTail);
+				if (cdyTail != 0)
+					finLength = tailProductTerm(finLength, w, w.aa, bdxTail, cdyTail);
+				if (adyTail != 0)
+					finLength = tailProductTerm(finLength, w, w.cc, -bdxTail, adyTail);
+				finLength = tailTailRest(finLength, w, bdx, bdxTail);
+			}
+			if (bdyTail != 0) {
+				finLength = tailTailTerm(finLength, w, w.bytCa, bytCaLength,
+						tLength, bdy, bdyTail);
+				finLength = tailTailRest(finLength, w, bdy, bdyTail);
+			}
+		}
+		if (cTail) {
+			int tLength = minorTails(adx, adxTail, ady, adyTail, bdx, bdxTail,
+					bdy, bdyTail, aTail || bTail, w);
+			if (cdxTail != 0) {
+				finLength = tailTailTerm(finLength, w, w.cxtAb, cxtAbLength,
+						tLength, cdx, cdxTail);
+				if (adyTail != 0)
+					finLength = tailProductTerm(finLength, w, w.bb, cdxTail, adyTail);
+				if (bdyTail != 0)
+					finLength = tailProductTerm(finLength, w, w.aa, -cdxTail, bdyTail);
+				finLength = tailTailRest(finLength, w, cdx, cdxTail);
+			}
+			if (cdyTail != 0) {
+				finLength = tailTailTerm(finLength, w, w.cytAb, cytAbLength,
+						tLength, cdy, cdyTail);
+				finLength = tailTailRest(finLength, w, cdy, cdyTail);
+			}
+		}
+		return w.fin[finLength - 1];
+	}
+
+	/***************************************************************************
+	 * The private method for computing lifted minor (x * x + y * y) * minor
+	 * of incircle determinant
+	 *
+	 * @param minor - expansion of four components
+	 * @return int - number of components of h
+	 */
+
+	private static int lift(double[] minor, double x, double y, Buffers w,
+			double[] h) {
+		int xLength = scaleExpansion(4, minor, x, w.xBc);
+		int xxLength = scaleExpansion(xLength, w.xBc, x, w.xxBc);
+		int yLength = scaleExpansion(4, minor, y, w.yBc);
+		int yyLength = scaleExpansion(yLength, w.yBc, y, w.yyBc);
+		return expansionSum(xxLength, w.xxBc, yyLength, w.yyBc, h);
+	}
+
+	/***************************************************************************
+	 * The private method for adding first order term of one coordinate tail
+	 * d, it adds tMinor * 2 * coordinate + square1 * d * factor1 + square2 *
+	 * d * factor2, where tMinor is minor multiplied by d
+	 *
+	 * @return int - new number of components of fin
+	 */
+
+	private static int tailTerm(int finLength, Buffers w, double[] tMinor,
+			int tMinorLength, double twice, double[] square1, double d,
+			double factor1, double[] square2, double d2, double factor2) {
+		int aLength = scaleExpansion(tMinorLength, tMinor, twice, w.temp16a);
+		int length = scaleExpansion(4, square1, d, w.temp8);
+		int bLength = scaleExpansion(length, w.temp8, factor1, w.temp16b);
+		length = scaleExpansion(4, square2, d2, w.temp8);
+		int cLength = scaleExpansion(length, w.temp8, factor2, w.temp16c);
+		return w.accumulate(finLength, aLength, w.temp16a, bLength, w.temp16b,
+				cLength, w.temp16c);
+	}
+
+	/***************************************************************************
+	 * The private method for computing tails of minor u * v' - v * u' into
+	 * w.t (first order) and w.tt (second order)
+	 *
+	 * @param tails - false if the minor has no tails, then both are zero
+	 * @return int - number of components of w.t, w.tt has four components
+	 *         or one zero component
+	 */
+
+	private static int minorTails(double ux, double uxTail, double uy,
+			double uyTail, double vx, double vxTail, double vy, double vyTail,
+			boolean tails, Buffers w) {
+		if (!tails) {
+			w.t[0] = 0;
+			w.tt[0] = 0;
+			w.ttLength = 1;
+			return 1;
+		}
+		twoTwoProductSum(uxTail, vy, ux, vyTail, w.u);
+		twoTwoProductSum(vxTail, -uy, vx, -uyTail, w.v);
+		twoTwoProductDiff(uxTail, vyTail, vxTail, uyTail, w.tt);
+		w.ttLength = 4;
+		return expansionSum(4, w.u, 4, w.v, w.t);
+	}
+
+	/***************************************************************************
+	 * The private method for adding terms of coordinate tail d with first
+	 * order tail of minor: tMinor * d + t * d * 2 * coordinate
+	 *
+	 * @return int - new number of components of fin
+	 */
+
+	private static int tailTailTerm(int finLength, Buffers w, double[] tMinor,
+			int tMinorLength, int tLength, double coordinate, double d) {
+		int aLength = scaleExpansion(tMinorLength, tMinor, d, w.temp16a);
+		w.xtTLength = scaleExpansion(tLength, w.t, d, w.xtT);
+		int bLength = scaleExpansion(w.xtTLength, w.xtT, 2.0 * coordinate,
+				w.temp32b);
+		int length = expansionSum(aLength, w.temp16a, bLength, w.temp32b,
+				w.temp48);
+		return w.accumulate(finLength, length, w.temp48);
+	}
+
+	/***************************************************************************
+	 * The private method for adding term square * d1 * d2
+	 *
+	 * @return int - new number of components of fin
+	 */
+
+	private static int tailProductTerm(int finLength, Buffers w,
+			double[] square, double d1, double d2) {
+		int length = scaleExpansion(4, square, d1, w.temp8);
+		length = scaleExpansion(length, w.temp8, d2, w.temp16a);
+		return w.accumulate(finLength, length, w.temp16a);
+	}
+
+	/***************************************************************************
+	 * The private method for adding terms of coordinate tail d with higher
+	 * order tails of minor, it uses w.xtT computed by tailTailTerm
+	 *
+	 * @return int - new number of components of fin
+	 */
+
+	private static int tailTailRest(int finLength, Buffers w,
+			double coordinate, double d) {
+		int aLength = scaleExpansion(w.xtTLength, w.xtT, d, w.temp32a);
+		int length = scaleExpansion(w.ttLength, w.tt, d, w.xtTt);
+		int bLength = scaleExpansion(length, w.xtTt, 2.0 * coordinate,
+				w.temp16a);
+		int cLength = scaleExpansion(length, w.xtTt, d, w.temp16b);
+		length = expansionSum(bLength, w.temp16a, cLength, w.temp16b, w.temp32b);
+		length = expansionSum(aLength, w.temp32a, length, w.temp32b, w.temp64);
+		return w.accumulate(finLength, length, w.temp64);
+	}
+
+	/***************************************************************************
+	 * The private method for computing the rounding error of product a * b
+	 *
+	 * @param x - rounded product a * b
+	 */
+
+	private static double twoProductTail(double a, double b, double x) {
+		double c = SPLITTER * a;
+		double aHi = c - (c - a);
+		double aLo = a - aHi;
+		c = SPLITTER * b;
+		double bHi = c - (c - b);
+		double bLo = b - bHi;
+		double err1 = x - (aHi * bHi);
+		double err2 = err1 - (aLo * bHi);
+		double err3 = err2 - (aHi * bLo);
+		return (aLo * bLo) - err3;
+	}
+
+	/***************************************************************************
+	 * The private method for computing the rounding error of sum a + b
+	 *
+	 * @param x - rounded sum a + b
+	 */
+
+	private static double twoSumTail(double a, double b, double x) {
+		double bVirt = x - a;
+		double aVirt = x - bVirt;
+		return (a - aVirt) + (b - bVirt);
+	}
+
+	/***************************************************************************
+	 * The private method for computing the rounding error of difference a - b
+	 *
+	 * @param x - rounded difference a - b
+	 */
+
+	private static double twoDiffTail(double a, double b, double x) {
+		double bVirt = a - x;
+		double aVirt = x + bVirt;
+		return (a - aVirt) + (bVirt - b);
+	}
+
+	/***************************************************************************
+	 * The private method for computing expansion (a1 + a0) - (b1 + b0), the
+	 * result is saved into x from the smallest component
+	 */
+
+	private static void twoTwoDiff(double a1, double a0, double b1, double b0,
+			double[] x) {
+		// (a1 + a0) - b0
+		double i = a0 - b0;
+		x[0] = twoDiffTail(a0, b0, i);
+		double j = a1 + i;
+		double zero = twoSumTail(a1, i, j);
+		// (j + zero) - b1
+		i = zero - b1;
+		x[1] = twoDiffTail(zero, b1, i);
+		x[3] = j + i;
+		x[2] = twoSumTail(j, i, x[3]);
+	}
+
+	/***************************************************************************
+	 * The private method for computing expansion (a1 + a0) + (b1 + b0), the
+	 * result is saved into x from the smallest component
+	 */
+
+	private static void twoTwoSum(double a1, double a0, double b1, double b0,
+			double[] x) {
+		// (a1 + a0) + b0
+		double i = a0 + b0;
+		x[0] = twoSumTail(a0, b0, i);
+		double j = a1 + i;
+		double zero = twoSumTail(a1, i, j);
+		// (j + zero) + b1
+		i = zero + b1;
+		x[1] = twoSumTail(zero, b1, i);
+		x[3] = j + i;
+		x[2] = twoSumTail(j, i, x[3]);
+	}
+
+	/***************************************************************************
+	 * The private method for computing exact a * b - c * d into x
+	 */
+
+	private static void twoTwoProductDiff(double a, double b, double c,
+			double d, double[] x) {
+		double s = a * b;
+		double t = c * d;
+		twoTwoDiff(s, twoProductTail(a, b, s), t, twoProductTail(c, d, t), x);
+	}
+
+	/***************************************************************************
+	 * The private method for computing exact a * b + c * d into x
+	 */
+
+	private static void twoTwoProductSum(double a, double b, double c,
+			double d, double[] x) {
+		double s = a * b;
+		double t = c * d;
+		twoTwoSum(s, twoProductTail(a, b, s), t, twoProductTail(c, d, t), x);
+	}
+
+	/***************************************************************************
+	 * The private method for computing exact x * x + y * y into h
+	 */
+
+	private static void twoSquareSum(double x, double y, double[] h) {
+		twoTwoProductSum(x, x, y, y, h);
+	}
+
+	/***************************************************************************
+	 * The private method for multiplying expansion by double, zero
+	 * components are removed from the result
+	 *
+	 * @return int - number of components of h
+	 */
+
+	private static int scaleExpansion(int eLength, double[] e, double b,
+			double[] h) {
+		double q = e[0] * b;
+		double hh = twoProductTail(e[0], b, q);
+		int hIndex = 0;
+		if (hh != 0)
+			h[hIndex++] = hh;
+		for (int i = 1; i < eLength; i++) {
+			double product1 = e[i] * b;
+			double product0 = twoProductTail(e[i], b, product1);
+			double sum = q + product0;
+			hh = twoSumTail(q, product0, sum);
+			if (hh != 0)
+				h[hIndex++] = hh;
+			q = product1 + sum;
+			hh = sum - (q - product1);
+			if (hh != 0)
+				h[hIndex++] = hh;
+		}
+		if (q != 0 || hIndex == 0)
+			h[hIndex++] = q;
+		return hIndex;
+	}
+
+	/***************************************************************************
+	 * The private method for approximation of expansion by one double
+	 */
+
+	private static double estimate(int eLength, double[] e) {
+		double q = e[0];
+		for (int i = 1; i < eLength; i++)
+			q += e[i];
+		return q;
+	}
+
+	/***************************************************************************
+	 * The private method for summing two expansions, zero components are
+	 * removed from the result
+	 *
+	 * @return int - number of components of h
+	 */
+
+	private static int expansionSum(int eLength, double[] e, int fLength,
+			double[] f, double[] h) {
+		int eIndex = 0;
+		int fIndex = 0;
+		int hIndex = 0;
+		double eNow = e[0];
+		double fNow = f[0];
+		double q, qNew, hh;
+		if ((fNow > eNow) == (fNow > -eNow)) {
+			q = eNow;
+			eNow = (++eIndex < eLength) ? e[eIndex] : 0;
+		} else {
+			q = fNow;
+			fNow = (++fIndex < fLength) ? f[fIndex] : 0;
+		}
+		if (eIndex < eLength && fIndex < fLength) {
+			if ((fNow > eNow) == (fNow > -eNow)) {
+				qNew = eNow + q;
+				hh = q - (qNew - eNow);
+				eNow = (++eIndex < eLength) ? e[eIndex] : 0;
+			} else {
+				qNew = fNow + q;
+				hh = q - (qNew - fNow);
+				fNow = (++fIndex < fLength) ? f[fIndex] : 0;
+			}
+			q = qNew;
+			if (hh != 0)
+				h[hIndex++] = hh;
+			while (eIndex < eLength && fIndex < fLength) {
+				if ((fNow > eNow) == (fNow > -eNow)) {
+					qNew = q + eNow;
+					hh = twoSumTail(q, eNow, qNew);
+					eNow = (++eIndex < eLength) ? e[eIndex] : 0;
+				} else {
+					qNew = q + fNow;
+					hh = twoSumTail(q, fNow, qNew);
+					fNow = (++fIndex < fLength) ? f[fIndex] : 0;
+				}
+				q = qNew;
+				if (hh != 0)
+					h[hIndex++] = hh;
+			}
+		}
+		while (eIndex < eLength) {
+			qNew = q + eNow;
+			hh = twoSumTail(q, eNow, qNew);
+			eNow = (++eIndex < eLength) ? e[eIndex] : 0;
+			q = qNew;
+			if (hh != 0)
+				h[hIndex++] = hh;
+		}
+		while (fIndex < fLength) {
+			qNew = q + fNow;
+			hh = twoSumTail(q, fNow, qNew);
+			fNow = (++fIndex < fLength) ? f[fIndex] : 0;
+			q = qNew;
+			if (hh != 0)
+				h[hIndex++] = hh;
+		}
+		if (q != 0 || hIndex == 0)
+			h[hIndex++] = q;
+		return hIndex;
+	}
+
+}
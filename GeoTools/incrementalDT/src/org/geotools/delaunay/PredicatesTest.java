@@ -0,0 +1,235 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import junit.framework.*;
+import java.math.BigDecimal;
+import java.util.Random;
+
+public class PredicatesTest extends TestCase {
+	private static final int ROUNDS = 20000;
+	Random random;
+
+	public PredicatesTest(String name){
+		super(name);
+	}
+
+	protected void setUp(){
+		random = new Random(3);
+	}
+
+	/****************************************************************
+	 * The exact sign of orientation computed by BigDecimal
+	 */
+	static int orient2dExact(Coordinate A, Coordinate B, Coordinate C){
+		BigDecimal acx = new BigDecimal(A.x).subtract(new BigDecimal(C.x));
+		BigDecimal acy = new BigDecimal(A.y).subtract(new BigDecimal(C.y));
+		BigDecimal bcx = new BigDecimal(B.x).subtract(new BigDecimal(C.x));
+		BigDecimal bcy = new BigDecimal(B.y).subtract(new BigDecimal(C.y));
+		return acx.multiply(bcy).subtract(acy.multiply(bcx)).signum();
+	}
+
+	/****************************************************************
+	 * The exact sign of incircle determinant computed by BigDecimal
+	 */
+	static int incircleExact(Coordinate A, Coordinate B, Coordinate C, Coordinate D){
+		BigDecimal dx = new BigDecimal(D.x);
+		BigDecimal dy = new BigDecimal(D.y);
+		BigDecimal adx = new BigDecimal(A.x).subtract(dx);
+		BigDecimal ady = new BigDecimal(A.y).subtract(dy);
+		BigDecimal bdx = new BigDecimal(B.x).subtract(dx);
+		BigDecimal bdy = new BigDecimal(B.y).subtract(dy);
+		BigDecimal cdx = new BigDecimal(C.x).subtract(dx);
+		BigDecimal cdy = new BigDecimal(C.y).subtract(dy);
+		BigDecimal aLift = adx.multiply(adx).add(ady.multiply(ady));
+		BigDecimal bLift = bdx.multiply(bdx).add(bdy.multiply(bdy));
+		BigDecimal cLift = cdx.multiply(cdx).add(cdy.multiply(cdy));
+		return aLift.multiply(bdx.multiply(cdy).subtract(cdx.multiply(bdy)))
+				.add(bLift.multiply(cdx.multiply(ady).subtract(adx.multiply(cdy))))
+				.add(cLift.multiply(adx.multiply(bdy).subtract(bdx.multiply(ady)))).signum();
+	}
+
+	static int sign(double value){
+		return (value > 0) ? 1 : (value < 0) ? -1 : 0;
+	}
+
+	/****************************************************************
+	 * The coordinate of random magnitude, so differences of coordinates
+	 * are often rounded
+	 */
+	double coordinate(){
+		return (random.nextDouble() - 0.5) * Math.pow(2, random.nextInt(60) - 20);
+	}
+
+	/****************************************************************
+	 * The test of exactly degenerate cases, which have to be zero
+	 */
+	public void testDegenerate(){
+		Coordinate A = new Coordinate(0, 0);
+		Coordinate B = new Coordinate(1, 1);
+		Coordinate C = new Coordinate(1e15, 1e15);
+		assertEquals(Predicates.orient2d(A, B, C), 0.0, 0.0);
+		assertEquals(Predicates.orient2d(B, C, new Coordinate(-0.5, -0.5)), 0.0, 0.0);
+		// points of circle x^2 + y^2 = 25 moved far from origin
+		double[][] circle = {{5, 0}, {0, 5}, {-5, 0}, {3, 4}, {4, -3}, {-3, -4}};
+		double[] offsets = {0, 0.125, 1e6, 1e12 + 0.5, -3.75e9};
+		for (int k = 0; k < offsets.length; k++){
+			Coordinate[] P = new Coordinate[circle.length];
+			for (int i = 0; i < circle.length; i++)
+				P[i] = new Coordinate(circle[i][0] + offsets[k], circle[i][1] - offsets[k]);
+			for (int i = 3; i < P.length; i++){
+				assertEquals(Predicates.incircle(P[0], P[1], P[2], P[i]), 0.0, 0.0);
+				assertFalse(Predicates.inCircle(P[0], P[1], P[2], P[i]));
+				assertFalse(Predicates.inCircle(P[2], P[1], P[0], P[i]));
+			}
+		}
+		// collinear triangle has no circle
+		assertFalse(Predicates.inCircle(A, B, C, new Coordinate(0.5, 0.7)));
+	}
+
+	/****************************************************************
+	 * The test of orientation of points near to line, the sign has to be
+	 * same as the exact one
+	 */
+	public void testOrientNearDegenerate(){
+		for (int i = 0; i < ROUNDS; i++){
+			Coordinate A = new Coordinate(coordinate(), coordinate());
+			Coordinate B = new Coordinate(coordinate(), coordinate());
+			double t = random.nextDouble();
+			double x = A.x + t * (B.x - A.x);
+			double y = A.y + t * (B.y - A.y);
+			for (int k = random.nextInt(3); k > 0; k--){
+				x = (random.nextBoolean()) ? Math.nextUp(x) : Math.nextDown(x);
+				y = (random.nextBoolean()) ? Math.nextUp(y) : Math.nextDown(y);
+			}
+			Coordinate C = new Coordinate(x, y);
+			assertEquals(sign(Predicates.orient2d(A, B, C)), orient2dExact(A, B, C));
+			assertEquals(sign(Predicates.orient2d(C, A, B)), orient2dExact(C, A, B));
+		}
+	}
+
+	/****************************************************************
+	 * The test of points near to circle of triangle, the sign has to be
+	 * same as the exact one
+	 */
+	public void testIncircleNearDegenerate(){
+		int tested = 0;
+		for (int i = 0; i < ROUNDS; i++){
+			double cx = coordinate();
+			double cy = coordinate();
+			double r = Math.abs(coordinate());
+			Coordinate[] P = new Coordinate[4];
+			for (int j = 0; j < 4; j++){
+				double angle = random.nextDouble() * 2 * Math.PI;
+				double x = cx + r * Math.cos(angle);
+				double y = cy + r * Math.sin(angle);
+				for (int k = random.nextInt(3); k > 0; k--){
+					x = (random.nextBoolean()) ? Math.nextUp(x) : Math.nextDown(x);
+					y = (random.nextBoolean()) ? Math.nextUp(y) : Math.nextDown(y);
+				}
+				P[j] = new Coordinate(x, y);
+			}
+			if (orient2dExact(P[0], P[1], P[2]) == 0)
+				continue;
+			tested++;
+			assertEquals(sign(Predicates.incircle(P[0], P[1], P[2], P[3])), incircleExact(P[0], P[1], P[2], P[3]));
+			assertEquals(sign(Predicates.incircle(P[3], P[2], P[1], P[0])), incircleExact(P[3], P[2], P[1], P[0]));
+		}
+		assertTrue(tested > ROUNDS / 2);
+	}
+
+	/****************************************************************
+	 * The test of points of integer circle moved by rounded offsets, the
+	 * differences of coordinates aren't exact and all stages are used
+	 */
+	public void testIncircleRoundedOffsets(){
+		double[][] circle = {{65, 0}, {0, 65}, {-63, 16}, {33, -56}, {-25, -60}, {52, 39}};
+		for (int i = 0; i < ROUNDS / 10; i++){
+			double ox = coordinate();
+			double oy = coordinate();
+			Coordinate[] P = new Coordinate[circle.length];
+			for (int j = 0; j < circle.length; j++)
+				P[j] = new Coordinate(circle[j][0] + ox, circle[j][1] + oy);
+			if (orient2dExact(P[0], P[1], P[2]) == 0)
+				continue;
+			for (int j = 3; j < P.length; j++)
+				assertEquals(sign(Predicates.incircle(P[0], P[1], P[2], P[j])), incircleExact(P[0], P[1], P[2], P[j]));
+		}
+	}
+
+	/****************************************************************
+	 * The test of small point near to huge circle passing by origin, the
+	 * differences of coordinates aren't exact and the sign is decided by
+	 * their tails. The small point is used in all positions.
+	 */
+	public void testIncircleTails(){
+		for (int i = 0; i < ROUNDS / 4; i++){
+			double c = Math.pow(2, 20 + random.nextInt(30));
+			double x = random.nextDouble() * Math.pow(2, -random.nextInt(20));
+			double y = Math.sqrt(2 * c * x - x * x);
+			for (int k = random.nextInt(3); k > 0; k--)
+				y = (random.nextBoolean()) ? Math.nextUp(y) : Math.nextDown(y);
+			if (random.nextBoolean())
+				y = -y;
+			Coordinate[] P = {new Coordinate(2 * c, 0), new Coordinate(c, c),
+					new Coordinate(c, -c), new Coordinate(x, y)};
+			if (random.nextBoolean()){
+				// the circle passing by origin in direction of y axis
+				for (int j = 0; j < P.length; j++)
+					P[j] = new Coordinate(P[j].y, P[j].x);
+			}
+			for (int j = 0; j < 4; j++){
+				Coordinate A = P[j], B = P[(j + 1) % 4], C = P[(j + 2) % 4], D = P[(j + 3) % 4];
+				assertEquals(sign(Predicates.incircle(A, B, C, D)), incircleExact(A, B, C, D));
+			}
+		}
+	}
+
+	/****************************************************************
+	 * The test of predicates called from more threads at once, each
+	 * thread has own buffers
+	 */
+	public void testThreads() throws Exception{
+		final Throwable[] failure = new Throwable[1];
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++){
+			final long seed = t;
+			threads[t] = new Thread(){
+				public void run(){
+					try{
+						PredicatesTest test = new PredicatesTest("testIncircleRoundedOffsets");
+						test.random = new Random(seed);
+						test.testIncircleRoundedOffsets();
+					}catch (Throwable e){
+						failure[0] = e;
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length; t++)
+			threads[t].join();
+		if (failure[0] != null)
+			fail(failure[0].toString());
+	}
+}
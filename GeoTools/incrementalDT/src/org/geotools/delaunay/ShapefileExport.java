@@ -0,0 +1,206 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.Transaction;
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.feature.AttributeType;
+import org.geotools.feature.AttributeTypeFactory;
+import org.geotools.feature.Feature;
+import org.geotools.feature.FeatureType;
+import org.geotools.feature.FeatureTypeFactory;
+import org.geotools.referencing.CRS;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+
+/*****************************************************************************
+ * The writer of triangles and lines into shapefile. Every feature has
+ * geometry and one attribute. Geometries are created directly from
+ * coordinates by one GeometryFactory and features are appended into file
+ * one by one, so they aren't kept in memory.
+ */
+
+public class ShapefileExport {
+	private GeometryFactory factory = new GeometryFactory();
+	private FeatureWriter writer;
+
+	/*****************************************************************
+	 * Constructor - the shapefile is created
+	 * @param fileName - path plus name of file
+	 * @param typeName - name of type of features
+	 * @param geometryClass - class of geometry, for example LinearRing
+	 * @param attributeName - name of attribute
+	 * @param attributeClass - class of attribute
+	 * @param EPSG - EPSG code (for example EPSG:2065), can be empty
+	 * @throws IOException
+	 */
+	public ShapefileExport(String fileName, String typeName,
+			Class geometryClass, String attributeName, Class attributeClass,
+			String EPSG) throws IOException {
+		try {
+			AttributeType geom;
+			if (EPSG == null || EPSG.length() == 0)
+				geom = AttributeTypeFactory.newAttributeType("the_geom",
+						geometryClass);
+			else
+				geom = AttributeTypeFactory.newAttributeType("the_geom",
+						geometryClass, true, 0, null, CRS.decode(EPSG));
+			AttributeType attribute = AttributeTypeFactory.newAttributeType(
+					attributeName, attributeClass);
+			FeatureType type = FeatureTypeFactory.newFeatureType(
+					new AttributeType[] { geom, attribute }, typeName);
+			ShapefileDataStore datastore = new ShapefileDataStore(new File(
+					fileName).toURI().toURL());
+			datastore.createSchema(type);
+			writer = datastore.getFeatureWriterAppend(typeName,
+					Transaction.AUTO_COMMIT);
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw exception(e);
+		}
+	}
+
+	/*****************************************************************
+	 * The method for getting factory, which creates geometries
+	 * @return factory of geometries
+	 */
+	public GeometryFactory getGeometryFactory() {
+		return factory;
+	}
+
+	/*****************************************************************
+	 * The method for writing triangle as LinearRing
+	 * @param T - triangle
+	 * @param attribute - value of attribute
+	 * @throws IOException
+	 */
+	public void writeTriangle(TriangleDT T, Object attribute)
+			throws IOException {
+		write(createRing(factory, T), attribute);
+	}
+
+	/*****************************************************************
+	 * The method for writing line between two points as LineString
+	 * @param A - first point
+	 * @param B - second point
+	 * @param attribute - value of attribute
+	 * @throws IOException
+	 */
+	public void writeLine(PointDT A, PointDT B, Object attribute)
+			throws IOException {
+		write(createLine(factory, A, B), attribute);
+	}
+
+	/*****************************************************************
+	 * The method for writing feature
+	 * @param geometry - geometry of feature
+	 * @param attribute - value of attribute
+	 * @throws IOException
+	 */
+	public void write(Geometry geometry, Object attribute) throws IOException {
+		Feature feature = writer.next();
+		try {
+			feature.setAttribute(0, geometry);
+			feature.setAttribute(1, attribute);
+		} catch (Exception e) {
+			throw exception(e);
+		}
+		writer.write();
+	}
+
+	/*****************************************************************
+	 * The method for closing of file
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		writer.close();
+	}
+
+	/*****************************************************************
+	 * The method for creating LinearRing of triangle
+	 * @param factory - factory of geometries
+	 * @param T - triangle
+	 * @return ring A, B, C, A
+	 */
+	public static LinearRing createRing(GeometryFactory factory, TriangleDT T) {
+		return factory.createLinearRing(new Coordinate[] {
+				new Coordinate(T.A.x, T.A.y), new Coordinate(T.B.x, T.B.y),
+				new Coordinate(T.C.x, T.C.y), new Coordinate(T.A.x, T.A.y) });
+	}
+
+	/*****************************************************************
+	 * The method for creating LineString between two points
+	 * @param factory - factory of geometries
+	 * @param A - first point
+	 * @param B - second point
+	 * @return line A, B
+	 */
+	public static LineString createLine(GeometryFactory factory, PointDT A,
+			PointDT B) {
+		return factory.createLineString(new Coordinate[] {
+				new Coordinate(A.x, A.y), new Coordinate(B.x, B.y) });
+	}
+
+	/*****************************************************************
+	 * The method for writing all triangles of data store into shapefile,
+	 * attribute index is index of triangle in data store
+	 * @param triangles - data store with triangles
+	 * @param path - path
+	 * @param file - name of file
+	 * @param EPSG - EPSG code (for example EPSG:2065), can be empty
+	 * @throws IOException
+	 */
+	public static void createShapefile(DelaunayDataStore triangles,
+			String path, String file, String EPSG) throws IOException {
+		ShapefileExport export = new ShapefileExport(path + file, "Triangle",
+				LinearRing.class, "index", Integer.class, EPSG);
+		try {
+			int number = triangles.getNumberOfTriangles();
+			for (int i = 0; i < number; i++) {
+				TriangleDT T = triangles.getTriangle(i);
+				if (T != null)
+					export.writeTriangle(T, Integer.valueOf(i));
+			}
+		} finally {
+			export.close();
+		}
+	}
+
+	/*****************************************************************
+	 * The private method for converting exception of GeoTools
+	 */
+	private static IOException exception(Exception e) {
+		IOException io = new IOException(e.getMessage());
+		io.initCause(e);
+		return io;
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.vividsolutions.jts.geom.Coordinate;
+
+/*****************************************************************************
+ * The class for sorting points before inserting into triangulation. Points
+ * are sorted by biased randomized insertion order (BRIO) - points are
+ * shuffled and divided into rounds, every round is twice bigger than previous
+ * one. Points in each round are sorted along Hilbert curve, so the next point
+ * is near to the last inserted point.
+ */
+
+public class SpatialSort {
+	// number of cells of grid for Hilbert curve in one axis (2^15)
+	private static final int ORDER = 1 << 15;
+	// rounds with less points are sorted at once
+	private static final int MIN_ROUND = 64;
+
+	/***************************************************************************
+	 * The method for sorting of points by BRIO with Hilbert curve
+	 *
+	 * @param points - array of points, which will be sorted
+	 * @param random - random generator for shuffling of points
+	 */
+
+	public static void brio(Coordinate[] points, Random random) {
+		for (int i = points.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			Coordinate P = points[i];
+			points[i] = points[j];
+			points[j] = P;
+		}
+		int end = points.length;
+		while (end > MIN_ROUND) {
+			int begin = end / 2;
+			hilbertSort(points, begin, end);
+			end = begin;
+		}
+		hilbertSort(points, 0, end);
+	}
+
+	/***************************************************************************
+	 * The method for sorting of points along Hilbert curve
+	 *
+	 * @param points - array of points
+	 * @param begin - index of first sorted point
+	 * @param end - index after last sorted point
+	 */
+
+	public static void hilbertSort(Coordinate[] points, int begin, int end) {
+		if (end - begin < 2)
+			return;
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = begin; i < end; i++) {
+			minX = Math.min(minX, points[i].x);
+			minY = Math.min(minY, points[i].y);
+			maxX = Math.max(maxX, points[i].x);
+			maxY = Math.max(maxY, points[i].y);
+		}
+		double size = Math.max(maxX - minX, maxY - minY);
+		double scale = (size > 0) ? (ORDER - 1) / size : 0;
+		// index on Hilbert curve in high bits, position of point in low bits
+		long[] keys = new long[end - begin];
+		for (int i = begin; i < end; i++) {
+			int x = (int) ((points[i].x - minX) * scale);
+			int y = (int) ((points[i].y - minY) * scale);
+			keys[i - begin] = ((long) hilbertIndex(x, y) << 32) | (i - begin);
+		}
+		Arrays.sort(keys);
+		Coordinate[] sorted = new Coordinate[end - begin];
+		for (int i = 0; i < keys.length; i++)
+			sorted[i] = points[begin + (int) keys[i]];
+		System.arraycopy(sorted, 0, points, begin, sorted.length);
+	}
+
+	/***************************************************************************
+	 * The private method for computing index of cell on Hilbert curve
+	 *
+	 * @param x - column of cell
+	 * @param y - row of cell
+	 *
+	 * @return index of cell on Hilbert curve
+	 */
+
+	private static int hilbertIndex(int x, int y) {
+		int d = 0;
+		for (int s = ORDER / 2; s > 0; s /= 2) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			d += s * s * ((3 * rx) ^ ry);
+			// rotation of quadrant
+			if (ry == 0) {
+				if (rx == 1) {
+					x = ORDER - 1 - x;
+					y = ORDER - 1 - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+
+}
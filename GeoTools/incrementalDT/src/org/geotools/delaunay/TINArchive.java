@@ -0,0 +1,435 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/*****************************************************************************
+ * The compressed archive format of TIN. Coordinates are quantized to fixed
+ * precision and only differences of neighbouring vertexes are saved,
+ * neighbours of triangles aren't saved, they are found again by reading.
+ * The file contains:
+ * 
+ * header    - magic "TINA", version, flags, number of vertexes, number of
+ *             triangles, length of CRS (ints), precision of x, y and
+ *             precision of z, origin minX, minY, minZ (doubles), CRS as
+ *             UTF-8 string, numbers are big endian
+ * body      - compressed by Deflater, numbers are varints (7 bits in byte,
+ *             the highest bit is set if next byte follows)
+ * vertexes  - differences of quantized x, y, z from previous vertex
+ *             (zigzag varints)
+ * triangles - ids of vertexes A, B, C of every triangle, they are saved as
+ *             number of already used vertexes minus id, so new vertex is 0
+ *             and vertexes of near triangles are small numbers
+ * breaklines- bit for every triangle, only if flag BREAK_LINES is set
+ * 
+ * Triangles and vertexes are in the same order as in TINFile, so the
+ * vertexes of consecutive triangles are near and their differences are
+ * small. The coordinate x is saved as round((x - minX) / precision).
+ */
+
+public class TINArchive {
+	public static final int MAGIC = 0x54494E41;
+	public static final int VERSION = 1;
+	// flag of file with break lines
+	public static final int BREAK_LINES = 1;
+	// default precision of coordinates - 1 mm
+	public static final double PRECISION = 0.001;
+
+	/*****************************************************************
+	 * The method for writing triangles of data store into archive with
+	 * default precision of coordinates
+	 * @param triangles - data store with triangles
+	 * @param fileName - name of new file
+	 * @param CRS - coordinate reference system (for example EPSG:2065),
+	 *            can be empty
+	 * @throws IOException
+	 */
+	public static void write(DelaunayDataStore triangles, String fileName,
+			String CRS) throws IOException {
+		write(triangles, fileName, CRS, PRECISION, PRECISION);
+	}
+
+	/*****************************************************************
+	 * The method for writing triangles of data store into archive
+	 * @param triangles - data store with triangles
+	 * @param fileName - name of new file
+	 * @param CRS - coordinate reference system (for example EPSG:2065),
+	 *            can be empty
+	 * @param precisionXY - precision of x and y coordinates
+	 * @param precisionZ - precision of z coordinates
+	 * @throws IOException
+	 * @throws IllegalArgumentException if the precision is so low, that
+	 *             some triangle would be degenerated or flipped
+	 */
+	public static void write(DelaunayDataStore triangles, String fileName,
+			String CRS, double precisionXY, double precisionZ)
+			throws IOException {
+		if (!(precisionXY > 0 && precisionZ > 0))
+			throw new IllegalArgumentException("Precision has to be positive");
+		TINFile.Layout layout = new TINFile.Layout(triangles);
+		VertexTable table = layout.table;
+		int numberOfVertexes = layout.numberOfVertexes;
+		int numberOfTriangles = layout.numberOfTriangles;
+		double[] origin = { 0, 0, 0 };
+		if (numberOfVertexes > 0) {
+			origin[0] = layout.bounds[0];
+			origin[1] = layout.bounds[2];
+			origin[2] = layout.bounds[4];
+		}
+		// quantized coordinates in order of file
+		long[] quantized = new long[3 * numberOfVertexes];
+		double[] x = new double[numberOfVertexes];
+		double[] y = new double[numberOfVertexes];
+		for (int i = 0; i < numberOfVertexes; i++) {
+			int id = layout.vertexes[i];
+			quantized[3 * i] = Math.round((table.getX(id) - origin[0]) / precisionXY);
+			quantized[3 * i + 1] = Math.round((table.getY(id) - origin[1]) / precisionXY);
+			quantized[3 * i + 2] = Math.round((table.getZ(id) - origin[2]) / precisionZ);
+			// coordinates which will be read
+			x[i] = origin[0] + quantized[3 * i] * precisionXY;
+			y[i] = origin[1] + quantized[3 * i + 1] * precisionXY;
+		}
+		int[] records = layout.records;
+		int[] newId = layout.newId;
+		for (int t = 0; t < numberOfTriangles; t++) {
+			int a = records[6 * t];
+			int b = records[6 * t + 1];
+			int c = records[6 * t + 2];
+			double before = Predicates.orient2d(table.getX(a), table.getY(a),
+					table.getX(b), table.getY(b), table.getX(c), table.getY(c));
+			a = newId[a];
+			b = newId[b];
+			c = newId[c];
+			double after = Predicates.orient2d(x[a], y[a], x[b], y[b], x[c], y[c]);
+			if ((before > 0) != (after > 0) || (before < 0) != (after < 0))
+				throw new IllegalArgumentException("Precision " + precisionXY
+						+ " changes orientation of triangles");
+		}
+		x = null;
+		y = null;
+
+		byte[] crs = (CRS == null) ? new byte[0] : CRS.getBytes("UTF-8");
+		FileOutputStream file = new FileOutputStream(fileName);
+		try {
+			DataOutputStream header = new DataOutputStream(file);
+			header.writeInt(MAGIC);
+			header.writeInt(VERSION);
+			header.writeInt(layout.hasBreakLines ? BREAK_LINES : 0);
+			header.writeInt(numberOfVertexes);
+			header.writeInt(numberOfTriangles);
+			header.writeInt(crs.length);
+			header.writeDouble(precisionXY);
+			header.writeDouble(precisionZ);
+			for (int i = 0; i < 3; i++)
+				header.writeDouble(origin[i]);
+			header.write(crs);
+			header.flush();
+
+			Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+			Output out = new Output(new DeflaterOutputStream(file, deflater,
+					1 << 16));
+			long[] previous = new long[3];
+			for (int i = 0; i < 3 * numberOfVertexes; i++) {
+				long delta = quantized[i] - previous[i % 3];
+				previous[i % 3] = quantized[i];
+				out.writeVarLong((delta << 1) ^ (delta >> 63));
+			}
+			int[] order = layout.order;
+			int usedVertexes = 0;
+			for (int i = 0; i < numberOfTriangles; i++)
+				for (int k = 0; k < 3; k++) {
+					int id = newId[records[6 * order[i] + k]];
+					out.writeVarLong(usedVertexes - id);
+					if (id == usedVertexes)
+						usedVertexes++;
+				}
+			if (layout.hasBreakLines) {
+				for (int i = 0; i < numberOfTriangles; i += 8) {
+					int bits = 0;
+					for (int k = 0; k < 8 && i + k < numberOfTriangles; k++)
+						if (layout.breakLines[order[i + k]])
+							bits |= 1 << k;
+					out.writeByte(bits);
+				}
+			}
+			out.finish();
+			deflater.end();
+		} finally {
+			file.close();
+		}
+	}
+
+	/*****************************************************************
+	 * The method for reading archive into data store. Triangles are added
+	 * to triangles of data store with their neighbours, the data store is
+	 * usually empty.
+	 * @param fileName - name of archive
+	 * @param triangles - data store for triangles
+	 * @return coordinate reference system of TIN
+	 * @throws IOException
+	 */
+	public static String read(String fileName, DelaunayDataStore triangles)
+			throws IOException {
+		DataInputStream header = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(fileName), 1 << 16));
+		try {
+			if (header.readInt() != MAGIC)
+				throw new IOException(fileName + " isn't TIN archive");
+			int version = header.readInt();
+			if (version > VERSION)
+				throw new IOException("Unsupported version of TIN archive "
+						+ version);
+			int flags = header.readInt();
+			int numberOfVertexes = header.readInt();
+			int numberOfTriangles = header.readInt();
+			byte[] crs = new byte[header.readInt()];
+			double precisionXY = header.readDouble();
+			double precisionZ = header.readDouble();
+			double minX = header.readDouble();
+			double minY = header.readDouble();
+			double minZ = header.readDouble();
+			header.readFully(crs);
+
+			Inflater inflater = new Inflater();
+			Input in = new Input(new InflaterInputStream(header, inflater,
+					1 << 16));
+			PointDT[] points = new PointDT[numberOfVertexes];
+			long qx = 0;
+			long qy = 0;
+			long qz = 0;
+			for (int i = 0; i < numberOfVertexes; i++) {
+				qx += zigzag(in.readVarLong());
+				qy += zigzag(in.readVarLong());
+				qz += zigzag(in.readVarLong());
+				points[i] = new PointDT(minX + qx * precisionXY, minY + qy
+						* precisionXY, minZ + qz * precisionZ);
+			}
+			int[] ids = new int[3 * numberOfTriangles];
+			int usedVertexes = 0;
+			for (int i = 0; i < ids.length; i++) {
+				long id = usedVertexes - in.readVarLong();
+				if (id < 0 || id > usedVertexes || id >= numberOfVertexes)
+					throw new IOException(fileName + " is damaged");
+				ids[i] = (int) id;
+				if (id == usedVertexes)
+					usedVertexes++;
+			}
+			byte[] breakLines = null;
+			if ((flags & BREAK_LINES) != 0) {
+				breakLines = new byte[(numberOfTriangles + 7) / 8];
+				for (int i = 0; i < breakLines.length; i++)
+					breakLines[i] = (byte) in.readByte();
+			}
+			inflater.end();
+			int[] neighbours = findNeighbours(ids, numberOfVertexes);
+
+			// triangles get indexes behind the last triangle, if the data
+			// store hasn't deleted triangles, else neighbours are corrected
+			int base = triangles.getNumberOfTriangles();
+			int[] index = new int[numberOfTriangles];
+			boolean sequential = true;
+			for (int t = 0; t < numberOfTriangles; t++) {
+				TriangleDT T = new TriangleDT(points[ids[3 * t]],
+						points[ids[3 * t + 1]], points[ids[3 * t + 2]]);
+				for (int k = 0; k < 3; k++) {
+					int neighbour = neighbours[3 * t + k];
+					T.neighbour[k] = (neighbour == -1) ? -1 : base + neighbour;
+				}
+				T.haveBreakLine = breakLines != null
+						&& (breakLines[t >> 3] & (1 << (t & 7))) != 0;
+				triangles.insertToTree(T, T.key);
+				index[t] = T.index;
+				sequential &= T.index == base + t;
+			}
+			if (!sequential) {
+				for (int t = 0; t < numberOfTriangles; t++) {
+					TriangleDT T = triangles.getTriangle(index[t]);
+					for (int k = 0; k < 3; k++) {
+						int neighbour = neighbours[3 * t + k];
+						T.neighbour[k] = (neighbour == -1) ? -1 : index[neighbour];
+					}
+					triangles.update(T);
+				}
+			}
+			return new String(crs, "UTF-8");
+		} finally {
+			header.close();
+		}
+	}
+
+	/*****************************************************************
+	 * The private method for finding neighbours of triangles. Triangles
+	 * of every vertex are saved into list, neighbour over edge a, b is
+	 * searched between triangles of vertex a.
+	 * @param ids - ids of vertexes A, B, C of every triangle
+	 * @return indexes of neighbours 0 - AB, 1 - BC, 2 - AC, -1 if the
+	 *         triangle hasn't neighbour
+	 */
+	private static int[] findNeighbours(int[] ids, int numberOfVertexes) {
+		int[] first = new int[numberOfVertexes + 1];
+		for (int i = 0; i < ids.length; i++)
+			first[ids[i] + 1]++;
+		for (int i = 0; i < numberOfVertexes; i++)
+			first[i + 1] += first[i];
+		int[] list = new int[ids.length];
+		int[] next = new int[numberOfVertexes];
+		System.arraycopy(first, 0, next, 0, numberOfVertexes);
+		for (int i = 0; i < ids.length; i++)
+			list[next[ids[i]]++] = i / 3;
+		next = null;
+
+		int[] neighbours = new int[ids.length];
+		for (int i = 0; i < neighbours.length; i++)
+			neighbours[i] = -1;
+		for (int t = 0; t < ids.length / 3; t++)
+			for (int k = 0; k < 3; k++) {
+				if (neighbours[3 * t + k] != -1)
+					continue;
+				int a = ids[3 * t + ((k == 1) ? 1 : 0)];
+				int b = ids[3 * t + ((k == 0) ? 1 : 2)];
+				for (int j = first[a]; j < first[a + 1]; j++) {
+					int u = list[j];
+					if (u == t)
+						continue;
+					// positions of a and b in triangle u
+					int pa = (ids[3 * u] == a) ? 0 : (ids[3 * u + 1] == a) ? 1 : 2;
+					int pb = (ids[3 * u] == b) ? 0 : (ids[3 * u + 1] == b) ? 1
+							: (ids[3 * u + 2] == b) ? 2 : -1;
+					if (pb == -1)
+						continue;
+					int edge = (pa + pb == 1) ? 0 : (pa + pb == 3) ? 1 : 2;
+					neighbours[3 * t + k] = u;
+					neighbours[3 * u + edge] = t;
+					break;
+				}
+			}
+		return neighbours;
+	}
+
+	/*****************************************************************
+	 * The private method for decoding of zigzag number
+	 */
+	private static long zigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/*****************************************************************************
+	 * The buffered output of varints
+	 */
+
+	private static class Output {
+		private DeflaterOutputStream out;
+		private byte[] buffer = new byte[1 << 16];
+		private int position = 0;
+
+		Output(DeflaterOutputStream out) {
+			this.out = out;
+		}
+
+		/*****************************************************************
+		 * The method for writing unsigned varint
+		 */
+		void writeVarLong(long value) throws IOException {
+			if (position > buffer.length - 10)
+				flushBuffer();
+			while ((value & ~0x7FL) != 0) {
+				buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			buffer[position++] = (byte) value;
+		}
+
+		void writeByte(int value) throws IOException {
+			if (position == buffer.length)
+				flushBuffer();
+			buffer[position++] = (byte) value;
+		}
+
+		/*****************************************************************
+		 * The method for finishing of compressed data, the underlying
+		 * stream isn't closed
+		 */
+		void finish() throws IOException {
+			flushBuffer();
+			out.finish();
+		}
+
+		private void flushBuffer() throws IOException {
+			out.write(buffer, 0, position);
+			position = 0;
+		}
+	}
+
+	/*****************************************************************************
+	 * The buffered input of varints
+	 */
+
+	private static class Input {
+		private InputStream in;
+		private byte[] buffer = new byte[1 << 16];
+		private int position = 0;
+		private int length = 0;
+
+		Input(InputStream in) {
+			this.in = in;
+		}
+
+		/*****************************************************************
+		 * The method for reading unsigned varint
+		 */
+		long readVarLong() throws IOException {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				int b = readByte();
+				value |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+					return value;
+			}
+			throw new IOException("Varint is too long");
+		}
+
+		int readByte() throws IOException {
+			if (position == length) {
+				length = in.read(buffer, 0, buffer.length);
+				position = 0;
+				if (length <= 0) {
+					length = 0;
+					throw new EOFException();
+				}
+			}
+			return buffer[position++] & 0xFF;
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import junit.framework.*;
+import java.io.File;
+import java.util.Random;
+
+public class TINArchiveTest extends TestCase {
+	DelaunayDataStoreArrays triangles = new DelaunayDataStoreArrays();
+	IncrementalDT triangulace = new IncrementalDT(triangles);
+	File file;
+	DelaunayDataStoreArrays archived = new DelaunayDataStoreArrays();
+	String crs;
+	
+	public TINArchiveTest(String name){
+		super(name);
+	}
+	
+	protected void setUp() throws Exception{
+		// integer coordinates are saved exactly with precision 0.5
+		Random random = new Random(1);
+		Coordinate[] newPoints = new Coordinate[1000];
+		for (int i=0;i<newPoints.length;i++)
+			newPoints[i] = new Coordinate(random.nextInt(1000000),random.nextInt(1000000),random.nextInt(100));
+		triangulace.insertPoints(newPoints);
+		// deleted triangles aren't saved into archive
+		triangulace.removePoint(newPoints[0]);
+		TriangleDT T = null;
+		for (int i = 0; T == null; i++)
+			T = triangles.getTriangle(i);
+		T.haveBreakLine = true;
+		triangles.update(T);
+		file = File.createTempFile("tin", ".tina");
+		TINArchive.write(triangles, file.getPath(), "EPSG:2065", 0.5, 0.5);
+		crs = TINArchive.read(file.getPath(), archived);
+	}
+	
+	protected void tearDown(){
+		file.delete();
+	}
+
+	/****************************************************************
+	 * The test which tests, if the archive contains same triangles as
+	 * data store
+	 */
+	public void testSameTriangles(){
+		int breakLines = 0;
+		int number = 0;
+		for (int i = 0; i < archived.getNumberOfTriangles(); i++){
+			TriangleDT T = archived.getTriangle(i);
+			TriangleDT S = triangles.getTriangle(T.key);
+			assertNotNull(S);
+			assertEquals(S.containsPointAsVertex(T.A) && S.containsPointAsVertex(T.B)
+					&& S.containsPointAsVertex(T.C), true);
+			assertEquals(archived.getVertexTable().getZ(T.A.id),
+					triangles.getVertexTable().getZ(triangles.getVertexTable().find(T.A.x, T.A.y)), 0);
+			if (T.haveBreakLine)
+				breakLines++;
+		}
+		for (int i = 0; i < triangles.getNumberOfTriangles(); i++)
+			if (triangles.getTriangle(i) != null)
+				number++;
+		assertEquals(archived.getNumberOfTriangles(), number);
+		assertEquals(breakLines, 1);
+		assertEquals(archived.getVertexTable().size(), 999);
+		assertEquals(crs, "EPSG:2065");
+	}
+
+	/********************************************************************
+	 * the test which tests, if neighbours of triangles have common edge
+	 */
+	public void testNeighbours(){
+		int number = archived.getNumberOfTriangles();
+		int hullEdges = 0;
+		for (int i = 0; i < number; i++){
+			TriangleDT T = archived.getTriangle(i);
+			for (int e = 0; e < 3; e++){
+				if (T.neighbour[e] == -1){
+					hullEdges++;
+					continue;
+				}
+				TriangleDT N = archived.getTriangle(T.neighbour[e]);
+				assertEquals(N.containsTwoPoints((e == 1) ? T.B : T.A, (e == 0) ? T.B : T.C), true);
+				assertEquals(N.neighbour[0] == i || N.neighbour[1] == i || N.neighbour[2] == i, true);
+			}
+		}
+		assertEquals(number, 2*archived.getVertexTable().size() - 2 - hullEdges);
+	}
+
+	/********************************************************************
+	 * the test which tests, if too low precision isn't accepted
+	 */
+	public void testLowPrecision() throws Exception{
+		try {
+			TINArchive.write(triangles, file.getPath(), "", 100000, 1);
+			fail();
+		}
+		catch (IllegalArgumentException e){
+		}
+	}
+
+	public static Test suite(){
+		return new TestSuite(TINArchiveTest.class);
+	}
+	
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import junit.framework.Assert;
+import java.util.Collection;
+import java.util.Iterator;
+
+/*****************************************************************************
+ * The checks of triangulation, which are common for tests of triangulations
+ * and data stores. Deleted triangles (null) of data store are skipped.
+ */
+
+class TINAssert extends Assert {
+
+	/****************************************************************
+	 * The method which tests all circum circles of triangles, if they
+	 * don't contain other point
+	 * @param triangles - tested data store
+	 * @param points - collection of Coordinates
+	 */
+	static void assertDelaunayCircles(DelaunayDataStore triangles, Collection points){
+		int number = triangles.getNumberOfTriangles();
+		for (int i = 0; i < number; i++){
+			TriangleDT T = triangles.getTriangle(i);
+			if (T == null)
+				continue;
+			Iterator itPoints = points.iterator();
+			while (itPoints.hasNext())
+				assertEquals(Predicates.inCircle(T.A, T.B, T.C, (Coordinate)itPoints.next()), false);
+		}
+	}
+
+	/****************************************************************
+	 * The method which tests, if all points are vertexes of triangulation
+	 * @param triangles - tested data store
+	 * @param points - collection of Coordinates without duplicities
+	 */
+	static void assertAllPointsExistInTIN(DelaunayDataStore triangles, Collection points){
+		VertexTable vertexes = triangles.getVertexTable();
+		assertEquals(vertexes.size(), points.size());
+		Iterator itPoints = points.iterator();
+		while (itPoints.hasNext()){
+			Coordinate P = (Coordinate)itPoints.next();
+			assertEquals(vertexes.find(P.x, P.y) != -1, true);
+		}
+	}
+
+	/****************************************************************
+	 * The method which tests, if neighbours of triangles have common
+	 * edge and the number of triangles is 2n - 2 - number of hull edges
+	 * @param triangles - tested data store
+	 * @param numberOfVertexes - number of vertexes of triangulation
+	 */
+	static void assertNeighbours(DelaunayDataStore triangles, int numberOfVertexes){
+		int number = 0;
+		int hullEdges = 0;
+		for (int i = 0; i < triangles.getNumberOfTriangles(); i++){
+			TriangleDT T = triangles.getTriangle(i);
+			if (T == null)
+				continue;
+			number++;
+			for (int e = 0; e < 3; e++){
+				if (T.neighbour[e] == -1){
+					hullEdges++;
+					continue;
+				}
+				TriangleDT N = triangles.getTriangle(T.neighbour[e]);
+				assertEquals(N.containsTwoPoints((e == 1) ? T.B : T.A, (e == 0) ? T.B : T.C), true);
+				assertEquals(N.neighbour[0] == i || N.neighbour[1] == i || N.neighbour[2] == i, true);
+			}
+		}
+		assertEquals(number, 2*numberOfVertexes - 2 - hullEdges);
+	}
+
+}
@@ -0,0 +1,403 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*****************************************************************************
+ * The binary file format of TIN. The file is written sequentially and it is
+ * read by DelaunayDataStoreMapped, which maps it into memory. All numbers are
+ * big endian. The file contains:
+ * 
+ * header    - magic "TINF", version, flags, number of vertexes, number of
+ *             triangles, length of CRS (ints), bounds minX, maxX, minY,
+ *             maxY, minZ, maxZ (doubles), offsets of sections (longs),
+ *             columns and rows of grid (ints, since version 2), CRS as
+ *             UTF-8 string
+ * vertexes  - x, y, z (doubles) of every vertex
+ * triangles - ids of vertexes A, B, C (ints) of every triangle
+ * neighbours- indexes of neighbours 0 - AB, 1 - BC, 2 - AC (ints), -1 if
+ *             the triangle hasn't neighbour
+ * breaklines- bit for every triangle, 1 if the triangle has break line,
+ *             only if flag BREAK_LINES is set
+ * grid      - regular grid over bounds (since version 2), for every cell
+ *             the index of its first item in list (ints, columns * rows + 1
+ *             items) and the list of triangles whose envelope intersects
+ *             the cell (ints)
+ * 
+ * Sections start on offsets divisible by 8. Deleted triangles and unused
+ * vertexes aren't saved, triangles are sorted along Hilbert curve and
+ * vertexes are numbered in order of triangles, so near triangles are near
+ * in file. Indexes in file are different from indexes in the saved
+ * DelaunayDataStore.
+ */
+
+public class TINFile {
+	public static final int MAGIC = 0x54494E46;
+	public static final int VERSION = 2;
+	// flag of file with section of break lines
+	public static final int BREAK_LINES = 1;
+	// offsets of items in header
+	static final int FLAGS = 8;
+	static final int VERTEXES = 12;
+	static final int TRIANGLES = 16;
+	static final int CRS_LENGTH = 20;
+	static final int BOUNDS = 24;
+	static final int VERTEX_SECTION = 72;
+	static final int TRIANGLE_SECTION = 80;
+	static final int NEIGHBOUR_SECTION = 88;
+	static final int BREAK_LINE_SECTION = 96;
+	static final int GRID_SECTION = 104;
+	static final int GRID_COLUMNS = 112;
+	static final int GRID_ROWS = 116;
+	// size of header without CRS in version 1 and in version 2
+	static final int HEADER_1 = 104;
+	static final int HEADER = 120;
+	// mean number of triangles in one cell of grid
+	private static final int TRIANGLES_IN_CELL = 8;
+
+	/*****************************************************************
+	 * The method for writing triangles of data store into file
+	 * @param triangles - data store with triangles
+	 * @param fileName - name of new file
+	 * @param CRS - coordinate reference system (for example EPSG:2065),
+	 *            can be empty
+	 * @throws IOException
+	 */
+	public static void write(DelaunayDataStore triangles, String fileName,
+			String CRS) throws IOException {
+		Layout layout = new Layout(triangles);
+		int size = layout.size;
+		VertexTable table = layout.table;
+		int[] newIndex = layout.newIndex;
+		int[] records = layout.records;
+		boolean[] breakLines = layout.breakLines;
+		boolean hasBreakLines = layout.hasBreakLines;
+		double[] bounds = layout.bounds;
+		int numberOfTriangles = layout.numberOfTriangles;
+		int[] order = layout.order;
+		int[] rank = layout.rank;
+		int[] newId = layout.newId;
+		int[] vertexes = layout.vertexes;
+		int numberOfVertexes = layout.numberOfVertexes;
+		Grid grid = new Grid(bounds, numberOfTriangles);
+		int[] cells = grid.build(table, records, order);
+
+		byte[] crs = (CRS == null) ? new byte[0] : CRS.getBytes("UTF-8");
+		long vertexSection = align(HEADER + crs.length);
+		long triangleSection = vertexSection + 24L * numberOfVertexes;
+		long neighbourSection = align(triangleSection + 12L
+				* numberOfTriangles);
+		long end = neighbourSection + 12L * numberOfTriangles;
+		long breakLineSection = 0;
+		if (hasBreakLines) {
+			breakLineSection = align(end);
+			end = breakLineSection + (numberOfTriangles + 7) / 8;
+		}
+		long gridSection = align(end);
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(fileName), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(hasBreakLines ? BREAK_LINES : 0);
+			out.writeInt(numberOfVertexes);
+			out.writeInt(numberOfTriangles);
+			out.writeInt(crs.length);
+			for (int i = 0; i < 6; i++)
+				out.writeDouble(bounds[i]);
+			out.writeLong(vertexSection);
+			out.writeLong(triangleSection);
+			out.writeLong(neighbourSection);
+			out.writeLong(breakLineSection);
+			out.writeLong(gridSection);
+			out.writeInt(grid.columns);
+			out.writeInt(grid.rows);
+			out.write(crs);
+			pad(out, HEADER + crs.length, vertexSection);
+			for (int i = 0; i < numberOfVertexes; i++) {
+				out.writeDouble(table.getX(vertexes[i]));
+				out.writeDouble(table.getY(vertexes[i]));
+				out.writeDouble(table.getZ(vertexes[i]));
+			}
+			for (int i = 0; i < numberOfTriangles; i++)
+				for (int k = 0; k < 3; k++)
+					out.writeInt(newId[records[6 * order[i] + k]]);
+			pad(out, triangleSection + 12L * numberOfTriangles,
+					neighbourSection);
+			for (int i = 0; i < numberOfTriangles; i++)
+				for (int k = 3; k < 6; k++) {
+					int neighbour = records[6 * order[i] + k];
+					out.writeInt((neighbour < 0 || neighbour >= size
+							|| newIndex[neighbour] == -1) ? -1
+							: rank[newIndex[neighbour]]);
+				}
+			if (hasBreakLines) {
+				pad(out, neighbourSection + 12L * numberOfTriangles,
+						breakLineSection);
+				for (int i = 0; i < numberOfTriangles; i += 8) {
+					int bits = 0;
+					for (int k = 0; k < 8 && i + k < numberOfTriangles; k++)
+						if (breakLines[order[i + k]])
+							bits |= 1 << k;
+					out.writeByte(bits);
+				}
+			}
+			pad(out, end, gridSection);
+			for (int i = 0; i < cells.length; i++)
+				out.writeInt(cells[i]);
+			int[] list = grid.list;
+			for (int i = 0; i < list.length; i++)
+				out.writeInt(list[i]);
+		} finally {
+			out.close();
+		}
+	}
+
+	/*****************************************************************
+	 * The private method for rounding of offset up to multiple of 8
+	 */
+	private static long align(long offset) {
+		return (offset + 7) & ~7L;
+	}
+
+	/*****************************************************************
+	 * The private method for writing zeros from position up to offset
+	 */
+	private static void pad(DataOutputStream out, long position, long offset)
+			throws IOException {
+		for (long i = position; i < offset; i++)
+			out.writeByte(0);
+	}
+
+	/*****************************************************************************
+	 * The order of triangles and vertexes of data store in file, it is used
+	 * by writers of TINFile and TINArchive. Deleted triangles and unused
+	 * vertexes are skipped, triangles are sorted along Hilbert curve and
+	 * vertexes are numbered in order of triangles.
+	 */
+
+	static class Layout {
+		// number of triangles in data store including deleted triangles
+		int size;
+		VertexTable table;
+		// new index of triangle by index in data store, -1 for deleted
+		int[] newIndex;
+		// ids of vertexes in table and neighbours (indexes in data store)
+		// of triangles by new index, 6 ints for every triangle
+		int[] records;
+		boolean[] breakLines;
+		boolean hasBreakLines = false;
+		// minX, maxX, minY, maxY, minZ, maxZ
+		double[] bounds;
+		int numberOfTriangles = 0;
+		// new indexes of triangles in order of file
+		int[] order;
+		// position of triangle in file by new index
+		int[] rank;
+		// id of vertex in file by id in table, -1 for unused vertex
+		int[] newId;
+		// ids of vertexes in table in order of file
+		int[] vertexes;
+		int numberOfVertexes = 0;
+
+		/*****************************************************************
+		 * Constructor
+		 * @param triangles - data store with triangles
+		 */
+		Layout(DelaunayDataStore triangles) {
+			size = triangles.getNumberOfTriangles();
+			table = triangles.getVertexTable();
+			newIndex = new int[size];
+			records = new int[6 * size];
+			breakLines = new boolean[size];
+			PointDT[] centroids = new PointDT[size];
+			bounds = new double[] { Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+					Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+					Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+			for (int i = 0; i < size; i++) {
+				TriangleDT T = triangles.getTriangle(i);
+				if (T == null) {
+					newIndex[i] = -1;
+					continue;
+				}
+				int t = numberOfTriangles++;
+				newIndex[i] = t;
+				PointDT[] P = { T.A, T.B, T.C };
+				for (int k = 0; k < 3; k++) {
+					int id = table.add(P[k]);
+					bounds[0] = Math.min(bounds[0], P[k].x);
+					bounds[1] = Math.max(bounds[1], P[k].x);
+					bounds[2] = Math.min(bounds[2], P[k].y);
+					bounds[3] = Math.max(bounds[3], P[k].y);
+					bounds[4] = Math.min(bounds[4], table.getZ(id));
+					bounds[5] = Math.max(bounds[5], table.getZ(id));
+					records[6 * t + k] = id;
+					records[6 * t + 3 + k] = T.neighbour[k];
+				}
+				breakLines[t] = T.haveBreakLine;
+				hasBreakLines |= T.haveBreakLine;
+				centroids[t] = new PointDT((T.A.x + T.B.x + T.C.x) / 3,
+						(T.A.y + T.B.y + T.C.y) / 3, 0);
+				centroids[t].id = t;
+			}
+			// order of triangles along Hilbert curve
+			SpatialSort.hilbertSort(centroids, 0, numberOfTriangles);
+			order = new int[numberOfTriangles];
+			rank = new int[numberOfTriangles];
+			for (int i = 0; i < numberOfTriangles; i++) {
+				order[i] = centroids[i].id;
+				rank[order[i]] = i;
+			}
+			centroids = null;
+			// vertexes are numbered in order of triangles
+			newId = new int[table.size()];
+			Arrays.fill(newId, -1);
+			vertexes = new int[table.size()];
+			for (int i = 0; i < numberOfTriangles; i++)
+				for (int k = 0; k < 3; k++) {
+					int id = records[6 * order[i] + k];
+					if (newId[id] == -1) {
+						newId[id] = numberOfVertexes;
+						vertexes[numberOfVertexes++] = id;
+					}
+				}
+		}
+	}
+
+	/*****************************************************************************
+	 * The regular grid over bounds of TIN, it is used by writer for creating
+	 * of grid section and by DelaunayDataStoreMapped for searching cells.
+	 */
+
+	static class Grid {
+		int columns;
+		int rows;
+		double minX;
+		double minY;
+		double cellWidth;
+		double cellHeight;
+		// triangles of cells, created by build
+		int[] list;
+
+		/*****************************************************************
+		 * Constructor of grid with cells for given number of triangles
+		 * @param bounds - minX, maxX, minY, maxY
+		 * @param numberOfTriangles - number of triangles
+		 */
+		Grid(double[] bounds, int numberOfTriangles) {
+			double width = bounds[1] - bounds[0];
+			double height = bounds[3] - bounds[2];
+			int cells = Math.max(1, numberOfTriangles / TRIANGLES_IN_CELL);
+			if (!(width > 0 && height > 0)) {
+				columns = 1;
+				rows = 1;
+			} else {
+				double cell = Math.sqrt(width * height / cells);
+				columns = (int) Math.max(1, Math.min(cells, Math.ceil(width / cell)));
+				rows = (int) Math.max(1, Math.min(cells / columns + 1, Math.ceil(height / cell)));
+			}
+			init(bounds[0], bounds[2], width, height);
+		}
+
+		/*****************************************************************
+		 * Constructor of grid saved in file
+		 */
+		Grid(double minX, double maxX, double minY, double maxY, int columns,
+				int rows) {
+			this.columns = columns;
+			this.rows = rows;
+			init(minX, minY, maxX - minX, maxY - minY);
+		}
+
+		private void init(double minX, double minY, double width, double height) {
+			this.minX = minX;
+			this.minY = minY;
+			cellWidth = (width > 0) ? width / columns : 1;
+			cellHeight = (height > 0) ? height / rows : 1;
+		}
+
+		/*****************************************************************
+		 * The method for getting column of grid with x coordinate, points
+		 * out of grid get the nearest column
+		 */
+		int column(double x) {
+			int c = (int) ((x - minX) / cellWidth);
+			return (c < 0) ? 0 : (c >= columns) ? columns - 1 : c;
+		}
+
+		/*****************************************************************
+		 * The method for getting row of grid with y coordinate
+		 */
+		int row(double y) {
+			int r = (int) ((y - minY) / cellHeight);
+			return (r < 0) ? 0 : (r >= rows) ? rows - 1 : r;
+		}
+
+		/*****************************************************************
+		 * The method for saving triangles into cells, which are intersected
+		 * by their envelopes
+		 * @return index of first triangle of every cell in list, last item
+		 *         is size of list
+		 */
+		int[] build(VertexTable table, int[] records, int[] order) {
+			int[] cells = new int[columns * rows + 1];
+			for (int pass = 0; pass < 2; pass++) {
+				for (int i = 0; i < order.length; i++) {
+					int t = 6 * order[i];
+					double x0 = Math.min(Math.min(table.getX(records[t]),
+							table.getX(records[t + 1])), table.getX(records[t + 2]));
+					double x1 = Math.max(Math.max(table.getX(records[t]),
+							table.getX(records[t + 1])), table.getX(records[t + 2]));
+					double y0 = Math.min(Math.min(table.getY(records[t]),
+							table.getY(records[t + 1])), table.getY(records[t + 2]));
+					double y1 = Math.max(Math.max(table.getY(records[t]),
+							table.getY(records[t + 1])), table.getY(records[t + 2]));
+					for (int r = row(y0); r <= row(y1); r++)
+						for (int c = column(x0); c <= column(x1); c++) {
+							if (pass == 0)
+								cells[r * columns + c + 1]++;
+							else
+								list[cells[r * columns + c]++] = i;
+						}
+				}
+				if (pass == 0) {
+					for (int i = 1; i < cells.length; i++)
+						cells[i] += cells[i - 1];
+					list = new int[cells[cells.length - 1]];
+				} else {
+					// cells were moved to the next cell by filling
+					System.arraycopy(cells, 0, cells, 1, cells.length - 1);
+					cells[0] = 0;
+				}
+			}
+			return cells;
+		}
+
+	}
+
+}
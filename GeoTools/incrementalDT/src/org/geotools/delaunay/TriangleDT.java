@@ -20,7 +20,6 @@ package org.geotools.delaunay;
  *    @since JDK1.3 
  */
 
-import java.awt.geom.GeneralPath;
 import java.io.Serializable;
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Envelope;
@@ -35,7 +34,12 @@ public class TriangleDT implements Serializable {
 	public PointDT B;
 	public PointDT C;
 	public double[] key;
+	// keys of neighbours, they are kept only for compatibility
 	public double[][] neighbour_idx = new double [3][2];
+	// indexes of neighbours in DelaunayDataStore (0 - AB, 1 - BC, 2 - AC), -1 if neighbour doesn't exist
+	public int[] neighbour = {-1, -1, -1};
+	// index of triangle in DelaunayDataStore, -1 if triangle isn't saved
+	public int index = -1;
 	public boolean haveBreakLine = false;
 	
 	/***************************************************************************
@@ -50,31 +54,14 @@ public class TriangleDT implements Serializable {
 		B = T.B;
 		C = T.C;
 		setKey();
-		for (int i = 0; i<3; i++)
+		index = T.index;
+		for (int i = 0; i<3; i++){
+			neighbour[i] = T.neighbour[i];
 			for (int j = 0; j<2; j++)
 				neighbour_idx[i][j] = T.neighbour_idx[i][j];
+		}
 	}
 	
-	/**************************************************************************
-	 * Constructor
-	 * @param data - basic seriaziable type
-	 */
-	protected TriangleDT(double[] data){
-		A = new PointDT(data[0],data[1],data[2]);
-		B = new PointDT(data[3],data[4],data[5]);
-		C = new PointDT(data[6],data[7],data[8]);
-		key = new double[2];
-		key[0] = data[9];
-		key[1] = data[10];
-		neighbour_idx = new double[3][2];
-		neighbour_idx[0][0] = data[11];
-		neighbour_idx[0][1] = data[12];
-		neighbour_idx[1][0] = data[13];
-		neighbour_idx[1][1] = data[14];
-		neighbour_idx[2][0] = data[15]; 
-		neighbour_idx[2][1] = data[16];
-	}
-
 	/***************************************************************************
 	 * Constructor
 	 * 
@@ -157,15 +144,17 @@ public class TriangleDT implements Serializable {
 	 */
 
 	public boolean contains(PointDT P) {
-		GeneralPath triangle = new GeneralPath();
-		
-		triangle.moveTo((float) A.x, (float) A.y);
-		triangle.lineTo((float) B.x, (float) B.y);
-		triangle.lineTo((float) C.x, (float) C.y);
-		triangle.lineTo((float) A.x, (float) A.y);
-		triangle.closePath();
-		//System.out.println("Je uvnitr + " +triangle.contains(P.x, P.y));
-		return triangle.contains(P.x, P.y);
+		double orientation = Predicates.orient2d(A, B, C);
+		if (orientation == 0)
+			return false;
+		// point is on the edge or on the same side of every edge as triangle
+		if (orientation > 0)
+			return Predicates.orient2d(A, B, P) >= 0
+					&& Predicates.orient2d(B, C, P) >= 0
+					&& Predicates.orient2d(C, A, P) >= 0;
+		return Predicates.orient2d(A, B, P) <= 0
+				&& Predicates.orient2d(B, C, P) <= 0
+				&& Predicates.orient2d(C, A, P) <= 0;
 	}
 
 	/***************************************************************************
@@ -254,21 +243,7 @@ public class TriangleDT implements Serializable {
 	 */
 
 	protected boolean isTriangle() {
-		Coordinate[] newPoint = new Coordinate[4];
-		newPoint[0] = A;
-		newPoint[1] = B;
-		newPoint[2] = C;
-		newPoint[3] = A;
-		CoordinateArraySequence newPointsTriangle = new CoordinateArraySequence(
-				newPoint);
-
-		LinearRing trianglesPoints = new LinearRing(newPointsTriangle,
-				new GeometryFactory());
-
-		if (trianglesPoints.convexHull().getGeometryType() == "Polygon")
-			return true;
-		else
-			return false;
+		return Predicates.orient2d(A, B, C) != 0;
 	}
 
 	/***************************************************************************
@@ -309,30 +284,63 @@ public class TriangleDT implements Serializable {
 		
 	}
 	
-	/***********************************************************************
-	 * Protected method for converting object triangle to basic data type
-	 * @return - array of double
+	/******************************************************************
+	 * The method for saving neighbours between this triangle and triangle TT,
+	 * if they have common edge. Both triangles must be saved in DelaunayDataStore.
+	 * @param TT - second triangle
+	 */
+	public void saveNeighbour(TriangleDT TT) {
+		int i = -1;
+		int j = -1;
+		if ((A.compare(TT.A) && B.compare(TT.B))
+				|| (A.compare(TT.B) && B.compare(TT.A))) {
+			i = 0; j = 0;
+		} else if ((A.compare(TT.A) && B.compare(TT.C))
+				|| (A.compare(TT.C) && B.compare(TT.A))) {
+			i = 0; j = 2;
+		} else if ((A.compare(TT.B) && B.compare(TT.C))
+				|| (A.compare(TT.C) && B.compare(TT.B))) {
+			i = 0; j = 1;
+		} else if ((A.compare(TT.A) && C.compare(TT.B))
+				|| (A.compare(TT.B) && C.compare(TT.A))) {
+			i = 2; j = 0;
+		} else if ((A.compare(TT.A) && C.compare(TT.C))
+				|| (A.compare(TT.C) && C.compare(TT.A))) {
+			i = 2; j = 2;
+		} else if ((A.compare(TT.B) && C.compare(TT.C))
+				|| (A.compare(TT.C) && C.compare(TT.B))) {
+			i = 2; j = 1;
+		} else if ((B.compare(TT.A) && C.compare(TT.B))
+				|| (B.compare(TT.B) && C.compare(TT.A))) {
+			i = 1; j = 0;
+		} else if ((B.compare(TT.A) && C.compare(TT.C))
+				|| (B.compare(TT.C) && C.compare(TT.A))) {
+			i = 1; j = 2;
+		} else if ((B.compare(TT.B) && C.compare(TT.C))
+				|| (B.compare(TT.C) && C.compare(TT.B))) {
+			i = 1; j = 1;
+		}
+		if (i != -1) {
+			neighbour[i] = TT.index;
+			neighbour_idx[i] = TT.key;
+			TT.neighbour[j] = index;
+			TT.neighbour_idx[j] = key;
+		}
+	}
+
+	/******************************************************************
+	 * The method returns index of edge which is opposite to vertex P
+	 * @param P - vertex of triangle
+	 * @return index of edge (0 - AB, 1 - BC, 2 - AC) or -1 if P isn't vertex
 	 */
-	protected double[] triangleToBasicType(){
-		double []src = new double[17];
-		src[0] = A.x;
-		src[1] = A.y;
-		src[2] = A.z;
-		src[3] = B.x;
-		src[4] = B.y;
-		src[5] = B.z;
-		src[6] = C.x;
-		src[7] = C.y;
-		src[8] = C.z;
-		src[9] = key[0];
-		src[10] = key[1];
-		src[11] = neighbour_idx[0][0];
-		src[12] = neighbour_idx[0][1];
-		src[13] = neighbour_idx[1][0];
-		src[14] = neighbour_idx[1][1];
-		src[15] = neighbour_idx[2][0];
-		src[16] = neighbour_idx[2][1];
-		return src;
+	public int edgeOpposite(PointDT P) {
+		if (C.compare(P))
+			return 0;
+		if (A.compare(P))
+			return 1;
+		if (B.compare(P))
+			return 2;
+		return -1;
 	}
 	
 	/************************************************************************
@@ -340,18 +348,10 @@ public class TriangleDT implements Serializable {
 	 * @return envelope of triangle
 	 */
 	public Envelope setEnvelope() {
-		Coordinate[] newPoint = new Coordinate[4];
-		newPoint[0] = A;
-		newPoint[1] = B;
-		newPoint[2] = C;
-		newPoint[3] = A;
-		CoordinateArraySequence newPointsTriangle = new CoordinateArraySequence(
-				newPoint);
-
-		LinearRing trianglesPoints = new LinearRing(newPointsTriangle,
-				new GeometryFactory());
-
-		return trianglesPoints.getEnvelopeInternal();
+		return new Envelope(Math.min(A.x, Math.min(B.x, C.x)),
+				Math.max(A.x, Math.max(B.x, C.x)),
+				Math.min(A.y, Math.min(B.y, C.y)),
+				Math.max(A.y, Math.max(B.y, C.y)));
 	}
 
 }
@@ -0,0 +1,74 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import java.util.Arrays;
+
+/*****************************************************************************
+ * The visited marks of triangles. Every triangle has stamp of epoch, when it
+ * was marked. The new epoch clears all marks at once, so the marks can be
+ * reused without clearing of array.
+ */
+
+public class TriangleMarks {
+	private int[] stamps = new int[0];
+	private int epoch = 1;
+
+	/***************************************************************************
+	 * The method for removing all marks
+	 */
+
+	public void clear() {
+		epoch++;
+		if (epoch == Integer.MAX_VALUE) {
+			Arrays.fill(stamps, 0);
+			epoch = 1;
+		}
+	}
+
+	/***************************************************************************
+	 * The method for marking of triangle
+	 *
+	 * @param index - index of triangle in DelaunayDataStore
+	 */
+
+	public void mark(int index) {
+		if (index >= stamps.length) {
+			int[] newStamps = new int[Math.max(index + 1, 2 * stamps.length)];
+			System.arraycopy(stamps, 0, newStamps, 0, stamps.length);
+			stamps = newStamps;
+		}
+		stamps[index] = epoch;
+	}
+
+	/***************************************************************************
+	 * The method for testing, if the triangle is marked
+	 *
+	 * @param index - index of triangle in DelaunayDataStore
+	 * @return true - triangle was marked after last clearing
+	 */
+
+	public boolean isMarked(int index) {
+		return index >= 0 && index < stamps.length && stamps[index] == epoch;
+	}
+
+}
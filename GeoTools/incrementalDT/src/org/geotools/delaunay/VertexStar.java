@@ -0,0 +1,134 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+
+/*****************************************************************************
+ * The class for searching triangles around vertex (star of vertex). The
+ * search starts in triangle saved for vertex in VertexTable and it rotates
+ * through neighbours of triangles, so rtree isn't used.
+ */
+
+public class VertexStar {
+
+	/***************************************************************************
+	 * The method for getting all triangles with vertex P. Triangles are in
+	 * order of rotation around P.
+	 *
+	 * @param triangles - DelaunayDataStore with triangles
+	 * @param P - vertex of triangulation
+	 * @return list of triangles with vertex P
+	 */
+
+	public static LinkedList getTriangles(DelaunayDataStore triangles, PointDT P) {
+		LinkedList star = new LinkedList();
+		VertexTable vertexes = triangles.getVertexTable();
+		int id = (P.table == vertexes) ? P.id : vertexes.find(P.x, P.y);
+		TriangleDT T = null;
+		if (id != -1)
+			T = triangles.getTriangle(vertexes.getTriangle(id));
+		if (T == null || edges(T, id) == null)
+			// triangles were saved without table of vertexes
+			return searchByEnvelope(triangles, P);
+		star.add(T);
+		int[] e = edges(T, id);
+		if (!rotate(triangles, T, e[0], id, star, false))
+			rotate(triangles, T, e[1], id, star, true);
+		return star;
+	}
+
+	/***************************************************************************
+	 * The private method for rotating around vertex from triangle T through
+	 * its edge. Found triangles are added to the end of list or to the begin
+	 * of list (reverse)
+	 *
+	 * @return true - the rotation ended in triangle T, false - the rotation
+	 *         ended on convex hull
+	 */
+
+	private static boolean rotate(DelaunayDataStore triangles, TriangleDT T,
+			int edge, int id, LinkedList star, boolean reverse) {
+		TriangleDT S = T;
+		int maxSteps = triangles.getNumberOfTriangles();
+		for (int step = 0; step < maxSteps; step++) {
+			int index = S.neighbour[edge];
+			if (index == -1)
+				return false;
+			if (index == T.index)
+				return true;
+			TriangleDT N = triangles.getTriangle(index);
+			int[] e = (N == null) ? null : edges(N, id);
+			if (e == null)
+				return false;
+			if (reverse)
+				star.addFirst(N);
+			else
+				star.addLast(N);
+			// the edge, which wasn't crossed
+			edge = (N.neighbour[e[0]] == S.index) ? e[1] : e[0];
+			S = N;
+		}
+		return false;
+	}
+
+	/***************************************************************************
+	 * The private method for getting edges of triangle with vertex id
+	 * (0 - AB, 1 - BC, 2 - AC)
+	 *
+	 * @return indexes of two edges or null if the triangle hasn't vertex
+	 */
+
+	private static int[] edges(TriangleDT T, int id) {
+		if (T.A.id == id)
+			return new int[] { 0, 2 };
+		if (T.B.id == id)
+			return new int[] { 0, 1 };
+		if (T.C.id == id)
+			return new int[] { 1, 2 };
+		return null;
+	}
+
+	/***************************************************************************
+	 * The private method for searching triangles with vertex P by envelope
+	 */
+
+	private static LinkedList searchByEnvelope(DelaunayDataStore triangles,
+			PointDT P) {
+		LinkedList star = new LinkedList();
+		Collection list = triangles.getIntersectEnvelope(new Envelope(
+				(Coordinate) P));
+		Iterator iter = list.iterator();
+		while (iter.hasNext()) {
+			TriangleDT T = (TriangleDT) iter.next();
+			if (T.compareReturnIndex(P) != 'N')
+				star.add(T);
+		}
+		return star;
+	}
+
+}
@@ -0,0 +1,439 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/*****************************************************************************
+ * The table of vertexes of triangulation. Every vertex is saved only once,
+ * points with same x and y get same index (id). Coordinates are saved in
+ * arrays of primitive types, which grow in chunks. Ids of points are found
+ * by hash table with open addressing. For every vertex the index of one
+ * triangle with this vertex is saved, so the triangles around vertex can be
+ * found by neighbours of this triangle. Checkpoints write only vertexes
+ * added since the previous checkpoint and changes of older vertexes.
+ * ConcurrentDT appends vertexes from more threads without locking, chunks
+ * of arrays are published through volatile references and appended
+ * vertexes are saved into hash table by the next searching.
+ */
+
+public class VertexTable {
+	// number of vertexes in one chunk of arrays is 2^CHUNK_BITS
+	private static final int CHUNK_BITS = 16;
+	private static final int CHUNK = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK - 1;
+	private static final AtomicIntegerFieldUpdater SIZE = AtomicIntegerFieldUpdater
+			.newUpdater(VertexTable.class, "numberOfVertexes");
+	// size of record of vertex written by checkpoint - x, y, z and flag
+	static final int RECORD = 25;
+	// x is replaced as the last one, so other chunks are visible with it
+	private volatile double[][] x = new double[0][];
+	private volatile double[][] y = new double[0][];
+	private volatile double[][] z = new double[0][];
+	// index of one triangle with vertex, -1 if the vertex has no triangle
+	private volatile int[][] triangle = new int[0][];
+	private volatile int numberOfVertexes = 0;
+	// hash table - id + 1 of vertex, 0 for empty item
+	private int[] hash = new int[1024];
+	// vertexes with smaller id are in hash table (or they were removed)
+	private int hashed = 0;
+	// vertexes with smaller id are saved by checkpoint, their changes are
+	// collected for the next checkpoint
+	private int saved = 0;
+	private IntStack changed = new IntStack();
+
+	/*****************************************************************
+	 * The method for getting number of vertexes
+	 * @return number of vertexes
+	 */
+	public int size() {
+		return numberOfVertexes;
+	}
+
+	/*****************************************************************
+	 * The method for saving point into table. If the point was saved,
+	 * its id is returned. Points which don't belong to any table get
+	 * this table and id.
+	 * @param P - point
+	 * @return id of point in table
+	 */
+	public synchronized int add(PointDT P) {
+		if (P.table == this)
+			return P.id;
+		int id = find(P.x, P.y);
+		if (id == -1) {
+			if (numberOfVertexes == x.length * CHUNK)
+				grow();
+			id = numberOfVertexes++;
+			x[id >> CHUNK_BITS][id & CHUNK_MASK] = P.x;
+			y[id >> CHUNK_BITS][id & CHUNK_MASK] = P.y;
+			z[id >> CHUNK_BITS][id & CHUNK_MASK] = P.z;
+			insertIntoHash(id);
+		}
+		if (P.table == null) {
+			P.table = this;
+			P.id = id;
+		}
+		return id;
+	}
+
+	/*****************************************************************
+	 * The method for appending vertex without locking, more threads can
+	 * append vertexes at once. The point isn't tested for duplicity, it is
+	 * saved into hash table by the next call of find or add, which mustn't
+	 * run at the same time as appending.
+	 * @param P - point, which isn't in table
+	 * @return id of point in table
+	 */
+	int append(PointDT P) {
+		int id = SIZE.getAndIncrement(this);
+		if ((id >> CHUNK_BITS) >= x.length)
+			ensureCapacity(id);
+		x[id >> CHUNK_BITS][id & CHUNK_MASK] = P.x;
+		y[id >> CHUNK_BITS][id & CHUNK_MASK] = P.y;
+		z[id >> CHUNK_BITS][id & CHUNK_MASK] = P.z;
+		P.table = this;
+		P.id = id;
+		return id;
+	}
+
+	/*****************************************************************
+	 * The method for testing, if the chunk with vertex is visible for
+	 * actual thread, so the vertex can be read while other threads
+	 * append vertexes (its coordinates can be still unwritten)
+	 * @param id - id of vertex
+	 * @return true if getVertex(id) can be called
+	 */
+	boolean isVisible(int id) {
+		return id >= 0 && (id >> CHUNK_BITS) < x.length;
+	}
+
+	/*****************************************************************
+	 * The method for removing vertex from table, the point can't be found
+	 * by coordinates and its id isn't used again
+	 * @param id - id of vertex
+	 */
+	public synchronized void remove(int id) {
+		int i = slot(getX(id), getY(id));
+		if (hash[i] != id + 1)
+			return;
+		hash[i] = 0;
+		setTriangle(id, -1);
+		if (id < saved)
+			changed.push(id);
+		// following items are moved to the empty item, if they wouldn't be
+		// found behind it
+		int mask = hash.length - 1;
+		for (int j = (i + 1) & mask; hash[j] != 0; j = (j + 1) & mask) {
+			int k = hash[j] - 1;
+			int home = home(x[k >> CHUNK_BITS][k & CHUNK_MASK],
+					y[k >> CHUNK_BITS][k & CHUNK_MASK]);
+			boolean between = (i <= j) ? (i < home && home <= j)
+					: (i < home || home <= j);
+			if (!between) {
+				hash[i] = hash[j];
+				hash[j] = 0;
+				i = j;
+			}
+		}
+	}
+
+	/*****************************************************************
+	 * The method for getting point, which belongs to this table. The point
+	 * from another table is replaced by the point of this table with same
+	 * coordinates.
+	 * @param P - point
+	 * @return point with id of this table
+	 */
+	public PointDT adopt(PointDT P) {
+		int id = add(P);
+		if (P.table == this)
+			return P;
+		return getVertex(id);
+	}
+
+	/*****************************************************************
+	 * The method for getting vertex
+	 * @param id - id of vertex
+	 * @return new point with coordinates of vertex
+	 */
+	public PointDT getVertex(int id) {
+		PointDT P = new PointDT(x[id >> CHUNK_BITS][id & CHUNK_MASK],
+				y[id >> CHUNK_BITS][id & CHUNK_MASK],
+				z[id >> CHUNK_BITS][id & CHUNK_MASK]);
+		P.table = this;
+		P.id = id;
+		return P;
+	}
+
+	/*****************************************************************
+	 * The method for getting x coordinate of vertex
+	 * @param id - id of vertex
+	 * @return x coordinate
+	 */
+	public double getX(int id) {
+		return x[id >> CHUNK_BITS][id & CHUNK_MASK];
+	}
+
+	/*****************************************************************
+	 * The method for getting y coordinate of vertex
+	 * @param id - id of vertex
+	 * @return y coordinate
+	 */
+	public double getY(int id) {
+		return y[id >> CHUNK_BITS][id & CHUNK_MASK];
+	}
+
+	/*****************************************************************
+	 * The method for getting z coordinate of vertex
+	 * @param id - id of vertex
+	 * @return z coordinate
+	 */
+	public double getZ(int id) {
+		return z[id >> CHUNK_BITS][id & CHUNK_MASK];
+	}
+
+	/*****************************************************************
+	 * The method for changing elevation of vertex
+	 * @param id - id of vertex
+	 * @param elevation - new z coordinate
+	 */
+	public void setZ(int id, double elevation) {
+		z[id >> CHUNK_BITS][id & CHUNK_MASK] = elevation;
+		if (id < saved)
+			markChanged(id);
+	}
+
+	/*****************************************************************
+	 * The method for getting index of one triangle with vertex
+	 * @param id - id of vertex
+	 * @return index of triangle in DelaunayDataStore or -1
+	 */
+	public int getTriangle(int id) {
+		return triangle[id >> CHUNK_BITS][id & CHUNK_MASK];
+	}
+
+	/*****************************************************************
+	 * The method for saving index of triangle with vertex
+	 * @param id - id of vertex
+	 * @param index - index of triangle in DelaunayDataStore
+	 */
+	public void setTriangle(int id, int index) {
+		triangle[id >> CHUNK_BITS][id & CHUNK_MASK] = index;
+	}
+
+	/*****************************************************************
+	 * The method for saving index of triangle with all its vertexes
+	 * @param T - triangle with vertexes of this table
+	 */
+	public void setTriangle(TriangleDT T) {
+		setTriangle(T.A.id, T.index);
+		setTriangle(T.B.id, T.index);
+		setTriangle(T.C.id, T.index);
+	}
+
+	/*****************************************************************
+	 * The method for searching id of point with coordinates x, y
+	 * @return id of point or -1 if the point isn't in table
+	 */
+	public int find(double px, double py) {
+		if (hashed != numberOfVertexes)
+			hashAppended();
+		int i = hash[slot(px, py)];
+		return i - 1;
+	}
+
+	/*****************************************************************
+	 * The method for writing vertexes into checkpoint of triangulation.
+	 * Removed vertexes are written too, so ids of vertexes aren't changed.
+	 * @param out - output
+	 * @param first - id of the first written vertex
+	 * @param last - id behind the last written vertex
+	 * @throws IOException
+	 */
+	synchronized void write(DataOutput out, int first, int last) throws IOException {
+		for (int id = first; id < last; id++)
+			writeRecord(out, id);
+	}
+
+	/*****************************************************************
+	 * The method for writing record of one vertex, the record has RECORD
+	 * bytes - x, y, z and flag, if the vertex can be found by coordinates
+	 * @param out - output
+	 * @param id - id of vertex
+	 * @throws IOException
+	 */
+	synchronized void writeRecord(DataOutput out, int id) throws IOException {
+		double px = x[id >> CHUNK_BITS][id & CHUNK_MASK];
+		double py = y[id >> CHUNK_BITS][id & CHUNK_MASK];
+		out.writeDouble(px);
+		out.writeDouble(py);
+		out.writeDouble(z[id >> CHUNK_BITS][id & CHUNK_MASK]);
+		// false for removed vertex, it can't be found by coordinates
+		out.writeBoolean(find(px, py) == id);
+	}
+
+	/*****************************************************************
+	 * The method for reading vertexes written by method write, they are
+	 * appended behind vertexes of table. Indexes of triangles aren't
+	 * saved, they are -1 until setTriangle.
+	 * @param in - input
+	 * @param n - number of vertexes
+	 * @throws IOException
+	 */
+	synchronized void read(DataInput in, int n) throws IOException {
+		for (int i = 0; i < n; i++) {
+			if (numberOfVertexes == x.length * CHUNK)
+				grow();
+			int id = numberOfVertexes++;
+			double px = in.readDouble();
+			double py = in.readDouble();
+			x[id >> CHUNK_BITS][id & CHUNK_MASK] = px;
+			y[id >> CHUNK_BITS][id & CHUNK_MASK] = py;
+			z[id >> CHUNK_BITS][id & CHUNK_MASK] = in.readDouble();
+			if (in.readBoolean())
+				insertIntoHash(id);
+		}
+		hashed = numberOfVertexes;
+	}
+
+	/*****************************************************************
+	 * The method for getting vertexes saved by previous checkpoint, which
+	 * were removed or whose elevation was changed since it. Changes of
+	 * vertexes with id smaller than saved are collected for the next call.
+	 * @param saved - number of vertexes saved by this checkpoint
+	 * @return ids of changed vertexes, an id can be repeated
+	 */
+	synchronized IntStack takeChanges(int saved) {
+		IntStack result = changed;
+		changed = new IntStack();
+		this.saved = saved;
+		return result;
+	}
+
+	/*****************************************************************
+	 * The private method for saving id of changed vertex
+	 */
+	private synchronized void markChanged(int id) {
+		changed.push(id);
+	}
+
+	/*****************************************************************
+	 * The private method for saving vertex into hash table
+	 */
+	private void insertIntoHash(int id) {
+		if (2 * (id + 1) > hash.length)
+			rehash();
+		hash[slot(x[id >> CHUNK_BITS][id & CHUNK_MASK],
+				y[id >> CHUNK_BITS][id & CHUNK_MASK])] = id + 1;
+		hashed = id + 1;
+	}
+
+	/*****************************************************************
+	 * The private method for saving appended vertexes into hash table
+	 */
+	private synchronized void hashAppended() {
+		for (int id = hashed; id < numberOfVertexes; id++)
+			insertIntoHash(id);
+	}
+
+	/*****************************************************************
+	 * The private method for searching item of hash table, which contains
+	 * point x, y or which is empty
+	 */
+	private int slot(double px, double py) {
+		int mask = hash.length - 1;
+		int i = home(px, py);
+		while (hash[i] != 0) {
+			int id = hash[i] - 1;
+			if (x[id >> CHUNK_BITS][id & CHUNK_MASK] == px
+					&& y[id >> CHUNK_BITS][id & CHUNK_MASK] == py)
+				return i;
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/*****************************************************************
+	 * The private method for computing first item of hash table, where
+	 * point x, y is searched
+	 */
+	private int home(double px, double py) {
+		// -0.0 and 0.0 are same points
+		long bits = Double.doubleToLongBits(px + 0.0) * 31
+				+ Double.doubleToLongBits(py + 0.0);
+		int h = (int) (bits ^ (bits >>> 32)) * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & (hash.length - 1);
+	}
+
+	/*****************************************************************
+	 * The private method for doubling of hash table, only vertexes from
+	 * old table are moved, so removed vertexes aren't found again
+	 */
+	private void rehash() {
+		int[] oldHash = hash;
+		hash = new int[2 * oldHash.length];
+		for (int i = 0; i < oldHash.length; i++) {
+			int id = oldHash[i] - 1;
+			if (id != -1)
+				hash[slot(x[id >> CHUNK_BITS][id & CHUNK_MASK],
+						y[id >> CHUNK_BITS][id & CHUNK_MASK])] = id + 1;
+		}
+	}
+
+	/*****************************************************************
+	 * The private method for adding chunks, until the vertex id fits
+	 */
+	private synchronized void ensureCapacity(int id) {
+		while ((id >> CHUNK_BITS) >= x.length)
+			grow();
+	}
+
+	/*****************************************************************
+	 * The private method for adding new chunk of vertexes
+	 */
+	private void grow() {
+		int chunks = x.length;
+		double[][] newX = new double[chunks + 1][];
+		double[][] newY = new double[chunks + 1][];
+		double[][] newZ = new double[chunks + 1][];
+		int[][] newTriangle = new int[chunks + 1][];
+		System.arraycopy(x, 0, newX, 0, chunks);
+		System.arraycopy(y, 0, newY, 0, chunks);
+		System.arraycopy(z, 0, newZ, 0, chunks);
+		System.arraycopy(triangle, 0, newTriangle, 0, chunks);
+		newX[chunks] = new double[CHUNK];
+		newY[chunks] = new double[CHUNK];
+		newZ[chunks] = new double[CHUNK];
+		newTriangle[chunks] = new int[CHUNK];
+		Arrays.fill(newTriangle[chunks], -1);
+		triangle = newTriangle;
+		z = newZ;
+		y = newY;
+		x = newX;
+	}
+
+}
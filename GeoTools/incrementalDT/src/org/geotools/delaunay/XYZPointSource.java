@@ -0,0 +1,279 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import com.vividsolutions.jts.geom.Coordinate;
+
+/*****************************************************************************
+ * The source of points from text file, every line contains coordinates of
+ * one point. Values are separated by spaces, tabs, commas or semicolons.
+ * Lines which haven't numbers in needed columns (headers, comments) are
+ * skipped. The file is mapped to memory by windows and numbers are parsed
+ * directly from mapped bytes, no strings are created for lines.
+ */
+
+public class XYZPointSource implements PointSource {
+	// size of mapped part of file
+	private static final int WINDOW_SIZE = 1 << 26;
+	// powers of ten, which are exactly represented by double
+	private static final double[] POWERS = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5,
+			1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+	// greatest mantissa, which is exactly represented by double
+	private static final long MAX_MANTISSA = 1L << 53;
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private long fileSize;
+	// mapped part of file and its position in file
+	private MappedByteBuffer window;
+	private long windowStart = 0;
+	private int windowSize;
+	// first unread byte and end of window
+	private int position = 0;
+	private int limit = 0;
+	private int xColumn;
+	private int yColumn;
+	private int zColumn;
+	// values of columns of actual line
+	private double[] values;
+	// value of last parsed number
+	private double number;
+	private int skippedLines = 0;
+
+	/*****************************************************************
+	 * Constructor of source for file with columns x, y, z
+	 * @param fileName - name of file
+	 * @throws IOException
+	 */
+	public XYZPointSource(String fileName) throws IOException {
+		this(fileName, 0, 1, 2);
+	}
+
+	/*****************************************************************
+	 * Constructor of source for file with other order of columns
+	 * @param fileName - name of file
+	 * @param xColumn - index of column with x coordinate (from 0)
+	 * @param yColumn - index of column with y coordinate
+	 * @param zColumn - index of column with z coordinate, -1 if the file
+	 *            hasn't elevations (z of points is NaN)
+	 * @throws IOException
+	 */
+	public XYZPointSource(String fileName, int xColumn, int yColumn,
+			int zColumn) throws IOException {
+		this(fileName, xColumn, yColumn, zColumn, WINDOW_SIZE);
+	}
+
+	/*****************************************************************
+	 * Constructor of source with other size of mapped window, tests use
+	 * small windows to read lines crossing end of window
+	 * @param windowSize - size of mapped part of file in bytes
+	 * @throws IOException
+	 */
+	XYZPointSource(String fileName, int xColumn, int yColumn, int zColumn,
+			int windowSize) throws IOException {
+		this.windowSize = windowSize;
+		this.xColumn = xColumn;
+		this.yColumn = yColumn;
+		this.zColumn = zColumn;
+		values = new double[Math.max(Math.max(xColumn, yColumn), zColumn) + 1];
+		file = new RandomAccessFile(fileName, "r");
+		channel = file.getChannel();
+		fileSize = channel.size();
+		map(0);
+	}
+
+	/*****************************************************************
+	 * The method for reading next point of file
+	 * @return next point or null at the end of file
+	 * @throws IOException
+	 */
+	public Coordinate next() throws IOException {
+		while (true) {
+			int end = lineEnd();
+			if (end == -1)
+				return null;
+			boolean parsed = parseLine(position, end);
+			position = end + 1;
+			if (parsed) {
+				if (zColumn == -1)
+					return new Coordinate(values[xColumn], values[yColumn]);
+				return new Coordinate(values[xColumn], values[yColumn],
+						values[zColumn]);
+			}
+			skippedLines++;
+		}
+	}
+
+	/*****************************************************************
+	 * The method for getting number of lines without point
+	 * @return number of skipped lines
+	 */
+	public int getSkippedLines() {
+		return skippedLines;
+	}
+
+	/*****************************************************************
+	 * The method for closing of file
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		window = null;
+		file.close();
+	}
+
+	/*****************************************************************
+	 * The private method for searching end of actual line, next window
+	 * is mapped if the line isn't whole in actual window
+	 * @return index of '\n' or end of file, -1 if there is no other line
+	 */
+	private int lineEnd() throws IOException {
+		int i = position;
+		while (true) {
+			while (i < limit) {
+				if (window.get(i) == '\n')
+					return i;
+				i++;
+			}
+			if (windowStart + limit == fileSize)
+				return (position < limit) ? limit : -1;
+			// the line is longer than window
+			if (position == 0)
+				windowSize *= 2;
+			i -= position;
+			map(windowStart + position);
+		}
+	}
+
+	/*****************************************************************
+	 * The private method for mapping of window, which starts at offset
+	 */
+	private void map(long offset) throws IOException {
+		windowStart = offset;
+		limit = (int) Math.min(windowSize, fileSize - offset);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, offset, limit);
+		position = 0;
+	}
+
+	/*****************************************************************
+	 * The private method for parsing of needed columns of line
+	 * @return true if all columns are numbers
+	 */
+	private boolean parseLine(int start, int end) {
+		int i = start;
+		for (int column = 0; column < values.length; column++) {
+			while (i < end && isSeparator(window.get(i)))
+				i++;
+			if (i == end)
+				return false;
+			i = parseNumber(i, end);
+			if (i == -1)
+				return false;
+			values[column] = number;
+		}
+		return true;
+	}
+
+	private static boolean isSeparator(byte b) {
+		return b == ' ' || b == '\t' || b == ',' || b == ';' || b == '\r';
+	}
+
+	/*****************************************************************
+	 * The private method for parsing of decimal number. The number is
+	 * computed from mantissa and power of ten, if both are exact doubles,
+	 * else Double.parseDouble is used, so the result is always same.
+	 * @return index of byte behind number or -1 if there isn't number
+	 */
+	private int parseNumber(int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (window.get(i) == '-' || window.get(i) == '+') {
+			negative = window.get(i) == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean isNumber = false;
+		for (; i < end && window.get(i) >= '0' && window.get(i) <= '9'; i++) {
+			isNumber = true;
+			if (digits < 18) {
+				mantissa = 10 * mantissa + (window.get(i) - '0');
+				if (mantissa != 0)
+					digits++;
+			} else
+				exponent++;
+		}
+		if (i < end && window.get(i) == '.') {
+			for (i++; i < end && window.get(i) >= '0' && window.get(i) <= '9'; i++) {
+				isNumber = true;
+				if (digits < 18) {
+					mantissa = 10 * mantissa + (window.get(i) - '0');
+					if (mantissa != 0)
+						digits++;
+					exponent--;
+				}
+			}
+		}
+		if (!isNumber)
+			return -1;
+		if (i < end && (window.get(i) == 'e' || window.get(i) == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (window.get(i) == '-' || window.get(i) == '+')) {
+				negativeExponent = window.get(i) == '-';
+				i++;
+			}
+			if (i == end || window.get(i) < '0' || window.get(i) > '9')
+				return -1;
+			int e = 0;
+			for (; i < end && window.get(i) >= '0' && window.get(i) <= '9'; i++)
+				if (e < 100000)
+					e = 10 * e + (window.get(i) - '0');
+			exponent += negativeExponent ? -e : e;
+		}
+		if (i < end && !isSeparator(window.get(i)))
+			return -1;
+		if (mantissa == 0)
+			number = 0;
+		else if (mantissa < MAX_MANTISSA && exponent >= 0
+				&& exponent < POWERS.length)
+			number = mantissa * POWERS[exponent];
+		else if (mantissa < MAX_MANTISSA && exponent < 0
+				&& -exponent < POWERS.length)
+			number = mantissa / POWERS[-exponent];
+		else {
+			byte[] text = new byte[i - start];
+			for (int j = 0; j < text.length; j++)
+				text[j] = window.get(start + j);
+			number = Double.parseDouble(new String(text));
+			return (Double.isInfinite(number)) ? -1 : i;
+		}
+		if (negative)
+			number = -number;
+		return i;
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ *    Geotools2 - OpenSource mapping toolkit
+ *    http://geotools.org
+ *    (C) 2008, Geotools Project Managment Committee (PMC)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    @author      Josef Bezdek
+ *	  @version     %I%, %G%
+ *    @since JDK1.3
+ */
+
+
+package org.geotools.delaunay;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import junit.framework.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Random;
+
+public class XYZPointSourceTest extends TestCase {
+	private static final String[] SEPARATORS = { " ", "\t", ",", ";", ", ", " ; ", "  \t " };
+	Random random = new Random(11);
+	File file;
+	ArrayList expected = new ArrayList();
+	
+	public XYZPointSourceTest(String name){
+		super(name);
+	}
+	
+	protected void setUp() throws Exception{
+		file = File.createTempFile("points", ".xyz");
+	}
+	
+	protected void tearDown(){
+		file.delete();
+	}
+
+	/****************************************************************
+	 * The method for creating random number in one of formats, which
+	 * can be in file
+	 * @return text of number
+	 */
+	protected String randomNumber(){
+		String sign = (random.nextInt(4) == 0) ? "-" : (random.nextInt(8) == 0) ? "+" : "";
+		switch (random.nextInt(6)){
+			case 0:
+				return sign + (random.nextInt(2000000));
+			case 1:
+				return sign + random.nextDouble()*1000000;
+			case 2:
+				return sign + random.nextInt(100000) + "." + random.nextInt(1000) + ((random.nextBoolean()) ? "e" : "E")
+						+ ((random.nextBoolean()) ? "-" : "+") + random.nextInt(30);
+			case 3:
+				return sign + "." + random.nextInt(100000);
+			case 4:
+				// mantissa longer than 18 digits is parsed by Double.parseDouble
+				return sign + digits(19 + random.nextInt(6)) + "." + digits(random.nextInt(10));
+			default:
+				return sign + "0." + digits(20) + "e" + random.nextInt(10);
+		}
+	}
+
+	private String digits(int number){
+		StringBuffer text = new StringBuffer();
+		for (int i = 0; i < number; i++)
+			text.append((char) ('0' + random.nextInt(10)));
+		return text.toString();
+	}
+
+	/****************************************************************
+	 * The method for writing file with random points, the file has
+	 * header, comment, CRLF lines and last line without '\n'
+	 * @param numberOfPoints - number of points in file
+	 * @param padding - number of spaces added into some lines
+	 */
+	protected void writeFile(int numberOfPoints, int padding) throws Exception{
+		StringBuffer text = new StringBuffer("X;Y;Z\n# comment line\n");
+		for (int i = 0; i < numberOfPoints; i++){
+			String[] numbers = {randomNumber(), randomNumber(), randomNumber()};
+			expected.add(new Coordinate(Double.parseDouble(numbers[0]),
+					Double.parseDouble(numbers[1]), Double.parseDouble(numbers[2])));
+			text.append(numbers[0]);
+			text.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+			if (padding > 0 && i % 10 == 5)
+				for (int j = 0; j < padding; j++)
+					text.append(' ');
+			text.append(numbers[1]);
+			text.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+			text.append(numbers[2]);
+			if (i < numberOfPoints-1)
+				text.append((random.nextBoolean()) ? "\r\n" : "\n");
+		}
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(text.toString().getBytes("US-ASCII"));
+		out.close();
+	}
+
+	/****************************************************************
+	 * The method for testing, if source returns expected points
+	 */
+	protected void checkPoints(XYZPointSource source) throws Exception{
+		for (int i = 0; i < expected.size(); i++){
+			Coordinate point = source.next();
+			assertNotNull(point);
+			Coordinate coordinate = (Coordinate) expected.get(i);
+			assertEquals(point.x, coordinate.x, 0);
+			assertEquals(point.y, coordinate.y, 0);
+			assertEquals(point.z, coordinate.z, 0);
+		}
+		assertNull(source.next());
+		assertEquals(source.getSkippedLines(), 2);
+		source.close();
+	}
+
+	/****************************************************************
+	 * The test which tests, if parsed numbers are same as numbers
+	 * from Double.parseDouble
+	 */
+	public void testNumbers() throws Exception{
+		writeFile(5000, 0);
+		checkPoints(new XYZPointSource(file.getPath()));
+	}
+
+	/****************************************************************
+	 * The test which tests lines crossing end of small window and lines
+	 * longer than window, so the window has to grow
+	 */
+	public void testSmallWindow() throws Exception{
+		writeFile(1000, 300);
+		checkPoints(new XYZPointSource(file.getPath(), 0, 1, 2, 64));
+	}
+
+	/****************************************************************
+	 * The test which tests other order of columns and file without
+	 * elevations
+	 */
+	public void testColumns() throws Exception{
+		writeFile(100, 0);
+		XYZPointSource source = new XYZPointSource(file.getPath(), 2, 0, -1);
+		for (int i = 0; i < expected.size(); i++){
+			Coordinate point = source.next();
+			Coordinate coordinate = (Coordinate) expected.get(i);
+			assertEquals(point.x, coordinate.z, 0);
+			assertEquals(point.y, coordinate.x, 0);
+			assertEquals(Double.isNaN(point.z), true);
+		}
+		assertNull(source.next());
+		source.close();
+	}
+
+	public static Test suite(){
+		return new TestSuite(XYZPointSourceTest.class);
+	}
+	
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+
+}
@@ -3,14 +3,18 @@ package org.geotools.delaunay.beziersurface;
 import org.geotools.delaunay.TriangleDT;
 import org.geotools.delaunay.PointDT;
 import org.geotools.delaunay.DelaunayDataStore;
+import org.geotools.delaunay.VertexStar;
+import org.geotools.delaunay.VertexTable;
 import java.util.LinkedList;
-import com.vividsolutions.jts.geom.Envelope;
-import com.vividsolutions.jts.geom.Coordinate;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 
 public class BezierSurface {
 	static DelaunayDataStore trianglesDToriginal;
+	// indexes of small triangles (int[]) for index of triangle of original TIN
+	static HashMap patchTriangles = new HashMap();
 	
 	/******************************************************************
 	 * The method for setting normal vectors of two vectors
@@ -29,7 +33,8 @@ public class BezierSurface {
 	}
 	
 	/***********************************************************************
-	 * The method searchs normals vector for vertex P of triangle T
+	 * The method searchs normals vector for vertex P of triangle T,
+	 * triangles around P are found by rotation through neighbours
 	 * @param T - triangle
 	 * @param P - vertex of triangle
 	 * @return - linked list of vectors
@@ -38,7 +43,7 @@ public class BezierSurface {
 		//System.out.println("PRO BOD> "+P.toString());
 		LinkedList vectors = new LinkedList();
 		LinkedList points = new LinkedList();
-		Collection listOfTriangles = trianglesDToriginal.getIntersectEnvelope(new Envelope((Coordinate)P));
+		Collection listOfTriangles = VertexStar.getTriangles(trianglesDToriginal, P);
 		Iterator iterTriangles = listOfTriangles.iterator();
 		//System.out.println("SIYE"+listOfTriangles.size());
 		//System.out.println("POINT"+P.toString());
@@ -81,6 +86,126 @@ public class BezierSurface {
 		
 	}
 
+	/*********************************************************************
+	 * The method for counting small triangles of one triangle of original TIN
+	 * @param trianglesDTBezier - new triangles will be saved here
+	 * @param T - triangle of original TIN
+	 * @param indexDensity - index of density (level of smoothing)
+	 * @param inserted - indexes of new triangles are added here, can be null
+	 */
+	private static void countPatch(DelaunayDataStore trianglesDTBezier, TriangleDT T, int indexDensity, LinkedList inserted){
+		//T.toStringa();
+		TriangleBezier bezierT = new TriangleBezier(T,
+										searchVectors(T,T.A),
+										searchVectors(T,T.B),
+										searchVectors(T,T.C)); 
+		double [] indexes = new double[indexDensity+2];
+		double koeficient = 1/((double)indexDensity+1);
+		for (int i = 0; i<=indexDensity+1; i++){
+			indexes[i] = koeficient*i;
+		}
+		LinkedList patch = new LinkedList();
+		int maxTi = indexDensity+1;
+		int maxTj = indexDensity;
+		for (int i = 0; i<=maxTi;i++){
+			for (int j = 0; j<=maxTj;j++){
+				patch.add(new TriangleDT(bezierT.getElevation(indexes[i], indexes[j]),
+											   bezierT.getElevation(indexes[i], indexes[j+1]),
+											   bezierT.getElevation(indexes[i+1], indexes[j])));
+			}
+			maxTj --;
+		}
+		maxTj = indexDensity-1;
+		for (int i = 1; i<=maxTi;i++){
+			for (int j = 0; j<=maxTj;j++){
+				patch.add(new TriangleDT(bezierT.getElevation(indexes[i], indexes[j]),
+											   bezierT.getElevation(indexes[i], indexes[j+1]),
+											   bezierT.getElevation(indexes[i-1], indexes[j+1])));
+			}
+			maxTj --;
+		}
+		VertexTable vertexes = trianglesDTBezier.getVertexTable();
+		int[] indexesOfPatch = new int[patch.size()];
+		Iterator iter = patch.iterator();
+		for (int k = 0; iter.hasNext(); k++){
+			TriangleDT TTT = (TriangleDT)iter.next();
+			// saved vertex with same x, y gets new elevation
+			PointDT[] points = {TTT.A, TTT.B, TTT.C};
+			for (int l = 0; l < 3; l++){
+				int id = vertexes.find(points[l].x, points[l].y);
+				if (id != -1)
+					vertexes.setZ(id, points[l].z);
+			}
+			trianglesDTBezier.insertToTree(TTT, TTT.key);
+			indexesOfPatch[k] = TTT.index;
+			if (inserted != null)
+				inserted.add(Integer.valueOf(TTT.index));
+		}
+		patchTriangles.put(Integer.valueOf(T.index), indexesOfPatch);
+	}
+
+	/*********************************************************************
+	 * Public method for counting again small triangles of dirty triangles,
+	 * which were marked by IncrementalDT.updateElevation. Normal vectors
+	 * are changed in all vertexes of dirty triangles, so all triangles
+	 * around these vertexes are counted again. Old small triangles are
+	 * known from countSurface, otherwise they are found by their keys
+	 * inside the original triangle.
+	 * @param trianglesDTBezier - triangles counted by countSurface
+	 * @param trianglesDT - original TIN
+	 * @param indexDensity - index of density used by countSurface
+	 * @param dirtyTriangles - indexes of dirty triangles of original TIN
+	 * @return indexes of deleted and new small triangles
+	 */
+	public static int[] updateSurface(DelaunayDataStore trianglesDTBezier, DelaunayDataStore trianglesDT, int indexDensity, int[] dirtyTriangles){
+		trianglesDToriginal = trianglesDT;
+		HashSet patches = new HashSet();
+		for (int i = 0; i < dirtyTriangles.length; i++){
+			TriangleDT T = trianglesDToriginal.getTriangle(dirtyTriangles[i]);
+			if (T == null)
+				continue;
+			PointDT[] vertexes = {T.A, T.B, T.C};
+			for (int k = 0; k < 3; k++){
+				Iterator iter = VertexStar.getTriangles(trianglesDToriginal, vertexes[k]).iterator();
+				while (iter.hasNext())
+					patches.add(Integer.valueOf(((TriangleDT)iter.next()).index));
+			}
+		}
+		// all old triangles are searched before deleting, so the index of
+		// trianglesDTBezier isn't rebuilt during searching
+		LinkedList changed = new LinkedList();
+		LinkedList originals = new LinkedList();
+		Iterator iterPatches = patches.iterator();
+		while (iterPatches.hasNext()){
+			Integer index = (Integer)iterPatches.next();
+			TriangleDT T = new TriangleDT(trianglesDToriginal.getTriangle(index.intValue()));
+			originals.add(T);
+			int[] indexesOfPatch = (int[])patchTriangles.get(index);
+			if (indexesOfPatch != null){
+				for (int k = 0; k < indexesOfPatch.length; k++)
+					changed.add(Integer.valueOf(indexesOfPatch[k]));
+				continue;
+			}
+			Iterator iter = trianglesDTBezier.getIntersectEnvelope(T.setEnvelope()).iterator();
+			while (iter.hasNext()){
+				TriangleDT TTT = (TriangleDT)iter.next();
+				if (TTT != null && T.contains(new PointDT(TTT.key[0], TTT.key[1], 0)))
+					changed.add(Integer.valueOf(TTT.index));
+			}
+		}
+		Iterator iter = changed.iterator();
+		while (iter.hasNext())
+			trianglesDTBezier.delete(((Integer)iter.next()).intValue());
+		iter = originals.iterator();
+		while (iter.hasNext())
+			countPatch(trianglesDTBezier, (TriangleDT)iter.next(), indexDensity, changed);
+		int[] indexes = new int[changed.size()];
+		iter = changed.iterator();
+		for (int i = 0; iter.hasNext(); i++)
+			indexes[i] = ((Integer)iter.next()).intValue();
+		return indexes;
+	}
+
 	/*********************************************************************
 	 * Public method for determining new small triangles of original TIN
 	 * @param trianglesDTBezier - new triangles will be saved here
@@ -89,49 +214,15 @@ public class BezierSurface {
 	 */
 	public static void countSurface(DelaunayDataStore trianglesDTBezier, DelaunayDataStore trianglesDT, int indexDensity){
 		trianglesDToriginal = trianglesDT;
+		patchTriangles = new HashMap();
 		
 		int numberOfTriangles = trianglesDToriginal.getNumberOfTriangles();
 		for (int index=0; index < numberOfTriangles; index++){
 			//System.out.println("/////////////////////////index");
-			TriangleDT T = new TriangleDT(trianglesDToriginal.getTriangle(index));
-			//T.toStringa();
-			TriangleBezier bezierT = new TriangleBezier(T,
-											searchVectors(T,T.A),
-											searchVectors(T,T.B),
-											searchVectors(T,T.C)); 
-			double [] indexes = new double[indexDensity+2];
-			double koeficient = 1/((double)indexDensity+1);
-			for (int i = 0; i<=indexDensity+1; i++){
-				indexes[i] = koeficient*i;
-			//	System.out.println("ooo"+indexes[i]);
-			}
-			int maxTi = indexDensity+1;
-			int maxTj = indexDensity;
-			for (int i = 0; i<=maxTi;i++){
-				for (int j = 0; j<=maxTj;j++){
-					TriangleDT TTT = new TriangleDT(bezierT.getElevation(indexes[i], indexes[j]),
-												   bezierT.getElevation(indexes[i], indexes[j+1]),
-												   bezierT.getElevation(indexes[i+1], indexes[j]));
-					trianglesDTBezier.insertToTree(TTT, TTT.key);
-					//TTT.toStringa();
-	//				System.out.println("Troju"+ indexes[i]+","+ indexes[j]+"  "+ indexes[i]+","+  indexes[j+1]+"  "+ indexes[i+1]+","+  indexes[j]);
-	//				System.out.println();				
-				}
-				maxTj --;
-			}
-	//		System.out.println("hotovo");
-			maxTj = indexDensity-1;
-			for (int i = 1; i<=maxTi;i++){
-				for (int j = 0; j<=maxTj;j++){
-					TriangleDT TTT = new TriangleDT(bezierT.getElevation(indexes[i], indexes[j]),
-												   bezierT.getElevation(indexes[i], indexes[j+1]),
-												   bezierT.getElevation(indexes[i-1], indexes[j+1]));
-					trianglesDTBezier.insertToTree(TTT, TTT.key);
-	//				System.out.println("Troju"+ indexes[i]+","+ indexes[j]+"  "+ indexes[i]+","+  indexes[j+1]+"  "+ indexes[j+1]+","+  indexes[i-1]);
-	//				System.out.println();				
-				}
-				maxTj --;
-			}
+			TriangleDT S = trianglesDToriginal.getTriangle(index);
+			if (S == null)
+				continue;
+			countPatch(trianglesDTBezier, new TriangleDT(S), indexDensity, null);
 //			System.out.println("hotovo");
 			
 			
@@ -23,26 +23,17 @@
 package org.geotools.delaunay.contourlines;
 
 
-import org.geotools.data.FeatureStore;
-import org.geotools.data.FeatureWriter;
-import org.geotools.data.shapefile.ShapefileDataStore;
 import org.geotools.delaunay.PointDT;
+import org.geotools.delaunay.ShapefileExport;
 import org.geotools.delaunay.TriangleDT;
 import org.geotools.delaunay.DelaunayDataStore;
 import org.geotools.delaunay.contourlines.Izolines;
-import org.geotools.feature.AttributeType;
-import org.geotools.feature.AttributeTypeFactory;
-import org.geotools.feature.Feature;
-import org.geotools.feature.FeatureType;
-import org.geotools.feature.FeatureTypeFactory;
-import org.geotools.referencing.CRS;
 
 import com.vividsolutions.jts.geom.LineString;
-import com.vividsolutions.jts.io.WKTReader;
 
 import java.awt.Color;
-import java.io.File;
-import java.net.URL;
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.LinkedList;
 
 import java.util.Iterator;
@@ -104,6 +95,41 @@ public class LinearContourLines {
 	
 	
 
+	/************************************************************************
+	 * The method which generates izolines of all triangles
+	 * @param triangles - DelauanayDataStore triangles
+	 * @param elevatedStep - int elevated step
+	 * @return map from index of triangle to linked list of its izolines
+	 */
+	public static HashMap countIzoLines(DelaunayDataStore triangles, int elevatedStep){
+		HashMap contours = new HashMap();
+		for (int i = 0; i < triangles.getNumberOfTriangles(); i++){
+			TriangleDT T = triangles.getTriangle(i);
+			if (T != null)
+				contours.put(Integer.valueOf(i), countIzoLines(T, elevatedStep));
+		}
+		return contours;
+	}
+
+	/************************************************************************
+	 * The method which generates again izolines of changed triangles, e.g.
+	 * dirty triangles of IncrementalDT or triangles from BezierSurface.updateSurface
+	 * @param contours - map from countIzoLines, it is changed
+	 * @param triangles - DelauanayDataStore triangles
+	 * @param changedTriangles - indexes of changed or deleted triangles
+	 * @param elevatedStep - int elevated step
+	 */
+	public static void updateIzoLines(HashMap contours, DelaunayDataStore triangles, int[] changedTriangles, int elevatedStep){
+		for (int i = 0; i < changedTriangles.length; i++){
+			Integer index = Integer.valueOf(changedTriangles[i]);
+			TriangleDT T = triangles.getTriangle(changedTriangles[i]);
+			if (T == null)
+				contours.remove(index);
+			else
+				contours.put(index, countIzoLines(T, elevatedStep));
+		}
+	}
+
 	/********************************************************************************
 	 * Private function which computes  point on line, (Linear interpolation)
 	 * @param A - start point of line
@@ -135,52 +161,26 @@ public class LinearContourLines {
 	 * @param EPSG - EPSG code
 	 */
 	public static void createIzolinesShapeFile (DelaunayDataStore triangles, int elevatedDifference, String path, String File, String EPSG){
-		   try{	
-			    AttributeType geom = null;
-		    	if  (EPSG == ""){
-		    		geom = AttributeTypeFactory.newAttributeType("the_geom",
-			    			LineString.class);
-		    	}
-		    	else{
-		    		geom = AttributeTypeFactory.newAttributeType("the_geom",
-		    			LineString.class, true, 0, null, CRS.decode(EPSG));    
-		    	}
-		    	AttributeType idx = AttributeTypeFactory.newAttributeType(
-		    			"elevation", Integer.class);
-		    	FeatureType ftRoad = FeatureTypeFactory.newFeatureType(
-		    			new AttributeType[] { geom, idx }, "Izoline");
-		    	WKTReader wktReader = new WKTReader();
-		    	URL anURL = (new File(path + File)).toURL();
-		    	ShapefileDataStore datastore = new ShapefileDataStore(anURL);
-		     	datastore.createSchema(ftRoad);
-		    	FeatureStore featureStore = (FeatureStore)(datastore.getFeatureSource("Izoline"));
-		    	Feature aNewFeature = null;
-		    	FeatureWriter aWriter = datastore.getFeatureWriter("Izoline",
-		     			((FeatureStore) datastore.getFeatureSource("Izoline"))
-		       	 				.getTransaction());
-	 	    	for (int i =0; i<triangles.getNumberOfTriangles(); i++){
-		    		TriangleDT T = triangles.getTriangle(i);
-		    		//T.toStringa();
-	 	     		if (T!=null){//T.toStringa(); 
-	 	     			LinkedList contours = countIzoLines(T, elevatedDifference);
-	 	     			Iterator iter = contours.iterator();
-	 	     			while (iter.hasNext()){
-	 	     				Izolines L = (Izolines)iter.next();
-	 	     				LineString geometry = (LineString) wktReader.read("LINESTRING ("+(L.A.x)+" "+(L.A.y)+"," +(L.B.x)+" "+(L.B.y)+")");
-	 	     				aNewFeature = aWriter.next();
-	 	     				aNewFeature.setAttribute(0, (Object)geometry);
-	 	     				aNewFeature.setAttribute(1, (Object)L.elevation);
-	 	     			}
-	 	     		}
-		    	}
-		    	aWriter.write();
-		    	aWriter.close();
-		   		}
-		    	catch(Exception e){
-		    		e.printStackTrace();
-		    } 
-			    
-			   
+		try {
+			ShapefileExport export = new ShapefileExport(path + File, "Izoline",
+					LineString.class, "elevation", Integer.class, EPSG);
+			try {
+				for (int i = 0; i < triangles.getNumberOfTriangles(); i++) {
+					TriangleDT T = triangles.getTriangle(i);
+					if (T != null) {
+						Iterator iter = countIzoLines(T, elevatedDifference).iterator();
+						while (iter.hasNext()) {
+							Izolines L = (Izolines) iter.next();
+							export.writeLine(L.A, L.B, Integer.valueOf(L.elevation));
+						}
+					}
+				}
+			} finally {
+				export.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
 	}
 	
 }
@@ -29,6 +29,7 @@ import org.geotools.delaunay.LineDT;
 import org.geotools.delaunay.IncrementalDT;
 import org.geotools.delaunay.DelaunayDataStoreRAM;
 import org.geotools.delaunay.DelaunayDataStore;
+import org.geotools.delaunay.TriangleMarks;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Line2D;
 
@@ -44,6 +45,7 @@ public class TINWithFixedLines {
 	static DelaunayDataStore triangles;	// list of TIN triangles
 	static LinkedList fixedLines;	// list of hard lines
 	static LineDT line;
+	static TriangleMarks deletedMarks = new TriangleMarks();	// marks of deleted triangles
 	
 	/***
 	   * The private method for searching a triangle which are intersect by new hard line
@@ -107,7 +109,7 @@ public class TINWithFixedLines {
 		iter = trianglesToChange.iterator();
 		while (iter.hasNext()){
 			TriangleDT TT = (TriangleDT) iter.next();
-			triangles.delete(TT.key);
+			triangles.delete(TT.index);
 		}	
 		return trianglesToChange;
 		
@@ -222,6 +224,62 @@ public class TINWithFixedLines {
 		return false;
 	}
 	
+	/***
+	   * The private method for getting triangles, which are neighbours of deleted triangles
+	   *
+	   * @param LinkedList trianglesToChange - List of old triangles, which will be deleted from triangulation
+	   *
+	   * @return LinkedList - list of neighbours, their indexes of deleted triangles are removed
+	   */		
+	
+	private static LinkedList getOuterTriangles(LinkedList trianglesToChange){
+		deletedMarks.clear();
+		Iterator iter = trianglesToChange.iterator();
+		while (iter.hasNext())
+			deletedMarks.mark(((TriangleDT)iter.next()).index);
+		LinkedList outer = new LinkedList();
+		iter = trianglesToChange.iterator();
+		while (iter.hasNext()){
+			TriangleDT T = (TriangleDT)iter.next();
+			for (int i = 0; i<3; i++){
+				if (!deletedMarks.isMarked(T.neighbour[i])){
+					TriangleDT TT = triangles.getTriangle(T.neighbour[i]);
+					if (TT!=null){
+						for (int j = 0; j<3; j++)
+							if (deletedMarks.isMarked(TT.neighbour[j]))
+								TT.neighbour[j] = -1;
+						outer.add(TT);
+					}
+				}
+			}
+		}
+		return outer;
+	}
+	
+	/***
+	   * The private method for saving neighbours of new triangles
+	   *
+	   * @param LinkedList newTriangles - List of triangles inserted into triangulation
+	   * @param LinkedList outer - List of neighbours of deleted triangles
+	   */		
+	
+	private static void saveNeighbours(LinkedList newTriangles, LinkedList outer){
+		for (int i = 0; i<newTriangles.size(); i++){
+			TriangleDT T = (TriangleDT)newTriangles.get(i);
+			for (int j = i+1; j<newTriangles.size(); j++)
+				T.saveNeighbour((TriangleDT)newTriangles.get(j));
+			Iterator iter = outer.iterator();
+			while (iter.hasNext())
+				T.saveNeighbour((TriangleDT)iter.next());
+		}
+		Iterator iter = newTriangles.iterator();
+		while (iter.hasNext())
+			triangles.update((TriangleDT)iter.next());
+		iter = outer.iterator();
+		while (iter.hasNext())
+			triangles.update((TriangleDT)iter.next());
+	}
+	
 	/***
 	   * The private method for testing and adding in old triangulation triangles
 	   *
@@ -233,6 +291,8 @@ public class TINWithFixedLines {
 	
 	private static void testAndAddTrianglesToTIN(LinkedList left, LinkedList right, LinkedList trianglesToChange, LineDT line){
 		TriangleDT T;
+		LinkedList outer = getOuterTriangles(trianglesToChange);
+		LinkedList inserted = new LinkedList();
 		if (left!=null){						//test leve triangulace
 			Iterator it = left.iterator();
 			
@@ -241,7 +301,9 @@ public class TINWithFixedLines {
 				if (line.isHardBreakLine&&T.contains(line.A)&&T.contains(line.B))
 					T.haveBreakLine = true;
 				if (testIsInside(T, trianglesToChange)){
+					T.neighbour = new int[] {-1, -1, -1};	// indexes of the partial triangulation aren't valid
 					triangles.insertToTree(T, T.key);				//vlozeni do celkove triangulace
+					inserted.add(T);
 				}
 			}
 		}
@@ -252,12 +314,14 @@ public class TINWithFixedLines {
 				if (line.isHardBreakLine&&T.contains(line.A)&&T.contains(line.B))
 					T.haveBreakLine = true;
 				if (testIsInside(T, trianglesToChange)){
+					T.neighbour = new int[] {-1, -1, -1};	// indexes of the partial triangulation aren't valid
 					triangles.insertToTree(T, T.key);				//vlozeni do celkove triangulace
+					inserted.add(T);
 				}
 				
 			}
 		}
-
+		saveNeighbours(inserted, outer);
 	}
 	
 	/***
@@ -327,12 +391,7 @@ public class TINWithFixedLines {
 				DelaunayDataStoreRAM lTriangles = new DelaunayDataStoreRAM();
 				lTIN = new IncrementalDT(lTriangles);    	// counting left triangulation
 				if (!leftPoints.isEmpty()){
-					it = leftPoints.iterator();
-					while (it.hasNext()){
-						P = (PointDT)it.next();
-						lTIN.insertPoint(P);
-					}
-			
+					lTIN.insertPoints(leftPoints);
 					lTIN.insertPoint(line.A);
 					lTIN.insertPoint(line.B);
 					leftTIN = (LinkedList)lTriangles.getCollection();
@@ -340,13 +399,7 @@ public class TINWithFixedLines {
 				DelaunayDataStoreRAM rTriangles = new DelaunayDataStoreRAM();
 				rTIN = new IncrementalDT(rTriangles);		// counting right triangulation
 				if (!rightPoints.isEmpty()){
-				
-					it = rightPoints.iterator();
-					while (it.hasNext()){
-						P =(PointDT)it.next();
-						rTIN.insertPoint(P);
-					}
-				
+					rTIN.insertPoints(rightPoints);
 					rTIN.insertPoint(line.A);
 					rTIN.insertPoint(line.B);
 					rightTIN = (LinkedList)rTriangles.getCollection();
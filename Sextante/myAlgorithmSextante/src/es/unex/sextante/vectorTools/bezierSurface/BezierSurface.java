@@ -24,22 +24,21 @@
 
 package es.unex.sextante.vectorTools.bezierSurface;
 
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.TreeMap;
 
-import org.geotools.index.Data;
-import org.geotools.index.DataDefinition;
-import org.geotools.index.rtree.RTree;
-
 import com.vividsolutions.jts.geom.Coordinate;
-import com.vividsolutions.jts.geom.Envelope;
 
 public class BezierSurface {
-	private Data data;
-	private DataDefinition dd = new DataDefinition("US-ASCII"); 
-	private RTree trianglesIndex;
+	// ids of vertexes (key is coordinate of vertex)
+	private HashMap vertexIds;
+	// indexes of triangles with vertex id are saved in star from
+	// starOffset[id] to starOffset[id+1]
+	private int[] starOffset;
+	private int[] star;
 	Coordinate [][] triangles;
 	TreeMap breakLines = new TreeMap();
 	Bezier miniBezierTriangles[];
@@ -98,13 +97,11 @@ public class BezierSurface {
 	/********************************************************************
 	 * Constructor
 	 * @param triangles - array of triangle's vertexes
-	 * @param trainglesIndex - RTree index of triangles
 	 * @param breakLine - map of break lines
 	 * @param scaleZ - scale of Z coordinate to optimize data
 	 * @param m_LoD - Level of Detail
      */
-	public BezierSurface(Coordinate[][] triangles, RTree trianglesIndex, TreeMap breakLines, double scaleZ, int m_LoD){
-		this.trianglesIndex = trianglesIndex;
+	public BezierSurface(Coordinate[][] triangles, TreeMap breakLines, double scaleZ, int m_LoD){
 		this.triangles = triangles;
 		this.breakLines = breakLines;
 		this.scaleZ = scaleZ;
@@ -114,7 +111,49 @@ public class BezierSurface {
 			for (int l=0;l<3; l++)
 				triangles[k][l].z /= scaleZ;
 		setBaryCoordinates();	
-		dd.addField(Integer.class);
+		setStars();
+	}
+
+	/********************************************************************
+	 * The private method for creating stars of vertexes (lists of triangles
+	 * with vertex), the triangles around vertex are found without searching
+	 * of envelope
+	 */
+	private void setStars(){
+		vertexIds = new HashMap();
+		int[] vertexOfTriangle = new int[3*triangles.length];
+		for (int k=0; k<triangles.length; k++)
+			for (int l=0; l<3; l++){
+				Integer id = (Integer)vertexIds.get(triangles[k][l]);
+				if (id == null){
+					id = vertexIds.size();
+					vertexIds.put(triangles[k][l], id);
+				}
+				vertexOfTriangle[3*k+l] = id;
+			}
+		starOffset = new int[vertexIds.size()+1];
+		for (int i=0; i<vertexOfTriangle.length; i++)
+			starOffset[vertexOfTriangle[i]+1]++;
+		for (int i=0; i<vertexIds.size(); i++)
+			starOffset[i+1] += starOffset[i];
+		int[] position = (int[])starOffset.clone();
+		star = new int[vertexOfTriangle.length];
+		for (int i=0; i<vertexOfTriangle.length; i++)
+			star[position[vertexOfTriangle[i]]++] = i/3;
+	}
+
+	/********************************************************************
+	 * The private method for getting triangles with vertex P
+	 * @param P - vertex of triangle
+	 * @return list of indexes of triangles
+	 */
+	private List getStar(Coordinate P){
+		LinkedList list = new LinkedList();
+		Integer id = (Integer)vertexIds.get(P);
+		if (id != null)
+			for (int i=starOffset[id]; i<starOffset[id+1]; i++)
+				list.add(star[i]);
+		return list;
 	}
 
 	/*******************************************************************
@@ -550,20 +589,14 @@ public class BezierSurface {
 	private LinkedList searchVectors(Bezier2 bezierT, Coordinate P, int indexOfBezierT){
 		LinkedList vectors = new LinkedList();
 		//System.out.println();
-		List listOfTrianglesIndex = null;
-		try{
-			listOfTrianglesIndex  = trianglesIndex.search(new Envelope(P));
-		}
-		catch(Exception e){
-			e.printStackTrace();
-		}	
+		List listOfTrianglesIndex = getStar(P);
 
 		Iterator iterTrianglesIndex = listOfTrianglesIndex.iterator();
 
 		boolean haveBreakLine = false;
 		boolean testingBreakLine = true;
 		while (iterTrianglesIndex.hasNext()){
-			int index = (Integer)((Data)iterTrianglesIndex.next()).getValue(0);
+			int index = (Integer)iterTrianglesIndex.next();
 			Coordinate[] TT = triangles[index];
 			switch (compareReturnIndex(TT, P)){
 				case 'A':{
@@ -641,8 +674,7 @@ public class BezierSurface {
 		Iterator iterOfTrianglesIndex = listOfTrianglesIndex.iterator();
 		int typeOfBreakLine;
 		while (iterOfTrianglesIndex.hasNext()){
-			Data data2 = (Data)iterOfTrianglesIndex.next();
-			int index = (Integer)(data2).getValue(0);
+			int index = (Integer)iterOfTrianglesIndex.next();
 			Coordinate[] TT = triangles[index];
 			Object typeOfBreakL = breakLines.get(index);
 			if (typeOfBreakL!=null)
@@ -723,20 +755,9 @@ public class BezierSurface {
 		
 		//Creating of list of indexes for computing normals
 		LinkedList finalTriangles = new LinkedList();
-		try{
-			Iterator iterOfNewTriangles = newTriangles.values().iterator();
-			while (iterOfNewTriangles.hasNext()){
-				data = new Data(dd);
-				
-				
-				
-				data.addValue(((Triangle)iterOfNewTriangles.next()).index);
-				finalTriangles.add(data);
-			}
-		}
-		catch(Exception e){
-			e.printStackTrace(); 
-		}
+		Iterator iterOfNewTriangles = newTriangles.values().iterator();
+		while (iterOfNewTriangles.hasNext())
+			finalTriangles.add(((Triangle)iterOfNewTriangles.next()).index);
 		
 		return finalTriangles;
 		
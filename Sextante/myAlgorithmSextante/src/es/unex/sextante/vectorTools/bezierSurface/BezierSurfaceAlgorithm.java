@@ -31,12 +31,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.TreeMap;
 
-import org.geotools.index.Data;
-import org.geotools.index.DataDefinition;
-import org.geotools.index.rtree.PageStore;
-import org.geotools.index.rtree.RTree;
-import org.geotools.index.rtree.memory.MemoryPageStore;
-
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.GeometryFactory;
@@ -65,10 +59,6 @@ public class BezierSurfaceAlgorithm extends GeoAlgorithm {
 	private int m_LoD;
 	private double m_Smooth;
 	
-	private Data data;
-	private DataDefinition dd = new DataDefinition("US-ASCII"); 
-	
-	private RTree trianglesIndex;
 	Coordinate [][] triangles;
 	TreeMap breakLines = new TreeMap();
 	Bezier miniBezierTriangles[];
@@ -130,9 +120,6 @@ public class BezierSurfaceAlgorithm extends GeoAlgorithm {
 		triangles = new Coordinate[iShapeCount][3];
 		IFeatureIterator iter = m_Triangles.iterator();
 		try{ 
-			dd.addField(Integer.class);
-			PageStore ps = new MemoryPageStore(dd);
-			trianglesIndex = new RTree(ps);
 			while(iter.hasNext()){
 				IFeature feature = iter.next();
 				Polygon trianglePolygon = (Polygon) feature.getGeometry();
@@ -144,10 +131,6 @@ public class BezierSurfaceAlgorithm extends GeoAlgorithm {
 				triangles [i][1] = (Coordinate) trianglePolygon.getCoordinates()[1].clone();
 				triangles [i][2] = (Coordinate) trianglePolygon.getCoordinates()[2].clone();
 
-				data = new Data(dd);
-				data.addValue(i);
-				trianglesIndex.insert(trianglePolygon.getEnvelopeInternal(), data);
-	
 				for (int k=0; k<2; k++){
 					double diffZ = triangles[i][k].z - triangles[i][k+1].z;
 					double diffXY = Math.sqrt(Math.pow((triangles[i][k].x-triangles[i][k+1].x),2)+
@@ -168,7 +151,7 @@ public class BezierSurfaceAlgorithm extends GeoAlgorithm {
 		
 		m_Triangles = null;
 		iter = null;
-		BezierSurface bezierSurface = new BezierSurface(triangles, trianglesIndex, breakLines, scaleZ*m_Smooth, m_LoD+1);
+		BezierSurface bezierSurface = new BezierSurface(triangles, breakLines, scaleZ*m_Smooth, m_LoD+1);
 		
 		
 		int indexOfInterpolatedTriangles = 0;
@@ -16,6 +16,7 @@
  */
 package net.refractions.udig.dem;
 
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -25,10 +26,9 @@ import net.refractions.udig.catalog.IGeoResource;
 import net.refractions.udig.project.internal.impl.LayerImpl;
 
 import org.geotools.data.FeatureSource;
-import org.geotools.data.memory.MemoryFeatureCollection;
 import org.geotools.feature.AttributeType;
-import org.geotools.feature.Feature;
 import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
 import org.geotools.feature.FeatureType;
 import org.geotools.feature.FeatureTypeBuilder;
 
@@ -54,14 +54,7 @@ public class LayerManager {
 			while (iter.hasNext()){
 				LayerImpl layer = (LayerImpl) iter.next();
 				FeatureSource source = (FeatureSource) layer.getResource(FeatureSource.class, null);
-        
-				FeatureCollection collection = new MemoryFeatureCollection(layer.getSchema());
-				collection.addAll(source.getFeatures());
-                  
-				Iterator j = collection.iterator();
-				Feature feature = (Feature) j.next();
-				Geometry geom = feature.getDefaultGeometry();
-				if (geom.getGeometryType()=="Point"){
+				if ("Point".equals(getGeometryType(source))){
 					listF.add(layer);
 				}
 				
@@ -85,14 +78,7 @@ public class LayerManager {
 			while (iter.hasNext()){
 				LayerImpl layer = (LayerImpl) iter.next();
 				FeatureSource source = (FeatureSource) layer.getResource(FeatureSource.class, null);
-        
-				FeatureCollection collection = new MemoryFeatureCollection(layer.getSchema());
-				collection.addAll(source.getFeatures());
-                  
-				Iterator j = collection.iterator();
-				Feature feature = (Feature) j.next();
-				Geometry geom = feature.getDefaultGeometry();
-				if (geom.getGeometryType()=="MultiLineString"){
+				if ("MultiLineString".equals(getGeometryType(source))){
 					listF.add(layer);
 				}
 				
@@ -102,7 +88,26 @@ public class LayerManager {
 		}
 		return listF;
 	}
-	
+
+
+	/***********************************************************************
+	 * The method reads type of geometry of the first feature, only this
+	 * feature is read from layer
+	 * @param source of layer
+	 * @return type of geometry or null for empty layer
+	 */
+	private static String getGeometryType(FeatureSource source) throws IOException {
+		FeatureCollection collection = source.getFeatures();
+		FeatureIterator j = collection.features();
+		try {
+			if (!j.hasNext())
+				return null;
+			Geometry geom = j.next().getDefaultGeometry();
+			return (geom == null) ? null : geom.getGeometryType();
+		} finally {
+			collection.close(j);
+		}
+	}	
 	
 	/*********************************************************************
 	 * creates new name for new layer
@@ -44,8 +44,9 @@ import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.FeatureType;
 import org.geotools.feature.FeatureTypeFactory;
 
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.LineString;
-import com.vividsolutions.jts.io.WKTReader;
 
 /*************************************************
  * Bulider for Izolines. It's active feature of IZOManager
@@ -93,7 +94,7 @@ public class IZOBuilder  implements IRunnableWithProgress {
 			   FeatureType ftTriangles = FeatureTypeFactory.newFeatureType(
 		    			new AttributeType[] { geom, idx }, "izoline");
 
-			   WKTReader wktReader = new WKTReader();
+			   GeometryFactory factory = new GeometryFactory();
 		       Feature aNewFeature = null;
 		       LinkedList izoLinesList = new LinkedList();
 		       int number = 0;
@@ -108,8 +109,8 @@ public class IZOBuilder  implements IRunnableWithProgress {
 		    			Iterator iter = izoLinesList.iterator();
 		    			while (iter.hasNext()){
 		    				Izolines izo = (Izolines) iter.next();
-		    				LineString geometry = (LineString) wktReader
-		    				.read("LINESTRING ("+(izo.A.x)+" "+(izo.A.y)+"," +(izo.B.x)+" "+(izo.B.y)+")");
+		    				LineString geometry = factory.createLineString(new Coordinate[] {
+		    						new Coordinate(izo.A.x, izo.A.y), new Coordinate(izo.B.x, izo.B.y) });
 		    				//System.out.println("IZO"+ ((Integer)j).toString());
 		    				aNewFeature = ftTriangles.create(new Object[]{(Object)geometry,(Object)izo.elevation}, ((Integer) number).toString());
 		    				number++;
@@ -18,7 +18,6 @@ package net.refractions.udig.dem.tin;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.LinkedList;
 
 import net.refractions.udig.catalog.IGeoResource;
@@ -41,12 +40,13 @@ import org.geotools.feature.AttributeType;
 import org.geotools.feature.AttributeTypeFactory;
 import org.geotools.feature.Feature;
 import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
 import org.geotools.feature.FeatureType;
 import org.geotools.feature.FeatureTypeFactory;
 
 import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.LinearRing;
-import com.vividsolutions.jts.io.WKTReader;
 
 /*******************************************
  * Builder for TIN
@@ -73,57 +73,40 @@ public class TINBuilder  implements IRunnableWithProgress {
                .getResource(FeatureSource.class, null);
            monitor.beginTask("Creating TIN ....", source.getFeatures().size());
 
-           FeatureCollection collection = new MemoryFeatureCollection(source
-                   .getSchema());
-     
            Map map = (Map) ApplicationGIS.getActiveMap();
 
-           collection.addAll(source.getFeatures());
            tinManager.triangles = new DelaunayDataStoreRAM();
            tinManager.tin = new IncrementalDT(tinManager.triangles);
  
            monitor.subTask("counting ...");
            Feature feature;
-           
-           for (Iterator j = collection.iterator(); j.hasNext();) {
-               feature = (Feature) j.next();
-               Coordinate[] coor = feature.getDefaultGeometry().getCoordinates();
-               
-               for (int k=0; k<coor.length; k++){
-            	   String Zs = (feature.getAttribute(tinManager.unitZindex)).toString();
-            	   
-            	   tinManager.tin.insertPoint(new Coordinate(coor[k].x, coor[k].y, Double.valueOf(Zs)));
-            	   monitor.worked(1);
-               }
-               if (monitor.isCanceled()) {
-                   throw new InterruptedException(
-                       "The counting TIN was cancelled.");
-               }
-           }
- 
-           if (tinManager.softBreakLLayer!=null){
-        	   monitor.subTask("Counting soft break lines...");
-        	   FeatureSource sourceSoft = (FeatureSource) tinManager.softBreakLLayer.getResource(FeatureSource.class, null);
-        	   FeatureCollection collectionSoft = new MemoryFeatureCollection(sourceSoft.getSchema());
-        	   collection.addAll(sourceSoft.getFeatures());
-        	   LinkedList listLine = new LinkedList();
-        	   for (Iterator j = collection.iterator(); j.hasNext();) {
-        		   feature = (Feature) j.next();
+           // features are read by iterator, the layer isn't copied to memory
+           FeatureCollection collection = source.getFeatures();
+           FeatureIterator features = collection.features();
+           try {
+        	   while (features.hasNext()) {
+        		   feature = features.next();
         		   Coordinate[] coor = feature.getDefaultGeometry().getCoordinates();
-           
-        		   for (int k=1; k<coor.length; k++ ){
-        			  // System.out.println("AHOJ");
-        			   LineDT L = new LineDT(new PointDT(coor[k].x, coor[k].y, 0), new PointDT(coor[k-1].x, coor[k-1].y, 0), false);
-        			   //System.out.println(L.A.toString()+"  "+ L.B.toString());
-        			   listLine.add(L);
-        			   monitor.worked(2);
-        			   
+        		   double z = Double.parseDouble(feature.getAttribute(tinManager.unitZindex).toString());
+
+        		   for (int k=0; k<coor.length; k++){
+        			   tinManager.tin.insertPoint(new Coordinate(coor[k].x, coor[k].y, z));
+        			   monitor.worked(1);
         		   }
         		   if (monitor.isCanceled()) {
         			   throw new InterruptedException(
-        			   	"The counting TIN was cancelled.");
+        			   "The counting TIN was cancelled.");
         		   }
         	   }
+           } finally {
+        	   collection.close(features);
+           }
+ 
+           if (tinManager.softBreakLLayer!=null){
+        	   monitor.subTask("Counting soft break lines...");
+        	   FeatureSource sourceSoft = (FeatureSource) tinManager.softBreakLLayer.getResource(FeatureSource.class, null);
+        	   FeatureCollection collectionSoft = sourceSoft.getFeatures();
+        	   LinkedList listLine = readBreakLines(collectionSoft, false, monitor);
         	   TINWithFixedLines.countTIN(tinManager.triangles, listLine);
            }
            
@@ -133,26 +116,8 @@ public class TINBuilder  implements IRunnableWithProgress {
            if (tinManager.hardBreakLLayer!=null){
         	   monitor.subTask("Counting hard break lines...");  
         	   FeatureSource sourceHard = (FeatureSource) tinManager.hardBreakLLayer.getResource(FeatureSource.class, null);
-        	   FeatureCollection collectionHard = new MemoryFeatureCollection(sourceHard.getSchema());
-        	   collection.addAll(sourceHard.getFeatures());
-        	   LinkedList listLine = new LinkedList();
-        	   for (Iterator j = collection.iterator(); j.hasNext();) {
-        		   feature = (Feature) j.next();
-        		   Coordinate[] coor = feature.getDefaultGeometry().getCoordinates();
-           
-        		   for (int k=1; k<coor.length; k++ ){
-        			  // System.out.println("AHOJ");
-        			   LineDT L = new LineDT(new PointDT(coor[k].x, coor[k].y, 0), new PointDT(coor[k-1].x, coor[k-1].y, 0), true);
-        			   //System.out.println(L.A.toString()+"  "+ L.B.toString());
-        			   listLine.add(L);
-        			   monitor.worked(2);
-        			   
-        		   }
-        		   if (monitor.isCanceled()) {
-        			   throw new InterruptedException(
-        			   	"The counting TIN was cancelled.");
-        		   }
-        	   }
+        	   FeatureCollection collectionHard = sourceHard.getFeatures();
+        	   LinkedList listLine = readBreakLines(collectionHard, true, monitor);
         	   TINWithFixedLines.countTIN(tinManager.triangles, listLine);
            }
            
@@ -167,16 +132,16 @@ public class TINBuilder  implements IRunnableWithProgress {
 		   FeatureType ftTriangles = FeatureTypeFactory.newFeatureType(
 	    			new AttributeType[] { geom, idx }, "Triangle");
 
-		   WKTReader wktReader = new WKTReader();
+		   GeometryFactory factory = new GeometryFactory();
 	       collection = new MemoryFeatureCollection(ftTriangles);
 	       Feature aNewFeature = null;
 	       for (int j =0; j<tinManager.triangles.getNumberOfTriangles(); j++){
 
 	    	   TriangleDT T = (TriangleDT)tinManager.triangles.getTriangle(j);
 	    		if (T!=null){
-	    			LinearRing geometry = (LinearRing) wktReader
-	    		   			.read("LINEARRING ("+(T.A.x)+" "+(T.A.y)+","+(T.B.x)+" "+(T.B.y)+"," +
-	    		   					+(T.C.x)+" "+(T.C.y)+","+(T.A.x)+" "+(T.A.y)+")");
+	    			LinearRing geometry = factory.createLinearRing(new Coordinate[] {
+	    					new Coordinate(T.A.x, T.A.y), new Coordinate(T.B.x, T.B.y),
+	    					new Coordinate(T.C.x, T.C.y), new Coordinate(T.A.x, T.A.y) });
 		    		//System.out.println( ((Integer)j).toString());
 	    			aNewFeature = ftTriangles.create(new Object[]{(Object)geometry,(Object)j},  ((Integer)j).toString());
 	    			collection.add(aNewFeature);
@@ -196,5 +161,37 @@ public class TINBuilder  implements IRunnableWithProgress {
            e.printStackTrace();
        }
     }
+
+	/********************************************************
+	 * The private method for reading of break lines, features are read
+	 * by iterator of collection
+	 * @param collection - features of break lines
+	 * @param isHard - true for hard break lines
+	 * @return list of LineDT
+	 */
+	private LinkedList readBreakLines(FeatureCollection collection, boolean isHard,
+			IProgressMonitor monitor) throws InterruptedException {
+		LinkedList listLine = new LinkedList();
+		FeatureIterator features = collection.features();
+		try {
+			while (features.hasNext()) {
+				Feature feature = features.next();
+				Coordinate[] coor = feature.getDefaultGeometry().getCoordinates();
+
+				for (int k=1; k<coor.length; k++ ){
+					LineDT L = new LineDT(new PointDT(coor[k].x, coor[k].y, 0), new PointDT(coor[k-1].x, coor[k-1].y, 0), isHard);
+					listLine.add(L);
+					monitor.worked(2);
+				}
+				if (monitor.isCanceled()) {
+					throw new InterruptedException(
+					"The counting TIN was cancelled.");
+				}
+			}
+		} finally {
+			collection.close(features);
+		}
+		return listLine;
+	}
 	
 }
\ No newline at end of file